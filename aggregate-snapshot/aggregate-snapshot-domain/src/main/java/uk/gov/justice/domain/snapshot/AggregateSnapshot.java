@@ -5,13 +5,9 @@ import static org.apache.commons.lang.SerializationUtils.serialize;
 import uk.gov.justice.domain.aggregate.Aggregate;
 import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
 
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.UUID;
 
-import org.apache.commons.lang.SerializationException;
 import org.apache.commons.lang.builder.EqualsBuilder;
 import org.apache.commons.lang.builder.HashCodeBuilder;
 
@@ -20,6 +16,7 @@ public class AggregateSnapshot<T extends Aggregate> implements Serializable {
     private final UUID streamId;
     private final Long versionId;
     private final String type;
+    private final String format;
     private final byte[] aggregateByteRepresentation;
 
     @SuppressWarnings("unchecked")
@@ -27,17 +24,33 @@ public class AggregateSnapshot<T extends Aggregate> implements Serializable {
         this(streamId, versionId, (Class<T>) aggregate.getClass(), serialize(aggregate));
     }
 
+    public AggregateSnapshot(final UUID streamId, final Long versionId, final T aggregate, final SnapshotSerializer serializer) {
+        this(streamId, versionId, aggregate.getClass().getName(), serializer.getFormat(), serializer.serialize(aggregate));
+    }
+
     public AggregateSnapshot(final UUID streamId, final Long versionId, final Class<T> type, final byte[] aggregateByteRepresentation) {
-        this.streamId = streamId;
-        this.versionId = versionId;
-        this.type = type.getName();
-        this.aggregateByteRepresentation = aggregateByteRepresentation;
+        this(streamId, versionId, type.getName(), aggregateByteRepresentation);
     }
 
     public AggregateSnapshot(final UUID streamId, final Long versionId, final String type, final byte[] aggregateByteRepresentation) {
+        this(streamId, versionId, type, JavaSnapshotSerializer.FORMAT, aggregateByteRepresentation);
+    }
+
+    /**
+     * Create a snapshot from its byte representation.
+     *
+     * @param streamId                    the id of the stream
+     * @param versionId                   the version of the stream the snapshot was taken at
+     * @param type                        the class name of the aggregate
+     * @param format                      the format of the serializer that wrote the snapshot,
+     *                                    null for snapshots written with Java serialization
+     * @param aggregateByteRepresentation the serialized aggregate
+     */
+    public AggregateSnapshot(final UUID streamId, final Long versionId, final String type, final String format, final byte[] aggregateByteRepresentation) {
         this.streamId = streamId;
         this.versionId = versionId;
         this.type = type;
+        this.format = format == null ? JavaSnapshotSerializer.FORMAT : format;
         this.aggregateByteRepresentation = aggregateByteRepresentation;
     }
 
@@ -53,14 +66,35 @@ public class AggregateSnapshot<T extends Aggregate> implements Serializable {
         return type;
     }
 
+    public String getFormat() {
+        return format;
+    }
+
     public byte[] getAggregateByteRepresentation() {
         return aggregateByteRepresentation;
     }
 
     public T getAggregate(final ObjectInputStreamStrategy streamStrategy) throws AggregateChangeDetectedException {
-        try (final ObjectInputStream objectInputStream = streamStrategy.objectInputStreamOf(new ByteArrayInputStream(aggregateByteRepresentation))) {
-            return (T) Class.forName(getType()).cast(objectInputStream.readObject());
-        } catch (SerializationException | ClassNotFoundException | IOException e) {
+        return getAggregate(new JavaSnapshotSerializer(streamStrategy));
+    }
+
+    /**
+     * Deserialize the aggregate with the given serializer, which must be of the format of the
+     * snapshot.
+     *
+     * @param serializer the serializer
+     * @return the aggregate
+     * @throws AggregateChangeDetectedException if the aggregate cannot be deserialized
+     */
+    @SuppressWarnings("unchecked")
+    public T getAggregate(final SnapshotSerializer serializer) throws AggregateChangeDetectedException {
+        if (!format.equals(serializer.getFormat())) {
+            throw new AggregateChangeDetectedException(String.format("Snapshot of format %s cannot be read by %s serializer", format, serializer.getFormat()));
+        }
+
+        try {
+            return serializer.deserialize(aggregateByteRepresentation, (Class<T>) Class.forName(getType()));
+        } catch (ClassNotFoundException e) {
             throw new AggregateChangeDetectedException(e.getLocalizedMessage());
         }
     }
@@ -77,6 +111,7 @@ public class AggregateSnapshot<T extends Aggregate> implements Serializable {
                 .append(streamId, that.streamId)
                 .append(versionId, that.versionId)
                 .append(type, that.type)
+                .append(format, that.format)
                 .append(aggregateByteRepresentation, that.aggregateByteRepresentation)
                 .isEquals();
     }
@@ -87,6 +122,7 @@ public class AggregateSnapshot<T extends Aggregate> implements Serializable {
                 .append(streamId)
                 .append(versionId)
                 .append(type)
+                .append(format)
                 .append(aggregateByteRepresentation)
                 .toHashCode();
     }
@@ -0,0 +1,61 @@
+package uk.gov.justice.domain.snapshot;
+
+import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.ANY;
+import static com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility.NONE;
+import static com.fasterxml.jackson.annotation.PropertyAccessor.ALL;
+import static com.fasterxml.jackson.annotation.PropertyAccessor.FIELD;
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+import static com.fasterxml.jackson.databind.SerializationFeature.FAIL_ON_EMPTY_BEANS;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang.SerializationException;
+
+/**
+ * Serializes the fields of aggregates as json with Jackson, ignoring getters and setters.
+ *
+ * Aggregates are created with their no argument constructor, which may be private, and their
+ * fields then set from the json. Fields no longer declared by the aggregate are ignored and fields
+ * added since the snapshot was written keep the value given by the constructor, so snapshots
+ * survive changes to the class of an aggregate that do not change the type of an existing field.
+ * Fields declared with an abstract type need Jackson type information to be read back.
+ */
+public class JacksonSnapshotSerializer implements SnapshotSerializer {
+
+    public static final String FORMAT = "jackson";
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .findAndRegisterModules()
+            .setVisibility(ALL, NONE)
+            .setVisibility(FIELD, ANY)
+            .configure(FAIL_ON_EMPTY_BEANS, false)
+            .configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public byte[] serialize(final Aggregate aggregate) {
+        try {
+            return objectMapper.writeValueAsBytes(aggregate);
+        } catch (final JsonProcessingException e) {
+            throw new SerializationException(e);
+        }
+    }
+
+    @Override
+    public <T extends Aggregate> T deserialize(final byte[] aggregateByteRepresentation, final Class<T> type) throws AggregateChangeDetectedException {
+        try {
+            return objectMapper.readValue(aggregateByteRepresentation, type);
+        } catch (final IOException e) {
+            throw new AggregateChangeDetectedException(e.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package uk.gov.justice.domain.snapshot;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+
+import org.apache.commons.lang.SerializationException;
+import org.apache.commons.lang.SerializationUtils;
+
+/**
+ * Serializes aggregates with Java serialization, reading them back through the {@link
+ * ObjectInputStream} of an {@link ObjectInputStreamStrategy}. Any incompatible change to the class
+ * of an aggregate prevents snapshots written before the change from being read.
+ */
+public class JavaSnapshotSerializer implements SnapshotSerializer {
+
+    public static final String FORMAT = "java";
+
+    private final ObjectInputStreamStrategy streamStrategy;
+
+    public JavaSnapshotSerializer() {
+        this(new DefaultObjectInputStreamStrategy());
+    }
+
+    public JavaSnapshotSerializer(final ObjectInputStreamStrategy streamStrategy) {
+        this.streamStrategy = streamStrategy;
+    }
+
+    @Override
+    public String getFormat() {
+        return FORMAT;
+    }
+
+    @Override
+    public byte[] serialize(final Aggregate aggregate) {
+        return SerializationUtils.serialize(aggregate);
+    }
+
+    @Override
+    public <T extends Aggregate> T deserialize(final byte[] aggregateByteRepresentation, final Class<T> type) throws AggregateChangeDetectedException {
+        try (final ObjectInputStream objectInputStream = streamStrategy.objectInputStreamOf(new ByteArrayInputStream(aggregateByteRepresentation))) {
+            return type.cast(objectInputStream.readObject());
+        } catch (SerializationException | ClassNotFoundException | IOException e) {
+            throw new AggregateChangeDetectedException(e.getLocalizedMessage());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package uk.gov.justice.domain.snapshot;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
+
+/**
+ * Serializes aggregates into the byte representation held by an {@link AggregateSnapshot}, and
+ * deserializes them again when the snapshot is read.
+ *
+ * The format of the serializer that wrote a snapshot is recorded in the snapshot, so snapshots
+ * written by different serializers can be read from the same table.
+ *
+ * Serializers other than those built in are discovered with {@link java.util.ServiceLoader}.
+ */
+public interface SnapshotSerializer {
+
+    /**
+     * @return the name of the format, recorded against each snapshot the serializer writes
+     */
+    String getFormat();
+
+    /**
+     * Serialize an aggregate.
+     *
+     * @param aggregate the aggregate
+     * @return the byte representation of the aggregate
+     * @throws org.apache.commons.lang.SerializationException if the aggregate cannot be serialized
+     */
+    byte[] serialize(final Aggregate aggregate);
+
+    /**
+     * Deserialize an aggregate.
+     *
+     * @param aggregateByteRepresentation the byte representation of the aggregate
+     * @param type                        the type of the aggregate
+     * @param <T>                         the type of the aggregate
+     * @return the aggregate
+     * @throws AggregateChangeDetectedException if the aggregate cannot be deserialized, for example
+     *                                          because its class has changed since it was serialized
+     */
+    <T extends Aggregate> T deserialize(final byte[] aggregateByteRepresentation, final Class<T> type) throws AggregateChangeDetectedException;
+}
@@ -0,0 +1,60 @@
+package uk.gov.justice.domain.snapshot;
+
+import static java.lang.String.format;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the {@link SnapshotSerializer}s available to read and write snapshots: the built in
+ * java and jackson serializers, plus any registered with {@link ServiceLoader}.
+ */
+public final class SnapshotSerializers {
+
+    private static final Map<String, SnapshotSerializer> SERIALIZERS = loadSerializers();
+
+    private SnapshotSerializers() {
+    }
+
+    /**
+     * Get the serializer of the given format. A null format, as recorded for snapshots written
+     * before serializers were introduced, gives the java serializer.
+     *
+     * @param format the format of the serializer
+     * @return the serializer
+     * @throws IllegalArgumentException if there is no serializer of the given format
+     */
+    public static SnapshotSerializer serializerOf(final String format) {
+        if (format == null) {
+            return SERIALIZERS.get(JavaSnapshotSerializer.FORMAT);
+        }
+
+        final SnapshotSerializer serializer = SERIALIZERS.get(format);
+        if (serializer == null) {
+            throw new IllegalArgumentException(format("No snapshot serializer of format %s. Available formats are %s", format, SERIALIZERS.keySet()));
+        }
+        return serializer;
+    }
+
+    /**
+     * @return all available serializers
+     */
+    public static Collection<SnapshotSerializer> all() {
+        return Collections.unmodifiableCollection(SERIALIZERS.values());
+    }
+
+    private static Map<String, SnapshotSerializer> loadSerializers() {
+        final Map<String, SnapshotSerializer> serializers = new LinkedHashMap<>();
+        register(serializers, new JavaSnapshotSerializer());
+        register(serializers, new JacksonSnapshotSerializer());
+        ServiceLoader.load(SnapshotSerializer.class).forEach(serializer -> register(serializers, serializer));
+        return serializers;
+    }
+
+    private static void register(final Map<String, SnapshotSerializer> serializers, final SnapshotSerializer serializer) {
+        serializers.putIfAbsent(serializer.getFormat(), serializer);
+    }
+}
@@ -4,6 +4,7 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
 
 import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
 
 import java.io.Serializable;
 import java.util.UUID;
@@ -44,6 +45,35 @@ public class AggregateSnapshotTest {
         assertThat(snapshot.getAggregate(streamStrategy), is(aggregate));
     }
 
+    @Test
+    public void shouldRecordJavaFormatForJavaSerializedSnapshots() throws Exception {
+        final AggregateSnapshot<TestAggregate> snapshot = new AggregateSnapshot<>(STREAM_ID, VERSION_ID, new TestAggregate("STATE1"));
+        final AggregateSnapshot<TestAggregate> storedSnapshot = new AggregateSnapshot<>(STREAM_ID, VERSION_ID, TYPE, null, snapshot.getAggregateByteRepresentation());
+
+        assertThat(snapshot.getFormat(), is(JavaSnapshotSerializer.FORMAT));
+        assertThat(storedSnapshot.getFormat(), is(JavaSnapshotSerializer.FORMAT));
+        assertThat(storedSnapshot.getAggregate(streamStrategy), is(new TestAggregate("STATE1")));
+    }
+
+    @Test
+    public void shouldCreateAnAggregateSnapshotWithSerializer() throws Exception {
+        final TestAggregate aggregate = new TestAggregate("STATE1");
+        final SnapshotSerializer serializer = new JavaSnapshotSerializer();
+
+        final AggregateSnapshot<TestAggregate> snapshot = new AggregateSnapshot<>(STREAM_ID, VERSION_ID, aggregate, serializer);
+
+        assertThat(snapshot.getType(), is(TYPE));
+        assertThat(snapshot.getFormat(), is(serializer.getFormat()));
+        assertThat(snapshot.getAggregate(serializer), is(aggregate));
+    }
+
+    @Test(expected = AggregateChangeDetectedException.class)
+    public void shouldNotGetAggregateWithSerializerOfAnotherFormat() throws Exception {
+        final AggregateSnapshot<TestAggregate> snapshot = new AggregateSnapshot<>(STREAM_ID, VERSION_ID, new TestAggregate("STATE1"));
+
+        snapshot.getAggregate(new JacksonSnapshotSerializer());
+    }
+
 
     public static class TestAggregate implements Aggregate, Serializable {
         private static final long serialVersionUID = 42L;
@@ -0,0 +1,79 @@
+package uk.gov.justice.domain.snapshot;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class JacksonSnapshotSerializerTest {
+
+    private final JacksonSnapshotSerializer serializer = new JacksonSnapshotSerializer();
+
+    @Test
+    public void shouldSerializeAndDeserializeFieldsOfAggregate() throws Exception {
+        final TestAggregate aggregate = new TestAggregate();
+        aggregate.apply("EVENT1");
+        aggregate.apply("EVENT2");
+
+        final TestAggregate deserialized = serializer.deserialize(serializer.serialize(aggregate), TestAggregate.class);
+
+        assertThat(deserialized.id, is(aggregate.id));
+        assertThat(deserialized.events, is(aggregate.events));
+        assertThat(deserialized.counts, is(aggregate.counts));
+        assertThat(deserialized.eventCount, is(2));
+    }
+
+    @Test
+    public void shouldIgnoreFieldsNoLongerDeclaredByAggregate() throws Exception {
+        final byte[] json = "{\"events\":[\"EVENT1\"],\"eventCount\":1,\"removedField\":\"VALUE\"}".getBytes(UTF_8);
+
+        final TestAggregate deserialized = serializer.deserialize(json, TestAggregate.class);
+
+        assertThat(deserialized.events.size(), is(1));
+        assertThat(deserialized.eventCount, is(1));
+    }
+
+    @Test(expected = AggregateChangeDetectedException.class)
+    public void shouldThrowAggregateChangeDetectedExceptionIfFieldChangedType() throws Exception {
+        serializer.deserialize("{\"eventCount\":\"NOT A NUMBER\"}".getBytes(UTF_8), TestAggregate.class);
+    }
+
+    @Test
+    public void shouldHaveJacksonFormat() {
+        assertThat(serializer.getFormat(), is("jackson"));
+    }
+
+    public static class TestAggregate implements Aggregate {
+        private static final long serialVersionUID = 42L;
+
+        private UUID id = UUID.randomUUID();
+        private final List<String> events = new ArrayList<>();
+        private final Map<String, Integer> counts = new HashMap<>();
+        private int eventCount;
+
+        private TestAggregate() {
+        }
+
+        @Override
+        public Object apply(Object event) {
+            events.add((String) event);
+            counts.merge((String) event, 1, Integer::sum);
+            eventCount++;
+            return event;
+        }
+
+        public int getNotAField() {
+            return eventCount * 2;
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package uk.gov.justice.domain.snapshot;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static uk.gov.justice.domain.snapshot.SnapshotSerializers.serializerOf;
+
+import org.junit.Test;
+
+public class SnapshotSerializersTest {
+
+    @Test
+    public void shouldGetBuiltInSerializersByFormat() {
+        assertThat(serializerOf("java"), instanceOf(JavaSnapshotSerializer.class));
+        assertThat(serializerOf("jackson"), instanceOf(JacksonSnapshotSerializer.class));
+    }
+
+    @Test
+    public void shouldGetJavaSerializerForSnapshotsWithoutFormat() {
+        assertThat(serializerOf(null).getFormat(), is(JavaSnapshotSerializer.FORMAT));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionForUnknownFormat() {
+        serializerOf("unknown");
+    }
+}
@@ -0,0 +1,34 @@
+package uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.domain.snapshot.AggregateSnapshot;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The latest snapshot of a stream, if any, with the events of the stream after its version, in
+ * version order. The events are read from the database as their stream is consumed, so the stream
+ * must be closed once read.
+ *
+ * @param <T> the type of the aggregate of the snapshot
+ */
+public class SnapshotAndEvents<T extends Aggregate> {
+
+    private final Optional<AggregateSnapshot<T>> snapshot;
+    private final Stream<EventLog> events;
+
+    public SnapshotAndEvents(final Optional<AggregateSnapshot<T>> snapshot, final Stream<EventLog> events) {
+        this.snapshot = snapshot;
+        this.events = events;
+    }
+
+    public Optional<AggregateSnapshot<T>> getSnapshot() {
+        return snapshot;
+    }
+
+    public Stream<EventLog> getEvents() {
+        return events;
+    }
+}
@@ -2,18 +2,27 @@ package uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot;
 
 
 import static java.lang.String.format;
+import static java.time.ZoneOffset.UTC;
+import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository.eventLogFrom;
 
 import uk.gov.justice.domain.aggregate.Aggregate;
 import uk.gov.justice.domain.snapshot.AggregateSnapshot;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
 import uk.gov.justice.services.jdbc.persistence.AbstractJdbcRepository;
 import uk.gov.justice.services.jdbc.persistence.JdbcRepositoryException;
+import uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import javax.inject.Inject;
 import javax.naming.NamingException;
@@ -22,6 +31,9 @@ import org.slf4j.Logger;
 
 /**
  * JDBC based repository for snapshot records.
+ *
+ * The latest snapshot of a stream and type is found through the index on stream id, type and
+ * version, reading a single row.
  */
 public class SnapshotJdbcRepository extends AbstractJdbcRepository<AggregateSnapshot> implements SnapshotRepository {
 
@@ -30,11 +42,31 @@ public class SnapshotJdbcRepository extends AbstractJdbcRepository<AggregateSnap
     private static final String COL_STREAM_ID = "stream_id";
     private static final String COL_VERSION_ID = "version_id";
     private static final String COL_TYPE = "type";
+    private static final String COL_FORMAT = "format";
     private static final String COL_AGGREGATE = "aggregate";
-    private static final String SQL_FIND_LATEST_BY_STREAM_ID = "SELECT * FROM snapshot WHERE stream_id=? ORDER BY version_id DESC";
-    private static final String SQL_INSERT_EVENT_LOG = "INSERT INTO snapshot (stream_id, version_id, type, aggregate ) VALUES(?, ?, ?, ?)";
+    private static final String COL_SNAPSHOT_VERSION_ID = "snapshot_version_id";
+    private static final String COL_SNAPSHOT_FORMAT = "snapshot_format";
+    private static final String COL_SNAPSHOT_AGGREGATE = "snapshot_aggregate";
+    private static final String COL_EVENT_SEQUENCE_ID = "sequence_id";
+    private static final String SQL_FIND_LATEST_BY_STREAM_ID_AND_TYPE = "SELECT * FROM snapshot WHERE stream_id=? AND type=? ORDER BY version_id DESC LIMIT 1";
+    private static final String SQL_FIND_LATEST_WITH_EVENTS_AFTER = "SELECT s.version_id AS snapshot_version_id, s.format AS snapshot_format, " +
+            "CASE WHEN e.sequence_id IS NULL OR e.sequence_id = COALESCE(s.version_id, 0) + 1 THEN s.aggregate END AS snapshot_aggregate, e.* " +
+            "FROM (SELECT 1 AS latest) l " +
+            "LEFT JOIN (SELECT version_id, format, aggregate FROM snapshot WHERE stream_id=? AND type=? ORDER BY version_id DESC LIMIT 1) s ON 1=1 " +
+            "LEFT JOIN event_log e ON e.stream_id=? AND e.sequence_id>COALESCE(s.version_id, 0) " +
+            "ORDER BY e.sequence_id ASC";
+    private static final String SQL_INSERT_EVENT_LOG = "INSERT INTO snapshot (stream_id, version_id, type, format, aggregate, date_created ) VALUES(?, ?, ?, ?, ?, ?)";
     private static final String DELETE_ALL_SNAPSHOTS_FOR_STREAM_ID_AND_CLASS = "delete from snapshot where stream_id =? and  type=?";
-    private static final String SQL_CURRENT_SNAPSHOT_VERSION_ID = "SELECT version_id FROM snapshot WHERE stream_id=? ORDER BY version_id DESC";
+    private static final String SQL_DELETE_ALL_BUT_LATEST = "DELETE FROM snapshot WHERE stream_id=? AND type=? AND version_id < " +
+            "(SELECT MIN(version_id) FROM (SELECT version_id FROM snapshot WHERE stream_id=? AND type=? ORDER BY version_id DESC LIMIT ?) latest)";
+    private static final String SQL_FIND_SUPERSEDED_CREATED_BEFORE = "SELECT s.stream_id, s.version_id, s.type FROM snapshot s " +
+            "WHERE (s.date_created IS NULL OR s.date_created<?) " +
+            "AND EXISTS (SELECT 1 FROM snapshot n WHERE n.stream_id=s.stream_id AND n.type=s.type AND n.version_id>s.version_id) LIMIT ?";
+    private static final String SQL_DELETE_SNAPSHOT = "DELETE FROM snapshot WHERE stream_id=? AND version_id=? AND type=?";
+    private static final String SQL_SNAPSHOT_COUNT = "SELECT COUNT(*) FROM snapshot";
+    private static final String SQL_ESTIMATED_SNAPSHOT_COUNT = "SELECT reltuples::bigint FROM pg_class WHERE oid='snapshot'::regclass";
+    private static final String POSTGRESQL = "PostgreSQL";
+    private static final String SQL_CURRENT_SNAPSHOT_VERSION_ID = "SELECT version_id FROM snapshot WHERE stream_id=? AND type=? ORDER BY version_id DESC LIMIT 1";
     private static final String JNDI_DS_EVENT_STORE_PATTERN = "java:/app/%s/DS.eventstore";
 
     @Inject
@@ -48,7 +80,9 @@ public class SnapshotJdbcRepository extends AbstractJdbcRepository<AggregateSnap
             ps.setObject(1, aggregateSnapshot.getStreamId());
             ps.setLong(2, aggregateSnapshot.getVersionId());
             ps.setString(3, aggregateSnapshot.getType());
-            ps.setBytes(4, aggregateSnapshot.getAggregateByteRepresentation());
+            ps.setString(4, aggregateSnapshot.getFormat());
+            ps.setBytes(5, aggregateSnapshot.getAggregateByteRepresentation());
+            ps.setTimestamp(6, toSqlTimestamp(ZonedDateTime.now(UTC)));
             ps.executeUpdate();
         } catch (SQLException e) {
             logger.error("Error while storing a snapshot for {} at version {}", aggregateSnapshot.getStreamId(), aggregateSnapshot.getVersionId(), e);
@@ -59,9 +93,10 @@ public class SnapshotJdbcRepository extends AbstractJdbcRepository<AggregateSnap
     public <T extends Aggregate> Optional<AggregateSnapshot<T>> getLatestSnapshot(final UUID streamId, final Class<T> clazz) {
 
         try (final Connection connection = getDataSource().getConnection();
-             final PreparedStatement preparedStatement = connection.prepareStatement(SQL_FIND_LATEST_BY_STREAM_ID)) {
+             final PreparedStatement preparedStatement = connection.prepareStatement(SQL_FIND_LATEST_BY_STREAM_ID_AND_TYPE)) {
 
             preparedStatement.setObject(1, streamId);
+            preparedStatement.setString(2, clazz.getName());
 
             return extractResults(preparedStatement, clazz);
 
@@ -71,6 +106,64 @@ public class SnapshotJdbcRepository extends AbstractJdbcRepository<AggregateSnap
         return Optional.empty();
     }
 
+    /**
+     * The events are joined to the latest snapshot in the one query, so they must be held in the
+     * event_log table of the snapshot datasource. The aggregate of the snapshot is returned with
+     * the first row only. The events are read through a cursor as their stream is consumed, which
+     * holds the connection until the stream is closed.
+     */
+    @Override
+    public <T extends Aggregate> SnapshotAndEvents<T> getLatestSnapshotAndEventsAfter(final UUID streamId, final Class<T> clazz) {
+
+        PreparedStatementWrapper psWrapper = null;
+        try {
+            psWrapper = streamingPreparedStatementWrapperOf(SQL_FIND_LATEST_WITH_EVENTS_AFTER);
+            psWrapper.setObject(1, streamId);
+            psWrapper.setString(2, clazz.getName());
+            psWrapper.setObject(3, streamId);
+
+            final ResultSet resultSet = psWrapper.executeQuery();
+            if (!resultSet.next()) {
+                psWrapper.close();
+                return new SnapshotAndEvents<>(Optional.empty(), Stream.empty());
+            }
+
+            Optional<AggregateSnapshot<T>> snapshot = Optional.empty();
+            final long versionId = resultSet.getLong(COL_SNAPSHOT_VERSION_ID);
+            final boolean snapshotFound = !resultSet.wasNull();
+            if (snapshotFound) {
+                final byte[] aggregate = resultSet.getBytes(COL_SNAPSHOT_AGGREGATE);
+                if (aggregate != null) {
+                    snapshot = Optional.of(new AggregateSnapshot<>(streamId, versionId, clazz.getName(), resultSet.getString(COL_SNAPSHOT_FORMAT), aggregate));
+                }
+            }
+
+            if (resultSet.getObject(COL_EVENT_SEQUENCE_ID) == null) {
+                psWrapper.close();
+                return new SnapshotAndEvents<>(snapshot, Stream.empty());
+            }
+
+            final EventLog firstEvent = eventLogFrom(resultSet);
+            if (snapshotFound && !snapshot.isPresent()) {
+                snapshot = getLatestSnapshot(streamId, clazz);
+            }
+
+            final PreparedStatementWrapper events = psWrapper;
+            return new SnapshotAndEvents<>(snapshot, Stream.concat(Stream.of(firstEvent), streamOf(events, resultSet, row -> {
+                try {
+                    return eventLogFrom(row);
+                } catch (SQLException e) {
+                    throw handled(e, events);
+                }
+            })));
+        } catch (SQLException e) {
+            if (psWrapper != null) {
+                psWrapper.close();
+            }
+            throw new JdbcRepositoryException(format(READING_STREAM_EXCEPTION, streamId), e);
+        }
+    }
+
     @Override
     public <T extends Aggregate> void removeAllSnapshots(final UUID streamId, final Class<T> clazz) {
         try (final Connection connection = getDataSource().getConnection();
@@ -83,12 +176,86 @@ public class SnapshotJdbcRepository extends AbstractJdbcRepository<AggregateSnap
         }
     }
 
+    @Override
+    public <T extends Aggregate> int removeAllButLatestSnapshots(final UUID streamId, final Class<T> clazz, final int count) {
+        try (final Connection connection = getDataSource().getConnection();
+             final PreparedStatement ps = connection.prepareStatement(SQL_DELETE_ALL_BUT_LATEST)) {
+            ps.setObject(1, streamId);
+            ps.setString(2, clazz.getName());
+            ps.setObject(3, streamId);
+            ps.setString(4, clazz.getName());
+            ps.setInt(5, count);
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            logger.error(format("Exception while removing snapshots %s of stream %s", clazz, streamId), e);
+        }
+        return 0;
+    }
+
+    /**
+     * Rows written before snapshots recorded their creation time are treated as created before any
+     * given time.
+     */
+    @Override
+    public int removeSupersededSnapshotsCreatedBefore(final ZonedDateTime createdBefore, final int batchSize) {
+        try (final Connection connection = getDataSource().getConnection()) {
+            final List<SnapshotKey> keys = new ArrayList<>();
+            try (final PreparedStatement ps = connection.prepareStatement(SQL_FIND_SUPERSEDED_CREATED_BEFORE)) {
+                ps.setTimestamp(1, toSqlTimestamp(createdBefore));
+                ps.setInt(2, batchSize);
+                try (final ResultSet resultSet = ps.executeQuery()) {
+                    while (resultSet.next()) {
+                        keys.add(new SnapshotKey((UUID) resultSet.getObject(COL_STREAM_ID), resultSet.getLong(COL_VERSION_ID), resultSet.getString(COL_TYPE)));
+                    }
+                }
+            }
+
+            if (keys.isEmpty()) {
+                return 0;
+            }
+
+            try (final PreparedStatement ps = connection.prepareStatement(SQL_DELETE_SNAPSHOT)) {
+                for (final SnapshotKey key : keys) {
+                    ps.setObject(1, key.streamId);
+                    ps.setLong(2, key.versionId);
+                    ps.setString(3, key.type);
+                    ps.addBatch();
+                }
+                int removed = 0;
+                for (final int count : ps.executeBatch()) {
+                    removed += Math.max(count, 0);
+                }
+                return removed;
+            }
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while removing snapshots created before %s", createdBefore), e);
+        }
+    }
+
+    /**
+     * On PostgreSQL the number of rows is taken from the statistics of the table, as of its last
+     * analyze, instead of counting every row. Other databases count the rows.
+     */
+    @Override
+    public long estimateSnapshotCount() {
+        try (final Connection connection = getDataSource().getConnection();
+             final PreparedStatement ps = connection.prepareStatement(POSTGRESQL.equals(connection.getMetaData().getDatabaseProductName())
+                     ? SQL_ESTIMATED_SNAPSHOT_COUNT
+                     : SQL_SNAPSHOT_COUNT);
+             final ResultSet resultSet = ps.executeQuery()) {
+            return resultSet.next() ? Math.max(resultSet.getLong(1), 0) : 0;
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException("Exception while counting snapshots", e);
+        }
+    }
+
     @Override
     public <T extends Aggregate> long getLatestSnapshotVersion(final UUID streamId, final Class<T> clazz) {
 
         try (final Connection connection = getDataSource().getConnection();
              final PreparedStatement preparedStatement = connection.prepareStatement(SQL_CURRENT_SNAPSHOT_VERSION_ID)) {
             preparedStatement.setObject(1, streamId);
+            preparedStatement.setString(2, clazz.getName());
 
             try (final ResultSet resultSet = preparedStatement.executeQuery()) {
                 if (resultSet.next()) {
@@ -112,6 +279,7 @@ public class SnapshotJdbcRepository extends AbstractJdbcRepository<AggregateSnap
                 (UUID) resultSet.getObject(COL_STREAM_ID),
                 resultSet.getLong(COL_VERSION_ID),
                 resultSet.getString(COL_TYPE),
+                resultSet.getString(COL_FORMAT),
                 resultSet.getBytes(COL_AGGREGATE));
     }
 
@@ -125,5 +293,16 @@ public class SnapshotJdbcRepository extends AbstractJdbcRepository<AggregateSnap
         return Optional.empty();
     }
 
+    private static class SnapshotKey {
 
+        private final UUID streamId;
+        private final long versionId;
+        private final String type;
+
+        SnapshotKey(final UUID streamId, final long versionId, final String type) {
+            this.streamId = streamId;
+            this.versionId = versionId;
+            this.type = type;
+        }
+    }
 }
@@ -4,6 +4,7 @@ package uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot;
 import uk.gov.justice.domain.aggregate.Aggregate;
 import uk.gov.justice.domain.snapshot.AggregateSnapshot;
 
+import java.time.ZonedDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -29,6 +30,16 @@ public interface SnapshotRepository {
      */
     <T extends Aggregate> Optional<AggregateSnapshot<T>> getLatestSnapshot(final UUID streamId, final Class<T> clazz);
 
+    /**
+     * Gets the latest snapshot together with the events of the stream after its version, or all
+     * the events of the stream if it has no snapshot, in a single round trip to the database.
+     *
+     * @param <T>      the type parameter
+     * @param streamId the stream id
+     * @param clazz    the clazz
+     * @return the latest snapshot and the events after it
+     */
+    <T extends Aggregate> SnapshotAndEvents<T> getLatestSnapshotAndEventsAfter(final UUID streamId, final Class<T> clazz);
 
     /**
      * Remove all snapshots.
@@ -39,6 +50,35 @@ public interface SnapshotRepository {
      */
     <T extends Aggregate> void removeAllSnapshots(final UUID streamId, final Class<T> clazz);
 
+    /**
+     * Remove all but the given number of latest snapshots of a stream and type.
+     *
+     * @param <T>      the type parameter
+     * @param streamId the stream id
+     * @param clazz    the clazz
+     * @param count    the number of latest snapshots to keep
+     * @return the number of snapshots removed
+     */
+    <T extends Aggregate> int removeAllButLatestSnapshots(final UUID streamId, final Class<T> clazz, final int count);
+
+    /**
+     * Remove a batch of snapshots created before the given time, other than the latest snapshot
+     * of each stream and type.
+     *
+     * @param createdBefore the time the snapshots were created before
+     * @param batchSize     the maximum number of snapshots to remove
+     * @return the number of snapshots removed
+     */
+    int removeSupersededSnapshotsCreatedBefore(final ZonedDateTime createdBefore, final int batchSize);
+
+    /**
+     * Estimate the number of snapshots stored, without counting every snapshot where the database
+     * keeps statistics of the table.
+     *
+     * @return the estimated number of snapshots stored
+     */
+    long estimateSnapshotCount();
+
     /**
      * Gets latest snapshot version.
      *
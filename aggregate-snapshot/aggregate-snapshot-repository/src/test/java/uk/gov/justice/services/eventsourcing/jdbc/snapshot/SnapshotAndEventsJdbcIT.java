@@ -0,0 +1,179 @@
+package uk.gov.justice.services.eventsourcing.jdbc.snapshot;
+
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+import static uk.gov.justice.services.test.utils.common.reflection.ReflectionUtils.setField;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.domain.snapshot.AggregateSnapshot;
+import uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot.SnapshotAndEvents;
+import uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot.SnapshotJdbcRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.codec.JsonEventCodec;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SnapshotAndEventsJdbcIT {
+
+    private static final String LIQUIBASE_SNAPSHOT_STORE_DB_CHANGELOG_XML = "liquibase/snapshot-store-db-changelog.xml";
+    private static final String LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML = "liquibase/event-store-db-changelog.xml";
+    private static final Class<RecordingAggregate> TYPE = RecordingAggregate.class;
+    private static final byte[] AGGREGATE = "Any String you want".getBytes();
+
+    private final UUID streamId = randomUUID();
+
+    private SnapshotJdbcRepository snapshotRepository;
+    private EventLogJdbcRepository eventLogRepository;
+
+    @Before
+    public void initializeDependencies() throws Exception {
+        final JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:snapshotAndEvents;DB_CLOSE_DELAY=-1;MV_STORE=FALSE;MVCC=FALSE");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+
+        final Liquibase snapshotStore = new Liquibase(LIQUIBASE_SNAPSHOT_STORE_DB_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection()));
+        snapshotStore.dropAll();
+        snapshotStore.update("");
+        new Liquibase(LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection())).update("");
+
+        snapshotRepository = new SnapshotJdbcRepository();
+        setField(snapshotRepository, "datasource", dataSource);
+
+        eventLogRepository = new EventLogJdbcRepository();
+        setField(eventLogRepository, "datasource", dataSource);
+        setField(eventLogRepository, "codecName", JsonEventCodec.NAME);
+    }
+
+    @Test
+    public void shouldReturnLatestSnapshotAndEventsAfterIt() throws Exception {
+        insertEvents(1, 5);
+        final AggregateSnapshot snapshot2 = snapshotOf(2L, TYPE);
+        final AggregateSnapshot snapshot3 = snapshotOf(3L, TYPE);
+        snapshotRepository.storeSnapshot(snapshot2);
+        snapshotRepository.storeSnapshot(snapshot3);
+
+        final SnapshotAndEvents<RecordingAggregate> snapshotAndEvents = snapshotRepository.getLatestSnapshotAndEventsAfter(streamId, TYPE);
+
+        assertThat(snapshotAndEvents.getSnapshot(), is(Optional.of(snapshot3)));
+        final List<EventLog> events = eventsOf(snapshotAndEvents);
+        assertThat(events.stream().map(EventLog::getSequenceId).collect(toList()), contains(4L, 5L));
+        assertThat(events.get(0).getName(), is("event4"));
+        assertThat(events.get(0).getPayload(), is("{\"sequence\":4}"));
+    }
+
+    @Test
+    public void shouldReturnAllEventsIfNoSnapshotOfType() throws Exception {
+        insertEvents(1, 3);
+        snapshotRepository.storeSnapshot(snapshotOf(2L, OtherAggregate.class));
+
+        final SnapshotAndEvents<RecordingAggregate> snapshotAndEvents = snapshotRepository.getLatestSnapshotAndEventsAfter(streamId, TYPE);
+
+        assertThat(snapshotAndEvents.getSnapshot().isPresent(), is(false));
+        assertThat(sequenceIdsOf(snapshotAndEvents), contains(1L, 2L, 3L));
+    }
+
+    @Test
+    public void shouldReturnSnapshotWithoutEventsIfSnapshotIsOfLatestVersion() throws Exception {
+        insertEvents(1, 3);
+        final AggregateSnapshot snapshot = snapshotOf(3L, TYPE);
+        snapshotRepository.storeSnapshot(snapshot);
+
+        final SnapshotAndEvents<RecordingAggregate> snapshotAndEvents = snapshotRepository.getLatestSnapshotAndEventsAfter(streamId, TYPE);
+
+        assertThat(snapshotAndEvents.getSnapshot(), is(Optional.of(snapshot)));
+        assertThat(eventsOf(snapshotAndEvents), empty());
+    }
+
+    @Test
+    public void shouldReturnNothingForUnknownStream() {
+        final SnapshotAndEvents<RecordingAggregate> snapshotAndEvents = snapshotRepository.getLatestSnapshotAndEventsAfter(streamId, TYPE);
+
+        assertThat(snapshotAndEvents.getSnapshot().isPresent(), is(false));
+        assertThat(eventsOf(snapshotAndEvents), empty());
+    }
+
+    @Test
+    public void shouldReadEventsOfStreamOnlyAsFarAsConsumed() throws Exception {
+        insertEvents(1, 5);
+
+        final SnapshotAndEvents<RecordingAggregate> snapshotAndEvents = snapshotRepository.getLatestSnapshotAndEventsAfter(streamId, TYPE);
+
+        try (final Stream<EventLog> events = snapshotAndEvents.getEvents()) {
+            assertThat(events.limit(2).map(EventLog::getSequenceId).collect(toList()), contains(1L, 2L));
+        }
+        assertThat(sequenceIdsOf(snapshotRepository.getLatestSnapshotAndEventsAfter(streamId, TYPE)), contains(1L, 2L, 3L, 4L, 5L));
+    }
+
+    @Test
+    public void shouldNotReturnEventsOfOtherStreams() throws Exception {
+        insertEvents(1, 2);
+        eventLogRepository.insert(eventLogOf(randomUUID(), 1L));
+
+        final SnapshotAndEvents<RecordingAggregate> snapshotAndEvents = snapshotRepository.getLatestSnapshotAndEventsAfter(streamId, TYPE);
+
+        assertThat(sequenceIdsOf(snapshotAndEvents), contains(1L, 2L));
+    }
+
+    private void insertEvents(final long from, final long to) throws Exception {
+        for (long sequenceId = from; sequenceId <= to; sequenceId++) {
+            eventLogRepository.insert(eventLogOf(streamId, sequenceId));
+        }
+    }
+
+    private EventLog eventLogOf(final UUID streamId, final long sequenceId) {
+        return new EventLog(randomUUID(), streamId, sequenceId, "event" + sequenceId,
+                "{\"id\":\"" + randomUUID() + "\",\"name\":\"event" + sequenceId + "\"}",
+                "{\"sequence\":" + sequenceId + "}",
+                ZonedDateTime.now());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Aggregate> AggregateSnapshot snapshotOf(final long versionId, final Class<T> type) {
+        return new AggregateSnapshot(streamId, versionId, type, AGGREGATE);
+    }
+
+    private List<Long> sequenceIdsOf(final SnapshotAndEvents<?> snapshotAndEvents) {
+        return eventsOf(snapshotAndEvents).stream().map(EventLog::getSequenceId).collect(toList());
+    }
+
+    private List<EventLog> eventsOf(final SnapshotAndEvents<?> snapshotAndEvents) {
+        try (final Stream<EventLog> events = snapshotAndEvents.getEvents()) {
+            return events.collect(toList());
+        }
+    }
+
+    public static class RecordingAggregate implements Aggregate {
+
+        @Override
+        public Object apply(final Object event) {
+            return event;
+        }
+    }
+
+    public static class OtherAggregate implements Aggregate {
+
+        @Override
+        public Object apply(final Object event) {
+            return event;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package uk.gov.justice.services.eventsourcing.jdbc.snapshot;
 
+import static java.time.ZoneOffset.UTC;
 import static java.util.UUID.randomUUID;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
@@ -10,6 +11,7 @@ import uk.gov.justice.domain.snapshot.AggregateSnapshot;
 import uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot.SnapshotJdbcRepository;
 import uk.gov.justice.services.test.utils.persistence.AbstractJdbcRepositoryIT;
 
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -54,6 +56,19 @@ public class SnapshotRepositoryJdbcIT extends AbstractJdbcRepositoryIT<SnapshotJ
         assertThat(snapshot, is(Optional.of(aggregateSnapshot)));
     }
 
+    @Test
+    public void shouldStoreAndRetrieveFormatOfSnapshot() {
+
+        final AggregateSnapshot aggregateSnapshot = new AggregateSnapshot(STREAM_ID, VERSION_ID, TYPE.getName(), "jackson", AGGREGATE);
+
+        jdbcRepository.storeSnapshot(aggregateSnapshot);
+
+        final Optional<AggregateSnapshot<RecordingAggregate>> snapshot = jdbcRepository.getLatestSnapshot(STREAM_ID, TYPE);
+
+        assertThat(snapshot.get().getFormat(), is("jackson"));
+        assertThat(snapshot, is(Optional.of(aggregateSnapshot)));
+    }
+
     @Test
     public void shouldRetrieveLatestSnapshot() {
 
@@ -75,6 +90,32 @@ public class SnapshotRepositoryJdbcIT extends AbstractJdbcRepositoryIT<SnapshotJ
         assertThat(snapshot, is(Optional.of(aggregateSnapshot5)));
     }
 
+    @Test
+    public void shouldRetrieveLatestSnapshotOfType() {
+
+        final AggregateSnapshot aggregateSnapshot = createSnapshot(STREAM_ID, VERSION_ID, TYPE, AGGREGATE);
+        final AggregateSnapshot otherTypeSnapshot = createSnapshot(STREAM_ID, VERSION_ID + 1, OtherAggregate.class, AGGREGATE);
+
+        jdbcRepository.storeSnapshot(aggregateSnapshot);
+        jdbcRepository.storeSnapshot(otherTypeSnapshot);
+
+        final Optional<AggregateSnapshot<RecordingAggregate>> snapshot = jdbcRepository.getLatestSnapshot(STREAM_ID, TYPE);
+
+        assertThat(snapshot, is(Optional.of(aggregateSnapshot)));
+    }
+
+    @Test
+    public void shouldRetrieveLatestSnapshotVersionOfType() {
+
+        jdbcRepository.storeSnapshot(createSnapshot(STREAM_ID, VERSION_ID, TYPE, AGGREGATE));
+        jdbcRepository.storeSnapshot(createSnapshot(STREAM_ID, VERSION_ID + 2, TYPE, AGGREGATE));
+        jdbcRepository.storeSnapshot(createSnapshot(STREAM_ID, VERSION_ID + 4, OtherAggregate.class, AGGREGATE));
+
+        assertThat(jdbcRepository.getLatestSnapshotVersion(STREAM_ID, TYPE), is(VERSION_ID + 2));
+        assertThat(jdbcRepository.getLatestSnapshotVersion(STREAM_ID, OtherAggregate.class), is(VERSION_ID + 4));
+        assertThat(jdbcRepository.getLatestSnapshotVersion(randomUUID(), TYPE), is(0L));
+    }
+
     @Test
     public void shouldRemoveAllSnapshots() {
 
@@ -98,6 +139,47 @@ public class SnapshotRepositoryJdbcIT extends AbstractJdbcRepositoryIT<SnapshotJ
         assertThat(snapshots.isPresent(), is(false));
     }
 
+    @Test
+    public void shouldRemoveAllButLatestSnapshotsOfStreamAndType() {
+
+        final UUID otherStreamId = randomUUID();
+        for (long version = 1; version <= 5; version++) {
+            jdbcRepository.storeSnapshot(createSnapshot(STREAM_ID, version, TYPE, AGGREGATE));
+        }
+        jdbcRepository.storeSnapshot(createSnapshot(STREAM_ID, 1L, OtherAggregate.class, AGGREGATE));
+        jdbcRepository.storeSnapshot(createSnapshot(otherStreamId, 1L, TYPE, AGGREGATE));
+
+        final int removed = jdbcRepository.removeAllButLatestSnapshots(STREAM_ID, TYPE, 2);
+
+        assertThat(removed, is(3));
+        assertThat(jdbcRepository.estimateSnapshotCount(), is(4L));
+        assertThat(jdbcRepository.getLatestSnapshot(STREAM_ID, TYPE).get().getVersionId(), is(5L));
+        assertThat(jdbcRepository.removeAllButLatestSnapshots(STREAM_ID, TYPE, 1), is(1));
+        assertThat(jdbcRepository.removeAllButLatestSnapshots(STREAM_ID, TYPE, 1), is(0));
+    }
+
+    @Test
+    public void shouldRemoveSupersededSnapshotsCreatedBeforeTimeInBatches() {
+
+        final UUID otherStreamId = randomUUID();
+        jdbcRepository.storeSnapshot(createSnapshot(STREAM_ID, 1L, TYPE, AGGREGATE));
+        jdbcRepository.storeSnapshot(createSnapshot(STREAM_ID, 2L, TYPE, AGGREGATE));
+        jdbcRepository.storeSnapshot(createSnapshot(STREAM_ID, 3L, TYPE, AGGREGATE));
+        jdbcRepository.storeSnapshot(createSnapshot(STREAM_ID, 1L, OtherAggregate.class, AGGREGATE));
+        jdbcRepository.storeSnapshot(createSnapshot(otherStreamId, 1L, TYPE, AGGREGATE));
+
+        final ZonedDateTime future = ZonedDateTime.now(UTC).plusMinutes(1);
+
+        assertThat(jdbcRepository.removeSupersededSnapshotsCreatedBefore(ZonedDateTime.now(UTC).minusMinutes(1), 10), is(0));
+        assertThat(jdbcRepository.removeSupersededSnapshotsCreatedBefore(future, 1), is(1));
+        assertThat(jdbcRepository.removeSupersededSnapshotsCreatedBefore(future, 10), is(1));
+        assertThat(jdbcRepository.removeSupersededSnapshotsCreatedBefore(future, 10), is(0));
+
+        assertThat(jdbcRepository.estimateSnapshotCount(), is(3L));
+        assertThat(jdbcRepository.getLatestSnapshot(STREAM_ID, TYPE).get().getVersionId(), is(3L));
+        assertThat(jdbcRepository.getLatestSnapshot(STREAM_ID, OtherAggregate.class).isPresent(), is(true));
+        assertThat(jdbcRepository.getLatestSnapshot(otherStreamId, TYPE).isPresent(), is(true));
+    }
 
     @Test
     public void shouldReturnOptionalNullIfNoSnapshotAvailable() {
@@ -111,6 +193,14 @@ public class SnapshotRepositoryJdbcIT extends AbstractJdbcRepositoryIT<SnapshotJ
         return new AggregateSnapshot(streamId, sequenceId, type, aggregate);
     }
 
+    public class OtherAggregate implements Aggregate {
+
+        @Override
+        public Object apply(Object event) {
+            return event;
+        }
+    }
+
     public class RecordingAggregate implements Aggregate {
         final List<Object> recordedEvents = new ArrayList<>();
 
@@ -0,0 +1,246 @@
+package uk.gov.justice.services.core.aggregate;
+
+import static java.lang.Long.parseLong;
+import static javax.transaction.Status.STATUS_COMMITTED;
+import static uk.gov.justice.services.core.aggregate.Aggregates.deserialize;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.domain.snapshot.VersionedAggregate;
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import org.apache.commons.lang.SerializationException;
+import org.apache.commons.lang.SerializationUtils;
+import org.slf4j.Logger;
+
+/**
+ * Bounded cache of hydrated aggregates, used by the {@link SnapshotAwareAggregateService} so that
+ * a command on a stream handled shortly after another on the same node starts from the aggregate
+ * the previous command left, reading only the events appended since instead of the latest
+ * snapshot and its tail.
+ *
+ * Aggregates are cached by stream and aggregate class, with the version of the stream they have
+ * applied, when the transaction appending their events commits. Each aggregate is held serialized,
+ * captured when its events are appended, and every read deserializes a new copy, so a handler
+ * changing the aggregate it was given never changes the cached one.
+ *
+ * The cache is bounded by the total size of the serialized aggregates it holds. When full, the
+ * least recently used aggregates are evicted. The cache is disabled unless
+ * <code>aggregateCache.maxWeight</code> is set above zero. Hits, misses, evictions and the hit
+ * rate are reported in the <code>MetricRegistry</code>.
+ */
+@ApplicationScoped
+public class AggregateCache {
+
+    static final String HITS = "aggregate-cache.hits";
+    static final String MISSES = "aggregate-cache.misses";
+    static final String EVICTIONS = "aggregate-cache.evictions";
+    static final String HIT_RATE = "aggregate-cache.hit-rate";
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    @Value(key = "aggregateCache.maxWeight", defaultValue = "0")
+    String maxWeight;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final Map<AggregateKey, CachedAggregate> aggregates = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long maxTotalWeight;
+    private long totalWeight;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    void initialise() {
+        maxTotalWeight = parseLong(maxWeight);
+        hits = metricRegistry.counter(HITS);
+        misses = metricRegistry.counter(MISSES);
+        evictions = metricRegistry.counter(EVICTIONS);
+        metricRegistry.remove(HIT_RATE);
+        metricRegistry.register(HIT_RATE, new RatioGauge() {
+            @Override
+            protected Ratio getRatio() {
+                return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return maxTotalWeight > 0;
+    }
+
+    /**
+     * Get a copy of the cached aggregate of a stream.
+     *
+     * @param streamId the id of the stream
+     * @param clazz    the class of the aggregate
+     * @param <T>      the type of the aggregate
+     * @return a new copy of the cached aggregate with the version of the stream it has applied,
+     * or empty if the aggregate is not cached
+     */
+    public <T extends Aggregate> Optional<VersionedAggregate<T>> get(final UUID streamId, final Class<T> clazz) {
+        final CachedAggregate cached;
+        synchronized (this) {
+            cached = aggregates.get(new AggregateKey(streamId, clazz));
+        }
+
+        if (cached == null) {
+            misses.inc();
+            return Optional.empty();
+        }
+
+        hits.inc();
+        return Optional.of(new VersionedAggregate<>(cached.version, copyOf(cached.serializedAggregate, clazz)));
+    }
+
+    /**
+     * Cache an aggregate once the current transaction commits, or immediately if there is no
+     * transaction. The aggregate is serialized straight away, so later changes to it are not
+     * cached.
+     *
+     * @param streamId  the id of the stream
+     * @param version   the version of the stream the aggregate has applied
+     * @param aggregate the aggregate
+     */
+    public void putAfterCommit(final UUID streamId, final long version, final Aggregate aggregate) {
+        final AggregateKey key = new AggregateKey(streamId, aggregate.getClass());
+        final byte[] serializedAggregate;
+        try {
+            serializedAggregate = SerializationUtils.serialize(aggregate);
+        } catch (final SerializationException e) {
+            logger.debug("Not caching aggregate {} of stream {}, it cannot be serialized", aggregate.getClass(), streamId);
+            return;
+        }
+
+        if (transactionSynchronizationRegistry == null || transactionSynchronizationRegistry.getTransactionKey() == null) {
+            put(key, new CachedAggregate(version, serializedAggregate));
+            return;
+        }
+
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                if (status == STATUS_COMMITTED) {
+                    put(key, new CachedAggregate(version, serializedAggregate));
+                }
+            }
+        });
+    }
+
+    public synchronized <T extends Aggregate> void invalidate(final UUID streamId, final Class<T> clazz) {
+        remove(new AggregateKey(streamId, clazz));
+    }
+
+    synchronized long totalWeight() {
+        return totalWeight;
+    }
+
+    private synchronized void put(final AggregateKey key, final CachedAggregate aggregate) {
+        final CachedAggregate cached = aggregates.get(key);
+        if (cached != null && cached.version >= aggregate.version) {
+            return;
+        }
+
+        remove(key);
+        if (aggregate.weight() > maxTotalWeight) {
+            return;
+        }
+
+        aggregates.put(key, aggregate);
+        totalWeight += aggregate.weight();
+        evictToMaxWeight();
+    }
+
+    private void remove(final AggregateKey key) {
+        final CachedAggregate cached = aggregates.remove(key);
+        if (cached != null) {
+            totalWeight -= cached.weight();
+        }
+    }
+
+    private void evictToMaxWeight() {
+        final Iterator<CachedAggregate> leastRecentlyUsed = aggregates.values().iterator();
+        while (totalWeight > maxTotalWeight && leastRecentlyUsed.hasNext()) {
+            totalWeight -= leastRecentlyUsed.next().weight();
+            leastRecentlyUsed.remove();
+            evictions.inc();
+        }
+    }
+
+    private <T extends Aggregate> T copyOf(final byte[] serializedAggregate, final Class<T> clazz) {
+        try {
+            return deserialize(serializedAggregate, clazz);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SerializationException(e);
+        }
+    }
+
+    private static class CachedAggregate {
+
+        private final long version;
+        private final byte[] serializedAggregate;
+
+        CachedAggregate(final long version, final byte[] serializedAggregate) {
+            this.version = version;
+            this.serializedAggregate = serializedAggregate;
+        }
+
+        long weight() {
+            return serializedAggregate.length;
+        }
+    }
+
+    private static class AggregateKey {
+
+        private final UUID streamId;
+        private final Class<?> type;
+
+        AggregateKey(final UUID streamId, final Class<?> type) {
+            this.streamId = streamId;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final AggregateKey that = (AggregateKey) o;
+            return Objects.equals(streamId, that.streamId) && Objects.equals(type, that.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(streamId, type);
+        }
+    }
+}
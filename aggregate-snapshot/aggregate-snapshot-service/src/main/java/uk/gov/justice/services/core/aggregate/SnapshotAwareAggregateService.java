@@ -1,24 +1,46 @@
 package uk.gov.justice.services.core.aggregate;
 
+import static uk.gov.justice.services.core.aggregate.Aggregates.newInstanceOf;
+
 import uk.gov.justice.domain.aggregate.Aggregate;
 import uk.gov.justice.domain.snapshot.VersionedAggregate;
+import uk.gov.justice.services.common.configuration.Value;
 import uk.gov.justice.services.common.converter.JsonObjectToObjectConverter;
 import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
 import uk.gov.justice.services.eventsourcing.source.core.EventStream;
 import uk.gov.justice.services.eventsourcing.source.core.SnapshotAwareEnvelopeEventStream;
+import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamException;
+import uk.gov.justice.services.eventsourcing.source.core.snapshot.AggregateReplayCosts;
+import uk.gov.justice.services.eventsourcing.source.core.snapshot.LatestAggregateAndEvents;
 import uk.gov.justice.services.eventsourcing.source.core.snapshot.SnapshotService;
+import uk.gov.justice.services.messaging.JsonEnvelope;
 
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Stream;
 
+import javax.annotation.PostConstruct;
 import javax.annotation.Priority;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Alternative;
 import javax.inject.Inject;
 
+import org.apache.commons.lang.SerializationException;
 import org.slf4j.Logger;
 
 /**
  * The type Snapshot aware aggregate service.
+ *
+ * Aggregates are rebuilt from the {@link AggregateCache}, when enabled and holding the aggregate,
+ * or else from the latest snapshot, applying the events of the stream after its version.
+ *
+ * With <code>snapshot.readEventsWithSnapshot</code> set to true, the latest snapshot and the
+ * events after it are read together in a single query of the event store. This needs the events
+ * of the stream in the event_log table of the datasource holding the snapshots, so must not be
+ * set when the event store is sharded or held elsewhere.
+ *
+ * The time taken to apply the events to the aggregate is recorded in the
+ * {@link AggregateReplayCosts} of its type.
  */
 @ApplicationScoped
 @Alternative
@@ -37,14 +59,37 @@ public class SnapshotAwareAggregateService implements AggregateService {
     @Inject
     JsonObjectToObjectConverter jsonObjectToObjectConverter;
 
+    @Inject
+    AggregateCache aggregateCache;
+
+    @Inject
+    AggregateReplayCosts aggregateReplayCosts;
+
+    @Inject
+    @Value(key = "snapshot.readEventsWithSnapshot", defaultValue = "false")
+    String readEventsWithSnapshot;
+
+    private boolean eventsReadWithSnapshot = false;
+
+    @PostConstruct
+    void initialise() {
+        eventsReadWithSnapshot = Boolean.parseBoolean(readEventsWithSnapshot);
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <T extends Aggregate> T get(final EventStream stream, final Class<T> clazz) {
         logger.trace("SnapshotAwareAggregateService Recreating aggregate for instance {} of aggregate type {}", stream.getId(), clazz);
 
-        final Optional<VersionedAggregate<T>> versionedAggregate = latestOrChangedAggregateAndEvents(stream, clazz);
+        final Optional<ReplayStart<T>> replayStart = replayStartOf(stream, clazz);
 
-        final T aggregate = aggregateOf(stream, clazz, versionedAggregate);
+        final T aggregate;
+        if (replayStart.isPresent()) {
+            aggregate = replayStart.get().aggregate;
+            replay(clazz, replayStart.get().events, aggregate);
+        } else {
+            aggregate = defaultAggregateService.get(stream, clazz);
+        }
 
         if (stream instanceof SnapshotAwareEnvelopeEventStream) {
             ((SnapshotAwareEnvelopeEventStream) stream).registerAggregates(clazz, aggregate);
@@ -53,22 +98,68 @@ public class SnapshotAwareAggregateService implements AggregateService {
         return aggregate;
     }
 
-    private <T extends Aggregate> T aggregateOf(final EventStream stream, Class<T> clazz, final Optional<VersionedAggregate<T>> versionedAggregate) {
-        if (versionedAggregate.isPresent()) {
-            final VersionedAggregate<T> versionedAggregateValue = versionedAggregate.get();
-            return defaultAggregateService.applyEvents(
-                    stream.readFrom(versionAfter(versionedAggregateValue)),
-                    versionedAggregateValue.getAggregate());
+    @Override
+    public <T extends Aggregate> void getAndAppend(final EventStream stream, final Class<T> clazz,
+                                                   final Function<T, Stream<JsonEnvelope>> command) throws EventStreamException {
+        logger.trace("SnapshotAwareAggregateService Recreating aggregate for instance {} of aggregate type {}", stream.getId(), clazz);
+
+        final ReplayStart<T> replayStart = replayStartOf(stream, clazz)
+                .orElseGet(() -> new ReplayStart<>(newInstanceOf(clazz), 0L, stream.readAhead()));
+
+        final T aggregate = replayStart.aggregate;
+        final long version = replayStart.version + replay(clazz, replayStart.events, aggregate);
+
+        defaultAggregateService.appendWithRetry(stream, aggregate, version, working -> {
+            if (stream instanceof SnapshotAwareEnvelopeEventStream) {
+                ((SnapshotAwareEnvelopeEventStream) stream).registerAggregates(clazz, working);
+            }
+            return command.apply(working);
+        });
+    }
+
+    private <T extends Aggregate> long replay(final Class<T> clazz, final Stream<JsonEnvelope> events, final T aggregate) {
+        final long start = System.nanoTime();
+        final long count = defaultAggregateService.applyEventsAndCount(events, aggregate);
+        aggregateReplayCosts.recordReplay(clazz, count, System.nanoTime() - start);
+        return count;
+    }
+
+    /**
+     * Finds the aggregate to apply the remaining events of the stream to, or empty if the whole
+     * stream must be replayed onto a new instance.
+     */
+    private <T extends Aggregate> Optional<ReplayStart<T>> replayStartOf(final EventStream stream, final Class<T> clazz) {
+        final Optional<VersionedAggregate<T>> cachedAggregate = cachedAggregate(stream, clazz);
+        if (cachedAggregate.isPresent()) {
+            return Optional.of(replayStartAfter(stream, cachedAggregate.get()));
+        }
+
+        if (eventsReadWithSnapshot) {
+            return latestAggregateAndEvents(stream, clazz);
         }
 
-        return defaultAggregateService.get(stream, clazz);
+        return latestOrChangedAggregate(stream, clazz).map(versionedAggregate -> replayStartAfter(stream, versionedAggregate));
+    }
+
+    private <T extends Aggregate> ReplayStart<T> replayStartAfter(final EventStream stream, final VersionedAggregate<T> versionedAggregate) {
+        return new ReplayStart<>(versionedAggregate.getAggregate(), versionedAggregate.getVersionId(),
+                stream.readAheadFrom(versionedAggregate.getVersionId() + 1L));
     }
 
-    private <T extends Aggregate> long versionAfter(final VersionedAggregate<T> versionedAggregate) {
-        return versionedAggregate.getVersionId() + 1L;
+    private <T extends Aggregate> Optional<VersionedAggregate<T>> cachedAggregate(final EventStream stream, final Class<T> clazz) {
+        if (aggregateCache.isEnabled()) {
+            try {
+                return aggregateCache.get(stream.getId(), clazz);
+            } catch (final SerializationException e) {
+                logger.warn("Could not copy cached aggregate {} of stream {}", clazz, stream.getId(), e);
+                aggregateCache.invalidate(stream.getId(), clazz);
+            }
+        }
+
+        return Optional.empty();
     }
 
-    private <T extends Aggregate> Optional<VersionedAggregate<T>> latestOrChangedAggregateAndEvents(final EventStream stream, final Class<T> clazz) {
+    private <T extends Aggregate> Optional<VersionedAggregate<T>> latestOrChangedAggregate(final EventStream stream, final Class<T> clazz) {
         try {
             return snapshotService.getLatestVersionedAggregate(stream.getId(), clazz);
         } catch (AggregateChangeDetectedException e) {
@@ -76,4 +167,34 @@ public class SnapshotAwareAggregateService implements AggregateService {
             return Optional.empty();
         }
     }
-}
\ No newline at end of file
+
+    private <T extends Aggregate> Optional<ReplayStart<T>> latestAggregateAndEvents(final EventStream stream, final Class<T> clazz) {
+        try {
+            final LatestAggregateAndEvents<T> latest = snapshotService.getLatestVersionedAggregateAndEvents(stream.getId(), clazz);
+            final Optional<VersionedAggregate<T>> versionedAggregate = latest.getVersionedAggregate();
+            if (versionedAggregate.isPresent()) {
+                return Optional.of(new ReplayStart<>(versionedAggregate.get().getAggregate(), versionedAggregate.get().getVersionId(), latest.getEvents()));
+            }
+            return Optional.of(new ReplayStart<>(newInstanceOf(clazz), 0L, latest.getEvents()));
+        } catch (AggregateChangeDetectedException e) {
+            snapshotService.removeAllSnapshots(stream.getId(), clazz);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * An aggregate at a version of its stream, with the events of the stream after that version.
+     */
+    private static class ReplayStart<T extends Aggregate> {
+
+        private final T aggregate;
+        private final long version;
+        private final Stream<JsonEnvelope> events;
+
+        ReplayStart(final T aggregate, final long version, final Stream<JsonEnvelope> events) {
+            this.aggregate = aggregate;
+            this.version = version;
+            this.events = events;
+        }
+    }
+}
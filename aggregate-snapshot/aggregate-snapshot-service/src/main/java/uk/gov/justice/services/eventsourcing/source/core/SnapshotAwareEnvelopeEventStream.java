@@ -5,6 +5,7 @@ import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamEx
 import uk.gov.justice.services.messaging.JsonEnvelope;
 
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Stream;
@@ -37,6 +38,36 @@ public class SnapshotAwareEnvelopeEventStream<T extends Aggregate> implements Ev
         return eventStreamManager.readFrom(id, version);
     }
 
+    @Override
+    public Stream<JsonEnvelope> readAhead() {
+        return eventStreamManager.read(id);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> readAheadFrom(final Long version) {
+        return eventStreamManager.readFrom(id, version);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> read(final Set<String> names) {
+        return eventStreamManager.read(id, names);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> readFrom(final Long version, final Set<String> names) {
+        return eventStreamManager.readFrom(id, version, names);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> readLast(final int count) {
+        return eventStreamManager.readLast(id, count);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> readInReverse() {
+        return eventStreamManager.readInReverse(id);
+    }
+
     @Override
     public void append(final Stream<JsonEnvelope> events) throws EventStreamException {
         eventStreamManager.append(id, events, aggregateMap);
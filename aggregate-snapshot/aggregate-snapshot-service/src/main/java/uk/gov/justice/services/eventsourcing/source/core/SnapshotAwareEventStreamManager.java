@@ -1,6 +1,7 @@
 package uk.gov.justice.services.eventsourcing.source.core;
 
 
+import static java.lang.Math.min;
 import static javax.json.Json.createObjectBuilder;
 import static uk.gov.justice.services.messaging.JsonObjectMetadata.STREAM;
 import static uk.gov.justice.services.messaging.JsonObjectMetadata.STREAM_ID;
@@ -8,19 +9,25 @@ import static uk.gov.justice.services.messaging.JsonObjectMetadata.VERSION;
 import static uk.gov.justice.services.messaging.JsonObjects.createObjectBuilderWithFilter;
 
 import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.services.core.aggregate.AggregateCache;
 import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
 import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
 import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StreamVersionConflictException;
 import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamException;
 import uk.gov.justice.services.eventsourcing.source.core.exception.VersionMismatchException;
+import uk.gov.justice.services.eventsourcing.source.core.snapshot.AsyncSnapshotWriter;
 import uk.gov.justice.services.eventsourcing.source.core.snapshot.DefaultSnapshotService;
 import uk.gov.justice.services.messaging.DefaultJsonEnvelope;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 import uk.gov.justice.services.messaging.JsonObjectMetadata;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -36,18 +43,29 @@ import org.slf4j.Logger;
  */
 public class SnapshotAwareEventStreamManager {
 
+    private static final int REVERSE_PAGE_SIZE = 100;
+
     @Inject
     Logger logger;
 
     @Inject
     DefaultSnapshotService snapshotService;
 
+    @Inject
+    AsyncSnapshotWriter asyncSnapshotWriter;
+
+    @Inject
+    AggregateCache aggregateCache;
+
     @Inject
     EventRepository eventRepository;
 
     @Inject
     EventPublisher eventPublisher;
 
+    @Inject
+    ConflictRetryPolicy conflictRetryPolicy;
+
     /**
      * Get the stream of events.
      *
@@ -67,14 +85,76 @@ public class SnapshotAwareEventStreamManager {
     }
 
     /**
-     * Store a stream of events.
+     * Get the stream of events with the given names.
+     *
+     * @param id    the id of the stream
+     * @param names the names of the events to read
+     * @return the stream of events
+     */
+    public Stream<JsonEnvelope> read(final UUID id, final Set<String> names) {
+        return eventRepository.getByStreamIdAndNames(id, names);
+    }
+
+    /**
+     * Get the stream of events with the given names from the given version.
+     *
+     * @param id      the id of the stream
+     * @param version the version to read from
+     * @param names   the names of the events to read
+     * @return the stream of events
+     */
+    public Stream<JsonEnvelope> readFrom(final UUID id, final Long version, final Set<String> names) {
+        return eventRepository.getByStreamIdAndSequenceIdAndNames(id, version, names);
+    }
+
+    /**
+     * Get the latest events of the stream, in version order. The events are read newest first
+     * in pages of at most {@value #REVERSE_PAGE_SIZE} events until count events have been read,
+     * so the cost grows with count rather than with the length of the stream.
+     *
+     * @param id    the id of the stream
+     * @param count the maximum number of events to read
+     * @return the stream of at most count events
+     */
+    public Stream<JsonEnvelope> readLast(final UUID id, final int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException(String.format("Failed to read from stream %s. Count %d must not be negative.", id, count));
+        }
+        if (count == 0) {
+            return Stream.empty();
+        }
+
+        final List<JsonEnvelope> latest;
+        try (final Stream<JsonEnvelope> events = eventRepository.getByStreamIdInReverse(id, min(count, REVERSE_PAGE_SIZE))) {
+            latest = events.limit(count).collect(Collectors.toList());
+        }
+        Collections.reverse(latest);
+        return latest.stream();
+    }
+
+    /**
+     * Get the stream of events newest first. The events are read from the event store in pages as
+     * the stream is consumed.
+     *
+     * @param id the id of the stream
+     * @return the stream of events, in descending version order
+     */
+    public Stream<JsonEnvelope> readInReverse(final UUID id) {
+        return eventRepository.getByStreamIdInReverse(id, REVERSE_PAGE_SIZE);
+    }
+
+    /**
+     * Store a stream of events. The events are never retried after another append to the stream
+     * is stored first, as they were decided from the state of the stream before that append. Use
+     * <code>AggregateService.getAndAppend</code> to run a command again after a conflict.
      *
      * @param events the stream of events to store
-     * @throws EventStreamException if an event could not be appended
+     * @throws VersionMismatchException if another append to the stream is stored first
+     * @throws EventStreamException     if an event could not be appended
      */
     @Transactional
     public <T extends Aggregate> void append(final UUID id, final Stream<JsonEnvelope> events, final Map<Class<T>, T> aggregatesMap) throws EventStreamException {
-        append(id, events, Optional.empty(), aggregatesMap);
+        append(id, events.collect(Collectors.toList()), Optional.empty(), aggregatesMap);
     }
 
     /**
@@ -89,7 +169,7 @@ public class SnapshotAwareEventStreamManager {
         if (version == null) {
             throw new EventStreamException(String.format("Failed to append to stream %s. Version must not be null.", id));
         }
-        append(id, events, Optional.of(version), aggregatesMap);
+        append(id, events.collect(Collectors.toList()), Optional.of(version), aggregatesMap);
     }
 
     /**
@@ -101,26 +181,38 @@ public class SnapshotAwareEventStreamManager {
         return eventRepository.getCurrentSequenceIdForStream(id);
     }
 
-    private <T extends Aggregate> void append(final UUID id, final Stream<JsonEnvelope> events, final Optional<Long> versionFrom, final Map<Class<T>, T> aggregatesMap)
+    private <T extends Aggregate> void append(final UUID id, final List<JsonEnvelope> envelopeList, final Optional<Long> versionFrom, final Map<Class<T>, T> aggregatesMap)
             throws EventStreamException {
-        final List<JsonEnvelope> envelopeList = events.collect(Collectors.toList());
-
         Long currentVersion = eventRepository.getCurrentSequenceIdForStream(id);
 
         validateEvents(id, envelopeList, versionFrom, currentVersion);
 
+        final Long firstVersion = currentVersion + 1;
+        final List<JsonEnvelope> eventsWithVersion = new ArrayList<>(envelopeList.size());
         for (final JsonEnvelope event : envelopeList) {
-            try {
-                final JsonEnvelope eventWithVersion = eventWithVersion(event, id, ++currentVersion);
-                eventRepository.store(eventWithVersion, id, currentVersion);
-                eventPublisher.publish(eventWithVersion);
-            } catch (StoreEventRequestFailedException e) {
-                throw new EventStreamException(String.format("Failed to append event to Event Store %s", event.metadata().id()), e);
-            }
+            eventsWithVersion.add(eventWithVersion(event, id, ++currentVersion));
+        }
+
+        try {
+            eventRepository.storeAll(eventsWithVersion, id, firstVersion);
+            eventsWithVersion.forEach(eventPublisher::publish);
+        } catch (StreamVersionConflictException e) {
+            conflictRetryPolicy.recordConflict();
+            throw new VersionMismatchException(String.format("Failed to append to stream %s. Version mismatch. Expected %d, another append was stored first",
+                    id, firstVersion - 1), e);
+        } catch (StoreEventRequestFailedException e) {
+            throw new EventStreamException(String.format("Failed to append events to Event Store for stream %s", id), e);
         }
 
         for (final Aggregate aggregate : aggregatesMap.values()) {
-            snapshotService.attemptAggregateStore(id, currentVersion, aggregate, snapshotService.getLatestSnapshotVersion(id, aggregate.getClass()));
+            if (aggregateCache.isEnabled()) {
+                aggregateCache.putAfterCommit(id, currentVersion, aggregate);
+            }
+            if (asyncSnapshotWriter.isEnabled()) {
+                asyncSnapshotWriter.submitAfterCommit(id, currentVersion, aggregate);
+            } else {
+                snapshotService.attemptAggregateStore(id, currentVersion, aggregate, snapshotService.getLatestSnapshotVersion(id, aggregate.getClass()));
+            }
         }
     }
 
@@ -137,6 +229,7 @@ public class SnapshotAwareEventStreamManager {
 
     private void validateEvents(final UUID id, final List<JsonEnvelope> envelopeList, final Optional<Long> versionFrom, final Long currentVersion) throws EventStreamException {
         if (versionFrom.isPresent() && !versionFrom.get().equals(currentVersion)) {
+            conflictRetryPolicy.recordConflict();
             throw new VersionMismatchException(String.format("Failed to append to stream %s. Version mismatch. Expected %d, Found %d",
                     id, versionFrom.get(), currentVersion));
         }
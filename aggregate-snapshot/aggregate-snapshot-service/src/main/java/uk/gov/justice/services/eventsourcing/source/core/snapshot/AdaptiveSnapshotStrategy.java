@@ -0,0 +1,122 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import static java.lang.Double.parseDouble;
+import static java.lang.Long.parseLong;
+import static java.lang.String.format;
+import static java.util.Collections.emptyMap;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.DefaultSnapshotStrategy.SNAPSHOT_THRESHOLD;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.util.Map;
+import java.util.OptionalDouble;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+
+/**
+ * Snapshot strategy deciding from the measured {@link AggregateReplayCosts} of each aggregate
+ * type. A snapshot is created once replaying the events since the last snapshot, at the average
+ * time per event of the type, would take <code>snapshot.adaptive.costRatio</code> times as long as
+ * creating a snapshot of the type, so aggregates with cheap events are snapshotted rarely and
+ * those with expensive events often. Snapshots are never created less than
+ * <code>snapshot.adaptive.minEvents</code> and always created
+ * <code>snapshot.adaptive.maxEvents</code> events after the last. Until both costs of a type have
+ * been measured, a snapshot is created every 25 events, as by the {@link DefaultSnapshotStrategy}.
+ *
+ * Types listed in <code>snapshot.adaptive.types</code>, as a comma separated list of
+ * <code>type=events</code> pairs, are snapshotted every given number of events instead.
+ *
+ * Used by the {@link DefaultSnapshotService} when <code>snapshot.strategy</code> is set to
+ * <code>adaptive</code>. Its decisions are counted for each type in the <code>MetricRegistry</code>
+ * as <code>snapshot-strategy.&lt;type&gt;.created</code> and
+ * <code>snapshot-strategy.&lt;type&gt;.deferred</code>.
+ */
+@ApplicationScoped
+@Typed(AdaptiveSnapshotStrategy.class)
+public class AdaptiveSnapshotStrategy implements SnapshotStrategy {
+
+    public static final String NAME = "adaptive";
+
+    static final String CREATED = "snapshot-strategy.%s.created";
+    static final String DEFERRED = "snapshot-strategy.%s.deferred";
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    @Value(key = "snapshot.adaptive.minEvents", defaultValue = "5")
+    String minEvents;
+
+    @Inject
+    @Value(key = "snapshot.adaptive.maxEvents", defaultValue = "500")
+    String maxEvents;
+
+    @Inject
+    @Value(key = "snapshot.adaptive.costRatio", defaultValue = "1")
+    String costRatio;
+
+    @Inject
+    @Value(key = "snapshot.adaptive.types", defaultValue = "")
+    String eventsByType;
+
+    @Inject
+    AggregateReplayCosts aggregateReplayCosts;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private long minimumEvents = 5;
+    private long maximumEvents = 500;
+    private double replayToSnapshotCostRatio = 1;
+    private Map<String, Long> thresholdsByType = emptyMap();
+
+    @PostConstruct
+    void initialise() {
+        minimumEvents = parseLong(minEvents);
+        maximumEvents = parseLong(maxEvents);
+        replayToSnapshotCostRatio = parseDouble(costRatio);
+
+        thresholdsByType = TypeValues.parse(eventsByType, "events", Long::parseLong);
+    }
+
+    @Override
+    public boolean shouldCreateSnapshot(final long aggregateVersionId, final long snapshotVersionId) {
+        return (aggregateVersionId - snapshotVersionId) >= SNAPSHOT_THRESHOLD;
+    }
+
+    @Override
+    public boolean shouldCreateSnapshot(final Class<?> aggregateType, final long aggregateVersionId, final long snapshotVersionId) {
+        final boolean create = shouldCreateSnapshot(aggregateType, aggregateVersionId - snapshotVersionId);
+        logger.trace("Adaptive snapshot strategy {} snapshot of {} at version {}", create ? "creating" : "deferring", aggregateType, aggregateVersionId);
+        metricRegistry.counter(format(create ? CREATED : DEFERRED, aggregateType.getName())).inc();
+        return create;
+    }
+
+    private boolean shouldCreateSnapshot(final Class<?> aggregateType, final long eventsSinceSnapshot) {
+        final Long threshold = thresholdsByType.get(aggregateType.getName());
+        if (threshold != null) {
+            return eventsSinceSnapshot >= threshold;
+        }
+
+        if (eventsSinceSnapshot < minimumEvents) {
+            return false;
+        }
+        if (eventsSinceSnapshot >= maximumEvents) {
+            return true;
+        }
+
+        final OptionalDouble replayNanosPerEvent = aggregateReplayCosts.replayNanosPerEvent(aggregateType);
+        final OptionalDouble snapshotNanos = aggregateReplayCosts.snapshotNanos(aggregateType);
+        if (!replayNanosPerEvent.isPresent() || !snapshotNanos.isPresent()) {
+            return eventsSinceSnapshot >= SNAPSHOT_THRESHOLD;
+        }
+
+        return eventsSinceSnapshot * replayNanosPerEvent.getAsDouble() >= replayToSnapshotCostRatio * snapshotNanos.getAsDouble();
+    }
+}
@@ -0,0 +1,115 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import static java.lang.String.format;
+
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Measured costs of each aggregate type: the time taken to apply one of its events when an
+ * aggregate is rebuilt, and the time taken to serialize and store one of its snapshots. Both are
+ * exponentially weighted moving averages of the recorded samples, so they follow changes in the
+ * aggregate and its events.
+ *
+ * The averages of each type are reported in the <code>MetricRegistry</code> as
+ * <code>snapshot-strategy.&lt;type&gt;.replay-nanos-per-event</code> and
+ * <code>snapshot-strategy.&lt;type&gt;.snapshot-nanos</code>.
+ */
+@ApplicationScoped
+public class AggregateReplayCosts {
+
+    static final String REPLAY_NANOS_PER_EVENT = "snapshot-strategy.%s.replay-nanos-per-event";
+    static final String SNAPSHOT_NANOS = "snapshot-strategy.%s.snapshot-nanos";
+
+    private static final double WEIGHT_OF_SAMPLE = 0.2;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private final Map<String, TypeCosts> costsByType = new ConcurrentHashMap<>();
+
+    /**
+     * Record the time taken to apply events to an aggregate.
+     *
+     * @param type   the type of the aggregate
+     * @param events the number of events applied
+     * @param nanos  the time taken to apply them, in nanoseconds
+     */
+    public void recordReplay(final Class<?> type, final long events, final long nanos) {
+        if (events > 0) {
+            costsOf(type).replayNanosPerEvent.add((double) nanos / events);
+        }
+    }
+
+    /**
+     * Record the time taken to serialize and store a snapshot of an aggregate.
+     *
+     * @param type  the type of the aggregate
+     * @param nanos the time taken, in nanoseconds
+     */
+    public void recordSnapshot(final Class<?> type, final long nanos) {
+        costsOf(type).snapshotNanos.add(nanos);
+    }
+
+    /**
+     * @param type the type of the aggregate
+     * @return the average time taken to apply an event to the aggregate, or empty if not measured
+     */
+    public OptionalDouble replayNanosPerEvent(final Class<?> type) {
+        final TypeCosts costs = costsByType.get(type.getName());
+        return costs == null ? OptionalDouble.empty() : costs.replayNanosPerEvent.average();
+    }
+
+    /**
+     * @param type the type of the aggregate
+     * @return the average time taken to snapshot the aggregate, or empty if not measured
+     */
+    public OptionalDouble snapshotNanos(final Class<?> type) {
+        final TypeCosts costs = costsByType.get(type.getName());
+        return costs == null ? OptionalDouble.empty() : costs.snapshotNanos.average();
+    }
+
+    private TypeCosts costsOf(final Class<?> type) {
+        return costsByType.computeIfAbsent(type.getName(), this::registeredCosts);
+    }
+
+    private TypeCosts registeredCosts(final String type) {
+        final TypeCosts costs = new TypeCosts();
+        register(format(REPLAY_NANOS_PER_EVENT, type), costs.replayNanosPerEvent);
+        register(format(SNAPSHOT_NANOS, type), costs.snapshotNanos);
+        return costs;
+    }
+
+    private void register(final String name, final MovingAverage average) {
+        metricRegistry.remove(name);
+        metricRegistry.register(name, (Gauge<Double>) () -> average.average().orElse(0));
+    }
+
+    private static class TypeCosts {
+
+        private final MovingAverage replayNanosPerEvent = new MovingAverage();
+        private final MovingAverage snapshotNanos = new MovingAverage();
+    }
+
+    private static class MovingAverage {
+
+        private double average;
+        private boolean sampled;
+
+        synchronized void add(final double sample) {
+            average = sampled ? average + WEIGHT_OF_SAMPLE * (sample - average) : sample;
+            sampled = true;
+        }
+
+        synchronized OptionalDouble average() {
+            return sampled ? OptionalDouble.of(average) : OptionalDouble.empty();
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.String.format;
+import static javax.transaction.Status.STATUS_COMMITTED;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+
+/**
+ * Creates snapshots of aggregates in the background once the transaction that appended their
+ * events commits, so that reading the current snapshot version and serializing and storing the
+ * snapshot is not part of the latency of the command.
+ *
+ * Snapshot candidates wait in a queue of at most <code>snapshot.async.queueSize</code> streams,
+ * drained by up to <code>snapshot.async.workers</code> tasks on the managed executor. A candidate
+ * for a stream and aggregate type already waiting replaces the waiting one, so a busy stream is
+ * snapshotted once at its latest version. Candidates arriving when the queue is full are dropped;
+ * the aggregate is snapshotted again by a later append. Candidates of rolled back transactions
+ * are discarded.
+ *
+ * Asynchronous snapshots are disabled unless <code>snapshot.async.workers</code> is set above
+ * zero. The queue depth, and the coalesced, dropped and failed candidates are reported in the
+ * <code>MetricRegistry</code>.
+ */
+@ApplicationScoped
+public class AsyncSnapshotWriter {
+
+    static final String QUEUE_DEPTH = "snapshot-writer.queue-depth";
+    static final String COALESCED = "snapshot-writer.coalesced";
+    static final String DROPPED = "snapshot-writer.dropped";
+    static final String FAILED = "snapshot-writer.failed";
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    @Value(key = "snapshot.async.workers", defaultValue = "0")
+    String workers;
+
+    @Inject
+    @Value(key = "snapshot.async.queueSize", defaultValue = "1000")
+    String queueSize;
+
+    @Inject
+    DefaultSnapshotService snapshotService;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ExecutorService executorService;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final Map<SnapshotKey, Candidate> pending = new HashMap<>();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+
+    private BlockingQueue<SnapshotKey> queue;
+    private int maxWorkers;
+
+    private Counter coalesced;
+    private Counter dropped;
+    private Counter failed;
+
+    @PostConstruct
+    void initialise() {
+        maxWorkers = parseInt(workers);
+        queue = new ArrayBlockingQueue<>(parseInt(queueSize));
+        coalesced = metricRegistry.counter(COALESCED);
+        dropped = metricRegistry.counter(DROPPED);
+        failed = metricRegistry.counter(FAILED);
+        metricRegistry.remove(QUEUE_DEPTH);
+        metricRegistry.register(QUEUE_DEPTH, (Gauge<Integer>) queue::size);
+    }
+
+    public boolean isEnabled() {
+        return maxWorkers > 0;
+    }
+
+    /**
+     * Queue a snapshot of an aggregate once the current transaction commits, or immediately if
+     * there is no transaction.
+     *
+     * @param streamId      the id of the stream of the aggregate
+     * @param streamVersion the version of the stream the aggregate has applied
+     * @param aggregate     the aggregate
+     */
+    public void submitAfterCommit(final UUID streamId, final long streamVersion, final Aggregate aggregate) {
+        final Candidate candidate = new Candidate(streamId, streamVersion, aggregate);
+
+        if (transactionSynchronizationRegistry == null || transactionSynchronizationRegistry.getTransactionKey() == null) {
+            submit(candidate);
+            return;
+        }
+
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                if (status == STATUS_COMMITTED) {
+                    submit(candidate);
+                }
+            }
+        });
+    }
+
+    private void submit(final Candidate candidate) {
+        final SnapshotKey key = new SnapshotKey(candidate.streamId, candidate.aggregate.getClass());
+
+        synchronized (pending) {
+            final Candidate waiting = pending.get(key);
+            if (waiting != null) {
+                if (candidate.streamVersion > waiting.streamVersion) {
+                    pending.put(key, candidate);
+                }
+                coalesced.inc();
+                return;
+            }
+
+            if (!queue.offer(key)) {
+                dropped.inc();
+                logger.debug("Dropped snapshot of stream {} at version {}, snapshot queue is full", candidate.streamId, candidate.streamVersion);
+                return;
+            }
+            pending.put(key, candidate);
+        }
+
+        startWorkerIfIdle();
+    }
+
+    private void startWorkerIfIdle() {
+        while (true) {
+            final int active = activeWorkers.get();
+            if (active >= maxWorkers || queue.isEmpty()) {
+                return;
+            }
+            if (activeWorkers.compareAndSet(active, active + 1)) {
+                executorService.submit(this::drain);
+                return;
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            SnapshotKey key;
+            while ((key = queue.poll()) != null) {
+                final Candidate candidate;
+                synchronized (pending) {
+                    candidate = pending.remove(key);
+                }
+                if (candidate != null) {
+                    write(candidate);
+                }
+            }
+        } finally {
+            activeWorkers.decrementAndGet();
+        }
+        startWorkerIfIdle();
+    }
+
+    private void write(final Candidate candidate) {
+        try {
+            snapshotService.attemptAggregateStore(candidate.streamId, candidate.streamVersion, candidate.aggregate,
+                    snapshotService.getLatestSnapshotVersion(candidate.streamId, candidate.aggregate.getClass()));
+        } catch (final RuntimeException e) {
+            failed.inc();
+            logger.error(format("Failed to create snapshot of stream %s at version %d", candidate.streamId, candidate.streamVersion), e);
+        }
+    }
+
+    private static class Candidate {
+
+        private final UUID streamId;
+        private final long streamVersion;
+        private final Aggregate aggregate;
+
+        Candidate(final UUID streamId, final long streamVersion, final Aggregate aggregate) {
+            this.streamId = streamId;
+            this.streamVersion = streamVersion;
+            this.aggregate = aggregate;
+        }
+    }
+
+    private static class SnapshotKey {
+
+        private final UUID streamId;
+        private final Class<?> type;
+
+        SnapshotKey(final UUID streamId, final Class<?> type) {
+            this.streamId = streamId;
+            this.type = type;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final SnapshotKey that = (SnapshotKey) o;
+            return Objects.equals(streamId, that.streamId) && Objects.equals(type, that.type);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(streamId, type);
+        }
+    }
+}
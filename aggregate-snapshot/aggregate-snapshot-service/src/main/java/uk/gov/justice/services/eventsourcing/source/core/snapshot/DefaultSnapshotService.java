@@ -1,16 +1,27 @@
 package uk.gov.justice.services.eventsourcing.source.core.snapshot;
 
+import static java.util.Collections.emptyMap;
+import static uk.gov.justice.domain.snapshot.SnapshotSerializers.serializerOf;
+
 import uk.gov.justice.domain.aggregate.Aggregate;
 import uk.gov.justice.domain.snapshot.AggregateSnapshot;
 import uk.gov.justice.domain.snapshot.DefaultObjectInputStreamStrategy;
+import uk.gov.justice.domain.snapshot.JavaSnapshotSerializer;
 import uk.gov.justice.domain.snapshot.ObjectInputStreamStrategy;
+import uk.gov.justice.domain.snapshot.SnapshotSerializer;
+import uk.gov.justice.domain.snapshot.SnapshotSerializers;
 import uk.gov.justice.domain.snapshot.VersionedAggregate;
+import uk.gov.justice.services.common.configuration.Value;
 import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
+import uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot.SnapshotAndEvents;
 import uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot.SnapshotRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
@@ -19,6 +30,21 @@ import org.slf4j.Logger;
 
 /**
  * The type Default snapshot service.
+ *
+ * Snapshots are written by the {@link SnapshotSerializer} of the format set for their aggregate
+ * type in <code>snapshot.serializer.types</code>, as a comma separated list of
+ * <code>type=format</code> pairs, or else by the serializer of the format set by
+ * <code>snapshot.serializer</code>, which defaults to Java serialization. Each snapshot is read by
+ * the serializer of the format recorded with it, so changing the format of a type keeps its
+ * existing snapshots readable.
+ *
+ * Older snapshots of the stream and type are removed once a snapshot is stored, as set by the
+ * retention of the {@link SnapshotPruner}.
+ *
+ * Whether to snapshot is decided by the {@link SnapshotStrategy}, or by the
+ * {@link AdaptiveSnapshotStrategy} when <code>snapshot.strategy</code> is set to
+ * <code>adaptive</code>. The time taken to store each snapshot is recorded in the
+ * {@link AggregateReplayCosts} of its type.
  */
 @ApplicationScoped
 public class DefaultSnapshotService implements SnapshotService {
@@ -32,19 +58,59 @@ public class DefaultSnapshotService implements SnapshotService {
     @Inject
     SnapshotStrategy snapshotStrategy;
 
+    @Inject
+    EventLogConverter eventLogConverter;
+
+    @Inject
+    SnapshotPruner snapshotPruner;
+
+    @Inject
+    AdaptiveSnapshotStrategy adaptiveSnapshotStrategy;
+
+    @Inject
+    AggregateReplayCosts aggregateReplayCosts;
+
+    @Inject
+    @Value(key = "snapshot.strategy", defaultValue = "")
+    String strategyName;
+
+    @Inject
+    @Value(key = "snapshot.serializer", defaultValue = JavaSnapshotSerializer.FORMAT)
+    String serializerFormat;
+
+    @Inject
+    @Value(key = "snapshot.serializer.types", defaultValue = "")
+    String serializerFormatsByType;
+
     private ObjectInputStreamStrategy streamStrategy = new DefaultObjectInputStreamStrategy();
+    private SnapshotSerializer javaSnapshotSerializer = new JavaSnapshotSerializer(streamStrategy);
+    private SnapshotSerializer defaultSerializer = javaSnapshotSerializer;
+    private Map<String, SnapshotSerializer> serializersByType = emptyMap();
+    private boolean adaptiveStrategy = false;
+
+    @PostConstruct
+    void initialise() {
+        defaultSerializer = serializerOf(serializerFormat);
+
+        serializersByType = TypeValues.parse(serializerFormatsByType, "format", SnapshotSerializers::serializerOf);
+        adaptiveStrategy = AdaptiveSnapshotStrategy.NAME.equals(strategyName);
+    }
 
     public void setStreamStrategy(ObjectInputStreamStrategy streamStrategy) {
         this.streamStrategy = streamStrategy;
+        this.javaSnapshotSerializer = new JavaSnapshotSerializer(streamStrategy);
     }
 
     @Override
     public <T extends Aggregate> void attemptAggregateStore(final UUID streamId, final long streamVersionId, final T aggregate, final long currentSnapshotVersion) {
         logger.trace("Applying snapshot Strategy for {}", streamId, streamVersionId, aggregate.getClass(), aggregate, currentSnapshotVersion);
 
-        if (snapshotStrategy.shouldCreateSnapshot(streamVersionId, currentSnapshotVersion)) {
+        if (strategy().shouldCreateSnapshot(aggregate.getClass(), streamVersionId, currentSnapshotVersion)) {
             try {
-                snapshotRepository.storeSnapshot(new AggregateSnapshot<>(streamId, streamVersionId, aggregate));
+                final long start = System.nanoTime();
+                snapshotRepository.storeSnapshot(new AggregateSnapshot<>(streamId, streamVersionId, aggregate, serializerFor(aggregate.getClass())));
+                aggregateReplayCosts.recordSnapshot(aggregate.getClass(), System.nanoTime() - start);
+                snapshotPruner.pruneAfterStore(streamId, aggregate.getClass());
             } catch (SerializationException e) {
                 logger.error("SerializationException while creating snapshot Strategy for {}", streamId, streamVersionId, aggregate.getClass(), aggregate, currentSnapshotVersion);
             }
@@ -61,14 +127,33 @@ public class DefaultSnapshotService implements SnapshotService {
         logger.trace("Retrieving aggregate container for {}", aggregateSnapshot, clazz);
 
         if (aggregateSnapshot.isPresent()) {
-            final AggregateSnapshot<T> snapshotValue = aggregateSnapshot.get();
-            final VersionedAggregate<T> versionedAggregate = new VersionedAggregate<T>(snapshotValue.getVersionId(), snapshotValue.getAggregate(streamStrategy));
-            return Optional.of(versionedAggregate);
+            return Optional.of(versionedAggregateOf(aggregateSnapshot.get()));
         }
 
         return Optional.empty();
     }
 
+    @Override
+    public <T extends Aggregate> LatestAggregateAndEvents<T> getLatestVersionedAggregateAndEvents(final UUID streamId, final Class<T> clazz)
+            throws AggregateChangeDetectedException {
+        logger.trace("Retrieving aggregate and events after it for {}", streamId, clazz);
+
+        final SnapshotAndEvents<T> snapshotAndEvents = snapshotRepository.getLatestSnapshotAndEventsAfter(streamId, clazz);
+
+        final Optional<VersionedAggregate<T>> versionedAggregate;
+        try {
+            versionedAggregate = snapshotAndEvents.getSnapshot().isPresent()
+                    ? Optional.of(versionedAggregateOf(snapshotAndEvents.getSnapshot().get()))
+                    : Optional.empty();
+        } catch (final AggregateChangeDetectedException | RuntimeException e) {
+            snapshotAndEvents.getEvents().close();
+            throw e;
+        }
+
+        return new LatestAggregateAndEvents<>(versionedAggregate,
+                snapshotAndEvents.getEvents().map(eventLogConverter::createEnvelope));
+    }
+
     @Override
     public <T extends Aggregate> void removeAllSnapshots(final UUID streamId, final Class<T> clazz) {
         logger.trace("Removing all snapshots for {}", streamId, clazz);
@@ -80,5 +165,28 @@ public class DefaultSnapshotService implements SnapshotService {
         logger.trace("Getting the latest snapshot version  for {}", clazz);
         return snapshotRepository.getLatestSnapshotVersion(streamId, clazz);
     }
-}
 
+    private SnapshotStrategy strategy() {
+        return adaptiveStrategy ? adaptiveSnapshotStrategy : snapshotStrategy;
+    }
+
+    private <T extends Aggregate> VersionedAggregate<T> versionedAggregateOf(final AggregateSnapshot<T> aggregateSnapshot) throws AggregateChangeDetectedException {
+        return new VersionedAggregate<>(aggregateSnapshot.getVersionId(), aggregateSnapshot.getAggregate(serializerOfFormat(aggregateSnapshot.getFormat())));
+    }
+
+    private SnapshotSerializer serializerFor(final Class<?> type) {
+        return serializersByType.getOrDefault(type.getName(), defaultSerializer);
+    }
+
+    private SnapshotSerializer serializerOfFormat(final String format) throws AggregateChangeDetectedException {
+        if (JavaSnapshotSerializer.FORMAT.equals(format)) {
+            return javaSnapshotSerializer;
+        }
+
+        try {
+            return serializerOf(format);
+        } catch (final IllegalArgumentException e) {
+            throw new AggregateChangeDetectedException(e.getMessage());
+        }
+    }
+}
@@ -6,7 +6,7 @@ import org.slf4j.Logger;
 
 public class DefaultSnapshotStrategy implements SnapshotStrategy {
 
-    private final static int SNAPSHOT_THRESHOLD = 25;
+    static final int SNAPSHOT_THRESHOLD = 25;
 
     @Inject
     Logger logger;
@@ -0,0 +1,33 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.domain.snapshot.VersionedAggregate;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * The aggregate of the latest snapshot of a stream, if any, with the events of the stream to
+ * apply to it.
+ *
+ * @param <T> the type of the aggregate
+ */
+public class LatestAggregateAndEvents<T extends Aggregate> {
+
+    private final Optional<VersionedAggregate<T>> versionedAggregate;
+    private final Stream<JsonEnvelope> events;
+
+    public LatestAggregateAndEvents(final Optional<VersionedAggregate<T>> versionedAggregate, final Stream<JsonEnvelope> events) {
+        this.versionedAggregate = versionedAggregate;
+        this.events = events;
+    }
+
+    public Optional<VersionedAggregate<T>> getVersionedAggregate() {
+        return versionedAggregate;
+    }
+
+    public Stream<JsonEnvelope> getEvents() {
+        return events;
+    }
+}
@@ -0,0 +1,141 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.common.util.Clock;
+import uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot.SnapshotRepository;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.slf4j.Logger;
+
+/**
+ * Removes snapshots that are no longer needed, as only the latest snapshot of a stream and
+ * aggregate type is ever read.
+ *
+ * With <code>snapshot.retention.keepLatest</code> set above zero, storing a snapshot removes all
+ * but that number of latest snapshots of its stream and type. With
+ * <code>snapshot.retention.maxAgeMillis</code> set above zero, a sweep on the managed scheduled
+ * executor every <code>snapshot.retention.sweepIntervalMillis</code> removes the snapshots older
+ * than that, in batches of <code>snapshot.retention.batchSize</code>, keeping the latest snapshot of
+ * every stream and type however old. Both are disabled by default, keeping every snapshot.
+ *
+ * The snapshots removed are counted in the <code>MetricRegistry</code>, with a gauge of the number of
+ * snapshots stored as estimated by the last sweep.
+ */
+@ApplicationScoped
+public class SnapshotPruner {
+
+    static final String PRUNED = "snapshot-retention.pruned";
+    static final String SNAPSHOTS = "snapshot-retention.snapshots";
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    @Value(key = "snapshot.retention.keepLatest", defaultValue = "0")
+    String keepLatest;
+
+    @Inject
+    @Value(key = "snapshot.retention.maxAgeMillis", defaultValue = "0")
+    String maxAgeMillis;
+
+    @Inject
+    @Value(key = "snapshot.retention.sweepIntervalMillis", defaultValue = "60000")
+    String sweepIntervalMillis;
+
+    @Inject
+    @Value(key = "snapshot.retention.batchSize", defaultValue = "100")
+    String batchSize;
+
+    @Inject
+    SnapshotRepository snapshotRepository;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Inject
+    Clock clock;
+
+    @Resource(lookup = "java:comp/DefaultManagedScheduledExecutorService")
+    ScheduledExecutorService scheduledExecutorService;
+
+    private int latestToKeep;
+    private long maxAge;
+    private Counter pruned;
+    private volatile long snapshotCount;
+    private ScheduledFuture<?> scheduledSweep;
+
+    @PostConstruct
+    void initialise() {
+        latestToKeep = parseInt(keepLatest);
+        maxAge = parseLong(maxAgeMillis);
+        pruned = metricRegistry.counter(PRUNED);
+        metricRegistry.remove(SNAPSHOTS);
+        metricRegistry.register(SNAPSHOTS, (Gauge<Long>) () -> snapshotCount);
+    }
+
+    public void start(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+        if (latestToKeep > 0 || maxAge > 0) {
+            final long interval = parseLong(sweepIntervalMillis);
+            logger.info("Sweeping snapshots older than {}ms every {}ms", maxAge, interval);
+            scheduledSweep = scheduledExecutorService.scheduleWithFixedDelay(this::sweep, interval, interval, MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduledSweep != null) {
+            scheduledSweep.cancel(false);
+        }
+    }
+
+    /**
+     * Remove all but the latest snapshots of a stream and type to keep, after a snapshot of them is
+     * stored.
+     *
+     * @param streamId the id of the stream
+     * @param clazz    the type of the aggregate
+     */
+    public <T extends Aggregate> void pruneAfterStore(final UUID streamId, final Class<T> clazz) {
+        if (latestToKeep > 0) {
+            pruned.inc(snapshotRepository.removeAllButLatestSnapshots(streamId, clazz, latestToKeep));
+        }
+    }
+
+    void sweep() {
+        try {
+            if (maxAge > 0) {
+                final int size = parseInt(batchSize);
+                final ZonedDateTime createdBefore = clock.now().minus(maxAge, MILLIS);
+                int removed;
+                do {
+                    removed = snapshotRepository.removeSupersededSnapshotsCreatedBefore(createdBefore, size);
+                    pruned.inc(removed);
+                } while (removed == size);
+            }
+            snapshotCount = snapshotRepository.estimateSnapshotCount();
+        } catch (RuntimeException e) {
+            logger.error("Failed to prune snapshots", e);
+        }
+    }
+}
@@ -40,6 +40,20 @@ public interface SnapshotService {
                                                                                              final Class<T> clazz)
             throws AggregateChangeDetectedException;
 
+    /**
+     * Gets latest versioned aggregate with the events of the stream after its version, or all the
+     * events of the stream if it has no snapshot, read in a single query of the event store.
+     *
+     * @param <T>      the type parameter
+     * @param streamId the stream id
+     * @param clazz    the clazz
+     * @return the latest versioned aggregate and the events after it
+     * @throws AggregateChangeDetectedException the aggregate change detected exception
+     */
+    public <T extends Aggregate> LatestAggregateAndEvents<T> getLatestVersionedAggregateAndEvents(final UUID streamId,
+                                                                                                  final Class<T> clazz)
+            throws AggregateChangeDetectedException;
+
     /**
      * Remove all snapshots.
      *
@@ -13,4 +13,17 @@ public interface SnapshotStrategy {
      * @return the boolean
      */
     boolean shouldCreateSnapshot(final long aggregateVersionId, final long snapshotVersionId);
+
+    /**
+     * Should create snapshot of an aggregate of the given type. Decides by the versions alone
+     * unless overridden.
+     *
+     * @param aggregateType      the type of the aggregate
+     * @param aggregateVersionId the aggregate version id
+     * @param snapshotVersionId  the snapshot version id
+     * @return the boolean
+     */
+    default boolean shouldCreateSnapshot(final Class<?> aggregateType, final long aggregateVersionId, final long snapshotVersionId) {
+        return shouldCreateSnapshot(aggregateVersionId, snapshotVersionId);
+    }
 }
@@ -0,0 +1,39 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import static java.lang.String.format;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Parses settings giving a value for each aggregate type, as a comma separated list of
+ * <code>type=value</code> pairs.
+ */
+final class TypeValues {
+
+    private TypeValues() {
+    }
+
+    /**
+     * @param typeValues the comma separated <code>type=value</code> pairs, blank for none
+     * @param valueName  the name of the value in the error of a malformed pair
+     * @param valueOf    parses the value of a type
+     * @param <V>        the type of the values
+     * @return the value of each type by type name
+     * @throws IllegalArgumentException if a pair is not of the form <code>type=value</code>
+     */
+    static <V> Map<String, V> parse(final String typeValues, final String valueName, final Function<String, V> valueOf) {
+        final Map<String, V> values = new HashMap<>();
+        for (final String typeValue : typeValues.split(",")) {
+            if (!typeValue.trim().isEmpty()) {
+                final String[] pair = typeValue.split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException(format("Snapshot %s of a type must be given as type=%s, was %s", valueName, valueName, typeValue));
+                }
+                values.put(pair[0].trim(), valueOf.apply(pair[1].trim()));
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,202 @@
+package uk.gov.justice.services.core.aggregate;
+
+import static java.util.UUID.randomUUID;
+import static javax.transaction.Status.STATUS_COMMITTED;
+import static javax.transaction.Status.STATUS_ROLLEDBACK;
+import static org.apache.commons.lang.SerializationUtils.serialize;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.core.aggregate.AggregateCache.EVICTIONS;
+import static uk.gov.justice.services.core.aggregate.AggregateCache.HITS;
+import static uk.gov.justice.services.core.aggregate.AggregateCache.HIT_RATE;
+import static uk.gov.justice.services.core.aggregate.AggregateCache.MISSES;
+
+import uk.gov.justice.domain.aggregate.NoSerializableTestAggregate;
+import uk.gov.justice.domain.aggregate.TestAggregate;
+import uk.gov.justice.domain.event.EventA;
+import uk.gov.justice.domain.snapshot.VersionedAggregate;
+
+import java.util.UUID;
+
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AggregateCacheTest {
+
+    private static final UUID STREAM_ID = randomUUID();
+    private static final UUID OTHER_STREAM_ID = randomUUID();
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private MetricRegistry metricRegistry;
+
+    private AggregateCache aggregateCache;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        aggregateCache = cacheWithMaxWeight("100000");
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertThat(cacheWithMaxWeight("0").isEnabled(), is(false));
+        assertThat(aggregateCache.isEnabled(), is(true));
+    }
+
+    @Test
+    public void shouldReturnCopyOfCachedAggregateWithItsVersion() {
+        final TestAggregate aggregate = aggregateWithEvents(2);
+        aggregateCache.putAfterCommit(STREAM_ID, 12L, aggregate);
+
+        final VersionedAggregate<TestAggregate> cached = aggregateCache.get(STREAM_ID, TestAggregate.class).get();
+
+        assertThat(cached.getVersionId(), is(12L));
+        assertThat(cached.getAggregate(), not(sameInstance(aggregate)));
+        assertThat(cached.getAggregate().numberOfAppliedEvents(), is(2));
+    }
+
+    @Test
+    public void shouldNotShareCachedAggregateWithHandlers() {
+        final TestAggregate aggregate = aggregateWithEvents(1);
+        aggregateCache.putAfterCommit(STREAM_ID, 1L, aggregate);
+        aggregate.apply(new EventA("CHANGED AFTER APPEND"));
+
+        final TestAggregate copy = aggregateCache.get(STREAM_ID, TestAggregate.class).get().getAggregate();
+        copy.apply(new EventA("CHANGED BY HANDLER"));
+
+        assertThat(aggregateCache.get(STREAM_ID, TestAggregate.class).get().getAggregate().recordedEvents(), hasSize(1));
+    }
+
+    @Test
+    public void shouldCacheAggregateOnlyOnceTransactionCommits() {
+        when(transactionSynchronizationRegistry.getTransactionKey()).thenReturn(new Object());
+
+        aggregateCache.putAfterCommit(STREAM_ID, 1L, aggregateWithEvents(1));
+
+        assertThat(aggregateCache.get(STREAM_ID, TestAggregate.class).isPresent(), is(false));
+        registeredSynchronization().afterCompletion(STATUS_COMMITTED);
+        assertThat(aggregateCache.get(STREAM_ID, TestAggregate.class).isPresent(), is(true));
+    }
+
+    @Test
+    public void shouldNotCacheAggregateOfRolledBackTransaction() {
+        when(transactionSynchronizationRegistry.getTransactionKey()).thenReturn(new Object());
+
+        aggregateCache.putAfterCommit(STREAM_ID, 1L, aggregateWithEvents(1));
+        registeredSynchronization().afterCompletion(STATUS_ROLLEDBACK);
+
+        assertThat(aggregateCache.get(STREAM_ID, TestAggregate.class).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldKeepLatestVersionOfAggregate() {
+        aggregateCache.putAfterCommit(STREAM_ID, 5L, aggregateWithEvents(5));
+        aggregateCache.putAfterCommit(STREAM_ID, 4L, aggregateWithEvents(4));
+
+        assertThat(aggregateCache.get(STREAM_ID, TestAggregate.class).get().getVersionId(), is(5L));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedAggregatesWhenFull() {
+        final long weight = serialize(aggregateWithEvents(1)).length;
+        aggregateCache = cacheWithMaxWeight(String.valueOf(2 * weight));
+        final UUID thirdStreamId = randomUUID();
+
+        aggregateCache.putAfterCommit(STREAM_ID, 1L, aggregateWithEvents(1));
+        aggregateCache.putAfterCommit(OTHER_STREAM_ID, 1L, aggregateWithEvents(1));
+        aggregateCache.get(STREAM_ID, TestAggregate.class);
+        aggregateCache.putAfterCommit(thirdStreamId, 1L, aggregateWithEvents(1));
+
+        assertThat(aggregateCache.get(STREAM_ID, TestAggregate.class).isPresent(), is(true));
+        assertThat(aggregateCache.get(OTHER_STREAM_ID, TestAggregate.class).isPresent(), is(false));
+        assertThat(aggregateCache.get(thirdStreamId, TestAggregate.class).isPresent(), is(true));
+        assertThat(aggregateCache.totalWeight(), is(2 * weight));
+        assertThat(metricRegistry.counter(EVICTIONS).getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldNotCacheAggregateHeavierThanCache() {
+        aggregateCache = cacheWithMaxWeight("10");
+
+        aggregateCache.putAfterCommit(STREAM_ID, 1L, aggregateWithEvents(1));
+
+        assertThat(aggregateCache.get(STREAM_ID, TestAggregate.class).isPresent(), is(false));
+        assertThat(aggregateCache.totalWeight(), is(0L));
+    }
+
+    @Test
+    public void shouldNotCacheAggregateThatCannotBeSerialized() {
+        aggregateCache.putAfterCommit(STREAM_ID, 1L, new NoSerializableTestAggregate());
+
+        assertThat(aggregateCache.get(STREAM_ID, NoSerializableTestAggregate.class).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldInvalidateCachedAggregate() {
+        aggregateCache.putAfterCommit(STREAM_ID, 1L, aggregateWithEvents(1));
+
+        aggregateCache.invalidate(STREAM_ID, TestAggregate.class);
+
+        assertThat(aggregateCache.get(STREAM_ID, TestAggregate.class).isPresent(), is(false));
+        assertThat(aggregateCache.totalWeight(), is(0L));
+    }
+
+    @Test
+    public void shouldCountHitsAndMisses() {
+        aggregateCache.putAfterCommit(STREAM_ID, 1L, aggregateWithEvents(1));
+
+        aggregateCache.get(STREAM_ID, TestAggregate.class);
+        aggregateCache.get(STREAM_ID, TestAggregate.class);
+        aggregateCache.get(STREAM_ID, TestAggregate.class);
+        aggregateCache.get(OTHER_STREAM_ID, TestAggregate.class);
+
+        assertThat(metricRegistry.counter(HITS).getCount(), is(3L));
+        assertThat(metricRegistry.counter(MISSES).getCount(), is(1L));
+        assertThat((Double) metricRegistry.getGauges().get(HIT_RATE).getValue(), closeTo(0.75, 0.0001));
+    }
+
+    private TestAggregate aggregateWithEvents(final int count) {
+        final TestAggregate aggregate = new TestAggregate();
+        for (int i = 0; i < count; i++) {
+            aggregate.apply(new EventA("A" + i));
+        }
+        return aggregate;
+    }
+
+    private Synchronization registeredSynchronization() {
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionSynchronizationRegistry).registerInterposedSynchronization(synchronization.capture());
+        return synchronization.getValue();
+    }
+
+    private AggregateCache cacheWithMaxWeight(final String maxWeight) {
+        final AggregateCache cache = new AggregateCache();
+        cache.logger = logger;
+        cache.maxWeight = maxWeight;
+        cache.metricRegistry = metricRegistry;
+        cache.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+        cache.initialise();
+        return cache;
+    }
+}
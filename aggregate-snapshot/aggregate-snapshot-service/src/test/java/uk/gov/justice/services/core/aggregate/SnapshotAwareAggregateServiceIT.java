@@ -18,23 +18,34 @@ import uk.gov.justice.domain.snapshot.DefaultObjectInputStreamStrategy;
 import uk.gov.justice.domain.snapshot.ObjectInputStreamStrategy;
 import uk.gov.justice.repository.EventLogOpenEjbAwareJdbcRepository;
 import uk.gov.justice.repository.SnapshotOpenEjbAwareJdbcRepository;
+import uk.gov.justice.services.common.configuration.JndiBasedServiceContextNameProvider;
+import uk.gov.justice.services.common.configuration.ValueProducer;
 import uk.gov.justice.services.common.converter.JsonObjectToObjectConverter;
 import uk.gov.justice.services.common.converter.StringToJsonObjectConverter;
 import uk.gov.justice.services.common.converter.jackson.ObjectMapperProducer;
 import uk.gov.justice.services.common.util.UtcClock;
 import uk.gov.justice.services.core.cdi.LoggerProducer;
 import uk.gov.justice.services.core.extension.EventFoundEvent;
+import uk.gov.justice.services.core.metrics.MetricRegistryProducer;
 import uk.gov.justice.services.eventsource.DefaultEventDestinationResolver;
 import uk.gov.justice.services.eventsourcing.publisher.jms.JmsEventPublisher;
 import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.EventRepositoryProducer;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.JdbcEventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.ShardedEventRepository;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards;
+import uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy;
 import uk.gov.justice.services.eventsourcing.source.core.EventStream;
 import uk.gov.justice.services.eventsourcing.source.core.SnapshotAwareEnvelopeEventStream;
 import uk.gov.justice.services.eventsourcing.source.core.SnapshotAwareEventSource;
 import uk.gov.justice.services.eventsourcing.source.core.SnapshotAwareEventStreamManager;
+import uk.gov.justice.services.eventsourcing.source.core.snapshot.AdaptiveSnapshotStrategy;
+import uk.gov.justice.services.eventsourcing.source.core.snapshot.AggregateReplayCosts;
+import uk.gov.justice.services.eventsourcing.source.core.snapshot.AsyncSnapshotWriter;
 import uk.gov.justice.services.eventsourcing.source.core.snapshot.DefaultSnapshotService;
 import uk.gov.justice.services.eventsourcing.source.core.snapshot.DefaultSnapshotStrategy;
+import uk.gov.justice.services.eventsourcing.source.core.snapshot.SnapshotPruner;
 import uk.gov.justice.services.messaging.DefaultJsonEnvelope;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 import uk.gov.justice.services.messaging.JsonObjectEnvelopeConverter;
@@ -121,9 +132,14 @@ public class SnapshotAwareAggregateServiceIT {
             SnapshotOpenEjbAwareJdbcRepository.class,
             EventLogOpenEjbAwareJdbcRepository.class,
             JdbcEventRepository.class,
+            ShardedEventRepository.class,
+            EventRepositoryProducer.class,
+            EventStoreShards.class,
             EventRepository.class,
 
             LoggerProducer.class,
+            ValueProducer.class,
+            JndiBasedServiceContextNameProvider.class,
 
             EventLogConverter.class,
             EnvelopeConverter.class,
@@ -141,8 +157,15 @@ public class SnapshotAwareAggregateServiceIT {
             SnapshotAwareEventSource.class,
             SnapshotAwareEnvelopeEventStream.class,
             SnapshotAwareEventStreamManager.class,
+            ConflictRetryPolicy.class,
+            MetricRegistryProducer.class,
             DefaultSnapshotService.class,
             DefaultSnapshotStrategy.class,
+            AsyncSnapshotWriter.class,
+            AdaptiveSnapshotStrategy.class,
+            AggregateReplayCosts.class,
+            SnapshotPruner.class,
+            AggregateCache.class,
             UtcClock.class
     })
 
@@ -6,11 +6,16 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelopeFrom;
 import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithRandomUUID;
@@ -24,7 +29,10 @@ import uk.gov.justice.domain.snapshot.VersionedAggregate;
 import uk.gov.justice.services.common.converter.JsonObjectToObjectConverter;
 import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
 import uk.gov.justice.services.core.extension.EventFoundEvent;
+import uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy;
 import uk.gov.justice.services.eventsourcing.source.core.EventStream;
+import uk.gov.justice.services.eventsourcing.source.core.snapshot.AggregateReplayCosts;
+import uk.gov.justice.services.eventsourcing.source.core.snapshot.LatestAggregateAndEvents;
 import uk.gov.justice.services.eventsourcing.source.core.snapshot.SnapshotService;
 import uk.gov.justice.services.messaging.DefaultJsonEnvelope;
 import uk.gov.justice.services.messaging.JsonEnvelope;
@@ -38,6 +46,7 @@ import javax.json.JsonObject;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
@@ -66,6 +75,12 @@ public class SnapshotAwareAggregateServiceTest {
     @Mock
     private SnapshotService snapshotService;
 
+    @Mock
+    private AggregateCache aggregateCache;
+
+    @Mock
+    private AggregateReplayCosts aggregateReplayCosts;
+
     @Spy
     private DefaultAggregateService defaultAggregateService;
 
@@ -83,7 +98,7 @@ public class SnapshotAwareAggregateServiceTest {
 
         when(eventStream.getId()).thenReturn(STREAM_ID);
         when(snapshotService.getLatestVersionedAggregate(STREAM_ID, TestAggregate.class)).thenReturn(Optional.of(new VersionedAggregate<>(INITIAL_AGGREGATE_VERSION, new TestAggregate())));
-        when(eventStream.readFrom(NEXT_AGGREGATE_VERSION)).thenReturn(Stream.empty());
+        when(eventStream.readAheadFrom(NEXT_AGGREGATE_VERSION)).thenReturn(Stream.empty());
 
         final TestAggregate aggregate = aggregateService.get(eventStream, TestAggregate.class);
 
@@ -102,7 +117,7 @@ public class SnapshotAwareAggregateServiceTest {
 
         when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(eventA);
         when(eventStream.getId()).thenReturn(STREAM_ID);
-        when(eventStream.read()).thenReturn(of(
+        when(eventStream.readAhead()).thenReturn(of(
                 envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
         when(snapshotService.getLatestVersionedAggregate(STREAM_ID, TestAggregate.class)).thenReturn(versionedAggregate);
 
@@ -133,7 +148,7 @@ public class SnapshotAwareAggregateServiceTest {
         when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(eventA);
         when(jsonObjectToObjectConverter.convert(eventPayloadB, EventB.class)).thenReturn(eventB);
         when(eventStream.getId()).thenReturn(STREAM_ID);
-        when(eventStream.read()).thenReturn(of(
+        when(eventStream.readAhead()).thenReturn(of(
                 envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA), envelopeFrom(metadataWithRandomUUID("eventB"), eventPayloadB)));
         when(snapshotService.getLatestVersionedAggregate(STREAM_ID, TestAggregate.class)).thenReturn(versionedAggregate);
 
@@ -152,6 +167,33 @@ public class SnapshotAwareAggregateServiceTest {
         verify(logger).trace("SnapshotAwareAggregateService Recreating aggregate for instance {} of aggregate type {}", STREAM_ID, TestAggregate.class);
     }
 
+    @Test
+    public void shouldAppendEventsOfCommandAfterSnapshotVersionAndEventsSince() throws Exception {
+        defaultAggregateService.logger = logger;
+        defaultAggregateService.jsonObjectToObjectConverter = jsonObjectToObjectConverter;
+        defaultAggregateService.conflictRetryPolicy = mock(ConflictRetryPolicy.class);
+        final JsonObject eventPayloadA = mock(JsonObject.class);
+        final Stream<JsonEnvelope> newEvents = Stream.empty();
+        final TestAggregate snapshotAggregate = new TestAggregate();
+
+        when(eventStream.getId()).thenReturn(STREAM_ID);
+        when(snapshotService.getLatestVersionedAggregate(STREAM_ID, TestAggregate.class)).thenReturn(Optional.of(new VersionedAggregate<>(3L, snapshotAggregate)));
+        when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(new EventA());
+        when(eventStream.readAheadFrom(4L)).thenReturn(of(
+                envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA),
+                envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
+
+        registerEvent(EventA.class, "eventA");
+
+        aggregateService.getAndAppend(eventStream, TestAggregate.class, aggregate -> {
+            assertThat(aggregate, sameInstance(snapshotAggregate));
+            assertThat(aggregate.recordedEvents(), hasSize(2));
+            return newEvents;
+        });
+
+        verify(eventStream).appendAfter(newEvents, 5L);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void shouldThrowExceptionForUnregisteredEvent() throws AggregateChangeDetectedException {
         defaultAggregateService.logger = logger;
@@ -162,7 +204,7 @@ public class SnapshotAwareAggregateServiceTest {
         when(eventStream.getId()).thenReturn(STREAM_ID);
         when(snapshotService.getLatestVersionedAggregate(STREAM_ID, TestAggregate.class)).thenReturn(Optional.of(new VersionedAggregate<>(INITIAL_AGGREGATE_VERSION, new TestAggregate())));
         when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(eventA);
-        when(eventStream.readFrom(NEXT_AGGREGATE_VERSION)).thenReturn(of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
+        when(eventStream.readAheadFrom(NEXT_AGGREGATE_VERSION)).thenReturn(of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
 
         aggregateService.get(eventStream, TestAggregate.class);
     }
@@ -176,7 +218,7 @@ public class SnapshotAwareAggregateServiceTest {
 
         when(snapshotService.getLatestVersionedAggregate(STREAM_ID, TestAggregate.class)).thenReturn(Optional.of(new VersionedAggregate<>(INITIAL_AGGREGATE_VERSION, new TestAggregate())));
         when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(eventA);
-        when(eventStream.readFrom(NEXT_AGGREGATE_VERSION)).thenReturn(of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
+        when(eventStream.readAheadFrom(NEXT_AGGREGATE_VERSION)).thenReturn(of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
 
         registerEvent(EventA.class, "eventA");
 
@@ -209,7 +251,7 @@ public class SnapshotAwareAggregateServiceTest {
         when(eventStream.getCurrentVersion()).thenReturn(currentStreamVersion);
         when(snapshotService.getLatestVersionedAggregate(streamId, TestAggregate.class)).thenReturn(
                 Optional.of(new VersionedAggregate<>(snapshotVersion, aggregate)));
-        when(eventStream.readFrom(snapshotVersion + 1)).thenReturn(of(jsonEventA, jsonEventB, jsonEventC));
+        when(eventStream.readAheadFrom(snapshotVersion + 1)).thenReturn(of(jsonEventA, jsonEventB, jsonEventC));
 
 
         when(jsonObjectToObjectConverter.convert(jsonEventA.payloadAsJsonObject(), EventA.class)).thenReturn(eventA);
@@ -249,7 +291,7 @@ public class SnapshotAwareAggregateServiceTest {
         when(jsonObjectToObjectConverter.convert(jsonEventA.payloadAsJsonObject(), EventA.class)).thenReturn(eventA);
         when(jsonObjectToObjectConverter.convert(jsonEventB.payloadAsJsonObject(), EventB.class)).thenReturn(eventB);
         when(jsonObjectToObjectConverter.convert(jsonEventC.payloadAsJsonObject(), EventC.class)).thenReturn(eventC);
-        when(eventStream.read()).thenReturn(of(jsonEventA, jsonEventB, jsonEventC));
+        when(eventStream.readAhead()).thenReturn(of(jsonEventA, jsonEventB, jsonEventC));
 
         final TestAggregate aggregate1 = aggregateService.get(eventStream, TestAggregate.class);
 
@@ -257,4 +299,141 @@ public class SnapshotAwareAggregateServiceTest {
 
         assertThat(aggregate1.recordedEvents(), hasItems(eventA, eventB, eventC));
     }
+
+    @Test
+    public void shouldRebuildAggregateFromCacheAndEventsSinceCachedVersion() throws AggregateChangeDetectedException {
+        defaultAggregateService.logger = logger;
+        defaultAggregateService.jsonObjectToObjectConverter = jsonObjectToObjectConverter;
+
+        final UUID streamId = UUID.randomUUID();
+        final long cachedVersion = 30L;
+        final TestAggregate cachedAggregate = new TestAggregate();
+        final JsonEnvelope jsonEventA = DefaultJsonEnvelope.envelope().with(JsonObjectMetadata.metadataWithRandomUUID("eventA")).withPayloadOf("value1", "name1").build();
+        final EventA eventA = new EventA("A1");
+        registerEvent(EventA.class, "eventA");
+
+        when(eventStream.getId()).thenReturn(streamId);
+        when(aggregateCache.isEnabled()).thenReturn(true);
+        when(aggregateCache.get(streamId, TestAggregate.class)).thenReturn(Optional.of(new VersionedAggregate<>(cachedVersion, cachedAggregate)));
+        when(eventStream.readAheadFrom(cachedVersion + 1)).thenReturn(of(jsonEventA));
+        when(jsonObjectToObjectConverter.convert(jsonEventA.payloadAsJsonObject(), EventA.class)).thenReturn(eventA);
+
+        final TestAggregate aggregate = aggregateService.get(eventStream, TestAggregate.class);
+
+        assertThat(aggregate, sameInstance(cachedAggregate));
+        assertThat(aggregate.recordedEvents(), hasItems(eventA));
+        verifyZeroInteractions(snapshotService);
+    }
+
+    @Test
+    public void shouldRebuildAggregateFromSnapshotIfNotCached() throws AggregateChangeDetectedException {
+        defaultAggregateService.logger = logger;
+        defaultAggregateService.jsonObjectToObjectConverter = jsonObjectToObjectConverter;
+
+        final UUID streamId = UUID.randomUUID();
+        final TestAggregate snapshotAggregate = new TestAggregate();
+
+        when(eventStream.getId()).thenReturn(streamId);
+        when(aggregateCache.isEnabled()).thenReturn(true);
+        when(aggregateCache.get(streamId, TestAggregate.class)).thenReturn(Optional.empty());
+        when(snapshotService.getLatestVersionedAggregate(streamId, TestAggregate.class)).thenReturn(Optional.of(new VersionedAggregate<>(25L, snapshotAggregate)));
+        when(eventStream.readAheadFrom(26L)).thenReturn(Stream.empty());
+
+        assertThat(aggregateService.get(eventStream, TestAggregate.class), sameInstance(snapshotAggregate));
+    }
+
+    @Test
+    public void shouldRebuildAggregateFromSnapshotAndEventsReadTogether() throws AggregateChangeDetectedException {
+        defaultAggregateService.logger = logger;
+        defaultAggregateService.jsonObjectToObjectConverter = jsonObjectToObjectConverter;
+        aggregateService.readEventsWithSnapshot = "true";
+        aggregateService.initialise();
+
+        final UUID streamId = UUID.randomUUID();
+        final TestAggregate snapshotAggregate = new TestAggregate();
+        final JsonEnvelope jsonEventA = DefaultJsonEnvelope.envelope().with(JsonObjectMetadata.metadataWithRandomUUID("eventA")).withPayloadOf("value1", "name1").build();
+        final EventA eventA = new EventA("A1");
+        registerEvent(EventA.class, "eventA");
+
+        when(eventStream.getId()).thenReturn(streamId);
+        when(snapshotService.getLatestVersionedAggregateAndEvents(streamId, TestAggregate.class))
+                .thenReturn(new LatestAggregateAndEvents<>(Optional.of(new VersionedAggregate<>(25L, snapshotAggregate)), of(jsonEventA)));
+        when(jsonObjectToObjectConverter.convert(jsonEventA.payloadAsJsonObject(), EventA.class)).thenReturn(eventA);
+
+        final TestAggregate aggregate = aggregateService.get(eventStream, TestAggregate.class);
+
+        assertThat(aggregate, sameInstance(snapshotAggregate));
+        assertThat(aggregate.recordedEvents(), hasItems(eventA));
+        verify(eventStream, never()).readAhead();
+        verify(eventStream, never()).readAheadFrom(26L);
+    }
+
+    @Test
+    public void shouldAppendAfterVersionOfEventsReadWithSnapshot() throws Exception {
+        defaultAggregateService.logger = logger;
+        defaultAggregateService.jsonObjectToObjectConverter = jsonObjectToObjectConverter;
+        defaultAggregateService.conflictRetryPolicy = mock(ConflictRetryPolicy.class);
+        aggregateService.readEventsWithSnapshot = "true";
+        aggregateService.initialise();
+
+        final UUID streamId = UUID.randomUUID();
+        final JsonEnvelope jsonEventA = DefaultJsonEnvelope.envelope().with(JsonObjectMetadata.metadataWithRandomUUID("eventA")).withPayloadOf("value1", "name1").build();
+        final JsonEnvelope newEvent = envelopeFrom(metadataWithRandomUUID("eventB"), mock(JsonObject.class));
+        registerEvent(EventA.class, "eventA");
+
+        when(eventStream.getId()).thenReturn(streamId);
+        when(snapshotService.getLatestVersionedAggregateAndEvents(streamId, TestAggregate.class))
+                .thenReturn(new LatestAggregateAndEvents<>(Optional.of(new VersionedAggregate<>(25L, new TestAggregate())), of(jsonEventA)));
+        when(jsonObjectToObjectConverter.convert(jsonEventA.payloadAsJsonObject(), EventA.class)).thenReturn(new EventA("A1"));
+
+        final ArgumentCaptor<Stream> appended = ArgumentCaptor.forClass(Stream.class);
+
+        aggregateService.getAndAppend(eventStream, TestAggregate.class, aggregate -> of(newEvent));
+
+        verify(eventStream).appendAfter(appended.capture(), eq(26L));
+    }
+
+    @Test
+    public void shouldRebuildAggregateFromAllEventsIfSnapshotReadWithEventsChanged() throws AggregateChangeDetectedException {
+        defaultAggregateService.logger = logger;
+        defaultAggregateService.jsonObjectToObjectConverter = jsonObjectToObjectConverter;
+        aggregateService.readEventsWithSnapshot = "true";
+        aggregateService.initialise();
+
+        final UUID streamId = UUID.randomUUID();
+        final JsonEnvelope jsonEventA = DefaultJsonEnvelope.envelope().with(JsonObjectMetadata.metadataWithRandomUUID("eventA")).withPayloadOf("value1", "name1").build();
+        final EventA eventA = new EventA("A1");
+        registerEvent(EventA.class, "eventA");
+
+        when(eventStream.getId()).thenReturn(streamId);
+        doThrow(new AggregateChangeDetectedException("Aggregate Change Detected")).when(snapshotService).getLatestVersionedAggregateAndEvents(streamId, TestAggregate.class);
+        when(eventStream.readAhead()).thenReturn(of(jsonEventA));
+        when(jsonObjectToObjectConverter.convert(jsonEventA.payloadAsJsonObject(), EventA.class)).thenReturn(eventA);
+
+        final TestAggregate aggregate = aggregateService.get(eventStream, TestAggregate.class);
+
+        verify(snapshotService).removeAllSnapshots(streamId, TestAggregate.class);
+        assertThat(aggregate.recordedEvents(), hasItems(eventA));
+    }
+
+    @Test
+    public void shouldRecordReplayOfEventsAfterSnapshot() throws AggregateChangeDetectedException {
+        defaultAggregateService.logger = logger;
+        defaultAggregateService.jsonObjectToObjectConverter = jsonObjectToObjectConverter;
+
+        final UUID streamId = UUID.randomUUID();
+        final JsonEnvelope jsonEventA = DefaultJsonEnvelope.envelope().with(JsonObjectMetadata.metadataWithRandomUUID("eventA")).withPayloadOf("value1", "name1").build();
+        final JsonEnvelope jsonEventB = DefaultJsonEnvelope.envelope().with(JsonObjectMetadata.metadataWithRandomUUID("eventA")).withPayloadOf("value2", "name1").build();
+        registerEvent(EventA.class, "eventA");
+
+        when(eventStream.getId()).thenReturn(streamId);
+        when(snapshotService.getLatestVersionedAggregate(streamId, TestAggregate.class)).thenReturn(Optional.of(new VersionedAggregate<>(25L, new TestAggregate())));
+        when(eventStream.readAheadFrom(26L)).thenReturn(of(jsonEventA, jsonEventB));
+        when(jsonObjectToObjectConverter.convert(jsonEventA.payloadAsJsonObject(), EventA.class)).thenReturn(new EventA("A1"));
+        when(jsonObjectToObjectConverter.convert(jsonEventB.payloadAsJsonObject(), EventA.class)).thenReturn(new EventA("A2"));
+
+        aggregateService.get(eventStream, TestAggregate.class);
+
+        verify(aggregateReplayCosts).recordReplay(eq(TestAggregate.class), eq(2L), anyLong());
+    }
 }
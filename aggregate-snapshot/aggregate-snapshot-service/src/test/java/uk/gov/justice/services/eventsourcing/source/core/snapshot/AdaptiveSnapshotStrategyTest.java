@@ -0,0 +1,145 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import static java.lang.String.format;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.AdaptiveSnapshotStrategy.CREATED;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.AdaptiveSnapshotStrategy.DEFERRED;
+
+import uk.gov.justice.domain.aggregate.NoSerializableTestAggregate;
+import uk.gov.justice.domain.aggregate.TestAggregate;
+
+import java.util.OptionalDouble;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AdaptiveSnapshotStrategyTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private AggregateReplayCosts aggregateReplayCosts;
+
+    @InjectMocks
+    private AdaptiveSnapshotStrategy snapshotStrategy;
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        snapshotStrategy.metricRegistry = metricRegistry;
+        snapshotStrategy.minEvents = "5";
+        snapshotStrategy.maxEvents = "500";
+        snapshotStrategy.costRatio = "1";
+        snapshotStrategy.eventsByType = "";
+        when(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class)).thenReturn(OptionalDouble.empty());
+        when(aggregateReplayCosts.snapshotNanos(TestAggregate.class)).thenReturn(OptionalDouble.empty());
+    }
+
+    @Test
+    public void shouldSnapshotEvery25EventsUntilCostsAreMeasured() {
+        snapshotStrategy.initialise();
+
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 24L, 0L), is(false));
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 25L, 0L), is(true));
+    }
+
+    @Test
+    public void shouldSnapshotOnceReplaySinceSnapshotCostsAsMuchAsSnapshot() {
+        snapshotStrategy.initialise();
+        when(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class)).thenReturn(OptionalDouble.of(1_000));
+        when(aggregateReplayCosts.snapshotNanos(TestAggregate.class)).thenReturn(OptionalDouble.of(80_000));
+
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 179L, 100L), is(false));
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 180L, 100L), is(true));
+    }
+
+    @Test
+    public void shouldSnapshotExpensiveEventsMoreOftenThanCheapEvents() {
+        snapshotStrategy.initialise();
+        when(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class)).thenReturn(OptionalDouble.of(50_000));
+        when(aggregateReplayCosts.snapshotNanos(TestAggregate.class)).thenReturn(OptionalDouble.of(400_000));
+
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 8L, 0L), is(true));
+
+        when(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class)).thenReturn(OptionalDouble.of(100));
+
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 400L, 0L), is(false));
+    }
+
+    @Test
+    public void shouldScaleReplayCostByCostRatio() {
+        snapshotStrategy.costRatio = "2";
+        snapshotStrategy.initialise();
+        when(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class)).thenReturn(OptionalDouble.of(1_000));
+        when(aggregateReplayCosts.snapshotNanos(TestAggregate.class)).thenReturn(OptionalDouble.of(40_000));
+
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 79L, 0L), is(false));
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 80L, 0L), is(true));
+    }
+
+    @Test
+    public void shouldKeepWithinMinimumAndMaximumEvents() {
+        snapshotStrategy.initialise();
+        when(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class)).thenReturn(OptionalDouble.of(1_000_000));
+        when(aggregateReplayCosts.snapshotNanos(TestAggregate.class)).thenReturn(OptionalDouble.of(1));
+
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 4L, 0L), is(false));
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 5L, 0L), is(true));
+
+        when(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class)).thenReturn(OptionalDouble.of(1));
+        when(aggregateReplayCosts.snapshotNanos(TestAggregate.class)).thenReturn(OptionalDouble.of(1_000_000));
+
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 499L, 0L), is(false));
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 500L, 0L), is(true));
+    }
+
+    @Test
+    public void shouldSnapshotTypesWithConfiguredEventsAtThoseEvents() {
+        snapshotStrategy.eventsByType = format(" %s=10 , %s=100", TestAggregate.class.getName(), NoSerializableTestAggregate.class.getName());
+        snapshotStrategy.initialise();
+
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 9L, 0L), is(false));
+        assertThat(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 10L, 0L), is(true));
+        assertThat(snapshotStrategy.shouldCreateSnapshot(NoSerializableTestAggregate.class, 99L, 0L), is(false));
+        assertThat(snapshotStrategy.shouldCreateSnapshot(NoSerializableTestAggregate.class, 100L, 0L), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMalformedEventsOfType() {
+        snapshotStrategy.eventsByType = TestAggregate.class.getName();
+
+        snapshotStrategy.initialise();
+    }
+
+    @Test
+    public void shouldCountDecisionsOfEachType() {
+        snapshotStrategy.initialise();
+
+        snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 10L, 0L);
+        snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 20L, 0L);
+        snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 30L, 0L);
+
+        assertThat(metricRegistry.counter(format(CREATED, TestAggregate.class.getName())).getCount(), is(1L));
+        assertThat(metricRegistry.counter(format(DEFERRED, TestAggregate.class.getName())).getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldSnapshotEvery25EventsWhenTypeIsNotKnown() {
+        snapshotStrategy.initialise();
+
+        assertThat(snapshotStrategy.shouldCreateSnapshot(24L, 0L), is(false));
+        assertThat(snapshotStrategy.shouldCreateSnapshot(25L, 0L), is(true));
+    }
+}
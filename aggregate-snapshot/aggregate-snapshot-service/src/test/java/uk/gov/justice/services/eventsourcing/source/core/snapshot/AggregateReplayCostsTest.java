@@ -0,0 +1,79 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import static java.lang.String.format;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.AggregateReplayCosts.REPLAY_NANOS_PER_EVENT;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.AggregateReplayCosts.SNAPSHOT_NANOS;
+
+import uk.gov.justice.domain.aggregate.NoSerializableTestAggregate;
+import uk.gov.justice.domain.aggregate.TestAggregate;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AggregateReplayCostsTest {
+
+    private MetricRegistry metricRegistry;
+    private AggregateReplayCosts aggregateReplayCosts;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        aggregateReplayCosts = new AggregateReplayCosts();
+        aggregateReplayCosts.metricRegistry = metricRegistry;
+    }
+
+    @Test
+    public void shouldHaveNoCostsOfTypeNotMeasured() {
+        assertThat(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class).isPresent(), is(false));
+        assertThat(aggregateReplayCosts.snapshotNanos(TestAggregate.class).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldAverageReplayTimePerEvent() {
+        aggregateReplayCosts.recordReplay(TestAggregate.class, 10, 5_000);
+
+        assertThat(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class).getAsDouble(), closeTo(500, 0.001));
+
+        aggregateReplayCosts.recordReplay(TestAggregate.class, 2, 3_000);
+
+        assertThat(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class).getAsDouble(), closeTo(700, 0.001));
+        assertThat(aggregateReplayCosts.snapshotNanos(TestAggregate.class).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldIgnoreReplaysOfNoEvents() {
+        aggregateReplayCosts.recordReplay(TestAggregate.class, 0, 5_000);
+
+        assertThat(aggregateReplayCosts.replayNanosPerEvent(TestAggregate.class).isPresent(), is(false));
+    }
+
+    @Test
+    public void shouldAverageSnapshotTime() {
+        aggregateReplayCosts.recordSnapshot(TestAggregate.class, 10_000);
+        aggregateReplayCosts.recordSnapshot(TestAggregate.class, 20_000);
+
+        assertThat(aggregateReplayCosts.snapshotNanos(TestAggregate.class).getAsDouble(), closeTo(12_000, 0.001));
+    }
+
+    @Test
+    public void shouldKeepCostsOfEachType() {
+        aggregateReplayCosts.recordSnapshot(TestAggregate.class, 10_000);
+        aggregateReplayCosts.recordSnapshot(NoSerializableTestAggregate.class, 30_000);
+
+        assertThat(aggregateReplayCosts.snapshotNanos(TestAggregate.class).getAsDouble(), closeTo(10_000, 0.001));
+        assertThat(aggregateReplayCosts.snapshotNanos(NoSerializableTestAggregate.class).getAsDouble(), closeTo(30_000, 0.001));
+    }
+
+    @Test
+    public void shouldReportCostsOfTypeAsGauges() {
+        aggregateReplayCosts.recordReplay(TestAggregate.class, 4, 2_000);
+        aggregateReplayCosts.recordSnapshot(TestAggregate.class, 9_000);
+
+        assertThat(metricRegistry.getGauges().get(format(REPLAY_NANOS_PER_EVENT, TestAggregate.class.getName())).getValue(), is(500.0));
+        assertThat(metricRegistry.getGauges().get(format(SNAPSHOT_NANOS, TestAggregate.class.getName())).getValue(), is(9_000.0));
+    }
+}
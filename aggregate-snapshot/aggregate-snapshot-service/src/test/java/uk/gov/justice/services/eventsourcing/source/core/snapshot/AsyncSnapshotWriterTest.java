@@ -0,0 +1,202 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import static java.util.UUID.randomUUID;
+import static javax.transaction.Status.STATUS_COMMITTED;
+import static javax.transaction.Status.STATUS_ROLLEDBACK;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.AsyncSnapshotWriter.COALESCED;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.AsyncSnapshotWriter.DROPPED;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.AsyncSnapshotWriter.FAILED;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.AsyncSnapshotWriter.QUEUE_DEPTH;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.domain.aggregate.TestAggregate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AsyncSnapshotWriterTest {
+
+    private static final UUID STREAM_ID = randomUUID();
+    private static final UUID OTHER_STREAM_ID = randomUUID();
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private DefaultSnapshotService snapshotService;
+
+    @Mock
+    private ExecutorService executorService;
+
+    @Mock
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final List<Runnable> submittedWorkers = new ArrayList<>();
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        when(executorService.submit(any(Runnable.class))).then(invocation -> {
+            submittedWorkers.add((Runnable) invocation.getArguments()[0]);
+            return null;
+        });
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertThat(writerWith("0", "1000").isEnabled(), is(false));
+        assertThat(writerWith("2", "1000").isEnabled(), is(true));
+    }
+
+    @Test
+    public void shouldWriteSnapshotInBackgroundWhenNotInTransaction() {
+        final AsyncSnapshotWriter writer = writerWith("1", "1000");
+        final TestAggregate aggregate = new TestAggregate();
+        when(snapshotService.getLatestSnapshotVersion(STREAM_ID, TestAggregate.class)).thenReturn(25L);
+
+        writer.submitAfterCommit(STREAM_ID, 50L, aggregate);
+
+        verify(snapshotService, never()).attemptAggregateStore(any(UUID.class), anyLong(), any(Aggregate.class), anyLong());
+        runSubmittedWorkers();
+        verify(snapshotService).attemptAggregateStore(STREAM_ID, 50L, aggregate, 25L);
+    }
+
+    @Test
+    public void shouldQueueSnapshotOnlyOnceTransactionCommits() {
+        final AsyncSnapshotWriter writer = writerWith("1", "1000");
+        final TestAggregate aggregate = new TestAggregate();
+        when(transactionSynchronizationRegistry.getTransactionKey()).thenReturn(new Object());
+
+        writer.submitAfterCommit(STREAM_ID, 50L, aggregate);
+
+        assertThat(queueDepth(), is(0));
+        registeredSynchronization().afterCompletion(STATUS_COMMITTED);
+        assertThat(queueDepth(), is(1));
+        runSubmittedWorkers();
+        verify(snapshotService).attemptAggregateStore(eq(STREAM_ID), eq(50L), eq(aggregate), anyLong());
+    }
+
+    @Test
+    public void shouldDiscardSnapshotOfRolledBackTransaction() {
+        final AsyncSnapshotWriter writer = writerWith("1", "1000");
+        when(transactionSynchronizationRegistry.getTransactionKey()).thenReturn(new Object());
+
+        writer.submitAfterCommit(STREAM_ID, 50L, new TestAggregate());
+        registeredSynchronization().afterCompletion(STATUS_ROLLEDBACK);
+
+        assertThat(queueDepth(), is(0));
+        assertThat(submittedWorkers.size(), is(0));
+    }
+
+    @Test
+    public void shouldCoalesceWaitingSnapshotsOfStreamToLatestVersion() {
+        final AsyncSnapshotWriter writer = writerWith("1", "1000");
+        final TestAggregate aggregate1 = new TestAggregate();
+        final TestAggregate aggregate2 = new TestAggregate();
+
+        writer.submitAfterCommit(STREAM_ID, 50L, aggregate1);
+        writer.submitAfterCommit(STREAM_ID, 52L, aggregate2);
+        writer.submitAfterCommit(STREAM_ID, 51L, new TestAggregate());
+
+        assertThat(queueDepth(), is(1));
+        assertThat(metricRegistry.counter(COALESCED).getCount(), is(2L));
+        runSubmittedWorkers();
+        verify(snapshotService).attemptAggregateStore(eq(STREAM_ID), eq(52L), eq(aggregate2), anyLong());
+        verify(snapshotService, never()).attemptAggregateStore(eq(STREAM_ID), eq(50L), any(Aggregate.class), anyLong());
+    }
+
+    @Test
+    public void shouldDropSnapshotsWhenQueueIsFull() {
+        final AsyncSnapshotWriter writer = writerWith("1", "1");
+
+        writer.submitAfterCommit(STREAM_ID, 50L, new TestAggregate());
+        writer.submitAfterCommit(OTHER_STREAM_ID, 50L, new TestAggregate());
+
+        assertThat(queueDepth(), is(1));
+        assertThat(metricRegistry.counter(DROPPED).getCount(), is(1L));
+        runSubmittedWorkers();
+        verify(snapshotService, never()).attemptAggregateStore(eq(OTHER_STREAM_ID), anyLong(), any(Aggregate.class), anyLong());
+    }
+
+    @Test
+    public void shouldStartNoMoreWorkersThanConfigured() {
+        final AsyncSnapshotWriter writer = writerWith("1", "1000");
+
+        writer.submitAfterCommit(STREAM_ID, 50L, new TestAggregate());
+        writer.submitAfterCommit(OTHER_STREAM_ID, 50L, new TestAggregate());
+
+        assertThat(submittedWorkers.size(), is(1));
+        runSubmittedWorkers();
+        verify(snapshotService).attemptAggregateStore(eq(STREAM_ID), eq(50L), any(Aggregate.class), anyLong());
+        verify(snapshotService).attemptAggregateStore(eq(OTHER_STREAM_ID), eq(50L), any(Aggregate.class), anyLong());
+    }
+
+    @Test
+    public void shouldCountFailedSnapshotsAndCarryOn() {
+        final AsyncSnapshotWriter writer = writerWith("1", "1000");
+        doThrow(new IllegalStateException("Failed"))
+                .when(snapshotService).attemptAggregateStore(eq(STREAM_ID), anyLong(), any(Aggregate.class), anyLong());
+
+        writer.submitAfterCommit(STREAM_ID, 50L, new TestAggregate());
+        writer.submitAfterCommit(OTHER_STREAM_ID, 50L, new TestAggregate());
+        runSubmittedWorkers();
+
+        assertThat(metricRegistry.counter(FAILED).getCount(), is(1L));
+        verify(snapshotService).attemptAggregateStore(eq(OTHER_STREAM_ID), eq(50L), any(Aggregate.class), anyLong());
+    }
+
+    private void runSubmittedWorkers() {
+        while (!submittedWorkers.isEmpty()) {
+            submittedWorkers.remove(0).run();
+        }
+    }
+
+    private int queueDepth() {
+        return (Integer) metricRegistry.getGauges().get(QUEUE_DEPTH).getValue();
+    }
+
+    private Synchronization registeredSynchronization() {
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionSynchronizationRegistry).registerInterposedSynchronization(synchronization.capture());
+        return synchronization.getValue();
+    }
+
+    private AsyncSnapshotWriter writerWith(final String workers, final String queueSize) {
+        final AsyncSnapshotWriter writer = new AsyncSnapshotWriter();
+        writer.logger = logger;
+        writer.workers = workers;
+        writer.queueSize = queueSize;
+        writer.snapshotService = snapshotService;
+        writer.metricRegistry = metricRegistry;
+        writer.executorService = executorService;
+        writer.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+        writer.initialise();
+        return writer;
+    }
+}
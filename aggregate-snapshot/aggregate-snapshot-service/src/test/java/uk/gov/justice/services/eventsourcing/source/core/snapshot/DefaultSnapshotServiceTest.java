@@ -1,9 +1,15 @@
 package uk.gov.justice.services.eventsourcing.source.core.snapshot;
 
 import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -12,12 +18,19 @@ import static org.mockito.Mockito.when;
 import uk.gov.justice.domain.aggregate.NoSerializableTestAggregate;
 import uk.gov.justice.domain.aggregate.TestAggregate;
 import uk.gov.justice.domain.snapshot.AggregateSnapshot;
+import uk.gov.justice.domain.snapshot.JacksonSnapshotSerializer;
 import uk.gov.justice.domain.snapshot.VersionedAggregate;
 import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
+import uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot.SnapshotAndEvents;
 import uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot.SnapshotRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+import uk.gov.justice.services.test.utils.common.stream.StreamCloseSpy;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -39,6 +52,18 @@ public class DefaultSnapshotServiceTest {
     @Mock
     private SnapshotStrategy snapshotStrategy;
 
+    @Mock
+    private EventLogConverter eventLogConverter;
+
+    @Mock
+    private SnapshotPruner snapshotPruner;
+
+    @Mock
+    private AdaptiveSnapshotStrategy adaptiveSnapshotStrategy;
+
+    @Mock
+    private AggregateReplayCosts aggregateReplayCosts;
+
     @Mock
     private Logger logger;
 
@@ -74,7 +99,7 @@ public class DefaultSnapshotServiceTest {
         final Long initialAggregateVersionId = 0l;
         final Long currentAggregateVersionId = 26l;
         when(snapshotRepository.getLatestSnapshot(STREAM_ID, TestAggregate.class)).thenReturn(aggregateSnapshot);
-        when(snapshotStrategy.shouldCreateSnapshot(currentAggregateVersionId, initialAggregateVersionId)).thenReturn(true);
+        when(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, currentAggregateVersionId, initialAggregateVersionId)).thenReturn(true);
 
         snapshotService.attemptAggregateStore(STREAM_ID, currentAggregateVersionId, aggregate, initialAggregateVersionId);
 
@@ -82,7 +107,7 @@ public class DefaultSnapshotServiceTest {
 
         assertThat(snapshotArgumentCaptor.getValue(), notNullValue());
         assertThat(snapshotArgumentCaptor.getValue().getVersionId(), is(currentAggregateVersionId));
-
+        verify(snapshotPruner).pruneAfterStore(STREAM_ID, TestAggregate.class);
     }
 
     @Test
@@ -90,11 +115,12 @@ public class DefaultSnapshotServiceTest {
         final Long initialAggregateVersionId = 0l;
         final Long currentAggregateVersionId = 26l;
         final TestAggregate aggregate = new TestAggregate();
-        when(snapshotStrategy.shouldCreateSnapshot(currentAggregateVersionId, initialAggregateVersionId)).thenReturn(false);
+        when(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, currentAggregateVersionId, initialAggregateVersionId)).thenReturn(false);
 
         snapshotService.attemptAggregateStore(STREAM_ID, currentAggregateVersionId, aggregate, initialAggregateVersionId);
 
         verifyZeroInteractions(snapshotRepository);
+        verifyZeroInteractions(snapshotPruner);
     }
 
 
@@ -104,11 +130,151 @@ public class DefaultSnapshotServiceTest {
         final Long initialAggregateVersionId = 0l;
         final Long currentAggregateVersionId = 26l;
 
-        when(snapshotStrategy.shouldCreateSnapshot(currentAggregateVersionId, initialAggregateVersionId)).thenReturn(true);
+        when(snapshotStrategy.shouldCreateSnapshot(NoSerializableTestAggregate.class, currentAggregateVersionId, initialAggregateVersionId)).thenReturn(true);
 
         snapshotService.attemptAggregateStore(STREAM_ID, currentAggregateVersionId, aggregate, initialAggregateVersionId);
 
         verifyZeroInteractions(snapshotRepository);
     }
 
+    @Test
+    public void shouldCreateSnapshotWithSerializerOfAggregateType() throws AggregateChangeDetectedException {
+        final TestAggregate aggregate = new TestAggregate();
+        snapshotService.serializerFormat = "java";
+        snapshotService.serializerFormatsByType = "some.other.Aggregate=java, " + TestAggregate.class.getName() + "=jackson";
+        snapshotService.initialise();
+        when(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 26L, 0L)).thenReturn(true);
+
+        snapshotService.attemptAggregateStore(STREAM_ID, 26L, aggregate, 0L);
+
+        verify(snapshotRepository).storeSnapshot(snapshotArgumentCaptor.capture());
+        assertThat(snapshotArgumentCaptor.getValue().getFormat(), is(JacksonSnapshotSerializer.FORMAT));
+    }
+
+    @Test
+    public void shouldCreateSnapshotWithDefaultSerializer() throws AggregateChangeDetectedException {
+        final TestAggregate aggregate = new TestAggregate();
+        snapshotService.serializerFormat = "jackson";
+        snapshotService.serializerFormatsByType = "";
+        snapshotService.initialise();
+        when(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 26L, 0L)).thenReturn(true);
+
+        snapshotService.attemptAggregateStore(STREAM_ID, 26L, aggregate, 0L);
+
+        verify(snapshotRepository).storeSnapshot(snapshotArgumentCaptor.capture());
+        assertThat(snapshotArgumentCaptor.getValue().getFormat(), is(JacksonSnapshotSerializer.FORMAT));
+    }
+
+    @Test
+    public void shouldReadSnapshotsWithSerializerOfTheirFormat() throws AggregateChangeDetectedException {
+        snapshotService.serializerFormat = "jackson";
+        snapshotService.serializerFormatsByType = "";
+        snapshotService.initialise();
+        final TestAggregate aggregate = new TestAggregate();
+        final AggregateSnapshot<TestAggregate> javaSnapshot = new AggregateSnapshot<>(STREAM_ID, 25L, aggregate);
+        final AggregateSnapshot<TestAggregate> jacksonSnapshot = new AggregateSnapshot<>(STREAM_ID, 50L, aggregate, new JacksonSnapshotSerializer());
+
+        when(snapshotRepository.getLatestSnapshot(STREAM_ID, TestAggregate.class)).thenReturn(Optional.of(javaSnapshot));
+        assertThat(snapshotService.getLatestVersionedAggregate(STREAM_ID, TestAggregate.class).get().getVersionId(), is(25L));
+
+        when(snapshotRepository.getLatestSnapshot(STREAM_ID, TestAggregate.class)).thenReturn(Optional.of(jacksonSnapshot));
+        assertThat(snapshotService.getLatestVersionedAggregate(STREAM_ID, TestAggregate.class).get().getVersionId(), is(50L));
+    }
+
+    @Test(expected = AggregateChangeDetectedException.class)
+    public void shouldThrowAggregateChangeDetectedExceptionForSnapshotOfUnknownFormat() throws AggregateChangeDetectedException {
+        final AggregateSnapshot<TestAggregate> snapshot = new AggregateSnapshot<>(STREAM_ID, 25L, TestAggregate.class.getName(), "unknown", new byte[0]);
+        when(snapshotRepository.getLatestSnapshot(STREAM_ID, TestAggregate.class)).thenReturn(Optional.of(snapshot));
+
+        snapshotService.getLatestVersionedAggregate(STREAM_ID, TestAggregate.class);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownSerializerFormat() {
+        snapshotService.serializerFormat = "unknown";
+        snapshotService.serializerFormatsByType = "";
+
+        snapshotService.initialise();
+    }
+
+    @Test
+    public void shouldReturnLatestAggregateWithEnvelopesOfEventsAfterIt() throws AggregateChangeDetectedException {
+        final TestAggregate aggregate = new TestAggregate();
+        final AggregateSnapshot<TestAggregate> snapshot = new AggregateSnapshot<>(STREAM_ID, 25L, aggregate);
+        final EventLog eventLog26 = mock(EventLog.class);
+        final EventLog eventLog27 = mock(EventLog.class);
+        final JsonEnvelope envelope26 = mock(JsonEnvelope.class);
+        final JsonEnvelope envelope27 = mock(JsonEnvelope.class);
+
+        when(snapshotRepository.getLatestSnapshotAndEventsAfter(STREAM_ID, TestAggregate.class))
+                .thenReturn(new SnapshotAndEvents<>(Optional.of(snapshot), Stream.of(eventLog26, eventLog27)));
+        when(eventLogConverter.createEnvelope(eventLog26)).thenReturn(envelope26);
+        when(eventLogConverter.createEnvelope(eventLog27)).thenReturn(envelope27);
+
+        final LatestAggregateAndEvents<TestAggregate> latest = snapshotService.getLatestVersionedAggregateAndEvents(STREAM_ID, TestAggregate.class);
+
+        assertThat(latest.getVersionedAggregate().get().getVersionId(), is(25L));
+        assertThat(latest.getVersionedAggregate().get().getAggregate(), notNullValue());
+        assertThat(latest.getEvents().collect(toList()), contains(envelope26, envelope27));
+    }
+
+    @Test
+    public void shouldReturnNoAggregateWithEventsIfNoSnapshot() throws AggregateChangeDetectedException {
+        when(snapshotRepository.getLatestSnapshotAndEventsAfter(STREAM_ID, TestAggregate.class))
+                .thenReturn(new SnapshotAndEvents<>(Optional.empty(), Stream.empty()));
+
+        final LatestAggregateAndEvents<TestAggregate> latest = snapshotService.getLatestVersionedAggregateAndEvents(STREAM_ID, TestAggregate.class);
+
+        assertThat(latest.getVersionedAggregate().isPresent(), is(false));
+        assertThat(latest.getEvents().count(), is(0L));
+    }
+
+    @Test(expected = AggregateChangeDetectedException.class)
+    public void shouldThrowAggregateChangeDetectedExceptionForSnapshotOfUnknownFormatReadWithEvents() throws AggregateChangeDetectedException {
+        final AggregateSnapshot<TestAggregate> snapshot = new AggregateSnapshot<>(STREAM_ID, 25L, TestAggregate.class.getName(), "unknown", new byte[0]);
+        when(snapshotRepository.getLatestSnapshotAndEventsAfter(STREAM_ID, TestAggregate.class))
+                .thenReturn(new SnapshotAndEvents<>(Optional.of(snapshot), Stream.empty()));
+
+        snapshotService.getLatestVersionedAggregateAndEvents(STREAM_ID, TestAggregate.class);
+    }
+
+    @Test
+    public void shouldCloseEventsReadWithSnapshotOfUnknownFormat() {
+        final AggregateSnapshot<TestAggregate> snapshot = new AggregateSnapshot<>(STREAM_ID, 25L, TestAggregate.class.getName(), "unknown", new byte[0]);
+        final StreamCloseSpy streamCloseSpy = new StreamCloseSpy();
+        when(snapshotRepository.getLatestSnapshotAndEventsAfter(STREAM_ID, TestAggregate.class))
+                .thenReturn(new SnapshotAndEvents<>(Optional.of(snapshot), Stream.<EventLog>empty().onClose(streamCloseSpy)));
+
+        try {
+            snapshotService.getLatestVersionedAggregateAndEvents(STREAM_ID, TestAggregate.class);
+            fail("Expected AggregateChangeDetectedException");
+        } catch (final AggregateChangeDetectedException expected) {
+            // expected
+        }
+
+        assertThat(streamCloseSpy.streamClosed(), is(true));
+    }
+
+    @Test
+    public void shouldRecordTimeTakenToStoreSnapshot() {
+        when(snapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 26L, 0L)).thenReturn(true);
+
+        snapshotService.attemptAggregateStore(STREAM_ID, 26L, new TestAggregate(), 0L);
+
+        verify(aggregateReplayCosts).recordSnapshot(eq(TestAggregate.class), anyLong());
+    }
+
+    @Test
+    public void shouldDecideWithAdaptiveStrategyWhenConfigured() {
+        snapshotService.serializerFormat = "java";
+        snapshotService.serializerFormatsByType = "";
+        snapshotService.strategyName = AdaptiveSnapshotStrategy.NAME;
+        snapshotService.initialise();
+        when(adaptiveSnapshotStrategy.shouldCreateSnapshot(TestAggregate.class, 26L, 0L)).thenReturn(true);
+
+        snapshotService.attemptAggregateStore(STREAM_ID, 26L, new TestAggregate(), 0L);
+
+        verify(snapshotRepository).storeSnapshot(snapshotArgumentCaptor.capture());
+        verifyZeroInteractions(snapshotStrategy);
+    }
 }
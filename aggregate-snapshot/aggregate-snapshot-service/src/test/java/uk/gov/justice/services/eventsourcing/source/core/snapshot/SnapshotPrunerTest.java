@@ -0,0 +1,154 @@
+package uk.gov.justice.services.eventsourcing.source.core.snapshot;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.SnapshotPruner.PRUNED;
+import static uk.gov.justice.services.eventsourcing.source.core.snapshot.SnapshotPruner.SNAPSHOTS;
+
+import uk.gov.justice.domain.aggregate.TestAggregate;
+import uk.gov.justice.services.common.util.Clock;
+import uk.gov.justice.services.eventsourcing.jdbc.snapshot.jdbc.snapshot.SnapshotRepository;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SnapshotPrunerTest {
+
+    private static final UUID STREAM_ID = randomUUID();
+    private static final ZonedDateTime NOW = ZonedDateTime.of(2016, 11, 1, 12, 0, 0, 0, UTC);
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private SnapshotRepository snapshotRepository;
+
+    @Mock
+    private Clock clock;
+
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @InjectMocks
+    private SnapshotPruner snapshotPruner;
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        snapshotPruner.metricRegistry = metricRegistry;
+        snapshotPruner.sweepIntervalMillis = "1000";
+        snapshotPruner.batchSize = "2";
+        when(clock.now()).thenReturn(NOW);
+    }
+
+    @Test
+    public void shouldNotPruneOrSweepByDefault() {
+        initialise("0", "0");
+
+        snapshotPruner.pruneAfterStore(STREAM_ID, TestAggregate.class);
+        snapshotPruner.start(new Object());
+
+        verifyZeroInteractions(snapshotRepository, scheduledExecutorService);
+    }
+
+    @Test
+    public void shouldKeepLatestSnapshotsOfStreamAndTypeAfterStore() {
+        initialise("3", "0");
+        when(snapshotRepository.removeAllButLatestSnapshots(STREAM_ID, TestAggregate.class, 3)).thenReturn(2);
+
+        snapshotPruner.pruneAfterStore(STREAM_ID, TestAggregate.class);
+
+        verify(snapshotRepository).removeAllButLatestSnapshots(STREAM_ID, TestAggregate.class, 3);
+        assertThat(metricRegistry.counter(PRUNED).getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldScheduleSweepAtConfiguredIntervalWhenRetentionSet() {
+        initialise("0", "60000");
+
+        snapshotPruner.start(new Object());
+
+        verify(scheduledExecutorService).scheduleWithFixedDelay(any(Runnable.class), eq(1000L), eq(1000L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldCancelSweepOnStop() {
+        initialise("3", "0");
+        final ScheduledFuture<?> scheduledFuture = mock(ScheduledFuture.class);
+        doReturn(scheduledFuture).when(scheduledExecutorService).scheduleWithFixedDelay(any(Runnable.class), eq(1000L), eq(1000L), eq(MILLISECONDS));
+
+        snapshotPruner.start(new Object());
+        snapshotPruner.stop();
+
+        verify(scheduledFuture).cancel(false);
+    }
+
+    @Test
+    public void shouldRemoveSnapshotsOlderThanMaxAgeInBatchesUntilBatchIsNotFull() {
+        initialise("0", "60000");
+        final ZonedDateTime createdBefore = NOW.minusMinutes(1);
+        when(snapshotRepository.removeSupersededSnapshotsCreatedBefore(createdBefore, 2)).thenReturn(2, 2, 1);
+        when(snapshotRepository.estimateSnapshotCount()).thenReturn(40L);
+
+        snapshotPruner.sweep();
+
+        verify(snapshotRepository, times(3)).removeSupersededSnapshotsCreatedBefore(createdBefore, 2);
+        assertThat(metricRegistry.counter(PRUNED).getCount(), is(5L));
+        assertThat(metricRegistry.getGauges().get(SNAPSHOTS).getValue(), is(40L));
+    }
+
+    @Test
+    public void shouldOnlyCountSnapshotsInSweepWithoutMaxAge() {
+        initialise("3", "0");
+        when(snapshotRepository.estimateSnapshotCount()).thenReturn(12L);
+
+        snapshotPruner.sweep();
+
+        verify(snapshotRepository, never()).removeSupersededSnapshotsCreatedBefore(any(ZonedDateTime.class), anyInt());
+        assertThat(metricRegistry.getGauges().get(SNAPSHOTS).getValue(), is(12L));
+    }
+
+    @Test
+    public void shouldLogAndSwallowSweepFailures() {
+        initialise("0", "60000");
+        final RuntimeException exception = new RuntimeException("database down");
+        when(snapshotRepository.removeSupersededSnapshotsCreatedBefore(any(ZonedDateTime.class), anyInt())).thenThrow(exception);
+
+        snapshotPruner.sweep();
+
+        verify(logger).error("Failed to prune snapshots", exception);
+    }
+
+    private void initialise(final String keepLatest, final String maxAgeMillis) {
+        snapshotPruner.keepLatest = keepLatest;
+        snapshotPruner.maxAgeMillis = maxAgeMillis;
+        snapshotPruner.initialise();
+    }
+}
@@ -1,7 +1,13 @@
 package uk.gov.justice.services.core.aggregate;
 
 import uk.gov.justice.domain.aggregate.Aggregate;
+import uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy;
 import uk.gov.justice.services.eventsourcing.source.core.EventStream;
+import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamException;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
  * Service for replaying event streams on aggregates.
@@ -17,4 +23,22 @@ public interface AggregateService {
      * @return the recreated aggregate
      */
     public <T extends Aggregate> T get(final EventStream stream, final Class<T> clazz);
+
+    /**
+     * Recreate an aggregate of the specified type, run a command against it and append the events
+     * returned by the command after the version the aggregate was recreated at.
+     *
+     * When retrying is enabled in the {@link ConflictRetryPolicy} and another append to the stream
+     * is stored first, only the events appended since are read and applied to the aggregate as it
+     * was before the command ran, and the command is run again against the refreshed aggregate.
+     * The command may therefore be run more than once, and must only change the aggregate.
+     *
+     * @param <T>     the type parameter
+     * @param stream  the event stream of the aggregate
+     * @param clazz   the type of aggregate to recreate
+     * @param command the command to run against the aggregate, returning the events to append
+     * @throws EventStreamException if the events could not be appended
+     */
+    public <T extends Aggregate> void getAndAppend(final EventStream stream, final Class<T> clazz,
+                                                   final Function<T, Stream<JsonEnvelope>> command) throws EventStreamException;
 }
\ No newline at end of file
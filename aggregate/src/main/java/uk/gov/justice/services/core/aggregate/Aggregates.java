@@ -0,0 +1,98 @@
+package uk.gov.justice.services.core.aggregate;
+
+import static java.lang.String.format;
+
+import uk.gov.justice.domain.aggregate.Aggregate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * Creates and copies the aggregates of the aggregate services, in this module and in the
+ * aggregate snapshot service.
+ */
+public final class Aggregates {
+
+    private Aggregates() {
+    }
+
+    /**
+     * Create an empty aggregate with the no-argument constructor of its class.
+     *
+     * @param clazz the class of the aggregate
+     * @param <T>   the type of the aggregate
+     * @return the new aggregate
+     */
+    public static <T extends Aggregate> T newInstanceOf(final Class<T> clazz) {
+        try {
+            return clazz.newInstance();
+        } catch (InstantiationException | IllegalAccessException ex) {
+            throw new RuntimeException(format("Could not instantiate aggregate of class %s", clazz.getName()), ex);
+        }
+    }
+
+    /**
+     * Copy an aggregate by serializing and deserializing it, so applying events to the copy leaves
+     * the aggregate untouched.
+     *
+     * @param aggregate the aggregate to copy
+     * @param <T>       the type of the aggregate
+     * @return the copy of the aggregate
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Aggregate> T copyOf(final T aggregate) {
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (final ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                out.writeObject(aggregate);
+            }
+            return deserialize(bytes.toByteArray(), (Class<T>) aggregate.getClass());
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new RuntimeException(format("Could not copy aggregate of class %s", aggregate.getClass().getName()), ex);
+        }
+    }
+
+    /**
+     * Deserialize an aggregate, resolving its classes with the class loader of the aggregate class.
+     *
+     * @param serializedAggregate the Java serialized aggregate
+     * @param clazz               the class of the aggregate
+     * @param <T>                 the type of the aggregate
+     * @return the deserialized aggregate
+     * @throws IOException            if the aggregate cannot be read
+     * @throws ClassNotFoundException if a class of the aggregate cannot be found
+     */
+    public static <T extends Aggregate> T deserialize(final byte[] serializedAggregate, final Class<T> clazz) throws IOException, ClassNotFoundException {
+        try (final ObjectInputStream in = new AggregateObjectInputStream(new ByteArrayInputStream(serializedAggregate), clazz.getClassLoader())) {
+            return clazz.cast(in.readObject());
+        }
+    }
+
+    /**
+     * Resolves the classes of an aggregate with the class loader of the aggregate, which in a
+     * deployment is not the class loader of the framework.
+     */
+    private static class AggregateObjectInputStream extends ObjectInputStream {
+
+        private final ClassLoader classLoader;
+
+        AggregateObjectInputStream(final InputStream in, final ClassLoader classLoader) throws IOException {
+            super(in);
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            try {
+                return Class.forName(desc.getName(), false, classLoader);
+            } catch (final ClassNotFoundException e) {
+                return super.resolveClass(desc);
+            }
+        }
+    }
+}
@@ -1,14 +1,21 @@
 package uk.gov.justice.services.core.aggregate;
 
 import static java.lang.String.format;
+import static uk.gov.justice.services.core.aggregate.Aggregates.copyOf;
+import static uk.gov.justice.services.core.aggregate.Aggregates.newInstanceOf;
 
 import uk.gov.justice.domain.aggregate.Aggregate;
 import uk.gov.justice.services.common.converter.JsonObjectToObjectConverter;
 import uk.gov.justice.services.core.extension.EventFoundEvent;
+import uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy;
 import uk.gov.justice.services.eventsourcing.source.core.EventStream;
+import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamException;
+import uk.gov.justice.services.eventsourcing.source.core.exception.VersionMismatchException;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import javax.annotation.Priority;
@@ -31,6 +38,9 @@ public class DefaultAggregateService implements AggregateService {
     @Inject
     JsonObjectToObjectConverter jsonObjectToObjectConverter;
 
+    @Inject
+    ConflictRetryPolicy conflictRetryPolicy;
+
     private ConcurrentHashMap<String, Class<?>> eventMap = new ConcurrentHashMap<>();
 
     /**
@@ -42,13 +52,64 @@ public class DefaultAggregateService implements AggregateService {
      * @return the recreated aggregate
      */
     public <T extends Aggregate> T get(final EventStream stream, final Class<T> clazz) {
+        logger.trace("Recreating aggregate for instance {} of aggregate type {}", stream.getId(), clazz);
+        return applyEvents(stream.readAhead(), newInstanceOf(clazz));
+    }
+
+    /**
+     * Recreate an aggregate of the specified type, run a command against it and append the events
+     * returned by the command, retrying on conflict if enabled in the {@link ConflictRetryPolicy}.
+     *
+     * @param stream  the event stream of the aggregate
+     * @param clazz   the type of aggregate to recreate
+     * @param command the command to run against the aggregate, returning the events to append
+     * @param <T>     the type of aggregate being recreated
+     * @throws EventStreamException if the events could not be appended
+     */
+    @Override
+    public <T extends Aggregate> void getAndAppend(final EventStream stream, final Class<T> clazz,
+                                                   final Function<T, Stream<JsonEnvelope>> command) throws EventStreamException {
+        logger.trace("Recreating aggregate for instance {} of aggregate type {}", stream.getId(), clazz);
+        final T aggregate = newInstanceOf(clazz);
+        final long version = applyEventsAndCount(stream.readAhead(), aggregate);
+        appendWithRetry(stream, aggregate, version, command);
+    }
+
+    /**
+     * Run a command against an aggregate recreated at the given version of its stream and append
+     * the events returned by the command after that version.
+     *
+     * When retrying is disabled the command runs against the given aggregate itself. Otherwise it
+     * runs against a copy, so that after a conflict only the events appended since are applied to
+     * the aggregate, which has not seen the command, before the command runs again.
+     *
+     * @param stream    the event stream of the aggregate
+     * @param aggregate the aggregate recreated at the given version
+     * @param version   the version of the stream the aggregate was recreated at
+     * @param command   the command to run against the aggregate, returning the events to append
+     * @param <T>       the type of aggregate
+     * @throws EventStreamException if the events could not be appended
+     */
+    public <T extends Aggregate> void appendWithRetry(final EventStream stream, final T aggregate, final long version,
+                                                      final Function<T, Stream<JsonEnvelope>> command) throws EventStreamException {
+        if (!conflictRetryPolicy.isEnabled()) {
+            stream.appendAfter(command.apply(aggregate), version);
+            return;
+        }
 
-        try {
-            logger.trace("Recreating aggregate for instance {} of aggregate type {}", stream.getId(), clazz);
-            final T aggregate = clazz.newInstance();
-            return applyEvents(stream.read(), aggregate);
-        } catch (InstantiationException | IllegalAccessException ex) {
-            throw new RuntimeException(format("Could not instantiate aggregate of class %s", clazz.getName()), ex);
+        long currentVersion = version;
+        int attempt = 0;
+        while (true) {
+            try {
+                stream.appendAfter(command.apply(copyOf(aggregate)), currentVersion);
+                return;
+            } catch (final VersionMismatchException e) {
+                if (!conflictRetryPolicy.retry(attempt++)) {
+                    throw e;
+                }
+                logger.debug("Re-running command against aggregate for instance {} after conflicting append, attempt {}", stream.getId(), attempt);
+                currentVersion += applyEventsAndCount(stream.readAheadFrom(currentVersion + 1), aggregate);
+            }
         }
     }
 
@@ -60,6 +121,19 @@ public class DefaultAggregateService implements AggregateService {
         }
     }
 
+    /**
+     * Apply a stream of events to an aggregate, counting the events applied.
+     *
+     * @param events    the stream of events to apply
+     * @param aggregate the aggregate to apply the events to
+     * @param <T>       the type of aggregate
+     * @return the number of events applied
+     */
+    public <T extends Aggregate> long applyEventsAndCount(final Stream<JsonEnvelope> events, final T aggregate) {
+        final LongAdder count = new LongAdder();
+        applyEvents(events.peek(event -> count.increment()), aggregate);
+        return count.sum();
+    }
 
     /**
      * Register method, invoked automatically to register all event classes into the eventMap.
@@ -12,6 +12,8 @@ import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithR
 
 import uk.gov.justice.domain.aggregate.PrivateAggregate;
 import uk.gov.justice.domain.aggregate.TestAggregate;
+import uk.gov.justice.services.common.configuration.JndiBasedServiceContextNameProvider;
+import uk.gov.justice.services.common.configuration.ValueProducer;
 import uk.gov.justice.services.common.converter.JsonObjectToObjectConverter;
 import uk.gov.justice.services.common.converter.StringToJsonObjectConverter;
 import uk.gov.justice.services.common.converter.jackson.ObjectMapperProducer;
@@ -20,14 +22,21 @@ import uk.gov.justice.services.core.aggregate.event.EventA;
 import uk.gov.justice.services.core.aggregate.event.EventB;
 import uk.gov.justice.services.core.cdi.LoggerProducer;
 import uk.gov.justice.services.core.extension.EventFoundEvent;
+import uk.gov.justice.services.core.metrics.MetricRegistryProducer;
 import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
 import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.EventRepositoryProducer;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.JdbcEventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.ShardedEventRepository;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards;
+import uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy;
 import uk.gov.justice.services.eventsourcing.source.core.DefaultEventSource;
 import uk.gov.justice.services.eventsourcing.source.core.EnvelopeEventStream;
 import uk.gov.justice.services.eventsourcing.source.core.EventSource;
 import uk.gov.justice.services.eventsourcing.source.core.EventStream;
+import uk.gov.justice.services.eventsourcing.source.core.EventStreamCache;
+import uk.gov.justice.services.eventsourcing.source.core.EventStreamPrefetcher;
 import uk.gov.justice.services.eventsourcing.source.core.EventStreamManager;
 import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamException;
 import uk.gov.justice.services.jdbc.persistence.AbstractJdbcRepository;
@@ -89,6 +98,9 @@ public class DefaultAggregateServiceIT {
 
             AbstractJdbcRepository.class,
             JdbcEventRepository.class,
+            ShardedEventRepository.class,
+            EventRepositoryProducer.class,
+            EventStoreShards.class,
             EventRepository.class,
             EventLogOpenEjbAwareJdbcRepository.class,
 
@@ -98,6 +110,12 @@ public class DefaultAggregateServiceIT {
             DefaultEventSource.class,
             EnvelopeEventStream.class,
             EventStreamManager.class,
+            EventStreamCache.class,
+            EventStreamPrefetcher.class,
+            ConflictRetryPolicy.class,
+            MetricRegistryProducer.class,
+            ValueProducer.class,
+            JndiBasedServiceContextNameProvider.class,
 
             EnvelopeConverter.class,
             EventLogConverter.class,
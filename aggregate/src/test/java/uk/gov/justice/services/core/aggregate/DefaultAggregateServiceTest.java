@@ -2,13 +2,23 @@ package uk.gov.justice.services.core.aggregate;
 
 import static java.util.UUID.randomUUID;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.collection.IsEmptyCollection.empty;
 import static org.hamcrest.core.IsNull.notNullValue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelopeFrom;
 import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithRandomUUID;
 
@@ -19,8 +29,13 @@ import uk.gov.justice.services.core.aggregate.event.EventA;
 import uk.gov.justice.services.core.aggregate.event.EventB;
 import uk.gov.justice.services.core.aggregate.exception.AggregateChangeDetectedException;
 import uk.gov.justice.services.core.extension.EventFoundEvent;
+import uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy;
 import uk.gov.justice.services.eventsourcing.source.core.EventStream;
+import uk.gov.justice.services.eventsourcing.source.core.exception.VersionMismatchException;
+import uk.gov.justice.services.messaging.JsonEnvelope;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -50,6 +65,9 @@ public class DefaultAggregateServiceTest {
     @Mock
     private EventStream eventStream;
 
+    @Mock
+    private ConflictRetryPolicy conflictRetryPolicy;
+
     @InjectMocks
     private DefaultAggregateService aggregateService;
 
@@ -59,7 +77,7 @@ public class DefaultAggregateServiceTest {
 
     @Test
     public void shouldCreateAggregateFromEmptyStream() throws AggregateChangeDetectedException {
-        when(eventStream.read()).thenReturn(Stream.empty());
+        when(eventStream.readAhead()).thenReturn(Stream.empty());
         when(eventStream.getId()).thenReturn(STREAM_ID);
         TestAggregate aggregate = aggregateService.get(eventStream, TestAggregate.class);
 
@@ -73,7 +91,7 @@ public class DefaultAggregateServiceTest {
         JsonObject eventPayloadA = mock(JsonObject.class);
         EventA eventA = mock(EventA.class);
         when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(eventA);
-        when(eventStream.read()).thenReturn(Stream.of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
+        when(eventStream.readAhead()).thenReturn(Stream.of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
         when(eventStream.getId()).thenReturn(STREAM_ID);
 
         registerEvent(EventA.class, "eventA");
@@ -96,7 +114,7 @@ public class DefaultAggregateServiceTest {
         when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(eventA);
         when(jsonObjectToObjectConverter.convert(eventPayloadB, EventB.class)).thenReturn(eventB);
 
-        when(eventStream.read()).thenReturn(Stream.of(
+        when(eventStream.readAhead()).thenReturn(Stream.of(
                 envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA),
                 envelopeFrom(metadataWithRandomUUID("eventB"), eventPayloadB)));
         when(eventStream.getId()).thenReturn(STREAM_ID);
@@ -122,7 +140,7 @@ public class DefaultAggregateServiceTest {
         JsonObject eventPayloadA = mock(JsonObject.class);
         EventA eventA = mock(EventA.class);
         when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(eventA);
-        when(eventStream.read()).thenReturn(Stream.of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
+        when(eventStream.readAhead()).thenReturn(Stream.of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
 
         aggregateService.get(eventStream, TestAggregate.class);
     }
@@ -132,12 +150,111 @@ public class DefaultAggregateServiceTest {
         JsonObject eventPayloadA = mock(JsonObject.class);
         EventA eventA = mock(EventA.class);
         when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(eventA);
-        when(eventStream.read()).thenReturn(Stream.of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
+        when(eventStream.readAhead()).thenReturn(Stream.of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
 
         registerEvent(EventA.class, "eventA");
 
         aggregateService.get(eventStream, PrivateAggregate.class);
     }
 
+    @Test
+    public void shouldAppendEventsOfCommandAfterVersionOfRecreatedAggregate() throws Exception {
+        final JsonObject eventPayloadA = mock(JsonObject.class);
+        final JsonObject eventPayloadB = mock(JsonObject.class);
+        when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(mock(EventA.class));
+        when(jsonObjectToObjectConverter.convert(eventPayloadB, EventB.class)).thenReturn(mock(EventB.class));
+        when(eventStream.readAhead()).thenReturn(Stream.of(
+                envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA),
+                envelopeFrom(metadataWithRandomUUID("eventB"), eventPayloadB)));
+
+        registerEvent(EventA.class, "eventA");
+        registerEvent(EventB.class, "eventB");
+
+        final Stream<JsonEnvelope> newEvents = Stream.of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA));
+        final List<Integer> appliedEventsSeenByCommand = new ArrayList<>();
+
+        aggregateService.getAndAppend(eventStream, TestAggregate.class, aggregate -> {
+            appliedEventsSeenByCommand.add(aggregate.numberOfAppliedEvents());
+            return newEvents;
+        });
+
+        verify(eventStream).appendAfter(newEvents, 2L);
+        assertThat(appliedEventsSeenByCommand, contains(2));
+    }
+
+    @Test
+    public void shouldRunCommandAgainstAggregateItselfWhenRetryingDisabled() throws Exception {
+        final TestAggregate aggregate = new TestAggregate();
+        final List<TestAggregate> aggregatesSeenByCommand = new ArrayList<>();
+
+        aggregateService.appendWithRetry(eventStream, aggregate, 0L, working -> {
+            aggregatesSeenByCommand.add(working);
+            return Stream.empty();
+        });
+
+        assertThat(aggregatesSeenByCommand, contains(sameInstance(aggregate)));
+    }
+
+    @Test
+    public void shouldRunCommandAgainstCopyOfAggregateWhenRetryingEnabled() throws Exception {
+        final TestAggregate aggregate = new TestAggregate();
+        final List<TestAggregate> aggregatesSeenByCommand = new ArrayList<>();
+        when(conflictRetryPolicy.isEnabled()).thenReturn(true);
+
+        aggregateService.appendWithRetry(eventStream, aggregate, 0L, working -> {
+            aggregatesSeenByCommand.add(working);
+            return Stream.empty();
+        });
+
+        assertThat(aggregatesSeenByCommand, hasSize(1));
+        assertThat(aggregatesSeenByCommand.get(0), not(sameInstance(aggregate)));
+        verify(eventStream, never()).readAhead();
+    }
+
+    @Test
+    public void shouldApplyOnlyEventsAppendedSinceAndRerunCommandOnConflict() throws Exception {
+        final JsonObject eventPayloadA = mock(JsonObject.class);
+        final JsonObject eventPayloadB = mock(JsonObject.class);
+        when(jsonObjectToObjectConverter.convert(eventPayloadA, EventA.class)).thenReturn(mock(EventA.class, withSettings().serializable()));
+        when(jsonObjectToObjectConverter.convert(eventPayloadB, EventB.class)).thenReturn(mock(EventB.class, withSettings().serializable()));
+        when(eventStream.readAhead()).thenReturn(Stream.of(envelopeFrom(metadataWithRandomUUID("eventA"), eventPayloadA)));
+        when(eventStream.readAheadFrom(2L)).thenReturn(Stream.of(envelopeFrom(metadataWithRandomUUID("eventB"), eventPayloadB)));
+        when(eventStream.readAheadFrom(3L)).thenReturn(Stream.of(envelopeFrom(metadataWithRandomUUID("eventB"), eventPayloadB)));
+        when(conflictRetryPolicy.isEnabled()).thenReturn(true);
+        when(conflictRetryPolicy.retry(0)).thenReturn(true);
+        when(conflictRetryPolicy.retry(1)).thenReturn(true);
+        doThrow(new VersionMismatchException("conflict")).when(eventStream).appendAfter(any(), eq(1L));
+        doThrow(new VersionMismatchException("conflict")).when(eventStream).appendAfter(any(), eq(2L));
+
+        registerEvent(EventA.class, "eventA");
+        registerEvent(EventB.class, "eventB");
+
+        final List<Integer> appliedEventsSeenByCommand = new ArrayList<>();
+
+        aggregateService.getAndAppend(eventStream, TestAggregate.class, aggregate -> {
+            aggregate.apply(mock(EventA.class, withSettings().serializable()));
+            appliedEventsSeenByCommand.add(aggregate.numberOfAppliedEvents());
+            return Stream.empty();
+        });
+
+        verify(eventStream, times(1)).readAhead();
+        verify(eventStream).readAheadFrom(2L);
+        verify(eventStream).readAheadFrom(3L);
+        verify(eventStream).appendAfter(any(), eq(3L));
+        assertThat(appliedEventsSeenByCommand, contains(2, 3, 4));
+    }
+
+    @Test(expected = VersionMismatchException.class)
+    public void shouldNotRerunCommandOnConflictWhenRetryingDisabled() throws Exception {
+        when(eventStream.readAhead()).thenReturn(Stream.empty());
+        doThrow(new VersionMismatchException("conflict")).when(eventStream).appendAfter(any(), eq(0L));
+
+        try {
+            aggregateService.getAndAppend(eventStream, TestAggregate.class, aggregate -> Stream.empty());
+        } finally {
+            verify(eventStream, never()).readAheadFrom(anyLong());
+        }
+    }
+
 
 }
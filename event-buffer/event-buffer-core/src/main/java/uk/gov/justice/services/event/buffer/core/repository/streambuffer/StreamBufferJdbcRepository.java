@@ -35,7 +35,7 @@ public class StreamBufferJdbcRepository extends AbstractViewStoreJdbcRepository<
 
     public Stream<StreamBufferEvent> streamById(final UUID id) {
         try {
-            final PreparedStatementWrapper ps = preparedStatementWrapperOf(SELECT_BY_STREAM_ID);
+            final PreparedStatementWrapper ps = streamingPreparedStatementWrapperOf(SELECT_BY_STREAM_ID);
             ps.setObject(1, id);
             return streamOf(ps);
 
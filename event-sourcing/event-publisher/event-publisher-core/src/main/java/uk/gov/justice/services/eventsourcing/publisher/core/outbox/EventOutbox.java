@@ -0,0 +1,35 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.util.List;
+
+/**
+ * Store of events waiting to be published. Events must be added within the transaction that
+ * stores them in the event store.
+ */
+public interface EventOutbox {
+
+    /**
+     * Add an event to the outbox.
+     *
+     * @param envelope the event to be published
+     */
+    void add(final JsonEnvelope envelope);
+
+    /**
+     * Returns the oldest events in the outbox, in the order they were added, locking them against
+     * other publishers until the current transaction ends.
+     *
+     * @param batchSize the maximum number of events to return
+     * @return a list of at most batchSize events. Never returns null.
+     */
+    List<OutboxEvent> nextBatch(final int batchSize);
+
+    /**
+     * Remove published events from the outbox.
+     *
+     * @param events the events that have been published
+     */
+    void remove(final List<OutboxEvent> events);
+}
@@ -0,0 +1,62 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import static java.lang.Boolean.parseBoolean;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.eventsourcing.publisher.core.Direct;
+import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Priority;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Alternative;
+import javax.enterprise.inject.Instance;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Default {@link EventPublisher}, publishing events through the {@link OutboxEventPublisher} when
+ * <code>outbox.enabled</code> is set to true and through the {@link Direct} publisher otherwise.
+ *
+ * Selected with a priority so that it replaces the direct publisher for every archive of the
+ * application, including the event-source archive injecting it into the EventStreamManager. An
+ * alternative enabled in the beans.xml of the application would only apply to that archive.
+ */
+@ApplicationScoped
+@Alternative
+@Priority(100)
+public class OutboxAwareEventPublisher implements EventPublisher {
+
+    @Inject
+    @Value(key = "outbox.enabled", defaultValue = "false")
+    String outboxEnabled;
+
+    @Inject
+    @Direct
+    EventPublisher directEventPublisher;
+
+    @Inject
+    Instance<OutboxEventPublisher> outboxEventPublisher;
+
+    @Inject
+    Logger logger;
+
+    private EventPublisher eventPublisher;
+
+    @PostConstruct
+    void initialise() {
+        if (parseBoolean(outboxEnabled)) {
+            logger.info("Publishing events through the outbox");
+            eventPublisher = outboxEventPublisher.get();
+        } else {
+            eventPublisher = directEventPublisher;
+        }
+    }
+
+    @Override
+    public void publish(final JsonEnvelope envelope) {
+        eventPublisher.publish(envelope);
+    }
+}
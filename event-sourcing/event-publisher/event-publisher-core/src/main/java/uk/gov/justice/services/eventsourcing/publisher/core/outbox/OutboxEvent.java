@@ -0,0 +1,25 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+/**
+ * An event in the {@link EventOutbox}, with the id giving its order in the outbox.
+ */
+public class OutboxEvent {
+
+    private final long id;
+    private final JsonEnvelope envelope;
+
+    public OutboxEvent(final long id, final JsonEnvelope envelope) {
+        this.id = id;
+        this.envelope = envelope;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public JsonEnvelope getEnvelope() {
+        return envelope;
+    }
+}
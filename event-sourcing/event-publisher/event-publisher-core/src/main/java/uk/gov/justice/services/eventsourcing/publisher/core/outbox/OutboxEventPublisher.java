@@ -0,0 +1,33 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * {@link EventPublisher} used in outbox mode, which adds events to the {@link EventOutbox} in the
+ * current transaction rather than sending them to the message broker. The events are published
+ * later by the {@link OutboxPublisher}. Used by the {@link OutboxAwareEventPublisher} when
+ * <code>outbox.enabled</code> is set to true.
+ */
+@ApplicationScoped
+@Typed(OutboxEventPublisher.class)
+public class OutboxEventPublisher implements EventPublisher {
+
+    @Inject
+    EventOutbox eventOutbox;
+
+    @Inject
+    Logger logger;
+
+    @Override
+    public void publish(final JsonEnvelope envelope) {
+        logger.trace("Adding event {} to outbox", envelope.metadata().name());
+        eventOutbox.add(envelope);
+    }
+}
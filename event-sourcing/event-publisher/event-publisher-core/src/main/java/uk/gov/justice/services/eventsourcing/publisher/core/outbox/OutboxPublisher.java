@@ -0,0 +1,55 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import uk.gov.justice.services.eventsourcing.publisher.core.Direct;
+import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
+
+import java.util.List;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+
+import org.slf4j.Logger;
+
+/**
+ * Drains the {@link EventOutbox}, publishing its events in order through the {@link Direct}
+ * {@link EventPublisher}.
+ *
+ * Each batch is published and removed from the outbox in one transaction, so the outbox itself
+ * acts as the checkpoint: events left in it after a failure are published again by the next
+ * batch, giving at-least-once delivery.
+ */
+@ApplicationScoped
+public class OutboxPublisher {
+
+    @Inject
+    EventOutbox eventOutbox;
+
+    @Inject
+    @Direct
+    EventPublisher eventPublisher;
+
+    @Inject
+    Logger logger;
+
+    /**
+     * Publish the next batch of events in the outbox.
+     *
+     * @param batchSize the maximum number of events to publish
+     * @return the number of events published
+     */
+    @Transactional
+    public int publishNextBatch(final int batchSize) {
+        final List<OutboxEvent> events = eventOutbox.nextBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        events.forEach(event -> eventPublisher.publish(event.getEnvelope()));
+        eventOutbox.remove(events);
+
+        logger.debug("Published {} events from outbox up to {}", events.size(), events.get(events.size() - 1).getId());
+
+        return events.size();
+    }
+}
@@ -0,0 +1,81 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import static java.lang.Boolean.parseBoolean;
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Polls the {@link EventOutbox} in the background once the application has started, publishing
+ * batches through the {@link OutboxPublisher} until the outbox is empty and then waiting for the
+ * poll interval. Only polls when <code>outbox.enabled</code> is set to true.
+ */
+@ApplicationScoped
+public class OutboxPublishingScheduler {
+
+    @Inject
+    @Value(key = "outbox.enabled", defaultValue = "false")
+    String outboxEnabled;
+
+    @Inject
+    @Value(key = "outbox.batchSize", defaultValue = "100")
+    String batchSize;
+
+    @Inject
+    @Value(key = "outbox.pollIntervalMillis", defaultValue = "500")
+    String pollIntervalMillis;
+
+    @Inject
+    OutboxPublisher outboxPublisher;
+
+    @Inject
+    Logger logger;
+
+    @Resource(lookup = "java:comp/DefaultManagedScheduledExecutorService")
+    ScheduledExecutorService scheduledExecutorService;
+
+    private ScheduledFuture<?> scheduledPublishing;
+
+    public void start(@Observes @Initialized(ApplicationScoped.class) final Object event) {
+        if (!parseBoolean(outboxEnabled)) {
+            return;
+        }
+
+        final long interval = parseLong(pollIntervalMillis);
+        logger.info("Publishing events from outbox in batches of {} every {}ms", batchSize, interval);
+        scheduledPublishing = scheduledExecutorService.scheduleWithFixedDelay(this::publishAll, interval, interval, MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduledPublishing != null) {
+            scheduledPublishing.cancel(false);
+        }
+    }
+
+    void publishAll() {
+        final int size = parseInt(batchSize);
+        try {
+            int published;
+            do {
+                published = outboxPublisher.publishNextBatch(size);
+            } while (published == size);
+        } catch (RuntimeException e) {
+            logger.error("Failed to publish events from outbox", e);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithRandomUUID;
+
+import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import javax.enterprise.inject.Instance;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboxAwareEventPublisherTest {
+
+    private static final String EVENT_NAME = "test.event";
+
+    @Mock
+    private EventPublisher directEventPublisher;
+
+    @Mock
+    private Instance<OutboxEventPublisher> outboxEventPublisherInstance;
+
+    @Mock
+    private OutboxEventPublisher outboxEventPublisher;
+
+    @Mock
+    private Logger logger;
+
+    @InjectMocks
+    private OutboxAwareEventPublisher outboxAwareEventPublisher;
+
+    @Test
+    public void shouldPublishDirectlyByDefault() {
+        final JsonEnvelope envelope = envelope().with(metadataWithRandomUUID(EVENT_NAME)).build();
+        outboxAwareEventPublisher.outboxEnabled = "false";
+        outboxAwareEventPublisher.initialise();
+
+        outboxAwareEventPublisher.publish(envelope);
+
+        verify(directEventPublisher).publish(envelope);
+        verifyZeroInteractions(outboxEventPublisherInstance);
+    }
+
+    @Test
+    public void shouldPublishThroughOutboxWhenEnabled() {
+        final JsonEnvelope envelope = envelope().with(metadataWithRandomUUID(EVENT_NAME)).build();
+        when(outboxEventPublisherInstance.get()).thenReturn(outboxEventPublisher);
+        outboxAwareEventPublisher.outboxEnabled = "true";
+        outboxAwareEventPublisher.initialise();
+
+        outboxAwareEventPublisher.publish(envelope);
+
+        verify(outboxEventPublisher).publish(envelope);
+        verifyZeroInteractions(directEventPublisher);
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import static org.mockito.Mockito.verify;
+import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithRandomUUID;
+
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboxEventPublisherTest {
+
+    private static final String EVENT_NAME = "test.event";
+
+    @Mock
+    private EventOutbox eventOutbox;
+
+    @Mock
+    private Logger logger;
+
+    @InjectMocks
+    private OutboxEventPublisher outboxEventPublisher;
+
+    @Test
+    public void shouldAddEnvelopeToOutbox() {
+        final JsonEnvelope envelope = envelope().with(metadataWithRandomUUID(EVENT_NAME)).build();
+
+        outboxEventPublisher.publish(envelope);
+
+        verify(eventOutbox).add(envelope);
+    }
+}
@@ -0,0 +1,89 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.util.List;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboxPublisherTest {
+
+    private static final int BATCH_SIZE = 10;
+
+    @Mock
+    private EventOutbox eventOutbox;
+
+    @Mock
+    private EventPublisher eventPublisher;
+
+    @Mock
+    private Logger logger;
+
+    @InjectMocks
+    private OutboxPublisher outboxPublisher;
+
+    @Test
+    public void shouldPublishBatchInOrderThenRemoveItFromOutbox() {
+        final OutboxEvent event1 = new OutboxEvent(1L, mock(JsonEnvelope.class));
+        final OutboxEvent event2 = new OutboxEvent(2L, mock(JsonEnvelope.class));
+        final List<OutboxEvent> batch = asList(event1, event2);
+
+        when(eventOutbox.nextBatch(BATCH_SIZE)).thenReturn(batch);
+
+        final int published = outboxPublisher.publishNextBatch(BATCH_SIZE);
+
+        assertThat(published, is(2));
+
+        final InOrder inOrder = inOrder(eventPublisher, eventOutbox);
+        inOrder.verify(eventPublisher).publish(event1.getEnvelope());
+        inOrder.verify(eventPublisher).publish(event2.getEnvelope());
+        inOrder.verify(eventOutbox).remove(batch);
+    }
+
+    @Test
+    public void shouldReturnZeroIfOutboxIsEmpty() {
+        when(eventOutbox.nextBatch(BATCH_SIZE)).thenReturn(emptyList());
+
+        final int published = outboxPublisher.publishNextBatch(BATCH_SIZE);
+
+        assertThat(published, is(0));
+        verifyZeroInteractions(eventPublisher);
+        verify(eventOutbox, never()).remove(any());
+    }
+
+    @Test
+    public void shouldNotRemoveBatchIfPublishingFails() {
+        final OutboxEvent event = new OutboxEvent(1L, mock(JsonEnvelope.class));
+        when(eventOutbox.nextBatch(BATCH_SIZE)).thenReturn(asList(event));
+        doThrow(new RuntimeException("broker down")).when(eventPublisher).publish(event.getEnvelope());
+
+        try {
+            outboxPublisher.publishNextBatch(BATCH_SIZE);
+        } catch (final RuntimeException expected) {
+            // expected
+        }
+
+        verify(eventOutbox, never()).remove(any());
+    }
+}
@@ -0,0 +1,91 @@
+package uk.gov.justice.services.eventsourcing.publisher.core.outbox;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class OutboxPublishingSchedulerTest {
+
+    @Mock
+    private OutboxPublisher outboxPublisher;
+
+    @Mock
+    private ScheduledExecutorService scheduledExecutorService;
+
+    @Mock
+    private Logger logger;
+
+    @InjectMocks
+    private OutboxPublishingScheduler outboxPublishingScheduler;
+
+    @Before
+    public void setUp() {
+        outboxPublishingScheduler.outboxEnabled = "true";
+        outboxPublishingScheduler.batchSize = "3";
+        outboxPublishingScheduler.pollIntervalMillis = "250";
+    }
+
+    @Test
+    public void shouldScheduleOutboxPollingAtConfiguredInterval() {
+        outboxPublishingScheduler.start(new Object());
+
+        verify(scheduledExecutorService).scheduleWithFixedDelay(any(Runnable.class), eq(250L), eq(250L), eq(MILLISECONDS));
+    }
+
+    @Test
+    public void shouldNotPollOutboxUnlessEnabled() {
+        outboxPublishingScheduler.outboxEnabled = "false";
+
+        outboxPublishingScheduler.start(new Object());
+
+        verifyZeroInteractions(scheduledExecutorService);
+    }
+
+    @Test
+    public void shouldCancelPollingOnStop() {
+        final ScheduledFuture<?> scheduledFuture = mock(ScheduledFuture.class);
+        doReturn(scheduledFuture).when(scheduledExecutorService).scheduleWithFixedDelay(any(Runnable.class), eq(250L), eq(250L), eq(MILLISECONDS));
+
+        outboxPublishingScheduler.start(new Object());
+        outboxPublishingScheduler.stop();
+
+        verify(scheduledFuture).cancel(false);
+    }
+
+    @Test
+    public void shouldKeepPublishingWhileBatchesAreFull() {
+        when(outboxPublisher.publishNextBatch(3)).thenReturn(3, 3, 1);
+
+        outboxPublishingScheduler.publishAll();
+
+        verify(outboxPublisher, times(3)).publishNextBatch(3);
+    }
+
+    @Test
+    public void shouldLogAndSwallowPublishingFailures() {
+        final RuntimeException exception = new RuntimeException("broker down");
+        when(outboxPublisher.publishNextBatch(3)).thenThrow(exception);
+
+        outboxPublishingScheduler.publishAll();
+
+        verify(logger).error("Failed to publish events from outbox", exception);
+    }
+}
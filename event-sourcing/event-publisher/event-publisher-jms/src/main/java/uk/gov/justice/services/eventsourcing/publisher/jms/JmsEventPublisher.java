@@ -1,10 +1,12 @@
 package uk.gov.justice.services.eventsourcing.publisher.jms;
 
+import uk.gov.justice.services.eventsourcing.publisher.core.Direct;
 import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 import uk.gov.justice.services.messaging.jms.JmsEnvelopeSender;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
@@ -13,6 +15,8 @@ import org.slf4j.Logger;
  * A JMS implementation of {@link EventPublisher}
  */
 @ApplicationScoped
+@Default
+@Direct
 public class JmsEventPublisher implements EventPublisher {
 
     @Inject
@@ -4,6 +4,11 @@ package uk.gov.justice.services.eventsourcing.repository.core;
 import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -21,6 +26,17 @@ public interface EventRepository {
      */
     Stream<JsonEnvelope> getAll();
 
+    /**
+     * Get a stream of the envelopes created in the given time range, ordered by creation time and
+     * then by global position. The range includes <code>from</code> and excludes <code>to</code>,
+     * so consecutive ranges can be read without missing or repeating events.
+     *
+     * @param from the start of the time range (inclusive)
+     * @param to   the end of the time range (exclusive)
+     * @return the stream of envelopes. Never returns null.
+     */
+    Stream<JsonEnvelope> getByTimeRange(final ZonedDateTime from, final ZonedDateTime to);
+
     /**
      * Get a stream of envelopes, ordered by sequence id.
      *
@@ -38,6 +54,37 @@ public interface EventRepository {
      */
     Stream<JsonEnvelope> getByStreamIdAndSequenceId(final UUID streamId, final Long sequenceId);
 
+    /**
+     * Get a stream of envelopes newest first, ordered by sequence id descending. The stream is read
+     * in pages of <code>pageSize</code> events, each page being read with a separate key-set
+     * query, so reading only the latest events of a long stream reads a single page.
+     *
+     * @param streamId the id of the stream to retrieve
+     * @param pageSize the number of events to read per query
+     * @return the stream of envelopes. Never returns null.
+     */
+    Stream<JsonEnvelope> getByStreamIdInReverse(final UUID streamId, final int pageSize);
+
+    /**
+     * Get a stream of the envelopes with the given event names, ordered by sequence id.
+     *
+     * @param streamId the id of the stream to retrieve
+     * @param names    the names of the events to retrieve
+     * @return the stream of envelopes. Never returns null.
+     */
+    Stream<JsonEnvelope> getByStreamIdAndNames(final UUID streamId, final Set<String> names);
+
+    /**
+     * Get a stream of the envelopes with the given event names from a given version, ordered by
+     * sequence id.
+     *
+     * @param streamId   the id of the stream to retrieve
+     * @param sequenceId the sequence id to read the stream from
+     * @param names      the names of the events to retrieve
+     * @return the stream of envelopes. Never returns null.
+     */
+    Stream<JsonEnvelope> getByStreamIdAndSequenceIdAndNames(final UUID streamId, final Long sequenceId, final Set<String> names);
+
     /**
      * Stores the given envelope into the event stream.
      *
@@ -50,6 +97,19 @@ public interface EventRepository {
     @Transactional
     void store(final JsonEnvelope envelope, final UUID streamId, final Long version) throws StoreEventRequestFailedException;
 
+    /**
+     * Stores the given envelopes into the event stream in a single batch. The envelopes are stored
+     * at consecutive versions starting from <code>firstVersion</code>.
+     *
+     * @param envelopes    the envelopes containing the events and the metadata, in stream order.
+     * @param streamId     the stream id the events need to be stored in.
+     * @param firstVersion the version at which the first event is to be stored
+     * @throws StoreEventRequestFailedException If there was a failure in storing the events, this
+     *                                          will wrap the underlying cause.
+     */
+    @Transactional
+    void storeAll(final List<JsonEnvelope> envelopes, final UUID streamId, final Long firstVersion) throws StoreEventRequestFailedException;
+
     /**
      * Returns the latest sequence Id for the given stream id.
      *
@@ -60,8 +120,27 @@ public interface EventRepository {
     Long getCurrentSequenceIdForStream(final UUID streamId);
 
     /**
-     * Returns stream of envelope streams. Envelopes in the nested stream are ordered by sequenceId
+     * Returns the latest sequence Ids for the given stream ids.
+     *
+     * @param streamIds ids of the streams.
+     * @return map of stream id to latest sequence id, containing every requested stream. Streams
+     * that don't exist are mapped to 0. Never returns null.
+     */
+    Map<UUID, Long> getCurrentSequenceIdsForStreams(final Collection<UUID> streamIds);
+
+    /**
+     * Returns stream of envelope streams. Envelopes in the nested stream are ordered by sequenceId.
+     * Nested streams are closed when the returned stream is closed.
      * @return the stream of envelope streams
      */
     Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreams();
+
+    /**
+     * Returns stream of envelope streams, holding at most one nested stream open at a time, for
+     * traversals of every stream. Envelopes in the nested stream are ordered by sequenceId. Each
+     * nested stream is closed when the next one is pulled, so it must be consumed before the next
+     * is pulled. The last nested stream is closed when the returned stream is closed.
+     * @return the stream of envelope streams
+     */
+    Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreamsOneAtATime();
 }
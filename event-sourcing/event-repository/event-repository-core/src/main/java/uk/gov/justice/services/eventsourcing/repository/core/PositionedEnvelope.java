@@ -0,0 +1,33 @@
+package uk.gov.justice.services.eventsourcing.repository.core;
+
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+/**
+ * An event read from the event store together with its global position in the event log.
+ */
+public class PositionedEnvelope {
+
+    private final long position;
+    private final JsonEnvelope envelope;
+
+    public PositionedEnvelope(final long position, final JsonEnvelope envelope) {
+        this.position = position;
+        this.envelope = envelope;
+    }
+
+    /**
+     * The global position of the event. Positions are assigned in increasing order across all
+     * streams when events are inserted, but only become visible when the inserting transaction
+     * commits. Reads from a position stop before any position that may still become visible, so
+     * resuming from the position after the last processed event never misses an event.
+     *
+     * @return the global position of the event
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public JsonEnvelope getEnvelope() {
+        return envelope;
+    }
+}
@@ -0,0 +1,23 @@
+package uk.gov.justice.services.eventsourcing.repository.core;
+
+import java.util.stream.Stream;
+
+/**
+ * An {@link EventRepository} with a single global position across all of its events, so readers
+ * can keep a checkpoint of the position they have read up to and resume from it.
+ */
+public interface PositionedEventRepository extends EventRepository {
+
+    /**
+     * Get a stream of envelopes from the given global position onwards, ordered by position. The
+     * event log is read in pages of <code>pageSize</code> events, each page being read with a
+     * separate key-set query, so no cursor is held open while the stream is consumed. The stream
+     * ends before a missing position that may still be taken by an event not yet committed, see
+     * {@link PositionedEnvelope#getPosition()}.
+     *
+     * @param position the global position to read from (inclusive)
+     * @param pageSize the number of events to read per query
+     * @return the stream of envelopes with their positions. Never returns null.
+     */
+    Stream<PositionedEnvelope> readAllFrom(final long position, final int pageSize);
+}
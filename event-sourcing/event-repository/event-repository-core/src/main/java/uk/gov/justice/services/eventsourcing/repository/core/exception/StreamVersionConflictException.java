@@ -0,0 +1,13 @@
+package uk.gov.justice.services.eventsourcing.repository.core.exception;
+
+/**
+ * Exception thrown when events cannot be stored because another append to the stream was stored
+ * first, so the versions the events were given no longer follow the current version of the
+ * stream. Retrying the append against the new current version may succeed.
+ */
+public class StreamVersionConflictException extends StoreEventRequestFailedException {
+
+    public StreamVersionConflictException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
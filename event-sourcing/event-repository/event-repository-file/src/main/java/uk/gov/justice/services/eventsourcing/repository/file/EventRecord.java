@@ -0,0 +1,68 @@
+package uk.gov.justice.services.eventsourcing.repository.file;
+
+import java.util.UUID;
+
+/**
+ * An event as stored in a segment file.
+ */
+public class EventRecord {
+
+    private final long position;
+    private final UUID streamId;
+    private final long sequenceId;
+    private final long dateCreated;
+    private final UUID id;
+    private final String name;
+    private final String metadata;
+    private final String payload;
+
+    public EventRecord(final long position, final UUID streamId, final long sequenceId, final long dateCreated,
+                       final UUID id, final String name, final String metadata, final String payload) {
+        this.position = position;
+        this.streamId = streamId;
+        this.sequenceId = sequenceId;
+        this.dateCreated = dateCreated;
+        this.id = id;
+        this.name = name;
+        this.metadata = metadata;
+        this.payload = payload;
+    }
+
+    /**
+     * @return the global position of the event, starting at 1 for the first event appended
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public UUID getStreamId() {
+        return streamId;
+    }
+
+    public long getSequenceId() {
+        return sequenceId;
+    }
+
+    /**
+     * @return the time the event was appended, in milliseconds since the epoch
+     */
+    public long getDateCreated() {
+        return dateCreated;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getMetadata() {
+        return metadata;
+    }
+
+    public String getPayload() {
+        return payload;
+    }
+}
@@ -0,0 +1,117 @@
+package uk.gov.justice.services.eventsourcing.repository.file;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Binary format of an event in a segment file.
+ *
+ * Each event is written as a frame made up of the length of its body, a CRC32 checksum of the
+ * body and the body itself. The body holds a flag marking the last event of an appended batch,
+ * followed by the position, stream id, sequence id, creation time in epoch milliseconds, id, name,
+ * metadata and payload of the event.
+ * A frame length of zero marks the end of the events in a segment.
+ */
+final class EventRecordFormat {
+
+    static final int FRAME_HEADER_SIZE = 8;
+
+    private static final byte LAST_IN_BATCH = 1;
+    private static final int FIXED_BODY_SIZE = 1 + 7 * 8 + 3 * 4;
+
+    private EventRecordFormat() {
+    }
+
+    static ByteBuffer frameOf(final EventRecord record, final boolean lastInBatch) {
+        final byte[] name = record.getName().getBytes(UTF_8);
+        final byte[] metadata = record.getMetadata().getBytes(UTF_8);
+        final byte[] payload = record.getPayload().getBytes(UTF_8);
+        final int bodySize = FIXED_BODY_SIZE + name.length + metadata.length + payload.length;
+
+        final ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + bodySize);
+        frame.putInt(bodySize);
+        frame.putInt(0);
+        frame.put(lastInBatch ? LAST_IN_BATCH : 0);
+        frame.putLong(record.getPosition());
+        putUuid(frame, record.getStreamId());
+        frame.putLong(record.getSequenceId());
+        frame.putLong(record.getDateCreated());
+        putUuid(frame, record.getId());
+        putBytes(frame, name);
+        putBytes(frame, metadata);
+        putBytes(frame, payload);
+
+        frame.putInt(Integer.BYTES, checksumOf(frame.array(), FRAME_HEADER_SIZE, bodySize));
+        frame.flip();
+        return frame;
+    }
+
+    static int checksumOf(final byte[] bytes, final int offset, final int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    static int checksumOf(final ByteBuffer body) {
+        final CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        return (int) crc.getValue();
+    }
+
+    static boolean isLastInBatch(final ByteBuffer body) {
+        return body.get(body.position()) == LAST_IN_BATCH;
+    }
+
+    static long positionOf(final ByteBuffer body) {
+        return body.getLong(body.position() + 1);
+    }
+
+    static UUID streamIdOf(final ByteBuffer body) {
+        return new UUID(body.getLong(body.position() + 9), body.getLong(body.position() + 17));
+    }
+
+    static long sequenceIdOf(final ByteBuffer body) {
+        return body.getLong(body.position() + 25);
+    }
+
+    static long dateCreatedOf(final ByteBuffer body) {
+        return body.getLong(body.position() + 33);
+    }
+
+    static EventRecord recordOf(final ByteBuffer frameBody) {
+        final ByteBuffer body = frameBody.duplicate();
+        body.get();
+        final long position = body.getLong();
+        final UUID streamId = getUuid(body);
+        final long sequenceId = body.getLong();
+        final long dateCreated = body.getLong();
+        final UUID id = getUuid(body);
+        final String name = getString(body);
+        final String metadata = getString(body);
+        final String payload = getString(body);
+        return new EventRecord(position, streamId, sequenceId, dateCreated, id, name, metadata, payload);
+    }
+
+    private static void putUuid(final ByteBuffer buffer, final UUID uuid) {
+        buffer.putLong(uuid.getMostSignificantBits());
+        buffer.putLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID getUuid(final ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    private static void putBytes(final ByteBuffer buffer, final byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String getString(final ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,23 @@
+package uk.gov.justice.services.eventsourcing.repository.file;
+
+/**
+ * When events appended to the segment files are forced to disk.
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Force every event to disk as it is appended. Slowest, and loses nothing on a crash.
+     */
+    PER_APPEND,
+
+    /**
+     * Force each batch of events appended to a stream to disk once the whole batch is written.
+     */
+    PER_BATCH,
+
+    /**
+     * Force appended events to disk at a fixed interval. Fastest, and may lose the events appended
+     * since the last interval on a crash of the host, but not of the application.
+     */
+    PERIODIC
+}
@@ -0,0 +1,152 @@
+package uk.gov.justice.services.eventsourcing.repository.file;
+
+import static java.lang.String.format;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static uk.gov.justice.services.eventsourcing.repository.file.EventRecordFormat.FRAME_HEADER_SIZE;
+
+import uk.gov.justice.services.eventsourcing.repository.file.exception.SegmentFileException;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+/**
+ * An append-only segment file, memory-mapped in full.
+ *
+ * Frames are only ever written by the single writer of the {@link SegmentedEventLog}. Frames that
+ * have been written are never changed, so they can be read concurrently through duplicates of the
+ * mapped buffer.
+ */
+class Segment {
+
+    static final String SUFFIX = ".segment";
+
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private int writeOffset;
+
+    private Segment(final Path file, final MappedByteBuffer buffer) {
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    static Path fileOf(final Path directory, final int index) {
+        return directory.resolve(format("%010d%s", index, SUFFIX));
+    }
+
+    static Segment create(final Path file, final int size) {
+        return map(file, size);
+    }
+
+    static Segment open(final Path file) {
+        try {
+            final long size = file.toFile().length();
+            if (size > Integer.MAX_VALUE) {
+                throw new SegmentFileException(format("Segment file %s is larger than %d bytes", file, Integer.MAX_VALUE));
+            }
+            return map(file, (int) size);
+        } catch (SecurityException e) {
+            throw new SegmentFileException(format("Cannot open segment file %s", file), e);
+        }
+    }
+
+    private static Segment map(final Path file, final int size) {
+        try (final RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw");
+             final FileChannel channel = randomAccessFile.getChannel()) {
+            return new Segment(file, channel.map(READ_WRITE, 0, size));
+        } catch (IOException e) {
+            throw new SegmentFileException(format("Cannot map segment file %s", file), e);
+        }
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    int getWriteOffset() {
+        return writeOffset;
+    }
+
+    boolean hasRoomFor(final int bytes) {
+        return (long) writeOffset + bytes <= buffer.capacity();
+    }
+
+    /**
+     * Write a frame at the end of the segment.
+     *
+     * @param frame the frame
+     * @return the offset the frame was written at
+     */
+    int write(final ByteBuffer frame) {
+        final int offset = writeOffset;
+        final ByteBuffer target = buffer.duplicate();
+        target.position(offset);
+        target.put(frame);
+        writeOffset = target.position();
+        return offset;
+    }
+
+    /**
+     * @param offset the offset of a frame
+     * @return the length of the body of the frame, zero if there is no frame at the offset
+     */
+    int bodyLengthAt(final int offset) {
+        if ((long) offset + FRAME_HEADER_SIZE > buffer.capacity()) {
+            return 0;
+        }
+        return buffer.getInt(offset);
+    }
+
+    /**
+     * @param offset the offset of a frame
+     * @return the body of the frame, read directly from the mapped file
+     */
+    ByteBuffer bodyAt(final int offset) {
+        final ByteBuffer body = buffer.duplicate();
+        final int bodyOffset = offset + FRAME_HEADER_SIZE;
+        body.limit(bodyOffset + buffer.getInt(offset));
+        body.position(bodyOffset);
+        return body.slice();
+    }
+
+    /**
+     * @param offset the offset of a frame
+     * @return true if the frame at the offset lies within the segment and matches its checksum
+     */
+    boolean isValidFrameAt(final int offset) {
+        final int length = bodyLengthAt(offset);
+        if (length <= 0 || (long) offset + FRAME_HEADER_SIZE + length > buffer.capacity()) {
+            return false;
+        }
+        return EventRecordFormat.checksumOf(bodyAt(offset)) == buffer.getInt(offset + Integer.BYTES);
+    }
+
+    /**
+     * Resume appending at the given offset, the end of the frames found in the segment.
+     *
+     * @param offset the offset to append from
+     */
+    void resumeAt(final int offset) {
+        writeOffset = offset;
+    }
+
+    /**
+     * Discard everything from the given offset, for example a frame torn by a crash.
+     *
+     * @param offset the offset to discard from
+     */
+    void truncateAt(final int offset) {
+        for (int i = offset; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 0);
+        }
+        writeOffset = offset;
+        force();
+    }
+
+    void force() {
+        buffer.force();
+    }
+}
@@ -0,0 +1,224 @@
+package uk.gov.justice.services.eventsourcing.repository.file;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toMap;
+import static uk.gov.justice.services.eventsourcing.repository.file.FsyncPolicy.PERIODIC;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEnvelope;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEventRepository;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StreamVersionConflictException;
+import uk.gov.justice.services.eventsourcing.repository.file.exception.InvalidSequenceIdException;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+import uk.gov.justice.services.messaging.LazyJsonEnvelope;
+
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Alternative;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Event repository that stores events in memory-mapped, append-only segment files on the local
+ * file system instead of the event log table, for services that need low append latency and do
+ * not share their event store.
+ *
+ * The repository is a CDI alternative without a priority, so deploying this module changes
+ * nothing until an archive selects it in its beans.xml:
+ *
+ * <pre>
+ * &lt;alternatives&gt;
+ *     &lt;class&gt;uk.gov.justice.services.eventsourcing.repository.file.SegmentFileEventRepository&lt;/class&gt;
+ * &lt;/alternatives&gt;
+ * </pre>
+ *
+ * The segment files are kept in <code>eventstore.file.directory</code>, which is locked while the
+ * repository is open, and appended events are forced to disk according to
+ * <code>eventstore.file.fsyncPolicy</code>.
+ *
+ * Appends take effect immediately and do not take part in the surrounding JTA transaction, so
+ * events are not removed if the transaction rolls back. Only select the repository in archives
+ * whose handlers do not rely on a rollback discarding the events they appended.
+ */
+@ApplicationScoped
+@Alternative
+public class SegmentFileEventRepository implements PositionedEventRepository {
+
+    @Inject
+    @Value(key = "eventstore.file.directory")
+    String directory;
+
+    @Inject
+    @Value(key = "eventstore.file.segmentSize", defaultValue = "67108864")
+    String segmentSize;
+
+    @Inject
+    @Value(key = "eventstore.file.fsyncPolicy", defaultValue = "PER_BATCH")
+    String fsyncPolicy;
+
+    @Inject
+    @Value(key = "eventstore.file.fsyncIntervalMillis", defaultValue = "1000")
+    String fsyncIntervalMillis;
+
+    @Inject
+    Logger logger;
+
+    @Resource(lookup = "java:comp/DefaultManagedScheduledExecutorService")
+    ScheduledExecutorService scheduledExecutorService;
+
+    private SegmentedEventLog eventLog;
+    private ScheduledFuture<?> scheduledSync;
+
+    @PostConstruct
+    public void open() {
+        final FsyncPolicy policy = FsyncPolicy.valueOf(fsyncPolicy);
+        logger.info("Opening segment file event store in {} with fsync policy {}", directory, policy);
+        eventLog = SegmentedEventLog.open(Paths.get(directory), parseInt(segmentSize), policy);
+
+        if (policy == PERIODIC) {
+            final long interval = parseLong(fsyncIntervalMillis);
+            scheduledSync = scheduledExecutorService.scheduleWithFixedDelay(eventLog::sync, interval, interval, MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (scheduledSync != null) {
+            scheduledSync.cancel(false);
+        }
+        eventLog.close();
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getAll() {
+        logger.trace("Retrieving all events");
+        return eventLog.readFrom(1L).map(this::envelopeOf);
+    }
+
+    @Override
+    public Stream<PositionedEnvelope> readAllFrom(final long position, final int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException(format("pageSize must be positive, was %d.", pageSize));
+        }
+
+        logger.trace("Retrieving all events from position {}", position);
+        return eventLog.readFrom(position, pageSize)
+                .map(record -> new PositionedEnvelope(record.getPosition(), envelopeOf(record)));
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByTimeRange(final ZonedDateTime from, final ZonedDateTime to) {
+        logger.trace("Retrieving events created from {} to {}", from, to);
+        return eventLog.readCreatedBetween(from.toInstant().toEpochMilli(), to.toInstant().toEpochMilli())
+                .map(this::envelopeOf);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamId(final UUID streamId) {
+        logger.trace("Retrieving event stream for {}", streamId);
+        return eventLog.readStream(streamId, 1L).map(this::envelopeOf);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndSequenceId(final UUID streamId, final Long sequenceId) {
+        logger.trace("Retrieving event stream for {} at sequence {}", streamId, sequenceId);
+        return eventLog.readStream(streamId, sequenceId).map(this::envelopeOf);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdInReverse(final UUID streamId, final int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException(format("pageSize must be positive, was %d.", pageSize));
+        }
+
+        logger.trace("Retrieving event stream for {} in reverse", streamId);
+        return eventLog.readStreamInReverse(streamId, pageSize).map(this::envelopeOf);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndNames(final UUID streamId, final Set<String> names) {
+        return getByStreamIdAndSequenceIdAndNames(streamId, 1L, names);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndSequenceIdAndNames(final UUID streamId, final Long sequenceId, final Set<String> names) {
+        logger.trace("Retrieving events {} of event stream for {} at sequence {}", names, streamId, sequenceId);
+        return eventLog.readStream(streamId, sequenceId)
+                .filter(record -> names.contains(record.getName()))
+                .map(this::envelopeOf);
+    }
+
+    @Override
+    public void store(final JsonEnvelope envelope, final UUID streamId, final Long version) throws StoreEventRequestFailedException {
+        final List<JsonEnvelope> envelopes = new ArrayList<>(1);
+        envelopes.add(envelope);
+        storeAll(envelopes, streamId, version);
+    }
+
+    @Override
+    public void storeAll(final List<JsonEnvelope> envelopes, final UUID streamId, final Long firstVersion) throws StoreEventRequestFailedException {
+        if (firstVersion == null) {
+            throw new StoreEventRequestFailedException(format("Could not store events for stream %s", streamId),
+                    new InvalidSequenceIdException(format("Version is null for stream %s", streamId)));
+        }
+
+        try {
+            logger.trace("Storing {} events into stream {} from version {}", envelopes.size(), streamId, firstVersion);
+            eventLog.append(streamId, firstVersion, envelopes);
+        } catch (InvalidSequenceIdException ex) {
+            throw new StreamVersionConflictException(format("Could not store events from version %d of stream %s",
+                    firstVersion, streamId), ex);
+        }
+    }
+
+    @Override
+    public Long getCurrentSequenceIdForStream(final UUID streamId) {
+        return eventLog.currentVersion(streamId);
+    }
+
+    @Override
+    public Map<UUID, Long> getCurrentSequenceIdsForStreams(final Collection<UUID> streamIds) {
+        return streamIds.stream()
+                .distinct()
+                .collect(toMap(identity(), eventLog::currentVersion));
+    }
+
+    @Override
+    public Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreams() {
+        return eventLog.streamIds().stream()
+                .map(this::getByStreamId);
+    }
+
+    /**
+     * Streams read the segments already held open by the event log, so nothing is opened for each
+     * nested stream and this is the same as {@link #getStreamOfAllEventStreams()}.
+     */
+    @Override
+    public Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreamsOneAtATime() {
+        return getStreamOfAllEventStreams();
+    }
+
+    private JsonEnvelope envelopeOf(final EventRecord record) {
+        return LazyJsonEnvelope.envelopeFrom(record.getId(), record.getName(), record.getMetadata(), record.getPayload());
+    }
+}
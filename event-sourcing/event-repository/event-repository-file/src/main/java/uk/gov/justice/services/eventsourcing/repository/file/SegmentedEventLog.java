@@ -0,0 +1,531 @@
+package uk.gov.justice.services.eventsourcing.repository.file;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.unmodifiableSet;
+import static uk.gov.justice.services.eventsourcing.repository.file.EventRecordFormat.FRAME_HEADER_SIZE;
+import static uk.gov.justice.services.eventsourcing.repository.file.FsyncPolicy.PER_APPEND;
+import static uk.gov.justice.services.eventsourcing.repository.file.FsyncPolicy.PER_BATCH;
+
+import uk.gov.justice.services.eventsourcing.repository.file.exception.InvalidSequenceIdException;
+import uk.gov.justice.services.eventsourcing.repository.file.exception.SegmentFileException;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Append-only log of events held in a sequence of memory-mapped segment files.
+ *
+ * Events are appended by a single writer at a time. Each append writes a batch of events of one
+ * stream to the end of the current segment, rolling over to a new segment when the batch does not
+ * fit, and forces it to disk according to the {@link FsyncPolicy}. A batch never spans segments.
+ *
+ * The log takes an exclusive lock on a lock file in its directory while it is open, so a second
+ * process, or a second log in the same process, cannot open the same directory and append to the
+ * segments as well.
+ *
+ * The location of every event, both by global position and by stream, is kept in an in-memory
+ * index that is rebuilt by scanning the segments when the log is opened. Readers use the index
+ * and the mapped segments without taking any lock. A batch only becomes visible to readers once
+ * all of its events have been written, and a batch that was only partly written when the
+ * application stopped is discarded when the log is next opened.
+ *
+ * Every event records the time it was appended. The time never goes back from one batch to the
+ * next, even if the system clock does, so events ordered by position are also ordered by time and
+ * a time range is found with a binary search of the position index.
+ *
+ * Reads decode each event into a new {@link EventRecord}, copying its name, metadata and payload
+ * out of the mapped segment into Strings.
+ */
+public class SegmentedEventLog implements AutoCloseable {
+
+    static final String LOCK_FILE = "segments.lock";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy fsyncPolicy;
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final Locations positions = new Locations();
+    private final Map<UUID, Locations> streams = new ConcurrentHashMap<>();
+
+    private long lastDateCreated;
+    private FileChannel lockChannel;
+
+    private SegmentedEventLog(final Path directory, final int segmentSize, final FsyncPolicy fsyncPolicy) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    /**
+     * Open the log held in the given directory, creating it if it does not exist and rebuilding
+     * the index from the existing segments. The directory stays locked until the log is closed.
+     *
+     * @param directory   the directory holding the segment files
+     * @param segmentSize the size in bytes of new segment files
+     * @param fsyncPolicy when appended events are forced to disk
+     * @return the opened log
+     * @throws SegmentFileException if the directory is already locked by another log
+     */
+    public static SegmentedEventLog open(final Path directory, final int segmentSize, final FsyncPolicy fsyncPolicy) {
+        if (segmentSize <= FRAME_HEADER_SIZE) {
+            throw new IllegalArgumentException(format("segmentSize must be greater than %d, was %d.", FRAME_HEADER_SIZE, segmentSize));
+        }
+
+        final SegmentedEventLog eventLog = new SegmentedEventLog(directory, segmentSize, fsyncPolicy);
+        eventLog.lock();
+        try {
+            eventLog.recover();
+        } catch (RuntimeException e) {
+            eventLog.unlock();
+            throw e;
+        }
+        return eventLog;
+    }
+
+    /**
+     * Append a batch of events to a stream, at consecutive sequence ids.
+     *
+     * @param streamId     the id of the stream
+     * @param firstVersion the sequence id of the first event
+     * @param envelopes    the events, in stream order
+     * @throws InvalidSequenceIdException if the first event does not directly follow the current
+     *                                    version of the stream
+     */
+    public synchronized void append(final UUID streamId, final long firstVersion, final List<JsonEnvelope> envelopes) throws InvalidSequenceIdException {
+        if (envelopes.isEmpty()) {
+            return;
+        }
+
+        final long currentVersion = currentVersion(streamId);
+        if (firstVersion != currentVersion + 1) {
+            throw new InvalidSequenceIdException(format("Version %d of stream %s does not follow the current version %d",
+                    firstVersion, streamId, currentVersion));
+        }
+
+        final List<ByteBuffer> frames = new ArrayList<>(envelopes.size());
+        long position = nextPosition();
+        long sequenceId = firstVersion;
+        int batchSize = 0;
+        final long dateCreated = max(System.currentTimeMillis(), lastDateCreated);
+
+        for (int i = 0; i < envelopes.size(); i++) {
+            final JsonEnvelope envelope = envelopes.get(i);
+            final EventRecord record = new EventRecord(position++, streamId, sequenceId++, dateCreated,
+                    envelope.metadata().id(), envelope.metadata().name(),
+                    envelope.metadata().asJsonObject().toString(), envelope.payload().toString());
+            final ByteBuffer frame = EventRecordFormat.frameOf(record, i == envelopes.size() - 1);
+            frames.add(frame);
+            batchSize += frame.remaining();
+        }
+
+        final int segmentIndex = segmentWithRoomFor(batchSize);
+        final Segment segment = segments.get(segmentIndex);
+        final long[] locations = new long[frames.size()];
+
+        for (int i = 0; i < frames.size(); i++) {
+            locations[i] = locationOf(segmentIndex, segment.write(frames.get(i)));
+            if (fsyncPolicy == PER_APPEND) {
+                segment.force();
+            }
+        }
+
+        if (fsyncPolicy == PER_BATCH) {
+            segment.force();
+        }
+
+        final Locations stream = streams.computeIfAbsent(streamId, id -> new Locations());
+        for (final long location : locations) {
+            positions.add(location);
+            stream.add(location);
+        }
+        lastDateCreated = dateCreated;
+    }
+
+    /**
+     * @return the position the next event appended to the log will be stored at
+     */
+    public long nextPosition() {
+        return positions.size() + 1L;
+    }
+
+    /**
+     * @param streamId the id of the stream
+     * @return the sequence id of the latest event of the stream, 0 if the stream does not exist
+     */
+    public long currentVersion(final UUID streamId) {
+        final Locations stream = streams.get(streamId);
+        return stream == null ? 0L : stream.size();
+    }
+
+    /**
+     * @param streamId   the id of the stream
+     * @param fromVersion the sequence id to read from (inclusive)
+     * @return the events of the stream from the given sequence id, in order
+     */
+    public Stream<EventRecord> readStream(final UUID streamId, final long fromVersion) {
+        final Locations stream = streams.get(streamId);
+        if (stream == null) {
+            return Stream.empty();
+        }
+        final int size = stream.size();
+        return LongStream.range(max(fromVersion, 1L) - 1, size)
+                .mapToObj(index -> readAt(stream.get((int) index)));
+    }
+
+    /**
+     * Read the events of a stream newest first, a page at a time. The stream is read back from the
+     * version it had when reading started.
+     *
+     * @param streamId the id of the stream
+     * @param pageSize the number of events to decode at a time
+     * @return the events of the stream, newest first
+     */
+    public Stream<EventRecord> readStreamInReverse(final UUID streamId, final int pageSize) {
+        return StreamSupport.stream(new PageSpliterator(Long.MAX_VALUE, pageSize,
+                sequenceIdTo -> readStreamPageTo(streamId, sequenceIdTo, pageSize),
+                record -> record.getSequenceId() - 1), false);
+    }
+
+    /**
+     * @param position the global position to read from (inclusive), starting at 1
+     * @return the events of all streams from the given position, in the order they were appended
+     */
+    public Stream<EventRecord> readFrom(final long position) {
+        final int size = positions.size();
+        return LongStream.range(max(position, 1L) - 1, size)
+                .mapToObj(index -> readAt(positions.get((int) index)));
+    }
+
+    /**
+     * Read the events of all streams from a position, a page at a time. Each page is taken from
+     * the index as it is when the page is read, so events appended while the stream is consumed
+     * are returned as well.
+     *
+     * @param position the global position to read from (inclusive), starting at 1
+     * @param pageSize the number of events to decode at a time
+     * @return the events of all streams from the given position, in the order they were appended
+     */
+    public Stream<EventRecord> readFrom(final long position, final int pageSize) {
+        return StreamSupport.stream(new PageSpliterator(position, pageSize,
+                from -> readPageFrom(from, pageSize),
+                record -> record.getPosition() + 1), false);
+    }
+
+    /**
+     * @param from the start of the time range in epoch milliseconds (inclusive)
+     * @param to   the end of the time range in epoch milliseconds (exclusive)
+     * @return the events of all streams appended in the given time range, in the order they were
+     * appended
+     */
+    public Stream<EventRecord> readCreatedBetween(final long from, final long to) {
+        final int size = positions.size();
+        final int start = firstIndexCreatedAtOrAfter(from, size);
+        final int end = firstIndexCreatedAtOrAfter(to, size);
+        return LongStream.range(start, max(start, end))
+                .mapToObj(index -> readAt(positions.get((int) index)));
+    }
+
+    /**
+     * @return the ids of all streams in the log
+     */
+    public Set<UUID> streamIds() {
+        return unmodifiableSet(streams.keySet());
+    }
+
+    /**
+     * Force all appended events to disk.
+     */
+    public void sync() {
+        segments.forEach(Segment::force);
+    }
+
+    @Override
+    public void close() {
+        try {
+            sync();
+        } finally {
+            unlock();
+        }
+    }
+
+    private void lock() {
+        final Path lockFile = directory.resolve(LOCK_FILE);
+        try {
+            Files.createDirectories(directory);
+            lockChannel = FileChannel.open(lockFile, CREATE, WRITE);
+            if (lockChannel.tryLock() == null) {
+                unlock();
+                throw new SegmentFileException(format("Segment directory %s is locked by another process", directory));
+            }
+        } catch (OverlappingFileLockException e) {
+            unlock();
+            throw new SegmentFileException(format("Segment directory %s is already open", directory), e);
+        } catch (IOException e) {
+            unlock();
+            throw new SegmentFileException(format("Cannot lock segment directory %s", lockFile), e);
+        }
+    }
+
+    private void unlock() {
+        if (lockChannel == null) {
+            return;
+        }
+        try {
+            lockChannel.close();
+        } catch (IOException e) {
+            throw new SegmentFileException(format("Cannot release lock on segment directory %s", directory), e);
+        } finally {
+            lockChannel = null;
+        }
+    }
+
+    private List<EventRecord> readPageFrom(final long position, final int pageSize) {
+        final int size = positions.size();
+        final long from = max(position, 1L) - 1;
+        final long to = min(size, from + pageSize);
+        final List<EventRecord> page = new ArrayList<>();
+        for (long index = from; index < to; index++) {
+            page.add(readAt(positions.get((int) index)));
+        }
+        return page;
+    }
+
+    private List<EventRecord> readStreamPageTo(final UUID streamId, final long sequenceIdTo, final int pageSize) {
+        final Locations stream = streams.get(streamId);
+        final List<EventRecord> page = new ArrayList<>();
+        if (stream == null) {
+            return page;
+        }
+        final long to = min(sequenceIdTo, stream.size());
+        final long from = max(to - pageSize, 0L);
+        for (long index = to - 1; index >= from; index--) {
+            page.add(readAt(stream.get((int) index)));
+        }
+        return page;
+    }
+
+    private EventRecord readAt(final long location) {
+        final Segment segment = segments.get((int) (location >>> 32));
+        return EventRecordFormat.recordOf(segment.bodyAt((int) location));
+    }
+
+    private int firstIndexCreatedAtOrAfter(final long dateCreated, final int size) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (dateCreatedAt(positions.get(middle)) < dateCreated) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private long dateCreatedAt(final long location) {
+        final Segment segment = segments.get((int) (location >>> 32));
+        return EventRecordFormat.dateCreatedOf(segment.bodyAt((int) location));
+    }
+
+    private int segmentWithRoomFor(final int batchSize) {
+        final int lastIndex = segments.size() - 1;
+        if (segments.get(lastIndex).hasRoomFor(batchSize + FRAME_HEADER_SIZE)) {
+            return lastIndex;
+        }
+
+        final Segment full = segments.get(lastIndex);
+        full.force();
+        segments.add(Segment.create(Segment.fileOf(directory, lastIndex + 1), max(segmentSize, batchSize + FRAME_HEADER_SIZE)));
+        return lastIndex + 1;
+    }
+
+    private void recover() {
+        final List<Path> files = segmentFiles();
+        if (files.isEmpty()) {
+            segments.add(Segment.create(Segment.fileOf(directory, 0), segmentSize));
+            return;
+        }
+
+        for (int index = 0; index < files.size(); index++) {
+            if (!files.get(index).equals(Segment.fileOf(directory, index))) {
+                throw new SegmentFileException(format("Segment file %s is missing", Segment.fileOf(directory, index)));
+            }
+            final Segment segment = Segment.open(files.get(index));
+            segments.add(segment);
+            recover(segment, index, index == files.size() - 1);
+        }
+    }
+
+    private void recover(final Segment segment, final int segmentIndex, final boolean last) {
+        final List<Long> batch = new ArrayList<>();
+        int batchStart = 0;
+        int offset = 0;
+        UUID batchStreamId = null;
+
+        while (segment.bodyLengthAt(offset) != 0) {
+            if (!segment.isValidFrameAt(offset)) {
+                break;
+            }
+
+            final ByteBuffer body = segment.bodyAt(offset);
+            final UUID streamId = EventRecordFormat.streamIdOf(body);
+            final long expectedPosition = nextPosition() + batch.size();
+            final long expectedSequenceId = currentVersion(streamId) + batch.size() + 1;
+
+            if (EventRecordFormat.positionOf(body) != expectedPosition
+                    || EventRecordFormat.sequenceIdOf(body) != expectedSequenceId
+                    || (batchStreamId != null && !batchStreamId.equals(streamId))) {
+                break;
+            }
+
+            batchStreamId = streamId;
+            batch.add(locationOf(segmentIndex, offset));
+            offset += FRAME_HEADER_SIZE + body.remaining();
+
+            if (EventRecordFormat.isLastInBatch(body)) {
+                final Locations stream = streams.computeIfAbsent(streamId, id -> new Locations());
+                batch.forEach(location -> {
+                    positions.add(location);
+                    stream.add(location);
+                });
+                lastDateCreated = max(lastDateCreated, EventRecordFormat.dateCreatedOf(body));
+                batch.clear();
+                batchStart = offset;
+                batchStreamId = null;
+            }
+        }
+
+        if (segment.bodyLengthAt(batchStart) == 0) {
+            segment.resumeAt(batchStart);
+        } else if (last) {
+            segment.truncateAt(batchStart);
+        } else {
+            throw new SegmentFileException(format("Segment file %s is corrupt at offset %d", segment.getFile(), batchStart));
+        }
+    }
+
+    private List<Path> segmentFiles() {
+        try {
+            Files.createDirectories(directory);
+            try (final Stream<Path> files = Files.list(directory)) {
+                return files
+                        .filter(file -> file.getFileName().toString().endsWith(Segment.SUFFIX))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        } catch (IOException e) {
+            throw new SegmentFileException(format("Cannot list segment files in %s", directory), e);
+        }
+    }
+
+    private static long locationOf(final int segmentIndex, final int offset) {
+        return (long) segmentIndex << 32 | offset;
+    }
+
+    /**
+     * Growable list of event locations, written by a single thread and read by any number of
+     * threads without locking. An entry is always written before the size that makes it visible.
+     */
+    private static class Locations {
+
+        private volatile long[] entries = new long[16];
+        private volatile int size;
+
+        void add(final long location) {
+            long[] current = entries;
+            if (size == current.length) {
+                final long[] grown = new long[current.length * 2];
+                System.arraycopy(current, 0, grown, 0, size);
+                entries = current = grown;
+            }
+            current[size] = location;
+            size = size + 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        long get(final int index) {
+            return entries[index];
+        }
+    }
+
+    /**
+     * Spliterator reading a page of events at a time, starting each page from a key taken from
+     * the last event of the previous page. The next page is only read once the current one has
+     * been consumed, and a page shorter than the page size is the last.
+     */
+    private static class PageSpliterator extends AbstractSpliterator<EventRecord> {
+
+        private final int pageSize;
+        private final LongFunction<List<EventRecord>> pageFrom;
+        private final ToLongFunction<EventRecord> nextKey;
+
+        private long key;
+        private Iterator<EventRecord> page = emptyIterator();
+        private boolean lastPage = false;
+
+        PageSpliterator(final long key,
+                        final int pageSize,
+                        final LongFunction<List<EventRecord>> pageFrom,
+                        final ToLongFunction<EventRecord> nextKey) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.key = key;
+            this.pageSize = pageSize;
+            this.pageFrom = pageFrom;
+            this.nextKey = nextKey;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super EventRecord> consumer) {
+            if (!page.hasNext() && !readNextPage()) {
+                return false;
+            }
+
+            final EventRecord record = page.next();
+            key = nextKey.applyAsLong(record);
+            consumer.accept(record);
+            return true;
+        }
+
+        private boolean readNextPage() {
+            if (lastPage) {
+                return false;
+            }
+
+            final List<EventRecord> records = pageFrom.apply(key);
+            lastPage = records.size() < pageSize;
+            page = records.iterator();
+            return page.hasNext();
+        }
+    }
+}
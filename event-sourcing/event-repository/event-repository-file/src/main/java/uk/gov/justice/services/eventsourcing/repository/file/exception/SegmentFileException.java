@@ -0,0 +1,17 @@
+package uk.gov.justice.services.eventsourcing.repository.file.exception;
+
+/**
+ * Exception thrown when the segment files of the event store cannot be read or written.
+ */
+public class SegmentFileException extends RuntimeException {
+
+    private static final long serialVersionUID = -2164729651838218562L;
+
+    public SegmentFileException(final String message) {
+        super(message);
+    }
+
+    public SegmentFileException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
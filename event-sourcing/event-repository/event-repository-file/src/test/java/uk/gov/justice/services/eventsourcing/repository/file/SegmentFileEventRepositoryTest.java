@@ -0,0 +1,45 @@
+package uk.gov.justice.services.eventsourcing.repository.file;
+
+import static org.mockito.Mockito.mock;
+
+import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.test.utils.eventstore.AbstractEventRepositoryContractTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+import org.slf4j.Logger;
+
+/**
+ * Runs the {@link EventRepository} contract tests against the {@link SegmentFileEventRepository},
+ * with segments small enough for the tests to roll over to new segment files.
+ */
+public class SegmentFileEventRepositoryTest extends AbstractEventRepositoryContractTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private SegmentFileEventRepository segmentFileEventRepository;
+
+    @Before
+    public void openRepository() throws Exception {
+        segmentFileEventRepository = new SegmentFileEventRepository();
+        segmentFileEventRepository.directory = temporaryFolder.newFolder().getPath();
+        segmentFileEventRepository.segmentSize = "1024";
+        segmentFileEventRepository.fsyncPolicy = "PER_BATCH";
+        segmentFileEventRepository.fsyncIntervalMillis = "1000";
+        segmentFileEventRepository.logger = mock(Logger.class);
+        segmentFileEventRepository.open();
+    }
+
+    @After
+    public void closeRepository() {
+        segmentFileEventRepository.close();
+    }
+
+    @Override
+    protected EventRepository eventRepository() {
+        return segmentFileEventRepository;
+    }
+}
@@ -0,0 +1,245 @@
+package uk.gov.justice.services.eventsourcing.repository.file;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.justice.services.eventsourcing.repository.file.FsyncPolicy.PERIODIC;
+import static uk.gov.justice.services.eventsourcing.repository.file.FsyncPolicy.PER_APPEND;
+import static uk.gov.justice.services.eventsourcing.repository.file.FsyncPolicy.PER_BATCH;
+import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithRandomUUID;
+
+import uk.gov.justice.services.eventsourcing.repository.file.exception.InvalidSequenceIdException;
+import uk.gov.justice.services.eventsourcing.repository.file.exception.SegmentFileException;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SegmentedEventLogTest {
+
+    private static final int SEGMENT_SIZE = 1024;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private Path directory;
+
+    @Before
+    public void setup() throws Exception {
+        directory = temporaryFolder.newFolder().toPath();
+    }
+
+    @Test
+    public void shouldRebuildIndexWhenReopened() throws Exception {
+        final UUID streamId = randomUUID();
+        final UUID otherStreamId = randomUUID();
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            eventLog.append(streamId, 1L, asList(event("a"), event("b")));
+            eventLog.append(otherStreamId, 1L, singletonList(event("c")));
+            eventLog.append(streamId, 3L, singletonList(event("d")));
+        }
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            assertThat(eventLog.currentVersion(streamId), is(3L));
+            assertThat(eventLog.currentVersion(otherStreamId), is(1L));
+            assertThat(namesOf(eventLog.readStream(streamId, 2L)), contains("b", "d"));
+            assertThat(namesOf(eventLog.readFrom(1L)), contains("a", "b", "c", "d"));
+            assertThat(eventLog.streamIds(), containsInAnyOrder(streamId, otherStreamId));
+            assertThat(eventLog.nextPosition(), is(5L));
+        }
+    }
+
+    @Test
+    public void shouldRollOverToNewSegmentWhenBatchDoesNotFit() throws Exception {
+        final UUID streamId = randomUUID();
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_APPEND)) {
+            for (long version = 1; version <= 10; version++) {
+                eventLog.append(streamId, version, singletonList(event("event-" + version)));
+            }
+            eventLog.append(streamId, 11L, asList(largeEvent(), largeEvent()));
+
+            assertThat(segmentFiles().size() > 2, is(true));
+            assertThat(eventLog.readStream(streamId, 1L).count(), is(12L));
+        }
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_APPEND)) {
+            assertThat(eventLog.currentVersion(streamId), is(12L));
+            assertThat(namesOf(eventLog.readStream(streamId, 10L)), contains("event-10", "large", "large"));
+        }
+    }
+
+    @Test
+    public void shouldRejectVersionNotFollowingCurrentVersion() throws Exception {
+        final UUID streamId = randomUUID();
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PERIODIC)) {
+            eventLog.append(streamId, 1L, singletonList(event("a")));
+
+            for (final long version : new long[]{1L, 3L}) {
+                try {
+                    eventLog.append(streamId, version, singletonList(event("b")));
+                    throw new AssertionError("Expected InvalidSequenceIdException");
+                } catch (final InvalidSequenceIdException expected) {
+                    assertThat(eventLog.currentVersion(streamId), is(1L));
+                }
+            }
+            eventLog.sync();
+        }
+    }
+
+    @Test
+    public void shouldDiscardPartlyWrittenBatchWhenReopened() throws Exception {
+        final UUID streamId = randomUUID();
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            eventLog.append(streamId, 1L, singletonList(event("a")));
+        }
+        final long endOfFirstBatch = endOfData(segmentFiles().get(0));
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            eventLog.append(streamId, 2L, asList(event("b"), event("c")));
+        }
+        corruptByte(segmentFiles().get(0), endOfData(segmentFiles().get(0)) - 1);
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            assertThat(eventLog.currentVersion(streamId), is(1L));
+            assertThat(endOfData(segmentFiles().get(0)), is(endOfFirstBatch));
+
+            eventLog.append(streamId, 2L, singletonList(event("d")));
+        }
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            assertThat(namesOf(eventLog.readStream(streamId, 1L)), contains("a", "d"));
+        }
+    }
+
+    @Test(expected = SegmentFileException.class)
+    public void shouldFailToOpenIfSegmentOtherThanLastIsCorrupt() throws Exception {
+        final UUID streamId = randomUUID();
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            eventLog.append(streamId, 1L, singletonList(event("a")));
+            eventLog.append(streamId, 2L, singletonList(largeEvent()));
+        }
+        corruptByte(segmentFiles().get(0), 20);
+
+        SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH);
+    }
+
+    @Test
+    public void shouldReadEventsAppendedWhileReadingFromPositionInPages() throws Exception {
+        final UUID streamId = randomUUID();
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            eventLog.append(streamId, 1L, asList(event("a"), event("b"), event("c")));
+
+            final Iterator<EventRecord> records = eventLog.readFrom(2L, 2).iterator();
+            assertThat(records.next().getName(), is("b"));
+
+            eventLog.append(streamId, 4L, asList(event("d"), event("e")));
+
+            final List<String> names = new ArrayList<>();
+            records.forEachRemaining(record -> names.add(record.getName()));
+            assertThat(names, contains("c", "d", "e"));
+        }
+    }
+
+    @Test
+    public void shouldReadStreamInReverseInPagesFromVersionWhenReadingStarted() throws Exception {
+        final UUID streamId = randomUUID();
+
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            eventLog.append(streamId, 1L, asList(event("a"), event("b"), event("c")));
+
+            final Iterator<EventRecord> records = eventLog.readStreamInReverse(streamId, 2).iterator();
+            assertThat(records.next().getName(), is("c"));
+
+            eventLog.append(streamId, 4L, singletonList(event("d")));
+
+            final List<String> names = new ArrayList<>();
+            records.forEachRemaining(record -> names.add(record.getName()));
+            assertThat(names, contains("b", "a"));
+            assertThat(namesOf(eventLog.readStreamInReverse(randomUUID(), 2)), is(empty()));
+        }
+    }
+
+    @Test
+    public void shouldNotOpenDirectoryThatIsAlreadyOpen() throws Exception {
+        try (final SegmentedEventLog eventLog = SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH)) {
+            try {
+                SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH);
+                throw new AssertionError("Expected SegmentFileException");
+            } catch (final SegmentFileException expected) {
+                assertThat(eventLog.nextPosition(), is(1L));
+            }
+        }
+
+        SegmentedEventLog.open(directory, SEGMENT_SIZE, PER_BATCH).close();
+    }
+
+    private List<String> namesOf(final Stream<EventRecord> records) {
+        return records.map(EventRecord::getName).collect(toList());
+    }
+
+    private List<Path> segmentFiles() throws Exception {
+        try (final Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().endsWith(Segment.SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private long endOfData(final Path file) throws Exception {
+        final byte[] bytes = Files.readAllBytes(file);
+        int end = bytes.length;
+        while (end > 0 && bytes[end - 1] == 0) {
+            end--;
+        }
+        return end;
+    }
+
+    private void corruptByte(final Path file, final long offset) throws Exception {
+        try (final RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw")) {
+            randomAccessFile.seek(offset);
+            final int value = randomAccessFile.read();
+            randomAccessFile.seek(offset);
+            randomAccessFile.write(value ^ 0xFF);
+        }
+    }
+
+    private JsonEnvelope event(final String name) {
+        return envelope()
+                .with(metadataWithRandomUUID(name))
+                .withPayloadOf("value", "field")
+                .build();
+    }
+
+    private JsonEnvelope largeEvent() {
+        return envelope()
+                .with(metadataWithRandomUUID("large"))
+                .withPayloadOf(new String(new char[SEGMENT_SIZE]).replace('\0', 'x'), "field")
+                .build();
+    }
+}
@@ -0,0 +1,99 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc;
+
+import static java.lang.Math.max;
+import static java.time.temporal.ChronoUnit.MILLIS;
+import static java.util.Collections.emptyIterator;
+
+import uk.gov.justice.services.common.util.Clock;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEnvelope;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator reading the event log in key-set pages ordered by global position. The next page is
+ * only queried once the current one has been consumed, and starts after the position of the last
+ * event returned, so at most one page of events is held in memory at a time.
+ *
+ * Positions are taken in insert order but become visible in commit order, so a missing position
+ * may belong to a transaction that is still in flight. The read stops before a missing position
+ * unless the event following it was created more than the gap timeout ago, by which time the
+ * transaction holding the missing position must have committed or rolled back. Resuming from the
+ * position after the last event returned therefore never skips an event committed later.
+ */
+public class EventLogPageSpliterator extends AbstractSpliterator<PositionedEnvelope> {
+
+    static final long FIRST_POSITION = 1L;
+
+    private final EventLogJdbcRepository eventLogJdbcRepository;
+    private final EventLogConverter eventLogConverter;
+    private final int pageSize;
+    private final Clock clock;
+    private final long gapTimeoutMillis;
+
+    private long nextPosition;
+    private Iterator<EventLog> page = emptyIterator();
+    private boolean lastPage = false;
+
+    public EventLogPageSpliterator(final EventLogJdbcRepository eventLogJdbcRepository,
+                                   final EventLogConverter eventLogConverter,
+                                   final long position,
+                                   final int pageSize,
+                                   final Clock clock,
+                                   final long gapTimeoutMillis) {
+        super(Long.MAX_VALUE, ORDERED | NONNULL);
+        this.eventLogJdbcRepository = eventLogJdbcRepository;
+        this.eventLogConverter = eventLogConverter;
+        this.nextPosition = max(position, FIRST_POSITION);
+        this.pageSize = pageSize;
+        this.clock = clock;
+        this.gapTimeoutMillis = gapTimeoutMillis;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super PositionedEnvelope> consumer) {
+        if (!page.hasNext() && !readNextPage()) {
+            return false;
+        }
+
+        final EventLog eventLog = page.next();
+        nextPosition = eventLog.getPosition() + 1;
+        consumer.accept(new PositionedEnvelope(eventLog.getPosition(), eventLogConverter.createEnvelope(eventLog)));
+        return true;
+    }
+
+    private boolean readNextPage() {
+        if (lastPage) {
+            return false;
+        }
+
+        final List<EventLog> eventLogs = eventLogJdbcRepository.findFromPositionOrderByPositionAsc(nextPosition, pageSize);
+        lastPage = eventLogs.size() < pageSize;
+
+        final List<EventLog> contiguous = new ArrayList<>(eventLogs.size());
+        long expectedPosition = nextPosition;
+        for (final EventLog eventLog : eventLogs) {
+            if (eventLog.getPosition() != expectedPosition && !gapSettledBy(eventLog)) {
+                lastPage = true;
+                break;
+            }
+            contiguous.add(eventLog);
+            expectedPosition = eventLog.getPosition() + 1;
+        }
+
+        page = contiguous.iterator();
+        return page.hasNext();
+    }
+
+    private boolean gapSettledBy(final EventLog eventAfterGap) {
+        final ZonedDateTime dateCreated = eventAfterGap.getDateCreated();
+        return dateCreated == null || dateCreated.isBefore(clock.now().minus(gapTimeoutMillis, MILLIS));
+    }
+}
@@ -0,0 +1,66 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc;
+
+import static java.util.Collections.emptyIterator;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator reading the events of a stream newest first, in key-set pages ordered by sequence id
+ * descending. The next page is only queried once the current one has been consumed, and starts
+ * before the sequence id of the last event returned, so a consumer that only needs the latest
+ * events of a stream reads a single page.
+ */
+public class EventLogReversePageSpliterator extends AbstractSpliterator<JsonEnvelope> {
+
+    private final EventLogJdbcRepository eventLogJdbcRepository;
+    private final EventLogConverter eventLogConverter;
+    private final UUID streamId;
+    private final int pageSize;
+
+    private long sequenceIdTo = Long.MAX_VALUE;
+    private Iterator<EventLog> page = emptyIterator();
+    private boolean lastPage = false;
+
+    public EventLogReversePageSpliterator(final EventLogJdbcRepository eventLogJdbcRepository,
+                                          final EventLogConverter eventLogConverter,
+                                          final UUID streamId,
+                                          final int pageSize) {
+        super(Long.MAX_VALUE, ORDERED | NONNULL);
+        this.eventLogJdbcRepository = eventLogJdbcRepository;
+        this.eventLogConverter = eventLogConverter;
+        this.streamId = streamId;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super JsonEnvelope> consumer) {
+        if (!page.hasNext() && !readNextPage()) {
+            return false;
+        }
+
+        final EventLog eventLog = page.next();
+        sequenceIdTo = eventLog.getSequenceId();
+        consumer.accept(eventLogConverter.createEnvelope(eventLog));
+        return true;
+    }
+
+    private boolean readNextPage() {
+        if (lastPage) {
+            return false;
+        }
+
+        final List<EventLog> eventLogs = eventLogJdbcRepository.findByStreamIdBeforeSequenceIdOrderBySequenceIdDesc(streamId, sequenceIdTo, pageSize);
+        lastPage = eventLogs.size() < pageSize;
+        page = eventLogs.iterator();
+        return page.hasNext();
+    }
+}
@@ -0,0 +1,62 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc;
+
+import static java.util.Collections.emptyIterator;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+
+import java.time.ZonedDateTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator reading the events created in a time range in key-set pages ordered by date created
+ * and then position. The next page is only queried once the current one has been consumed, and
+ * starts after the last event returned, so at most one page of events is held in memory at a time.
+ */
+public class EventLogTimeRangeSpliterator extends AbstractSpliterator<EventLog> {
+
+    private final EventLogJdbcRepository eventLogJdbcRepository;
+    private final ZonedDateTime from;
+    private final ZonedDateTime to;
+    private final int pageSize;
+
+    private EventLog lastEventLog;
+    private Iterator<EventLog> page = emptyIterator();
+    private boolean lastPage = false;
+
+    public EventLogTimeRangeSpliterator(final EventLogJdbcRepository eventLogJdbcRepository,
+                                        final ZonedDateTime from,
+                                        final ZonedDateTime to,
+                                        final int pageSize) {
+        super(Long.MAX_VALUE, ORDERED | NONNULL);
+        this.eventLogJdbcRepository = eventLogJdbcRepository;
+        this.from = from;
+        this.to = to;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super EventLog> consumer) {
+        if (!page.hasNext() && !readNextPage()) {
+            return false;
+        }
+
+        lastEventLog = page.next();
+        consumer.accept(lastEventLog);
+        return true;
+    }
+
+    private boolean readNextPage() {
+        if (lastPage) {
+            return false;
+        }
+
+        final List<EventLog> eventLogs = eventLogJdbcRepository.findInTimeRangeOrderByDateCreatedAsc(from, to, lastEventLog, pageSize);
+        lastPage = eventLogs.size() < pageSize;
+        page = eventLogs.iterator();
+        return page.hasNext();
+    }
+}
@@ -0,0 +1,44 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc;
+
+import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
+import javax.enterprise.inject.Produces;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Produces the {@link EventRepository} of the event store, chosen by configuration so that every
+ * archive of the application uses the same one: the {@link ShardedEventRepository} when
+ * <code>eventstore.shards</code> is set above one, otherwise the {@link JdbcEventRepository}.
+ *
+ * An alternative <code>EventRepository</code> enabled in a beans.xml still replaces the produced
+ * repository in that archive.
+ */
+@ApplicationScoped
+public class EventRepositoryProducer {
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    EventStoreShards eventStoreShards;
+
+    @Inject
+    Instance<JdbcEventRepository> jdbcEventRepository;
+
+    @Inject
+    Instance<ShardedEventRepository> shardedEventRepository;
+
+    @Produces
+    public EventRepository eventRepository() {
+        if (eventStoreShards.count() > 1) {
+            logger.info("Using event store split into {} shards", eventStoreShards.count());
+            return shardedEventRepository.get();
+        }
+        return jdbcEventRepository.get();
+    }
+}
@@ -1,27 +1,54 @@
 package uk.gov.justice.services.eventsourcing.repository.jdbc;
 
+import static java.lang.Long.parseLong;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.common.util.Clock;
 import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEnvelope;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEventRepository;
 import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StreamVersionConflictException;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.ConcurrentStreamUpdateException;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.InvalidSequenceIdException;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.InvalidStreamIdException;
 import uk.gov.justice.services.jdbc.persistence.JdbcRepositoryException;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import javax.enterprise.inject.Typed;
 import javax.inject.Inject;
 import javax.transaction.Transactional;
 
 import org.slf4j.Logger;
 
 /**
- * JDBC implementation of {@link EventRepository}
+ * JDBC implementation of {@link EventRepository}. It is injected as an <code>EventRepository</code>
+ * through the {@link EventRepositoryProducer}, unless the event store is split into shards.
+ *
+ * Reads from a position wait for a missing position to be filled until the event after it is older
+ * than <code>eventstore.positionGapTimeoutMillis</code>, see {@link EventLogPageSpliterator}, which
+ * must be longer than any transaction appending events.
  */
-public class JdbcEventRepository implements EventRepository {
+@Typed({JdbcEventRepository.class, PositionedEventRepository.class})
+public class JdbcEventRepository implements PositionedEventRepository {
+
+    static final int TIME_RANGE_PAGE_SIZE = 500;
 
     @Inject
     Logger logger;
@@ -32,6 +59,13 @@ public class JdbcEventRepository implements EventRepository {
     @Inject
     EventLogJdbcRepository eventLogJdbcRepository;
 
+    @Inject
+    Clock clock;
+
+    @Inject
+    @Value(key = "eventstore.positionGapTimeoutMillis", defaultValue = "300000")
+    String positionGapTimeoutMillis;
+
     @Override
     public Stream<JsonEnvelope> getByStreamId(final UUID streamId) {
         if (streamId == null) {
@@ -57,6 +91,46 @@ public class JdbcEventRepository implements EventRepository {
 
     }
 
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdInReverse(final UUID streamId, final int pageSize) {
+        if (streamId == null) {
+            throw new InvalidStreamIdException("streamId is null.");
+        } else if (pageSize < 1) {
+            throw new JdbcRepositoryException(String.format("pageSize must be positive, was %d.", pageSize));
+        }
+
+        logger.trace("Retrieving event stream for {} in reverse in pages of {}", streamId, pageSize);
+        return StreamSupport.stream(new EventLogReversePageSpliterator(eventLogJdbcRepository, eventLogConverter, streamId, pageSize), false);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndNames(final UUID streamId, final Set<String> names) {
+        if (streamId == null) {
+            throw new InvalidStreamIdException("streamId is null.");
+        } else if (names == null) {
+            throw new JdbcRepositoryException("names is null.");
+        }
+
+        logger.trace("Retrieving events {} of event stream for {}", names, streamId);
+        return eventLogJdbcRepository.findByStreamIdAndNamesOrderBySequenceIdAsc(streamId, names)
+                .map(eventLogConverter::createEnvelope);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndSequenceIdAndNames(final UUID streamId, final Long sequenceId, final Set<String> names) {
+        if (streamId == null) {
+            throw new InvalidStreamIdException("streamId is null.");
+        } else if (sequenceId == null) {
+            throw new JdbcRepositoryException("sequenceId is null.");
+        } else if (names == null) {
+            throw new JdbcRepositoryException("names is null.");
+        }
+
+        logger.trace("Retrieving events {} of event stream for {} at sequence {}", names, streamId, sequenceId);
+        return eventLogJdbcRepository.findByStreamIdFromSequenceIdAndNamesOrderBySequenceIdAsc(streamId, sequenceId, names)
+                .map(eventLogConverter::createEnvelope);
+    }
+
     @Override
     public Stream<JsonEnvelope> getAll() {
         logger.trace("Retrieving all events");
@@ -64,6 +138,30 @@ public class JdbcEventRepository implements EventRepository {
                 .map(eventLogConverter::createEnvelope);
     }
 
+    @Override
+    public Stream<PositionedEnvelope> readAllFrom(final long position, final int pageSize) {
+        if (pageSize < 1) {
+            throw new JdbcRepositoryException(String.format("pageSize must be positive, was %d.", pageSize));
+        }
+
+        logger.trace("Retrieving all events from position {} in pages of {}", position, pageSize);
+        return StreamSupport.stream(new EventLogPageSpliterator(eventLogJdbcRepository, eventLogConverter, position, pageSize,
+                clock, parseLong(positionGapTimeoutMillis)), false);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByTimeRange(final ZonedDateTime from, final ZonedDateTime to) {
+        if (from == null) {
+            throw new JdbcRepositoryException("from is null.");
+        } else if (to == null) {
+            throw new JdbcRepositoryException("to is null.");
+        }
+
+        logger.trace("Retrieving events created from {} to {}", from, to);
+        return StreamSupport.stream(new EventLogTimeRangeSpliterator(eventLogJdbcRepository, from, to, TIME_RANGE_PAGE_SIZE), false)
+                .map(eventLogConverter::createEnvelope);
+    }
+
     @Override
     @Transactional
     public void store(final JsonEnvelope envelope, final UUID streamId, final Long version) throws StoreEventRequestFailedException {
@@ -71,27 +169,74 @@ public class JdbcEventRepository implements EventRepository {
             final EventLog eventLog = eventLogConverter.createEventLog(envelope, streamId, version);
             logger.trace("Storing event {} into stream {} at version {}", eventLog.getName(), streamId, version);
             eventLogJdbcRepository.insert(eventLog);
+        } catch (ConcurrentStreamUpdateException ex) {
+            throw new StreamVersionConflictException(String.format("Could not store event for version %d of stream %s",
+                    version, streamId), ex);
         } catch (InvalidSequenceIdException ex) {
             throw new StoreEventRequestFailedException(String.format("Could not store event for version %d of stream %s",
                     envelope.metadata().version().orElse(null), envelope.metadata().streamId().orElse(null)), ex);
         }
     }
 
+    @Override
+    @Transactional
+    public void storeAll(final List<JsonEnvelope> envelopes, final UUID streamId, final Long firstVersion) throws StoreEventRequestFailedException {
+        if (firstVersion == null) {
+            throw new StoreEventRequestFailedException(String.format("Could not store events for stream %s", streamId),
+                    new InvalidSequenceIdException(String.format("Version is null for stream %s", streamId)));
+        }
+
+        final List<EventLog> eventLogs = new ArrayList<>(envelopes.size());
+        long version = firstVersion;
+        for (final JsonEnvelope envelope : envelopes) {
+            eventLogs.add(eventLogConverter.createEventLog(envelope, streamId, version++));
+        }
+
+        try {
+            logger.trace("Storing {} events into stream {} from version {}", eventLogs.size(), streamId, firstVersion);
+            eventLogJdbcRepository.insertBatch(eventLogs);
+        } catch (ConcurrentStreamUpdateException ex) {
+            throw new StreamVersionConflictException(String.format("Could not store events from version %d of stream %s",
+                    firstVersion, streamId), ex);
+        } catch (InvalidSequenceIdException ex) {
+            throw new StoreEventRequestFailedException(String.format("Could not store events from version %d of stream %s",
+                    firstVersion, streamId), ex);
+        }
+    }
+
     @Override
     public Long getCurrentSequenceIdForStream(final UUID streamId) {
         return eventLogJdbcRepository.getLatestSequenceIdForStream(streamId);
     }
 
+    @Override
+    public Map<UUID, Long> getCurrentSequenceIdsForStreams(final Collection<UUID> streamIds) {
+        logger.trace("Retrieving current sequence ids for {} streams", streamIds.size());
+        return eventLogJdbcRepository.getLatestSequenceIdsForStreams(streamIds);
+    }
+
     @Override
     public Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreams() {
-        final Stream<UUID> streamIds = eventLogJdbcRepository.getStreamIds();
-        final Stream<Stream<JsonEnvelope>> streamOfStreams = streamIds
+        final Queue<Stream<EventLog>> eventStreams = new ConcurrentLinkedQueue<>();
+        return eventLogJdbcRepository.getStreamIds()
                 .map(id -> {
                     final Stream<EventLog> eventStream = eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(id);
-                    streamIds.onClose(() -> eventStream.close());
+                    eventStreams.add(eventStream);
                     return eventStream.map(eventLogConverter::createEnvelope);
-                });
-        return streamOfStreams;
+                })
+                .onClose(() -> eventStreams.forEach(Stream::close));
+    }
 
+    @Override
+    public Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreamsOneAtATime() {
+        final AtomicReference<Stream<EventLog>> currentEventStream = new AtomicReference<>(Stream.empty());
+        return eventLogJdbcRepository.getStreamIds()
+                .map(id -> {
+                    currentEventStream.get().close();
+                    final Stream<EventLog> eventStream = eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(id);
+                    currentEventStream.set(eventStream);
+                    return eventStream.map(eventLogConverter::createEnvelope);
+                })
+                .onClose(() -> currentEventStream.get().close());
     }
 }
@@ -0,0 +1,274 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc;
+
+import static java.lang.String.format;
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.common.util.Clock;
+import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEnvelope;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.InvalidStreamIdException;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.ShardConcatSpliterator;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.ShardMergeSpliterator;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.ShardPositionedEnvelope;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.ShardPositions;
+import uk.gov.justice.services.jdbc.persistence.JdbcRepositoryException;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Typed;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+
+import org.slf4j.Logger;
+
+/**
+ * JDBC implementation of {@link EventRepository} spreading event streams over the shards of the
+ * event store, each in its own database, to scale appends beyond a single database.
+ *
+ * Reads and appends of a single stream go to the shard holding the stream, see
+ * {@link EventStoreShards}. Reads of all events merge the events of every shard, interleaving the
+ * shards by the time events were created while keeping the order of each shard.
+ *
+ * There is no global position across the shards, so the repository is not a
+ * <code>PositionedEventRepository</code>. Readers keeping a checkpoint use
+ * {@link #readAllFrom(ShardPositions, int)} instead, which resumes from the position read up to in
+ * every shard.
+ *
+ * The repository is the {@link EventRepository} of every archive when <code>eventstore.shards</code>
+ * is set above one, see {@link EventRepositoryProducer}. Appending to streams in different shards
+ * in one transaction requires XA datasources.
+ */
+@ApplicationScoped
+@Typed(ShardedEventRepository.class)
+public class ShardedEventRepository implements EventRepository {
+
+    private static final Comparator<EventLog> DATE_CREATED_ORDER = comparing(EventLog::getDateCreated, nullsFirst(naturalOrder()));
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    EventLogConverter eventLogConverter;
+
+    @Inject
+    EventStoreShards eventStoreShards;
+
+    @Inject
+    Clock clock;
+
+    @Inject
+    @Value(key = "eventstore.positionGapTimeoutMillis", defaultValue = "300000")
+    String positionGapTimeoutMillis;
+
+    private List<JdbcEventRepository> shards;
+
+    @PostConstruct
+    void initialise() {
+        shards = eventStoreShards.repositories().stream()
+                .map(this::jdbcEventRepositoryOf)
+                .collect(toList());
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getAll() {
+        logger.trace("Retrieving all events from {} shards", shards.size());
+        return mergeShards(index -> shards.get(index).eventLogJdbcRepository.findAll(), DATE_CREATED_ORDER)
+                .map(eventLogConverter::createEnvelope);
+    }
+
+    /**
+     * Get a stream of envelopes from the given position of every shard onwards. Each shard is read
+     * in pages of <code>pageSize</code> events, see <code>PositionedEventRepository.readAllFrom</code>,
+     * and the shards are interleaved by the position of their events while keeping the order of
+     * each shard. Every envelope carries the positions to resume from once it has been processed,
+     * so events committed to any shard after a checkpoint was taken are read when resuming from it.
+     *
+     * @param positions the positions to read each shard from (inclusive)
+     * @param pageSize  the number of events to read per query of a shard
+     * @return the stream of envelopes with their shard positions. Never returns null.
+     */
+    public Stream<ShardPositionedEnvelope> readAllFrom(final ShardPositions positions, final int pageSize) {
+        if (pageSize < 1) {
+            throw new JdbcRepositoryException(format("pageSize must be positive, was %d.", pageSize));
+        } else if (positions.shardCount() != shards.size()) {
+            throw new JdbcRepositoryException(format("Positions of %d shards cannot be read from %d shards.", positions.shardCount(), shards.size()));
+        }
+
+        logger.trace("Retrieving all events from positions {} of {} shards in pages of {}", positions, shards.size(), pageSize);
+        final AtomicReference<ShardPositions> resumePositions = new AtomicReference<>(positions);
+        return mergeShards(index -> shards.get(index)
+                        .readAllFrom(positions.of(index), pageSize)
+                        .map(envelope -> new ShardEnvelope(index, envelope)),
+                comparingLong(ShardEnvelope::position))
+                .map(read -> new ShardPositionedEnvelope(read.shard, read.position(), read.envelope.getEnvelope(),
+                        resumePositions.updateAndGet(resume -> resume.after(read.shard, read.position()))));
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByTimeRange(final ZonedDateTime from, final ZonedDateTime to) {
+        if (from == null) {
+            throw new JdbcRepositoryException("from is null.");
+        } else if (to == null) {
+            throw new JdbcRepositoryException("to is null.");
+        }
+
+        logger.trace("Retrieving events created from {} to {} from {} shards", from, to, shards.size());
+        return mergeShards(index -> StreamSupport.stream(new EventLogTimeRangeSpliterator(
+                        shards.get(index).eventLogJdbcRepository, from, to, JdbcEventRepository.TIME_RANGE_PAGE_SIZE), false),
+                DATE_CREATED_ORDER)
+                .map(eventLogConverter::createEnvelope);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamId(final UUID streamId) {
+        return shardOf(streamId).getByStreamId(streamId);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndSequenceId(final UUID streamId, final Long sequenceId) {
+        return shardOf(streamId).getByStreamIdAndSequenceId(streamId, sequenceId);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdInReverse(final UUID streamId, final int pageSize) {
+        return shardOf(streamId).getByStreamIdInReverse(streamId, pageSize);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndNames(final UUID streamId, final Set<String> names) {
+        return shardOf(streamId).getByStreamIdAndNames(streamId, names);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndSequenceIdAndNames(final UUID streamId, final Long sequenceId, final Set<String> names) {
+        return shardOf(streamId).getByStreamIdAndSequenceIdAndNames(streamId, sequenceId, names);
+    }
+
+    @Override
+    @Transactional
+    public void store(final JsonEnvelope envelope, final UUID streamId, final Long version) throws StoreEventRequestFailedException {
+        shardOf(streamId).store(envelope, streamId, version);
+    }
+
+    @Override
+    @Transactional
+    public void storeAll(final List<JsonEnvelope> envelopes, final UUID streamId, final Long firstVersion) throws StoreEventRequestFailedException {
+        shardOf(streamId).storeAll(envelopes, streamId, firstVersion);
+    }
+
+    @Override
+    public Long getCurrentSequenceIdForStream(final UUID streamId) {
+        return shardOf(streamId).getCurrentSequenceIdForStream(streamId);
+    }
+
+    @Override
+    public Map<UUID, Long> getCurrentSequenceIdsForStreams(final Collection<UUID> streamIds) {
+        logger.trace("Retrieving current sequence ids for {} streams", streamIds.size());
+        final Map<UUID, Long> sequenceIds = new HashMap<>();
+        streamIds.stream()
+                .collect(groupingBy(eventStoreShards::shardOf))
+                .forEach((shard, shardStreamIds) -> sequenceIds.putAll(shards.get(shard).getCurrentSequenceIdsForStreams(shardStreamIds)));
+        return sequenceIds;
+    }
+
+    /**
+     * Returns the streams of every shard in turn. The streams of a shard are only read once the
+     * streams of the shards before it have been read, and every nested stream is closed when the
+     * returned stream is closed.
+     *
+     * @return the stream of envelope streams
+     */
+    @Override
+    public Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreams() {
+        final Queue<Stream<Stream<JsonEnvelope>>> shardStreams = new ConcurrentLinkedQueue<>();
+        return ShardConcatSpliterator.concat(shards.stream()
+                .<Supplier<Stream<Stream<JsonEnvelope>>>>map(shard -> () -> {
+                    final Stream<Stream<JsonEnvelope>> shardStream = shard.getStreamOfAllEventStreams();
+                    shardStreams.add(shardStream);
+                    return StreamSupport.stream(shardStream.spliterator(), false);
+                })
+                .collect(toList()))
+                .onClose(() -> shardStreams.forEach(Stream::close));
+    }
+
+    /**
+     * Returns the streams of every shard in turn. The streams of a shard are only read once the
+     * streams of the shards before it have been read, so at most one nested stream is open at a
+     * time.
+     *
+     * @return the stream of envelope streams
+     */
+    @Override
+    public Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreamsOneAtATime() {
+        return ShardConcatSpliterator.concat(shards.stream()
+                .<Supplier<Stream<Stream<JsonEnvelope>>>>map(shard -> shard::getStreamOfAllEventStreamsOneAtATime)
+                .collect(toList()));
+    }
+
+    private JdbcEventRepository shardOf(final UUID streamId) {
+        if (streamId == null) {
+            throw new InvalidStreamIdException("streamId is null.");
+        }
+        return shards.get(eventStoreShards.shardOf(streamId));
+    }
+
+    private <T> Stream<T> mergeShards(final IntFunction<Stream<T>> shardStream, final Comparator<? super T> order) {
+        return ShardMergeSpliterator.merge(IntStream.range(0, shards.size())
+                .mapToObj(shardStream)
+                .collect(toList()), order);
+    }
+
+    private JdbcEventRepository jdbcEventRepositoryOf(final EventLogJdbcRepository eventLogJdbcRepository) {
+        final JdbcEventRepository jdbcEventRepository = new JdbcEventRepository();
+        jdbcEventRepository.logger = logger;
+        jdbcEventRepository.eventLogConverter = eventLogConverter;
+        jdbcEventRepository.eventLogJdbcRepository = eventLogJdbcRepository;
+        jdbcEventRepository.clock = clock;
+        jdbcEventRepository.positionGapTimeoutMillis = positionGapTimeoutMillis;
+        return jdbcEventRepository;
+    }
+
+    private static class ShardEnvelope {
+
+        private final int shard;
+        private final PositionedEnvelope envelope;
+
+        private ShardEnvelope(final int shard, final PositionedEnvelope envelope) {
+            this.shard = shard;
+            this.envelope = envelope;
+        }
+
+        private long position() {
+            return envelope.getPosition();
+        }
+    }
+}
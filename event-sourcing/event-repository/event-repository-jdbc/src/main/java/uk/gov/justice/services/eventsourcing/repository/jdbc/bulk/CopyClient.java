@@ -0,0 +1,33 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs COPY commands over a database connection.
+ */
+public interface CopyClient {
+
+    /**
+     * Run a <code>COPY ... TO STDOUT</code> command, writing its output to the given stream.
+     *
+     * @param connection the connection to run the command on
+     * @param sql        the command
+     * @param to         the stream to write to
+     * @return the number of rows copied
+     */
+    long copyOut(final Connection connection, final String sql, final OutputStream to) throws SQLException, IOException;
+
+    /**
+     * Run a <code>COPY ... FROM STDIN</code> command, reading its input from the given stream.
+     *
+     * @param connection the connection to run the command on
+     * @param sql        the command
+     * @param from       the stream to read from
+     * @return the number of rows copied
+     */
+    long copyIn(final Connection connection, final String sql, final InputStream from) throws SQLException, IOException;
+}
@@ -0,0 +1,144 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.bulk;
+
+import static java.lang.String.format;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.EventLogBulkTransferException;
+import uk.gov.justice.services.jdbc.persistence.AbstractJdbcRepository;
+import uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.naming.NamingException;
+import javax.transaction.Transactional;
+
+import org.slf4j.Logger;
+
+/**
+ * Exports the whole event log to, and imports it from, gzip compressed files using the PostgreSQL
+ * COPY protocol in binary format, for moving large event stores between environments.
+ *
+ * Rows are streamed between the database and the file, so memory use does not depend on the size
+ * of the event log. Exported rows are ordered by stream and version, which lets the import check
+ * that the events of each stream are contiguous from version 1 as they are copied in.
+ *
+ * An import runs in a single transaction. Once the rows are copied in, the <code>stream</code>
+ * table is rebuilt from the event log and the position sequence is moved past the imported
+ * positions. Imported streams must not already exist in the event log.
+ */
+@ApplicationScoped
+public class EventLogBulkJdbcRepository extends AbstractJdbcRepository<Long> {
+
+    static final String COLUMNS = "id, stream_id, sequence_id, name, metadata, payload, date_created, position, "
+            + "codec, metadata_bytes, payload_bytes, metadata_jsonb, payload_jsonb";
+    static final int COLUMN_COUNT = 13;
+    static final int STREAM_ID_COLUMN = 1;
+    static final int SEQUENCE_ID_COLUMN = 2;
+
+    static final String SQL_COPY_OUT = "COPY (SELECT " + COLUMNS + " FROM event_log ORDER BY stream_id, sequence_id) TO STDOUT WITH (FORMAT binary)";
+    static final String SQL_COPY_IN = "COPY event_log (" + COLUMNS + ") FROM STDIN WITH (FORMAT binary)";
+    static final String SQL_DELETE_STREAMS = "DELETE FROM stream";
+    static final String SQL_REBUILD_STREAMS = "INSERT INTO stream (stream_id, version) SELECT stream_id, MAX(sequence_id) FROM event_log GROUP BY stream_id";
+    static final String SQL_RESET_POSITION_SEQUENCE = "SELECT setval(pg_get_serial_sequence('event_log', 'position'), COALESCE(MAX(position), 0) + 1, false) FROM event_log";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final String JNDI_DS_EVENT_STORE_PATTERN = "java:/app/%s/DS.eventstore";
+
+    @Inject
+    Logger logger;
+
+    CopyClient copyClient = new PostgresCopyClient();
+
+    /**
+     * Export all events to a gzip compressed file, ordered by stream and version.
+     *
+     * @param file the file to write, replaced if it exists
+     * @return the number of events exported
+     * @throws EventLogBulkTransferException if the events cannot be exported
+     */
+    public long exportTo(final Path file) {
+        logger.info("Exporting event log to {}", file);
+
+        try (final Connection connection = getDataSource().getConnection();
+             final OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file), BUFFER_SIZE), BUFFER_SIZE)) {
+            final long rows = copyClient.copyOut(connection, SQL_COPY_OUT, out);
+            logger.info("Exported {} events to {}", rows, file);
+            return rows;
+        } catch (SQLException | IOException e) {
+            throw new EventLogBulkTransferException(format("Failed to export event log to %s", file), e);
+        }
+    }
+
+    /**
+     * Import the events in a gzip compressed file written by {@link #exportTo(Path)}, then rebuild
+     * the stream table and position sequence.
+     *
+     * @param file the file to read
+     * @return the number of events imported
+     * @throws EventLogBulkTransferException if the file is invalid, the events of a stream are not
+     *                                       contiguous from version 1, or an imported event
+     *                                       already exists
+     */
+    @Transactional
+    public long importFrom(final Path file) {
+        logger.info("Importing event log from {}", file);
+
+        final long rows;
+        try (final Connection connection = getDataSource().getConnection();
+             final ValidatingCopyInputStream in = new ValidatingCopyInputStream(
+                     new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE), BUFFER_SIZE),
+                     COLUMN_COUNT, STREAM_ID_COLUMN, SEQUENCE_ID_COLUMN)) {
+            rows = copyClient.copyIn(connection, SQL_COPY_IN, in);
+            logger.info("Imported {} events of {} streams from {}", rows, in.getStreams(), file);
+        } catch (SQLException | IOException e) {
+            throw new EventLogBulkTransferException(format("Failed to import event log from %s", file), e);
+        }
+
+        rebuildDerivedTables();
+        return rows;
+    }
+
+    private void rebuildDerivedTables() {
+        logger.info("Rebuilding stream table and position sequence");
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_DELETE_STREAMS)) {
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new EventLogBulkTransferException("Failed to clear stream table", e);
+        }
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_REBUILD_STREAMS)) {
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new EventLogBulkTransferException("Failed to rebuild stream table", e);
+        }
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_RESET_POSITION_SEQUENCE)) {
+            ps.executeQuery();
+        } catch (SQLException e) {
+            throw new EventLogBulkTransferException("Failed to reset position sequence", e);
+        }
+    }
+
+    @Override
+    protected Long entityFrom(final ResultSet resultSet) throws SQLException {
+        return resultSet.getLong(1);
+    }
+
+    @Override
+    protected String jndiName() throws NamingException {
+        return format(JNDI_DS_EVENT_STORE_PATTERN, warFileName());
+    }
+}
@@ -0,0 +1,26 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.postgresql.PGConnection;
+
+/**
+ * Runs COPY commands through the copy API of the PostgreSQL JDBC driver, unwrapping the driver
+ * connection from the pooled connection of the data source.
+ */
+public class PostgresCopyClient implements CopyClient {
+
+    @Override
+    public long copyOut(final Connection connection, final String sql, final OutputStream to) throws SQLException, IOException {
+        return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, to);
+    }
+
+    @Override
+    public long copyIn(final Connection connection, final String sql, final InputStream from) throws SQLException, IOException {
+        return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(sql, from);
+    }
+}
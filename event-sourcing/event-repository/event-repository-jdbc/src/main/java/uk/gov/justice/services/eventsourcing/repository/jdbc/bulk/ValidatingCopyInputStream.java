@@ -0,0 +1,249 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.bulk;
+
+import static java.lang.String.format;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Passes event log rows in the PostgreSQL binary COPY format through unchanged, checking as they
+ * pass that the events of each stream are contiguous and start at version 1.
+ *
+ * The rows of each stream must be adjacent and in sequence id order, as written by
+ * {@link EventLogBulkJdbcRepository#exportTo}, so only the previous row needs to be held and memory
+ * use does not grow with the number of events or streams. A stream split across the file is
+ * rejected, as its second run does not start at version 1. A row that breaks the sequence fails
+ * the read with an {@link IOException}, aborting the COPY command reading from the stream.
+ */
+class ValidatingCopyInputStream extends FilterInputStream {
+
+    static final byte[] SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+
+    private static final int HEADER_SIZE = SIGNATURE.length + 2 * Integer.BYTES;
+    private static final short TRAILER = -1;
+    private static final int UUID_SIZE = 16;
+    private static final int NULL_LENGTH = -1;
+
+    private final int fieldCount;
+    private final int streamIdField;
+    private final int sequenceIdField;
+
+    private final ByteBuffer scratch = ByteBuffer.allocate(HEADER_SIZE);
+    private State state = State.HEADER;
+    private int field;
+    private long remainingFieldBytes;
+    private long remainingExtensionBytes;
+
+    private UUID streamId;
+    private long sequenceId;
+    private UUID previousStreamId;
+    private long previousSequenceId;
+
+    private long rows;
+    private long streams;
+
+    /**
+     * @param in              the stream of rows in binary COPY format
+     * @param fieldCount      the number of fields in each row
+     * @param streamIdField   the index of the stream id field
+     * @param sequenceIdField the index of the sequence id field
+     */
+    ValidatingCopyInputStream(final InputStream in, final int fieldCount, final int streamIdField, final int sequenceIdField) {
+        super(in);
+        this.fieldCount = fieldCount;
+        this.streamIdField = streamIdField;
+        this.sequenceIdField = sequenceIdField;
+        scratch.limit(HEADER_SIZE);
+    }
+
+    /**
+     * @return the number of rows read so far
+     */
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * @return the number of streams read so far
+     */
+    long getStreams() {
+        return streams;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final byte[] single = new byte[1];
+        final int read = read(single, 0, 1);
+        return read == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(final byte[] bytes, final int offset, final int length) throws IOException {
+        final int read = in.read(bytes, offset, length);
+        if (read == -1) {
+            if (state != State.END) {
+                throw new IOException(format("Import file ends part way through the data, after %d rows", rows));
+            }
+            return -1;
+        }
+        validate(bytes, offset, read);
+        return read;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        throw new IOException("Skipping is not supported while validating");
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void validate(final byte[] bytes, final int offset, final int length) throws IOException {
+        int index = offset;
+        final int end = offset + length;
+
+        while (index < end) {
+            switch (state) {
+                case HEADER:
+                case FIELD_COUNT:
+                case FIELD_LENGTH:
+                case CAPTURED_FIELD:
+                    final int take = Math.min(scratch.remaining(), end - index);
+                    scratch.put(bytes, index, take);
+                    index += take;
+                    if (!scratch.hasRemaining()) {
+                        scratch.flip();
+                        completed();
+                    }
+                    break;
+                case HEADER_EXTENSION:
+                case SKIPPED_FIELD:
+                    final int skip = (int) Math.min(state == State.SKIPPED_FIELD ? remainingFieldBytes : remainingExtensionBytes, end - index);
+                    index += skip;
+                    if (state == State.SKIPPED_FIELD) {
+                        remainingFieldBytes -= skip;
+                        if (remainingFieldBytes == 0) {
+                            fieldCompleted();
+                        }
+                    } else {
+                        remainingExtensionBytes -= skip;
+                        if (remainingExtensionBytes == 0) {
+                            expect(State.FIELD_COUNT, Short.BYTES);
+                        }
+                    }
+                    break;
+                default:
+                    throw new IOException("Import file has data after the end of the rows");
+            }
+        }
+    }
+
+    private void completed() throws IOException {
+        switch (state) {
+            case HEADER:
+                final byte[] signature = new byte[SIGNATURE.length];
+                scratch.get(signature);
+                if (!Arrays.equals(signature, SIGNATURE)) {
+                    throw new IOException("Import file is not in PostgreSQL binary COPY format");
+                }
+                scratch.getInt();
+                remainingExtensionBytes = scratch.getInt();
+                if (remainingExtensionBytes > 0) {
+                    scratch.clear();
+                    state = State.HEADER_EXTENSION;
+                } else {
+                    expect(State.FIELD_COUNT, Short.BYTES);
+                }
+                break;
+            case FIELD_COUNT:
+                final short count = scratch.getShort();
+                if (count == TRAILER) {
+                    state = State.END;
+                } else if (count != fieldCount) {
+                    throw new IOException(format("Row %d has %d fields, expected %d", rows + 1, count, fieldCount));
+                } else {
+                    field = 0;
+                    expect(State.FIELD_LENGTH, Integer.BYTES);
+                }
+                break;
+            case FIELD_LENGTH:
+                final int fieldLength = scratch.getInt();
+                if (fieldLength == NULL_LENGTH || fieldLength == 0) {
+                    if (field == streamIdField || field == sequenceIdField) {
+                        throw new IOException(format("Row %d has no stream id or sequence id", rows + 1));
+                    }
+                    fieldCompleted();
+                } else if (field == streamIdField || field == sequenceIdField) {
+                    final int expectedLength = field == streamIdField ? UUID_SIZE : Long.BYTES;
+                    if (fieldLength != expectedLength) {
+                        throw new IOException(format("Row %d has a stream id or sequence id of %d bytes", rows + 1, fieldLength));
+                    }
+                    expect(State.CAPTURED_FIELD, fieldLength);
+                } else {
+                    remainingFieldBytes = fieldLength;
+                    scratch.clear();
+                    state = State.SKIPPED_FIELD;
+                }
+                break;
+            case CAPTURED_FIELD:
+                if (field == streamIdField) {
+                    streamId = new UUID(scratch.getLong(), scratch.getLong());
+                } else {
+                    sequenceId = scratch.getLong();
+                }
+                fieldCompleted();
+                break;
+            default:
+                throw new IllegalStateException(format("Unexpected state %s", state));
+        }
+    }
+
+    private void fieldCompleted() throws IOException {
+        field++;
+        if (field < fieldCount) {
+            expect(State.FIELD_LENGTH, Integer.BYTES);
+        } else {
+            rowCompleted();
+            expect(State.FIELD_COUNT, Short.BYTES);
+        }
+    }
+
+    private void rowCompleted() throws IOException {
+        rows++;
+        if (streamId.equals(previousStreamId)) {
+            if (sequenceId != previousSequenceId + 1) {
+                throw new IOException(format("Version %d of stream %s does not follow version %d in row %d",
+                        sequenceId, streamId, previousSequenceId, rows));
+            }
+        } else {
+            if (sequenceId != 1L) {
+                throw new IOException(format("Stream %s starts at version %d instead of 1 in row %d", streamId, sequenceId, rows));
+            }
+            streams++;
+        }
+        previousStreamId = streamId;
+        previousSequenceId = sequenceId;
+    }
+
+    private void expect(final State next, final int bytes) {
+        scratch.clear();
+        scratch.limit(bytes);
+        state = next;
+    }
+
+    private enum State {
+        HEADER,
+        HEADER_EXTENSION,
+        FIELD_COUNT,
+        FIELD_LENGTH,
+        CAPTURED_FIELD,
+        SKIPPED_FIELD,
+        END
+    }
+}
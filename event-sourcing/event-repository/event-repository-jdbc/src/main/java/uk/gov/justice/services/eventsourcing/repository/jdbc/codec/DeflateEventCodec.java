@@ -0,0 +1,87 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores events as deflate compressed utf-8 json in the binary columns
+ * <code>metadata_bytes</code> and <code>payload_bytes</code>.
+ */
+public class DeflateEventCodec implements EventCodec {
+
+    public static final String NAME = "deflate";
+
+    private static final int BUFFER_SIZE = 4096;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getMetadataColumn() {
+        return "metadata_bytes";
+    }
+
+    @Override
+    public String getPayloadColumn() {
+        return "payload_bytes";
+    }
+
+    @Override
+    public void encode(final PreparedStatementWrapper ps, final int parameterIndex, final String json) throws SQLException {
+        ps.setBytes(parameterIndex, compress(json.getBytes(UTF_8)));
+    }
+
+    @Override
+    public String decode(final ResultSet resultSet, final String column) throws SQLException {
+        return new String(decompress(resultSet.getBytes(column)), UTF_8);
+    }
+
+    byte[] compress(final byte[] bytes) {
+        final Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+
+            final ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 2 + 16);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    byte[] decompress(final byte[] bytes) throws SQLException {
+        final Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes);
+
+            final ByteArrayOutputStream decompressed = new ByteArrayOutputStream(bytes.length * 4);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                final int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SQLException("Compressed event data is truncated");
+                }
+                decompressed.write(buffer, 0, length);
+            }
+            return decompressed.toByteArray();
+        } catch (DataFormatException e) {
+            throw new SQLException("Compressed event data is corrupt", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+import uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Encodes the json metadata and payload of events for storage in the event log, and decodes them
+ * again when read.
+ *
+ * Each codec stores the metadata and payload in its own pair of columns and the name of the codec
+ * that wrote an event is recorded in its row, so events written by different codecs can be read
+ * from the same table.
+ *
+ * Codecs other than those built in are discovered with {@link java.util.ServiceLoader}.
+ */
+public interface EventCodec {
+
+    /**
+     * @return the name of the codec, recorded against each event it writes
+     */
+    String getName();
+
+    /**
+     * @return the column the codec stores the metadata in
+     */
+    String getMetadataColumn();
+
+    /**
+     * @return the column the codec stores the payload in
+     */
+    String getPayloadColumn();
+
+    /**
+     * @return the sql placeholder for an encoded value, for example to add a cast
+     */
+    default String getPlaceholder() {
+        return "?";
+    }
+
+    /**
+     * Set an encoded value as a statement parameter.
+     *
+     * @param ps             the statement
+     * @param parameterIndex the index of the parameter
+     * @param json           the json to encode
+     * @throws SQLException if the parameter cannot be set
+     */
+    void encode(final PreparedStatementWrapper ps, final int parameterIndex, final String json) throws SQLException;
+
+    /**
+     * Read and decode a value from the current row of a result set.
+     *
+     * @param resultSet the result set
+     * @param column    the column to read
+     * @return the json
+     * @throws SQLException if the value cannot be read
+     */
+    String decode(final ResultSet resultSet, final String column) throws SQLException;
+}
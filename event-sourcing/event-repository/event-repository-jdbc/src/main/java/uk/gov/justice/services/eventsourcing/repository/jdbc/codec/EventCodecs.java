@@ -0,0 +1,61 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+import static java.lang.String.format;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the {@link EventCodec}s available to read and write the event log: the built in
+ * json, jsonb and deflate codecs, plus any registered with {@link ServiceLoader}.
+ */
+public final class EventCodecs {
+
+    private static final Map<String, EventCodec> CODECS = loadCodecs();
+
+    private EventCodecs() {
+    }
+
+    /**
+     * Get the codec with the given name. A null name, as recorded for events written before codecs
+     * were introduced, gives the json codec.
+     *
+     * @param name the name of the codec
+     * @return the codec
+     * @throws IllegalArgumentException if there is no codec with the given name
+     */
+    public static EventCodec codecNamed(final String name) {
+        if (name == null) {
+            return CODECS.get(JsonEventCodec.NAME);
+        }
+
+        final EventCodec codec = CODECS.get(name);
+        if (codec == null) {
+            throw new IllegalArgumentException(format("No event codec named %s. Available codecs are %s", name, CODECS.keySet()));
+        }
+        return codec;
+    }
+
+    /**
+     * @return all available codecs
+     */
+    public static Collection<EventCodec> all() {
+        return Collections.unmodifiableCollection(CODECS.values());
+    }
+
+    private static Map<String, EventCodec> loadCodecs() {
+        final Map<String, EventCodec> codecs = new LinkedHashMap<>();
+        register(codecs, new JsonEventCodec());
+        register(codecs, new JsonbEventCodec());
+        register(codecs, new DeflateEventCodec());
+        ServiceLoader.load(EventCodec.class).forEach(codec -> register(codecs, codec));
+        return codecs;
+    }
+
+    private static void register(final Map<String, EventCodec> codecs, final EventCodec codec) {
+        codecs.putIfAbsent(codec.getName(), codec);
+    }
+}
@@ -0,0 +1,73 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Re-encodes the existing events in the event log with a given {@link EventCodec}, for example
+ * after switching the codec new events are written with.
+ *
+ * Events are scanned in pages in global position order, so the job uses one connection at a time
+ * and can run alongside normal use of the event store.
+ */
+@ApplicationScoped
+public class EventLogReEncoder {
+
+    static final int PAGE_SIZE = 500;
+
+    private static final long FIRST_POSITION = 0L;
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    EventLogJdbcRepository eventLogJdbcRepository;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ExecutorService executorService;
+
+    /**
+     * Start re-encoding all events with the given codec in the background.
+     *
+     * @param codecName the name of the codec
+     * @return the number of events re-encoded, once complete
+     * @throws IllegalArgumentException if there is no codec with the given name
+     */
+    public Future<Long> reEncodeInBackground(final String codecName) {
+        EventCodecs.codecNamed(codecName);
+        return executorService.submit(() -> reEncode(codecName));
+    }
+
+    /**
+     * Re-encode all events with the given codec.
+     *
+     * @param codecName the name of the codec
+     * @return the number of events re-encoded
+     */
+    public long reEncode(final String codecName) {
+        logger.info("Re-encoding event log with codec {}", codecName);
+
+        long position = FIRST_POSITION;
+        long scanned = 0L;
+        long reEncoded = 0L;
+        ReEncodedPage page;
+        do {
+            page = eventLogJdbcRepository.reEncodePage(codecName, position, PAGE_SIZE);
+            position = page.getNextPosition();
+            scanned += page.getScanned();
+            reEncoded += page.getReEncoded();
+            logger.debug("Re-encoded {} of {} events scanned", reEncoded, scanned);
+        } while (page.getScanned() == PAGE_SIZE);
+
+        logger.info("Re-encoded {} of {} events with codec {}", reEncoded, scanned, codecName);
+        return reEncoded;
+    }
+}
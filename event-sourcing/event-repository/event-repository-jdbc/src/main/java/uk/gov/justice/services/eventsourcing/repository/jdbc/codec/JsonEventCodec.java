@@ -0,0 +1,41 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+import uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Stores events as plain json text in the <code>metadata</code> and <code>payload</code>
+ * columns. This is the default codec, and the codec of all events written before codecs were
+ * recorded.
+ */
+public class JsonEventCodec implements EventCodec {
+
+    public static final String NAME = "json";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getMetadataColumn() {
+        return "metadata";
+    }
+
+    @Override
+    public String getPayloadColumn() {
+        return "payload";
+    }
+
+    @Override
+    public void encode(final PreparedStatementWrapper ps, final int parameterIndex, final String json) throws SQLException {
+        ps.setString(parameterIndex, json);
+    }
+
+    @Override
+    public String decode(final ResultSet resultSet, final String column) throws SQLException {
+        return resultSet.getString(column);
+    }
+}
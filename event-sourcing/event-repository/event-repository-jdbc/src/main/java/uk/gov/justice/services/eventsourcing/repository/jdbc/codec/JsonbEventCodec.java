@@ -0,0 +1,45 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+import uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Stores events in the PostgreSQL <code>jsonb</code> columns <code>metadata_jsonb</code> and
+ * <code>payload_jsonb</code>. Only available on PostgreSQL.
+ */
+public class JsonbEventCodec implements EventCodec {
+
+    public static final String NAME = "jsonb";
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public String getMetadataColumn() {
+        return "metadata_jsonb";
+    }
+
+    @Override
+    public String getPayloadColumn() {
+        return "payload_jsonb";
+    }
+
+    @Override
+    public String getPlaceholder() {
+        return "CAST(? AS jsonb)";
+    }
+
+    @Override
+    public void encode(final PreparedStatementWrapper ps, final int parameterIndex, final String json) throws SQLException {
+        ps.setString(parameterIndex, json);
+    }
+
+    @Override
+    public String decode(final ResultSet resultSet, final String column) throws SQLException {
+        return resultSet.getString(column);
+    }
+}
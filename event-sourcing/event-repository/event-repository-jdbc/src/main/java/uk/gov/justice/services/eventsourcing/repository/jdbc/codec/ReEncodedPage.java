@@ -0,0 +1,38 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+/**
+ * The result of re-encoding a page of the event log.
+ */
+public class ReEncodedPage {
+
+    private final int scanned;
+    private final int reEncoded;
+    private final long nextPosition;
+
+    public ReEncodedPage(final int scanned, final int reEncoded, final long nextPosition) {
+        this.scanned = scanned;
+        this.reEncoded = reEncoded;
+        this.nextPosition = nextPosition;
+    }
+
+    /**
+     * @return the number of events in the page
+     */
+    public int getScanned() {
+        return scanned;
+    }
+
+    /**
+     * @return the number of events in the page that were re-encoded
+     */
+    public int getReEncoded() {
+        return reEncoded;
+    }
+
+    /**
+     * @return the position to start the next page from
+     */
+    public long getNextPosition() {
+        return nextPosition;
+    }
+}
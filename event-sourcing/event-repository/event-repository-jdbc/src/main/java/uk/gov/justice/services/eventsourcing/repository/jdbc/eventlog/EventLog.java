@@ -18,8 +18,13 @@ public class EventLog {
     private final String payload;
     private final String metadata;
     private final ZonedDateTime dateCreated;
+    private final Long position;
 
     public EventLog(final UUID id, final UUID streamId, final Long sequenceId, final String name, final String metadata, final String payload, final ZonedDateTime timestamp) {
+        this(id, streamId, sequenceId, name, metadata, payload, timestamp, null);
+    }
+
+    public EventLog(final UUID id, final UUID streamId, final Long sequenceId, final String name, final String metadata, final String payload, final ZonedDateTime timestamp, final Long position) {
         this.id = id;
         this.streamId = streamId;
         this.sequenceId = sequenceId;
@@ -27,6 +32,7 @@ public class EventLog {
         this.metadata = metadata;
         this.payload = payload;
         this.dateCreated = timestamp;
+        this.position = position;
     }
 
     public UUID getId() {
@@ -57,6 +63,15 @@ public class EventLog {
         return dateCreated;
     }
 
+    /**
+     * The global position of the event in the event log, assigned by the database on insert.
+     *
+     * @return the position, or null if the event has not been read from the event log
+     */
+    public Long getPosition() {
+        return position;
+    }
+
     @Override
     @SuppressWarnings({"squid:MethodCyclomaticComplexity", "squid:S1067", "squid:S00122"})
     public boolean equals(Object o) {
@@ -73,18 +88,19 @@ public class EventLog {
                 Objects.equals(payload, eventLog.payload) &&
                 Objects.equals(metadata, eventLog.metadata) &&
                 Objects.equals(name, eventLog.name) &&
-                Objects.equals(dateCreated, eventLog.dateCreated);
+                Objects.equals(dateCreated, eventLog.dateCreated) &&
+                Objects.equals(position, eventLog.position);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, streamId, sequenceId, payload, name, metadata, dateCreated);
+        return Objects.hash(id, streamId, sequenceId, payload, name, metadata, dateCreated, position);
     }
 
     @Override
     public String toString() {
-        return String.format("EventLog [id=%s, streamId=%s, sequenceId=%s, name=%s, payload=%s, metadata=%s, dateCreated=$s]", id,
-                streamId, sequenceId, name, payload, metadata, ZonedDateTimes.toString(dateCreated));
+        return String.format("EventLog [id=%s, streamId=%s, sequenceId=%s, name=%s, payload=%s, metadata=%s, dateCreated=%s, position=%s]", id,
+                streamId, sequenceId, name, payload, metadata, ZonedDateTimes.toString(dateCreated), position);
     }
 
 }
\ No newline at end of file
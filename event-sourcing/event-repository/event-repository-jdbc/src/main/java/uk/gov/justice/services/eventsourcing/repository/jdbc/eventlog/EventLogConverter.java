@@ -3,17 +3,16 @@ package uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog;
 import uk.gov.justice.services.common.converter.StringToJsonObjectConverter;
 import uk.gov.justice.services.common.util.Clock;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.InvalidStreamIdException;
-import uk.gov.justice.services.messaging.DefaultJsonEnvelope;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 import uk.gov.justice.services.messaging.JsonObjectEnvelopeConverter;
 import uk.gov.justice.services.messaging.JsonObjectMetadata;
+import uk.gov.justice.services.messaging.LazyJsonEnvelope;
 import uk.gov.justice.services.messaging.Metadata;
 
 import java.util.UUID;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
-import javax.json.JsonObject;
 
 /**
  * Converter class to convert between {@link JsonEnvelope} and {@link EventLog}
@@ -56,13 +55,14 @@ public class EventLogConverter {
     }
 
     /**
-     * Creates an {@link JsonEnvelope} from {@link EventLog}
+     * Creates an {@link JsonEnvelope} from {@link EventLog}. The metadata and payload are parsed
+     * only when first accessed, with the id and name of the event taken from the event log.
      *
      * @param eventLog eventLog to be converted into an envelope.
      * @return an envelope created from eventLog.
      */
     public JsonEnvelope createEnvelope(final EventLog eventLog) {
-        return DefaultJsonEnvelope.envelopeFrom(getMetaData(eventLog), getPayload(eventLog));
+        return LazyJsonEnvelope.envelopeFrom(eventLog.getId(), eventLog.getName(), eventLog.getMetadata(), eventLog.getPayload());
     }
 
     /**
@@ -75,10 +75,6 @@ public class EventLogConverter {
         return JsonObjectMetadata.metadataFrom(stringToJsonObjectConverter.convert(eventLog.getMetadata()));
     }
 
-    private JsonObject getPayload(final EventLog eventLog) {
-        return stringToJsonObjectConverter.convert(eventLog.getPayload());
-    }
-
     private String extractPayloadAsString(final JsonEnvelope envelope) {
         return jsonObjectEnvelopeConverter.extractPayloadFromEnvelope(
                 jsonObjectEnvelopeConverter.fromEnvelope(envelope)).toString();
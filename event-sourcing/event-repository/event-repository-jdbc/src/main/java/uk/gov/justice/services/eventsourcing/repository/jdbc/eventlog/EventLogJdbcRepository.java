@@ -2,7 +2,16 @@ package uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog;
 
 
 import static java.lang.String.format;
-
+import static java.util.Collections.nCopies;
+import static uk.gov.justice.services.common.converter.ZonedDateTimes.fromSqlTimestamp;
+import static uk.gov.justice.services.common.converter.ZonedDateTimes.toSqlTimestamp;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.codec.EventCodec;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.codec.EventCodecs;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.codec.JsonEventCodec;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.codec.ReEncodedPage;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.ConcurrentStreamUpdateException;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.InvalidSequenceIdException;
 import uk.gov.justice.services.jdbc.persistence.AbstractJdbcRepository;
 import uk.gov.justice.services.jdbc.persistence.JdbcRepositoryException;
@@ -10,11 +19,19 @@ import uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
+import javax.inject.Inject;
 import javax.naming.NamingException;
 
 /**
@@ -22,8 +39,6 @@ import javax.naming.NamingException;
  */
 public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
 
-    //TODO @mrich 2016-09-29 - Re-enable the date_created field once liquibase scripts are configured
-
     /**
      * Column Names
      */
@@ -31,32 +46,60 @@ public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
     static final String COL_STREAM_ID = "stream_id";
     static final String COL_SEQUENCE_ID = "sequence_id";
     static final String COL_NAME = "name";
-    static final String COL_METADATA = "metadata";
-    static final String COL_PAYLOAD = "payload";
+    static final String COL_POSITION = "position";
+    static final String COL_CODEC = "codec";
+    static final String COL_DATE_CREATED = "date_created";
 
     static final long INITIAL_VERSION = 0L;
+    static final int STREAM_ID_CHUNK_SIZE = 1000;
+
+    static final String SQL_STATE_UNIQUE_VIOLATION = "23505";
 
     /**
      * Statements
      */
-    static final String SQL_FIND_ALL = "SELECT * FROM event_log ORDER BY sequence_id ASC";
+    static final String SQL_FIND_ALL = "SELECT * FROM event_log ORDER BY position ASC";
+    static final String SQL_FIND_FROM_POSITION = "SELECT * FROM event_log WHERE position>=? ORDER BY position ASC LIMIT ?";
     static final String SQL_FIND_BY_STREAM_ID = "SELECT * FROM event_log WHERE stream_id=? ORDER BY sequence_id ASC";
     static final String SQL_FIND_BY_STREAM_ID_AND_SEQUENCE_ID = "SELECT * FROM event_log WHERE stream_id=? AND sequence_id>=? ORDER BY sequence_id ASC";
-    static final String SQL_FIND_LATEST_SEQUENCE_ID = "SELECT MAX(sequence_id) FROM event_log WHERE stream_id=?";
-    static final String SQL_DISTINCT_STREAM_ID = "SELECT DISTINCT stream_id FROM event_log";
-    static final String SQL_INSERT_EVENT_LOG = "INSERT INTO event_log (id, stream_id, sequence_id, name, metadata, payload/*, date_created*/ ) " +
-            "VALUES(?, ?, ?, ?, ?, ?/*, ?*/)";
+    static final String SQL_FIND_BY_STREAM_ID_BEFORE_SEQUENCE_ID_DESC = "SELECT * FROM event_log WHERE stream_id=? AND sequence_id<? ORDER BY sequence_id DESC LIMIT ?";
+    static final String SQL_FIND_BY_STREAM_ID_AND_NAMES = "SELECT * FROM event_log WHERE stream_id=? AND name IN (%s) ORDER BY sequence_id ASC";
+    static final String SQL_FIND_BY_STREAM_ID_AND_SEQUENCE_ID_AND_NAMES = "SELECT * FROM event_log WHERE stream_id=? AND sequence_id>=? AND name IN (%s) ORDER BY sequence_id ASC";
+    static final String SQL_FIND_LATEST_SEQUENCE_ID = "SELECT version FROM stream WHERE stream_id=?";
+    static final String SQL_FIND_LATEST_SEQUENCE_IDS = "SELECT stream_id, version FROM stream WHERE stream_id IN (%s)";
+    static final String SQL_UPDATE_STREAM_VERSION = "UPDATE stream SET version=? WHERE stream_id=? AND version=?";
+    static final String SQL_INSERT_STREAM = "INSERT INTO stream (stream_id, version) VALUES(?, ?)";
+    static final String SQL_FIND_STREAM_IDS = "SELECT stream_id FROM stream";
+    static final String SQL_FIND_FIRST_STREAM_IDS = "SELECT stream_id FROM stream ORDER BY stream_id ASC LIMIT ?";
+    static final String SQL_FIND_STREAM_IDS_AFTER = "SELECT stream_id FROM stream WHERE stream_id>? ORDER BY stream_id ASC LIMIT ?";
+    static final String SQL_FIND_IN_TIME_RANGE = "SELECT * FROM event_log WHERE date_created>=? AND date_created<? " +
+            "ORDER BY date_created ASC, position ASC LIMIT ?";
+    static final String SQL_FIND_IN_TIME_RANGE_AFTER = "SELECT * FROM event_log WHERE date_created<? " +
+            "AND (date_created>? OR (date_created=? AND position>?)) ORDER BY date_created ASC, position ASC LIMIT ?";
+    static final String SQL_INSERT_EVENT_LOG = "INSERT INTO event_log (id, stream_id, sequence_id, name, codec, %s, %s, date_created) " +
+            "VALUES(?, ?, ?, ?, ?, %s, %s, ?)";
+    static final String SQL_DELETE_EVENTS_OF_STREAM = "DELETE FROM event_log WHERE stream_id=?";
+    static final String SQL_DELETE_STREAM = "DELETE FROM stream WHERE stream_id=?";
+    static final String SQL_RE_ENCODE_EVENT_LOG = "UPDATE event_log SET codec=?, %s=%s, %s=%s, %s=NULL, %s=NULL WHERE id=? AND codec=?";
 
     private static final String READING_STREAM_ALL_EXCEPTION = "Exception while reading stream";
     private static final String READING_STREAM_EXCEPTION = "Exception while reading stream %s";
     private static final String JNDI_DS_EVENT_STORE_PATTERN = "java:/app/%s/DS.eventstore";
+    private static final String JNDI_DS_EVENT_STORE_SHARD_PATTERN = "java:/app/%s/DS.eventstore.shard%d";
+
+    @Inject
+    @Value(key = "eventlog.codec", defaultValue = JsonEventCodec.NAME)
+    String codecName;
 
 
     /**
-     * Insert the given event into th event log.
+     * Insert the given event into th event log. The stream's version is moved on from the
+     * preceding version using a compare-and-set update, so the event must directly follow the
+     * current head of the stream.
      *
      * @param eventLog the event to insert
-     * @throws InvalidSequenceIdException if the version already exists or is null.
+     * @throws InvalidSequenceIdException if the version already exists, does not follow the
+     *                                    current version of the stream or is null.
      */
     public void insert(final EventLog eventLog) throws InvalidSequenceIdException {
 
@@ -64,13 +107,11 @@ public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
             throw new InvalidSequenceIdException(format("Version is null for stream %s", eventLog.getStreamId()));
         }
 
-        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_INSERT_EVENT_LOG)) {
-            ps.setObject(1, eventLog.getId());
-            ps.setObject(2, eventLog.getStreamId());
-            ps.setLong(3, eventLog.getSequenceId());
-            ps.setString(4, eventLog.getName());
-            ps.setString(5, eventLog.getMetadata());
-            ps.setString(6, eventLog.getPayload());
+        advanceStreamVersion(eventLog.getStreamId(), eventLog.getSequenceId() - 1, eventLog.getSequenceId());
+
+        final EventCodec codec = writeCodec();
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(insertSqlFor(codec))) {
+            setInsertParameters(ps, eventLog, codec);
             ps.executeUpdate();
         } catch (SQLException e) {
             throw new JdbcRepositoryException(format("Exception while storing sequence %s of stream %s",
@@ -78,6 +119,51 @@ public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
         }
     }
 
+    /**
+     * Insert the given events into the event log using a single batched statement. The events
+     * must belong to one stream and have consecutive versions directly following the current head
+     * of the stream, which is moved on using a single compare-and-set update.
+     *
+     * @param eventLogs the events to insert
+     * @throws InvalidSequenceIdException if any of the versions already exists, is out of sequence
+     *                                    or is null.
+     */
+    public void insertBatch(final List<EventLog> eventLogs) throws InvalidSequenceIdException {
+
+        if (eventLogs.isEmpty()) {
+            return;
+        }
+
+        final EventLog first = eventLogs.get(0);
+        final EventLog last = eventLogs.get(eventLogs.size() - 1);
+
+        long expectedSequenceId = INITIAL_VERSION;
+        for (final EventLog eventLog : eventLogs) {
+            if (eventLog.getSequenceId() == null) {
+                throw new InvalidSequenceIdException(format("Version is null for stream %s", eventLog.getStreamId()));
+            }
+            if (eventLog != first && (!first.getStreamId().equals(eventLog.getStreamId()) || eventLog.getSequenceId() != expectedSequenceId)) {
+                throw new InvalidSequenceIdException(format("Version %s of stream %s is out of sequence in batch",
+                        eventLog.getSequenceId(), eventLog.getStreamId()));
+            }
+            expectedSequenceId = eventLog.getSequenceId() + 1;
+        }
+
+        advanceStreamVersion(first.getStreamId(), first.getSequenceId() - 1, last.getSequenceId());
+
+        final EventCodec codec = writeCodec();
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(insertSqlFor(codec))) {
+            for (final EventLog eventLog : eventLogs) {
+                setInsertParameters(ps, eventLog, codec);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while storing sequences %s to %s of stream %s",
+                    first.getSequenceId(), last.getSequenceId(), first.getStreamId()), e);
+        }
+    }
+
     /**
      * Returns a Stream of {@link EventLog} for the given stream streamId.
      *
@@ -87,7 +173,7 @@ public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
     public Stream<EventLog> findByStreamIdOrderBySequenceIdAsc(final UUID streamId) {
 
         try {
-            final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_FIND_BY_STREAM_ID);
+            final PreparedStatementWrapper ps = streamingPreparedStatementWrapperOf(SQL_FIND_BY_STREAM_ID);
             ps.setObject(1, streamId);
             return streamOf(ps);
         } catch (SQLException e) {
@@ -107,7 +193,7 @@ public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
     public Stream<EventLog> findByStreamIdFromSequenceIdOrderBySequenceIdAsc(final UUID streamId, final Long versionFrom) {
 
         try {
-            final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_FIND_BY_STREAM_ID_AND_SEQUENCE_ID);
+            final PreparedStatementWrapper ps = streamingPreparedStatementWrapperOf(SQL_FIND_BY_STREAM_ID_AND_SEQUENCE_ID);
 
             ps.setObject(1, streamId);
             ps.setLong(2, versionFrom);
@@ -119,20 +205,158 @@ public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
     }
 
     /**
-     * Returns a Stream of {@link EventLog}
+     * Returns a page of {@link EventLog} of the given stream before the given sequence id, newest
+     * first. The page is read with the unique index on stream id and sequence id, so reading the
+     * latest events of a stream costs the same however long the stream is. The page is read fully
+     * and the connection released before returning.
+     *
+     * @param streamId     streamId of the stream
+     * @param sequenceIdTo the sequence id to read back from (exclusive)
+     * @param pageSize     the maximum number of events to return
+     * @return a list of at most pageSize {@link EventLog} ordered by sequence id descending. Never
+     * returns null.
+     */
+    public List<EventLog> findByStreamIdBeforeSequenceIdOrderBySequenceIdDesc(final UUID streamId, final long sequenceIdTo, final int pageSize) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_FIND_BY_STREAM_ID_BEFORE_SEQUENCE_ID_DESC)) {
+            ps.setObject(1, streamId);
+            ps.setLong(2, sequenceIdTo);
+            ps.setLong(3, (long) pageSize);
+
+            final ResultSet resultSet = ps.executeQuery();
+            final List<EventLog> eventLogs = new ArrayList<>();
+            while (resultSet.next()) {
+                eventLogs.add(entityFrom(resultSet));
+            }
+            return eventLogs;
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format(READING_STREAM_EXCEPTION, streamId), e);
+        }
+    }
+
+    /**
+     * Returns a Stream of {@link EventLog} with the given names for the given stream streamId.
+     *
+     * @param streamId streamId of the stream.
+     * @param names    the names of the events to return.
+     * @return a stream of {@link EventLog}. Never returns null.
+     */
+    public Stream<EventLog> findByStreamIdAndNamesOrderBySequenceIdAsc(final UUID streamId, final Set<String> names) {
+        if (names.isEmpty()) {
+            return Stream.empty();
+        }
+
+        try {
+            final PreparedStatementWrapper ps = streamingPreparedStatementWrapperOf(format(SQL_FIND_BY_STREAM_ID_AND_NAMES, parametersFor(names)));
+            ps.setObject(1, streamId);
+            setNames(ps, 2, names);
+            return streamOf(ps);
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format(READING_STREAM_EXCEPTION, streamId), e);
+        }
+    }
+
+    /**
+     * Returns a Stream of {@link EventLog} with the given names for the given stream streamId
+     * starting from the given version.
+     *
+     * @param streamId    streamId of the stream.
+     * @param versionFrom the version to read from.
+     * @param names       the names of the events to return.
+     * @return a stream of {@link EventLog}. Never returns null.
+     */
+    public Stream<EventLog> findByStreamIdFromSequenceIdAndNamesOrderBySequenceIdAsc(final UUID streamId, final Long versionFrom, final Set<String> names) {
+        if (names.isEmpty()) {
+            return Stream.empty();
+        }
+
+        try {
+            final PreparedStatementWrapper ps = streamingPreparedStatementWrapperOf(format(SQL_FIND_BY_STREAM_ID_AND_SEQUENCE_ID_AND_NAMES, parametersFor(names)));
+            ps.setObject(1, streamId);
+            ps.setLong(2, versionFrom);
+            setNames(ps, 3, names);
+            return streamOf(ps);
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format(READING_STREAM_EXCEPTION, streamId), e);
+        }
+    }
+
+    /**
+     * Returns a Stream of {@link EventLog}, ordered by global position.
      *
      * @return a stream of {@link EventLog}. Never returns null.
      */
     public Stream<EventLog> findAll() {
         try {
-            return streamOf(preparedStatementWrapperOf(SQL_FIND_ALL));
+            return streamOf(streamingPreparedStatementWrapperOf(SQL_FIND_ALL));
         } catch (SQLException e) {
             throw new JdbcRepositoryException(READING_STREAM_ALL_EXCEPTION, e);
         }
     }
 
     /**
-     * Returns the latest sequence Id for the given stream streamId.
+     * Returns a page of {@link EventLog} starting from the given global position, ordered by
+     * position. The page is read fully and the connection released before returning.
+     *
+     * @param position the position to read from (inclusive)
+     * @param pageSize the maximum number of events to return
+     * @return a list of at most pageSize {@link EventLog}. Never returns null.
+     */
+    public List<EventLog> findFromPositionOrderByPositionAsc(final long position, final int pageSize) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_FIND_FROM_POSITION)) {
+            ps.setLong(1, position);
+            ps.setLong(2, (long) pageSize);
+
+            final ResultSet resultSet = ps.executeQuery();
+            final List<EventLog> eventLogs = new ArrayList<>();
+            while (resultSet.next()) {
+                eventLogs.add(entityFrom(resultSet));
+            }
+            return eventLogs;
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while reading event log from position %s", position), e);
+        }
+    }
+
+    /**
+     * Returns a page of {@link EventLog} created in the given time range, ordered by creation time
+     * and then position. The page starts after the given event, so each page is read with a
+     * key-set query on the date created index. The page is read fully and the connection released
+     * before returning.
+     *
+     * @param from     the start of the time range (inclusive)
+     * @param to       the end of the time range (exclusive)
+     * @param after    the last event of the previous page, or null to read the first page
+     * @param pageSize the maximum number of events to return
+     * @return a list of at most pageSize {@link EventLog}. Never returns null.
+     */
+    public List<EventLog> findInTimeRangeOrderByDateCreatedAsc(final ZonedDateTime from, final ZonedDateTime to, final EventLog after, final int pageSize) {
+        final String query = after == null ? SQL_FIND_IN_TIME_RANGE : SQL_FIND_IN_TIME_RANGE_AFTER;
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(query)) {
+            if (after == null) {
+                ps.setTimestamp(1, toSqlTimestamp(from));
+                ps.setTimestamp(2, toSqlTimestamp(to));
+                ps.setLong(3, (long) pageSize);
+            } else {
+                ps.setTimestamp(1, toSqlTimestamp(to));
+                ps.setTimestamp(2, toSqlTimestamp(after.getDateCreated()));
+                ps.setTimestamp(3, toSqlTimestamp(after.getDateCreated()));
+                ps.setLong(4, after.getPosition());
+                ps.setLong(5, (long) pageSize);
+            }
+
+            final ResultSet resultSet = ps.executeQuery();
+            final List<EventLog> eventLogs = new ArrayList<>();
+            while (resultSet.next()) {
+                eventLogs.add(entityFrom(resultSet));
+            }
+            return eventLogs;
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while reading event log from %s to %s", from, to), e);
+        }
+    }
+
+    /**
+     * Returns the latest sequence Id for the given stream streamId, read from the stream table.
      *
      * @param streamId streamId of the stream.
      * @return latest sequence streamId for the stream.  Returns 0 if stream doesn't exist. Never
@@ -157,13 +381,47 @@ public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
 
 
     /**
-     * Returns stream of event stream ids
+     * Returns the latest sequence Ids for the given streams, read from the stream table. The
+     * streams are looked up in chunks of {@value #STREAM_ID_CHUNK_SIZE} per query.
+     *
+     * @param streamIds the ids of the streams.
+     * @return map of stream id to latest sequence id, containing every requested stream. Streams
+     * that don't exist are mapped to 0. Never returns null.
+     */
+    public Map<UUID, Long> getLatestSequenceIdsForStreams(final Collection<UUID> streamIds) {
+        final List<UUID> distinctStreamIds = new ArrayList<>(new LinkedHashSet<>(streamIds));
+        final Map<UUID, Long> sequenceIds = new HashMap<>(distinctStreamIds.size());
+
+        for (int from = 0; from < distinctStreamIds.size(); from += STREAM_ID_CHUNK_SIZE) {
+            final List<UUID> chunk = distinctStreamIds.subList(from, Math.min(from + STREAM_ID_CHUNK_SIZE, distinctStreamIds.size()));
+            chunk.forEach(streamId -> sequenceIds.put(streamId, INITIAL_VERSION));
+
+            try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(format(SQL_FIND_LATEST_SEQUENCE_IDS, parametersFor(chunk)))) {
+                int parameterIndex = 1;
+                for (final UUID streamId : chunk) {
+                    ps.setObject(parameterIndex++, streamId);
+                }
+
+                final ResultSet resultSet = ps.executeQuery();
+                while (resultSet.next()) {
+                    sequenceIds.put((UUID) resultSet.getObject(COL_STREAM_ID), resultSet.getLong(2));
+                }
+            } catch (SQLException e) {
+                throw new JdbcRepositoryException(format("Exception while reading versions of %s streams", chunk.size()), e);
+            }
+        }
+
+        return sequenceIds;
+    }
+
+    /**
+     * Returns stream of event stream ids, read from the stream table
      *
      * @return event stream ids
      */
     public Stream<UUID> getStreamIds() {
         try {
-            final PreparedStatementWrapper psWrapper = preparedStatementWrapperOf(SQL_DISTINCT_STREAM_ID);
+            final PreparedStatementWrapper psWrapper = streamingPreparedStatementWrapperOf(SQL_FIND_STREAM_IDS);
             final ResultSet resultSet = psWrapper.executeQuery();
 
             return streamOf(psWrapper, resultSet, e -> {
@@ -179,15 +437,228 @@ public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
 
     }
 
+    /**
+     * Returns a page of stream ids, in stream id order, following the given stream id. The page is
+     * read fully and the connection released before returning.
+     *
+     * @param afterStreamId the stream id to read after (exclusive), or null to read from the first
+     *                      stream
+     * @param pageSize      the maximum number of stream ids to return
+     * @return a list of at most pageSize stream ids. Never returns null.
+     */
+    public List<UUID> findStreamIdsAfter(final UUID afterStreamId, final int pageSize) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(afterStreamId == null ? SQL_FIND_FIRST_STREAM_IDS : SQL_FIND_STREAM_IDS_AFTER)) {
+            int parameterIndex = 1;
+            if (afterStreamId != null) {
+                ps.setObject(parameterIndex++, afterStreamId);
+            }
+            ps.setLong(parameterIndex, (long) pageSize);
+
+            final ResultSet resultSet = ps.executeQuery();
+            final List<UUID> streamIds = new ArrayList<>();
+            while (resultSet.next()) {
+                streamIds.add((UUID) resultSet.getObject(COL_STREAM_ID));
+            }
+            return streamIds;
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while reading stream ids after %s", afterStreamId), e);
+        }
+    }
+
+    /**
+     * Delete a stream and all its events. The events are deleted before the stream, so if deleting
+     * the stream fails the stream is left at its current version with no events.
+     *
+     * @param streamId the id of the stream to delete
+     */
+    public void deleteStream(final UUID streamId) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_DELETE_EVENTS_OF_STREAM)) {
+            ps.setObject(1, streamId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while deleting events of stream %s", streamId), e);
+        }
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_DELETE_STREAM)) {
+            ps.setObject(1, streamId);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while deleting stream %s", streamId), e);
+        }
+    }
+
+    /**
+     * Returns a repository for the event log of the given shard of a sharded event store. Shard 0
+     * is the event store of an unsharded service, read through this repository, and every other
+     * shard <code>n</code> is read through the <code>DS.eventstore.shard&lt;n&gt;</code> datasource.
+     *
+     * @param shard the index of the shard
+     * @return the repository of the event log of the shard
+     */
+    public EventLogJdbcRepository forShard(final int shard) {
+        return shard == 0 ? this : new ShardEventLogJdbcRepository(this, shard);
+    }
+
+    /**
+     * Re-encode, with the given codec, the events in a page of the event log that were written by
+     * other codecs. Each event is updated only if it has not been re-encoded concurrently.
+     *
+     * @param codecName the name of the codec to re-encode with
+     * @param position  the global position to start the page from
+     * @param pageSize  the maximum number of events in the page
+     * @return the page scanned
+     */
+    public ReEncodedPage reEncodePage(final String codecName, final long position, final int pageSize) {
+        final EventCodec codec = EventCodecs.codecNamed(codecName);
+        final Map<String, List<EventLog>> eventLogsByCodec = new HashMap<>();
+        int scanned = 0;
+        long nextPosition = position;
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_FIND_FROM_POSITION)) {
+            ps.setLong(1, position);
+            ps.setLong(2, (long) pageSize);
+
+            final ResultSet resultSet = ps.executeQuery();
+            while (resultSet.next()) {
+                scanned++;
+                nextPosition = resultSet.getLong(COL_POSITION) + 1;
+                final String rowCodecName = EventCodecs.codecNamed(resultSet.getString(COL_CODEC)).getName();
+                if (!rowCodecName.equals(codec.getName())) {
+                    eventLogsByCodec.computeIfAbsent(rowCodecName, name -> new ArrayList<>()).add(entityFrom(resultSet));
+                }
+            }
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while reading events to re-encode from position %s", position), e);
+        }
+
+        int reEncoded = 0;
+        for (final Map.Entry<String, List<EventLog>> entry : eventLogsByCodec.entrySet()) {
+            final EventCodec from = EventCodecs.codecNamed(entry.getKey());
+            try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(reEncodeSqlFor(from, codec))) {
+                for (final EventLog eventLog : entry.getValue()) {
+                    ps.setString(1, codec.getName());
+                    codec.encode(ps, 2, eventLog.getMetadata());
+                    codec.encode(ps, 3, eventLog.getPayload());
+                    ps.setObject(4, eventLog.getId());
+                    ps.setString(5, from.getName());
+                    ps.addBatch();
+                }
+                for (final int updated : ps.executeBatch()) {
+                    reEncoded += updated > 0 ? updated : 0;
+                }
+            } catch (SQLException e) {
+                throw new JdbcRepositoryException(format("Exception while re-encoding events from %s to %s", from.getName(), codec.getName()), e);
+            }
+        }
+
+        return new ReEncodedPage(scanned, reEncoded, nextPosition);
+    }
+
+    /**
+     * Moves the version of a stream on with a compare-and-set update, creating the stream for its
+     * first events. A stream found to have moved on, including one created and committed by
+     * another append, is reported as a {@link ConcurrentStreamUpdateException} that can be
+     * retried in the same transaction. A stream created by another transaction while the insert
+     * waits on it fails the insert with a unique violation, which aborts the transaction on
+     * PostgreSQL, so that is reported as a plain {@link InvalidSequenceIdException} instead.
+     */
+    private void advanceStreamVersion(final UUID streamId, final long expectedVersion, final long newVersion) throws InvalidSequenceIdException {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_UPDATE_STREAM_VERSION)) {
+            ps.setLong(1, newVersion);
+            ps.setObject(2, streamId);
+            ps.setLong(3, expectedVersion);
+            if (ps.executeUpdate() == 1) {
+                return;
+            }
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while updating version of stream %s", streamId), e);
+        }
+
+        if (expectedVersion != INITIAL_VERSION || getLatestSequenceIdForStream(streamId) != INITIAL_VERSION) {
+            throw new ConcurrentStreamUpdateException(format("Version %s of stream %s does not follow the current version of the stream",
+                    expectedVersion + 1, streamId));
+        }
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_INSERT_STREAM)) {
+            ps.setObject(1, streamId);
+            ps.setLong(2, newVersion);
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            if (SQL_STATE_UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                throw new InvalidSequenceIdException(format("Stream %s was created by another transaction while version %s was being appended",
+                        streamId, expectedVersion + 1));
+            }
+            throw new JdbcRepositoryException(format("Exception while creating stream %s", streamId), e);
+        }
+    }
+
+    private String parametersFor(final Collection<?> values) {
+        return String.join(", ", nCopies(values.size(), "?"));
+    }
+
+    private void setNames(final PreparedStatementWrapper ps, final int firstParameterIndex, final Set<String> names) throws SQLException {
+        int parameterIndex = firstParameterIndex;
+        for (final String name : names) {
+            ps.setString(parameterIndex++, name);
+        }
+    }
+
+    private void setInsertParameters(final PreparedStatementWrapper ps, final EventLog eventLog, final EventCodec codec) throws SQLException {
+        ps.setObject(1, eventLog.getId());
+        ps.setObject(2, eventLog.getStreamId());
+        ps.setLong(3, eventLog.getSequenceId());
+        ps.setString(4, eventLog.getName());
+        ps.setString(5, codec.getName());
+        codec.encode(ps, 6, eventLog.getMetadata());
+        codec.encode(ps, 7, eventLog.getPayload());
+        ps.setTimestamp(8, eventLog.getDateCreated() == null ? null : toSqlTimestamp(eventLog.getDateCreated()));
+    }
+
+    private String insertSqlFor(final EventCodec codec) {
+        return format(SQL_INSERT_EVENT_LOG,
+                codec.getMetadataColumn(), codec.getPayloadColumn(),
+                codec.getPlaceholder(), codec.getPlaceholder());
+    }
+
+    private String reEncodeSqlFor(final EventCodec from, final EventCodec to) {
+        return format(SQL_RE_ENCODE_EVENT_LOG,
+                to.getMetadataColumn(), to.getPlaceholder(),
+                to.getPayloadColumn(), to.getPlaceholder(),
+                from.getMetadataColumn(), from.getPayloadColumn());
+    }
+
+    private EventCodec writeCodec() {
+        return EventCodecs.codecNamed(codecName);
+    }
+
     @Override
     protected EventLog entityFrom(final ResultSet resultSet) throws SQLException {
+        return eventLogFrom(resultSet);
+    }
+
+    /**
+     * Maps the current row of a result set holding the columns of the event_log table, so that
+     * queries joining event_log to other tables of the event store can read its events.
+     *
+     * @param resultSet the result set positioned on an event row
+     * @return the event log of the row
+     * @throws SQLException if the row could not be read
+     */
+    public static EventLog eventLogFrom(final ResultSet resultSet) throws SQLException {
+        final EventCodec codec = EventCodecs.codecNamed(resultSet.getString(COL_CODEC));
         return new EventLog((UUID) resultSet.getObject(PRIMARY_KEY_ID),
                 (UUID) resultSet.getObject(COL_STREAM_ID),
                 resultSet.getLong(COL_SEQUENCE_ID),
                 resultSet.getString(COL_NAME),
-                resultSet.getString(COL_METADATA),
-                resultSet.getString(COL_PAYLOAD),
-                null);
+                codec.decode(resultSet, codec.getMetadataColumn()),
+                codec.decode(resultSet, codec.getPayloadColumn()),
+                dateCreatedFrom(resultSet),
+                resultSet.getLong(COL_POSITION));
+    }
+
+    private static ZonedDateTime dateCreatedFrom(final ResultSet resultSet) throws SQLException {
+        final Timestamp dateCreated = resultSet.getTimestamp(COL_DATE_CREATED);
+        return dateCreated == null ? null : fromSqlTimestamp(dateCreated);
     }
 
 
@@ -195,4 +666,34 @@ public class EventLogJdbcRepository extends AbstractJdbcRepository<EventLog> {
     protected String jndiName() throws NamingException {
         return format(JNDI_DS_EVENT_STORE_PATTERN, warFileName());
     }
+
+    /**
+     * Event log repository of a shard other than the first, created by {@link #forShard(int)}.
+     */
+    private static class ShardEventLogJdbcRepository extends EventLogJdbcRepository {
+
+        private final EventLogJdbcRepository firstShard;
+        private final int shard;
+
+        ShardEventLogJdbcRepository(final EventLogJdbcRepository firstShard, final int shard) {
+            this.firstShard = firstShard;
+            this.shard = shard;
+            this.codecName = firstShard.codecName;
+        }
+
+        @Override
+        public EventLogJdbcRepository forShard(final int shard) {
+            return firstShard.forShard(shard);
+        }
+
+        @Override
+        protected String warFileName() throws NamingException {
+            return firstShard.warFileName();
+        }
+
+        @Override
+        protected String jndiName() throws NamingException {
+            return format(JNDI_DS_EVENT_STORE_SHARD_PATTERN, warFileName(), shard);
+        }
+    }
 }
@@ -0,0 +1,14 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.exception;
+
+/**
+ * Exception thrown when the version of a stream cannot be moved on because another append to
+ * the stream has moved it on first.
+ */
+public class ConcurrentStreamUpdateException extends InvalidSequenceIdException {
+
+    private static final long serialVersionUID = -3395432465306405129L;
+
+    public ConcurrentStreamUpdateException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.exception;
+
+/**
+ * Exception thrown when the event log cannot be exported to or imported from a file.
+ */
+public class EventLogBulkTransferException extends RuntimeException {
+
+    private static final long serialVersionUID = -5126672043897812294L;
+
+    public EventLogBulkTransferException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
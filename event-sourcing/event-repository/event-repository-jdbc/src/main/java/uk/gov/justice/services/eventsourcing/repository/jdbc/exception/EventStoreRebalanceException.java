@@ -0,0 +1,13 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.exception;
+
+/**
+ * Exception thrown when a stream cannot be moved to another shard of the event store.
+ */
+public class EventStoreRebalanceException extends RuntimeException {
+
+    private static final long serialVersionUID = -6917723108335217436L;
+
+    public EventStoreRebalanceException(final String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,13 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.exception;
+
+/**
+ * Exception thrown when a replay of the event streams cannot be completed.
+ */
+public class EventStreamReplayException extends RuntimeException {
+
+    private static final long serialVersionUID = 3497231418822457651L;
+
+    public EventStreamReplayException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+}
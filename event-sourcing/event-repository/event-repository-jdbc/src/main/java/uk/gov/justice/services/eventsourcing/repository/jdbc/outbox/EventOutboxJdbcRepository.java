@@ -0,0 +1,101 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.outbox;
+
+import static java.lang.String.format;
+import static java.util.Collections.nCopies;
+
+import uk.gov.justice.services.eventsourcing.publisher.core.outbox.EventOutbox;
+import uk.gov.justice.services.eventsourcing.publisher.core.outbox.OutboxEvent;
+import uk.gov.justice.services.jdbc.persistence.AbstractJdbcRepository;
+import uk.gov.justice.services.jdbc.persistence.JdbcRepositoryException;
+import uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+import uk.gov.justice.services.messaging.LazyJsonEnvelope;
+import uk.gov.justice.services.messaging.Metadata;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.naming.NamingException;
+
+/**
+ * JDBC based {@link EventOutbox} stored in the event store, so that events are added to it in the
+ * same transaction as they are appended to their streams.
+ */
+public class EventOutboxJdbcRepository extends AbstractJdbcRepository<OutboxEvent> implements EventOutbox {
+
+    static final String COL_ID = "id";
+    static final String COL_EVENT_ID = "event_id";
+    static final String COL_NAME = "name";
+    static final String COL_METADATA = "metadata";
+    static final String COL_PAYLOAD = "payload";
+
+    static final String SQL_INSERT = "INSERT INTO event_outbox (event_id, name, metadata, payload) VALUES(?, ?, ?, ?)";
+    static final String SQL_FIND_NEXT_BATCH = "SELECT * FROM event_outbox ORDER BY id ASC LIMIT ? FOR UPDATE";
+    static final String SQL_DELETE = "DELETE FROM event_outbox WHERE id IN (%s)";
+
+    private static final String JNDI_DS_EVENT_STORE_PATTERN = "java:/app/%s/DS.eventstore";
+
+    @Override
+    public void add(final JsonEnvelope envelope) {
+        final Metadata metadata = envelope.metadata();
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_INSERT)) {
+            ps.setObject(1, metadata.id());
+            ps.setString(2, metadata.name());
+            ps.setString(3, metadata.asJsonObject().toString());
+            ps.setString(4, envelope.payload().toString());
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while adding event %s to outbox", metadata.id()), e);
+        }
+    }
+
+    @Override
+    public List<OutboxEvent> nextBatch(final int batchSize) {
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(SQL_FIND_NEXT_BATCH)) {
+            ps.setLong(1, (long) batchSize);
+
+            final ResultSet resultSet = ps.executeQuery();
+            final List<OutboxEvent> events = new ArrayList<>(batchSize);
+            while (resultSet.next()) {
+                events.add(entityFrom(resultSet));
+            }
+            return events;
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException("Exception while reading events from outbox", e);
+        }
+    }
+
+    @Override
+    public void remove(final List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        try (final PreparedStatementWrapper ps = preparedStatementWrapperOf(format(SQL_DELETE, String.join(", ", nCopies(events.size(), "?"))))) {
+            int parameterIndex = 1;
+            for (final OutboxEvent event : events) {
+                ps.setLong(parameterIndex++, event.getId());
+            }
+            ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException(format("Exception while removing %s events from outbox", events.size()), e);
+        }
+    }
+
+    @Override
+    protected OutboxEvent entityFrom(final ResultSet resultSet) throws SQLException {
+        return new OutboxEvent(resultSet.getLong(COL_ID),
+                LazyJsonEnvelope.envelopeFrom((UUID) resultSet.getObject(COL_EVENT_ID),
+                        resultSet.getString(COL_NAME),
+                        resultSet.getString(COL_METADATA),
+                        resultSet.getString(COL_PAYLOAD)));
+    }
+
+    @Override
+    protected String jndiName() throws NamingException {
+        return format(JNDI_DS_EVENT_STORE_PATTERN, warFileName());
+    }
+}
@@ -0,0 +1,22 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.replay;
+
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Consumes the events of a single stream during a replay. The events are supplied in sequence
+ * order. Streams are replayed concurrently, so implementations must be thread safe across streams.
+ */
+@FunctionalInterface
+public interface EventStreamConsumer {
+
+    /**
+     * Consume the events of a stream.
+     *
+     * @param streamId the id of the stream
+     * @param events   the events of the stream, ordered by sequence id
+     */
+    void accept(final UUID streamId, final Stream<JsonEnvelope> events);
+}
@@ -0,0 +1,185 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.replay;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.EventStreamReplayException;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Replays all event streams in the event store, in parallel, to an {@link EventStreamConsumer}.
+ *
+ * Stream ids are read from the stream table in pages and handed out to a bounded number of
+ * workers. Each worker reads one stream at a time through a single connection and passes its
+ * events, in sequence order, to the consumer. At most one connection per worker is therefore used
+ * to read streams, plus one briefly held connection for each page of stream ids.
+ *
+ * When the event store is split into {@link EventStoreShards shards}, the pages of stream ids of
+ * the shards are handed out in turn, so the workers replay the streams of all shards side by side.
+ *
+ * A failure to replay a stream is logged and counted and does not stop the replay of other streams.
+ */
+@ApplicationScoped
+public class EventStreamReplayer {
+
+    static final int STREAM_ID_PAGE_SIZE = 1000;
+    static final long PROGRESS_INTERVAL = 1000L;
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    EventStoreShards eventStoreShards;
+
+    @Inject
+    EventLogConverter eventLogConverter;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ExecutorService executorService;
+
+    /**
+     * Replay all event streams to the given consumer, returning once every stream has been
+     * replayed.
+     *
+     * @param workers  the maximum number of streams replayed concurrently, which also bounds the
+     *                 number of connections used to read streams
+     * @param consumer the consumer of the events of each stream
+     * @return the final progress of the replay
+     * @throws EventStreamReplayException if interrupted while waiting for the workers
+     */
+    public ReplayProgress replay(final int workers, final EventStreamConsumer consumer) {
+        if (workers < 1) {
+            throw new IllegalArgumentException(format("workers must be positive, was %d.", workers));
+        }
+
+        final Replay replay = new Replay(workers, consumer);
+
+        logger.info("Replaying all event streams with {} workers", workers);
+        try {
+            final List<ShardStreamIds> shards = eventStoreShards.repositories().stream()
+                    .map(ShardStreamIds::new)
+                    .collect(toList());
+            while (!shards.isEmpty()) {
+                final Iterator<ShardStreamIds> remainingShards = shards.iterator();
+                while (remainingShards.hasNext()) {
+                    final ShardStreamIds shard = remainingShards.next();
+                    for (final UUID streamId : shard.nextPage()) {
+                        replay.submit(shard.eventLogJdbcRepository, streamId);
+                    }
+                    if (shard.isExhausted()) {
+                        remainingShards.remove();
+                    }
+                }
+            }
+            replay.awaitCompletion();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EventStreamReplayException("Interrupted while replaying event streams", e);
+        }
+
+        final ReplayProgress progress = replay.progress();
+        logger.info("Finished replaying event streams: {}", progress);
+        return progress;
+    }
+
+    private class Replay {
+
+        private final int workers;
+        private final EventStreamConsumer consumer;
+        private final Semaphore permits;
+        private final long startTime = System.currentTimeMillis();
+        private final AtomicLong streams = new AtomicLong();
+        private final AtomicLong events = new AtomicLong();
+        private final AtomicLong failedStreams = new AtomicLong();
+
+        Replay(final int workers, final EventStreamConsumer consumer) {
+            this.workers = workers;
+            this.consumer = consumer;
+            this.permits = new Semaphore(workers);
+        }
+
+        void submit(final EventLogJdbcRepository eventLogJdbcRepository, final UUID streamId) throws InterruptedException {
+            permits.acquire();
+            try {
+                executorService.execute(() -> {
+                    try {
+                        replayStream(eventLogJdbcRepository, streamId);
+                    } finally {
+                        permits.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                permits.release();
+                throw e;
+            }
+        }
+
+        void awaitCompletion() throws InterruptedException {
+            permits.acquire(workers);
+            permits.release(workers);
+        }
+
+        ReplayProgress progress() {
+            return new ReplayProgress(streams.get(), events.get(), failedStreams.get(), System.currentTimeMillis() - startTime);
+        }
+
+        private void replayStream(final EventLogJdbcRepository eventLogJdbcRepository, final UUID streamId) {
+            try (final Stream<EventLog> eventLogs = eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(streamId)) {
+                consumer.accept(streamId, eventLogs
+                        .map(eventLogConverter::createEnvelope)
+                        .peek(envelope -> events.incrementAndGet()));
+            } catch (RuntimeException e) {
+                failedStreams.incrementAndGet();
+                logger.error(format("Failed to replay event stream %s", streamId), e);
+            }
+
+            if (streams.incrementAndGet() % PROGRESS_INTERVAL == 0) {
+                logger.info("Replayed {}", progress());
+            }
+        }
+    }
+
+    /**
+     * Pages through the stream ids of one shard.
+     */
+    private static class ShardStreamIds {
+
+        private final EventLogJdbcRepository eventLogJdbcRepository;
+        private UUID lastStreamId;
+        private boolean exhausted = false;
+
+        ShardStreamIds(final EventLogJdbcRepository eventLogJdbcRepository) {
+            this.eventLogJdbcRepository = eventLogJdbcRepository;
+        }
+
+        List<UUID> nextPage() {
+            final List<UUID> streamIds = eventLogJdbcRepository.findStreamIdsAfter(lastStreamId, STREAM_ID_PAGE_SIZE);
+            exhausted = streamIds.size() < STREAM_ID_PAGE_SIZE;
+            if (!streamIds.isEmpty()) {
+                lastStreamId = streamIds.get(streamIds.size() - 1);
+            }
+            return streamIds;
+        }
+
+        boolean isExhausted() {
+            return exhausted;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.replay;
+
+import static java.lang.String.format;
+
+/**
+ * Snapshot of the progress of a replay of all event streams.
+ */
+public class ReplayProgress {
+
+    private final long streams;
+    private final long events;
+    private final long failedStreams;
+    private final long elapsedMillis;
+
+    public ReplayProgress(final long streams, final long events, final long failedStreams, final long elapsedMillis) {
+        this.streams = streams;
+        this.events = events;
+        this.failedStreams = failedStreams;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return the number of streams replayed, including those that failed
+     */
+    public long getStreams() {
+        return streams;
+    }
+
+    /**
+     * @return the number of events passed to the consumer
+     */
+    public long getEvents() {
+        return events;
+    }
+
+    /**
+     * @return the number of streams whose replay failed
+     */
+    public long getFailedStreams() {
+        return failedStreams;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * @return the average number of events replayed per second
+     */
+    public double getEventsPerSecond() {
+        return elapsedMillis == 0 ? 0 : events * 1000.0 / elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return format("ReplayProgress[streams=%s, events=%s, failedStreams=%s, elapsedMillis=%s, eventsPerSecond=%.1f]",
+                streams, events, failedStreams, elapsedMillis, getEventsPerSecond());
+    }
+}
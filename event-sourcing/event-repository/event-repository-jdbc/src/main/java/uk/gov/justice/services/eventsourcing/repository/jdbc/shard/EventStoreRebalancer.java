@@ -0,0 +1,152 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.lang.Math.max;
+import static java.lang.String.format;
+import static java.util.stream.Collectors.toList;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards.shardOf;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.EventStoreRebalanceException;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.InvalidSequenceIdException;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.slf4j.Logger;
+
+/**
+ * Moves event streams between the shards of the event store when the number of shards changes,
+ * so that every stream ends up in the shard {@link EventStoreShards} routes it to.
+ *
+ * The stream ids of each old shard are read in pages, and every stream belonging to another shard
+ * is copied there in batches, keeping the ids, versions and creation times of its events, and
+ * then deleted from the old shard. Events are given new positions in their new shard.
+ *
+ * A stream already partly or wholly copied by an interrupted rebalancing is completed from the
+ * version its new shard is at, so a rebalancing can be run again until no streams fail. It must
+ * be run outside a transaction, with appends to the event store stopped, before the new number of
+ * shards is configured.
+ */
+@ApplicationScoped
+public class EventStoreRebalancer {
+
+    static final int STREAM_ID_PAGE_SIZE = 1000;
+    static final int COPY_BATCH_SIZE = 1000;
+    static final long PROGRESS_INTERVAL = 1000L;
+
+    @Inject
+    Logger logger;
+
+    @Inject
+    EventLogJdbcRepository eventLogJdbcRepository;
+
+    /**
+     * Move the streams of an event store split into <code>fromShards</code> shards to the shards
+     * they belong to when split into <code>toShards</code> shards.
+     *
+     * @param fromShards the number of shards the event store is split into
+     * @param toShards   the number of shards the event store is to be split into
+     * @return the final progress of the rebalancing
+     */
+    public RebalanceProgress rebalance(final int fromShards, final int toShards) {
+        if (fromShards < 1) {
+            throw new IllegalArgumentException(format("fromShards must be positive, was %d.", fromShards));
+        } else if (toShards < 1) {
+            throw new IllegalArgumentException(format("toShards must be positive, was %d.", toShards));
+        }
+
+        final Rebalance rebalance = new Rebalance(IntStream.range(0, max(fromShards, toShards))
+                .mapToObj(eventLogJdbcRepository::forShard)
+                .collect(toList()), toShards);
+
+        logger.info("Rebalancing event store from {} to {} shards", fromShards, toShards);
+        for (int shard = 0; shard < fromShards; shard++) {
+            final EventLogJdbcRepository source = rebalance.shards.get(shard);
+            List<UUID> streamIds = source.findStreamIdsAfter(null, STREAM_ID_PAGE_SIZE);
+            while (true) {
+                for (final UUID streamId : streamIds) {
+                    rebalance.rebalanceStream(streamId, shard, source);
+                }
+                if (streamIds.size() < STREAM_ID_PAGE_SIZE) {
+                    break;
+                }
+                streamIds = source.findStreamIdsAfter(streamIds.get(streamIds.size() - 1), STREAM_ID_PAGE_SIZE);
+            }
+        }
+
+        final RebalanceProgress progress = rebalance.progress();
+        logger.info("Finished rebalancing event store: {}", progress);
+        return progress;
+    }
+
+    private class Rebalance {
+
+        private final List<EventLogJdbcRepository> shards;
+        private final int toShards;
+        private final long startTime = System.currentTimeMillis();
+        private long streams;
+        private long movedStreams;
+        private long movedEvents;
+        private long failedStreams;
+
+        Rebalance(final List<EventLogJdbcRepository> shards, final int toShards) {
+            this.shards = shards;
+            this.toShards = toShards;
+        }
+
+        RebalanceProgress progress() {
+            return new RebalanceProgress(streams, movedStreams, movedEvents, failedStreams, System.currentTimeMillis() - startTime);
+        }
+
+        void rebalanceStream(final UUID streamId, final int shard, final EventLogJdbcRepository source) {
+            final int targetShard = shardOf(streamId, toShards);
+            if (targetShard != shard) {
+                try {
+                    movedEvents += moveStream(streamId, source, shards.get(targetShard));
+                    movedStreams++;
+                } catch (InvalidSequenceIdException | RuntimeException e) {
+                    failedStreams++;
+                    logger.error(format("Failed to move event stream %s from shard %d to shard %d", streamId, shard, targetShard), e);
+                }
+            }
+
+            if (++streams % PROGRESS_INTERVAL == 0) {
+                logger.info("Rebalanced {}", progress());
+            }
+        }
+    }
+
+    private long moveStream(final UUID streamId, final EventLogJdbcRepository source, final EventLogJdbcRepository target) throws InvalidSequenceIdException {
+        final long sourceVersion = source.getLatestSequenceIdForStream(streamId);
+        final long targetVersion = target.getLatestSequenceIdForStream(streamId);
+        if (targetVersion > sourceVersion) {
+            throw new EventStoreRebalanceException(format("Stream %s is at version %d in its new shard, ahead of version %d in its old shard",
+                    streamId, targetVersion, sourceVersion));
+        }
+
+        long copied = 0;
+        try (final Stream<EventLog> eventLogs = source.findByStreamIdFromSequenceIdOrderBySequenceIdAsc(streamId, targetVersion + 1)) {
+            final Iterator<EventLog> iterator = eventLogs.iterator();
+            final List<EventLog> batch = new ArrayList<>(COPY_BATCH_SIZE);
+            while (iterator.hasNext()) {
+                batch.add(iterator.next());
+                if (batch.size() == COPY_BATCH_SIZE || !iterator.hasNext()) {
+                    target.insertBatch(batch);
+                    copied += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+
+        source.deleteStream(streamId);
+        return copied;
+    }
+}
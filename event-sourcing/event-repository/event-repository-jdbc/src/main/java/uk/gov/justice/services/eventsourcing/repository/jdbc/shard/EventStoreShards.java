@@ -0,0 +1,116 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.String.format;
+import static java.util.Collections.unmodifiableList;
+import static java.util.stream.Collectors.toList;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * The shards of the event store, each in its own database, and the routing of event streams to
+ * them. The event store is split into <code>eventstore.shards</code> shards, one by default.
+ *
+ * Every stream is kept whole in a single shard, chosen from its id by a jump consistent hash, so
+ * the shard of a stream only depends on its id and the number of shards. Adding a shard moves
+ * only the streams the new shard takes over, see {@link EventStoreRebalancer}.
+ */
+@ApplicationScoped
+public class EventStoreShards {
+
+    private static final long JUMP_MULTIPLIER = 2862933555777941757L;
+
+    @Inject
+    @Value(key = "eventstore.shards", defaultValue = "1")
+    String shards;
+
+    @Inject
+    EventLogJdbcRepository eventLogJdbcRepository;
+
+    private List<EventLogJdbcRepository> repositories;
+
+    @PostConstruct
+    public void initialise() {
+        final int count = parseInt(shards);
+        if (count < 1) {
+            throw new IllegalArgumentException(format("eventstore.shards must be positive, was %d.", count));
+        }
+        repositories = unmodifiableList(IntStream.range(0, count)
+                .mapToObj(eventLogJdbcRepository::forShard)
+                .collect(toList()));
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int count() {
+        return repositories.size();
+    }
+
+    /**
+     * @return the event log repository of each shard, in shard order
+     */
+    public List<EventLogJdbcRepository> repositories() {
+        return repositories;
+    }
+
+    /**
+     * @param streamId the id of the stream
+     * @return the index of the shard holding the stream
+     */
+    public int shardOf(final UUID streamId) {
+        return shardOf(streamId, count());
+    }
+
+    /**
+     * @param streamId the id of the stream
+     * @return the event log repository of the shard holding the stream
+     */
+    public EventLogJdbcRepository repositoryFor(final UUID streamId) {
+        return repositories.get(shardOf(streamId));
+    }
+
+    /**
+     * Returns the shard of a stream in an event store with the given number of shards, using the
+     * jump consistent hash of Lamping and Veach. Going from <code>n</code> to <code>n + 1</code>
+     * shards moves about <code>1 / (n + 1)</code> of the streams, all of them to the new shard.
+     *
+     * @param streamId   the id of the stream
+     * @param shardCount the number of shards
+     * @return the index of the shard holding the stream
+     */
+    public static int shardOf(final UUID streamId, final int shardCount) {
+        long key = mix(streamId.getMostSignificantBits() ^ Long.rotateLeft(streamId.getLeastSignificantBits(), 32));
+        long shard = -1;
+        long next = 0;
+        while (next < shardCount) {
+            shard = next;
+            key = key * JUMP_MULTIPLIER + 1;
+            next = (long) ((shard + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) shard;
+    }
+
+    /**
+     * Spreads the bits of the key, as random (version 4) stream ids have fixed version bits and
+     * time based ones share most of their high bits.
+     */
+    private static long mix(final long key) {
+        long mixed = key;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xff51afd7ed558ccdL;
+        mixed ^= mixed >>> 33;
+        mixed *= 0xc4ceb9fe1a85ec53L;
+        mixed ^= mixed >>> 33;
+        return mixed;
+    }
+}
@@ -0,0 +1,61 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.lang.String.format;
+
+/**
+ * Snapshot of the progress of a rebalancing of the event store between shards.
+ */
+public class RebalanceProgress {
+
+    private final long streams;
+    private final long movedStreams;
+    private final long movedEvents;
+    private final long failedStreams;
+    private final long elapsedMillis;
+
+    public RebalanceProgress(final long streams, final long movedStreams, final long movedEvents, final long failedStreams, final long elapsedMillis) {
+        this.streams = streams;
+        this.movedStreams = movedStreams;
+        this.movedEvents = movedEvents;
+        this.failedStreams = failedStreams;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    /**
+     * @return the number of streams checked, including those that did not need to move
+     */
+    public long getStreams() {
+        return streams;
+    }
+
+    /**
+     * @return the number of streams moved to another shard
+     */
+    public long getMovedStreams() {
+        return movedStreams;
+    }
+
+    /**
+     * @return the number of events copied to another shard
+     */
+    public long getMovedEvents() {
+        return movedEvents;
+    }
+
+    /**
+     * @return the number of streams that could not be moved, and are left in their old shard
+     */
+    public long getFailedStreams() {
+        return failedStreams;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    @Override
+    public String toString() {
+        return format("RebalanceProgress[streams=%s, movedStreams=%s, movedEvents=%s, failedStreams=%s, elapsedMillis=%s]",
+                streams, movedStreams, movedEvents, failedStreams, elapsedMillis);
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.util.Collections.emptyIterator;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Spliterator concatenating the streams read from each shard, one shard after the other. The
+ * stream of a shard is only opened once the streams of the shards before it have been read to the
+ * end, and is closed as soon as it has been read to the end, so the stream of at most one shard is
+ * open at a time.
+ *
+ * @param <T> the type of the elements
+ */
+public class ShardConcatSpliterator<T> extends AbstractSpliterator<T> {
+
+    private final Iterator<Supplier<Stream<T>>> shards;
+
+    private Stream<T> current;
+    private Iterator<T> currentIterator = emptyIterator();
+
+    public ShardConcatSpliterator(final List<Supplier<Stream<T>>> shards) {
+        super(Long.MAX_VALUE, ORDERED);
+        this.shards = shards.iterator();
+    }
+
+    /**
+     * Concatenate the streams of each shard into a single stream. Closing the concatenated stream
+     * closes the stream of the shard being read.
+     *
+     * @param shards the supplier opening the stream of each shard, in shard order
+     * @param <T>    the type of the elements
+     * @return the concatenated stream
+     */
+    public static <T> Stream<T> concat(final List<Supplier<Stream<T>>> shards) {
+        final ShardConcatSpliterator<T> spliterator = new ShardConcatSpliterator<>(shards);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::closeCurrent);
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> consumer) {
+        while (!currentIterator.hasNext()) {
+            closeCurrent();
+            if (!shards.hasNext()) {
+                return false;
+            }
+            current = shards.next().get();
+            currentIterator = current.iterator();
+        }
+
+        consumer.accept(currentIterator.next());
+        return true;
+    }
+
+    private void closeCurrent() {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+        currentIterator = emptyIterator();
+    }
+}
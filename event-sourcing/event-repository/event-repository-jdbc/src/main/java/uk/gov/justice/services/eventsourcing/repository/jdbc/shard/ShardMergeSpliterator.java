@@ -0,0 +1,92 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Spliterator merging the streams read from each shard, each already in order, into a single
+ * stream in the same order. Only the next element of each shard is held, so the streams of all
+ * shards are read side by side as the merged stream is consumed. Equal elements are taken from
+ * the shard with the lowest index first.
+ *
+ * @param <T> the type of the elements
+ */
+public class ShardMergeSpliterator<T> extends AbstractSpliterator<T> {
+
+    private final List<Iterator<T>> shards;
+    private final PriorityQueue<Head<T>> heads;
+
+    private boolean started = false;
+
+    public ShardMergeSpliterator(final List<Iterator<T>> shards, final Comparator<? super T> comparator) {
+        super(Long.MAX_VALUE, ORDERED | NONNULL);
+        this.shards = shards;
+        this.heads = new PriorityQueue<>(Math.max(1, shards.size()), Comparator
+                .<Head<T>, T>comparing(head -> head.element, comparator)
+                .thenComparingInt(head -> head.shard));
+    }
+
+    /**
+     * Merge the streams of each shard into a single stream. Closing the merged stream closes the
+     * stream of every shard.
+     *
+     * @param streams    the stream of each shard, in shard order
+     * @param comparator the order of the elements in each stream
+     * @param <T>        the type of the elements
+     * @return the merged stream
+     */
+    public static <T> Stream<T> merge(final List<Stream<T>> streams, final Comparator<? super T> comparator) {
+        Stream<T> merged = StreamSupport.stream(new ShardMergeSpliterator<>(streams.stream()
+                .map(Stream::iterator)
+                .collect(toList()), comparator), false);
+        for (final Stream<T> stream : streams) {
+            merged = merged.onClose(stream::close);
+        }
+        return merged;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super T> consumer) {
+        if (!started) {
+            for (int shard = 0; shard < shards.size(); shard++) {
+                advance(shard);
+            }
+            started = true;
+        }
+
+        final Head<T> next = heads.poll();
+        if (next == null) {
+            return false;
+        }
+
+        advance(next.shard);
+        consumer.accept(next.element);
+        return true;
+    }
+
+    private void advance(final int shard) {
+        final Iterator<T> iterator = shards.get(shard);
+        if (iterator.hasNext()) {
+            heads.add(new Head<>(iterator.next(), shard));
+        }
+    }
+
+    private static class Head<T> {
+
+        private final T element;
+        private final int shard;
+
+        Head(final T element, final int shard) {
+            this.element = element;
+            this.shard = shard;
+        }
+    }
+}
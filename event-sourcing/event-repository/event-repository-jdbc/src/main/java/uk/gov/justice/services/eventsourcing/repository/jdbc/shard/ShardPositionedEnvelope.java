@@ -0,0 +1,44 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+/**
+ * An event read from a sharded event store together with its shard, its position in that shard
+ * and the positions of every shard to resume reading from once the event has been processed.
+ */
+public class ShardPositionedEnvelope {
+
+    private final int shard;
+    private final long position;
+    private final JsonEnvelope envelope;
+    private final ShardPositions resumePositions;
+
+    public ShardPositionedEnvelope(final int shard, final long position, final JsonEnvelope envelope, final ShardPositions resumePositions) {
+        this.shard = shard;
+        this.position = position;
+        this.envelope = envelope;
+        this.resumePositions = resumePositions;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    /**
+     * @return the position of the event in its shard
+     */
+    public long getPosition() {
+        return position;
+    }
+
+    public JsonEnvelope getEnvelope() {
+        return envelope;
+    }
+
+    /**
+     * @return the positions to resume from after this event, to be kept as the checkpoint
+     */
+    public ShardPositions getResumePositions() {
+        return resumePositions;
+    }
+}
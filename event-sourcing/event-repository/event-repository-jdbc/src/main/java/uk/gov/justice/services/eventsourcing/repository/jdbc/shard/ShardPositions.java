@@ -0,0 +1,103 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.lang.String.format;
+import static java.util.stream.Collectors.joining;
+
+import java.util.Arrays;
+
+/**
+ * The positions to resume reading all events of a sharded event store from, one for each shard.
+ *
+ * Events are committed to each shard independently, so no single number orders the events of all
+ * shards: an event committed later to a shard that lags behind can only be found again by keeping
+ * the position read up to in every shard. The positions are written as a comma separated list in
+ * shard order, to be stored as a checkpoint and parsed again with {@link #parse(String)}.
+ */
+public final class ShardPositions {
+
+    private static final String SEPARATOR = ",";
+
+    private final long[] positions;
+
+    private ShardPositions(final long[] positions) {
+        this.positions = positions;
+    }
+
+    /**
+     * The positions of the first event of every shard.
+     *
+     * @param shardCount the number of shards
+     * @return the positions to read every shard from its start
+     */
+    public static ShardPositions start(final int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException(format("shardCount must be positive, was %d.", shardCount));
+        }
+        return new ShardPositions(new long[shardCount]);
+    }
+
+    /**
+     * Parse positions written by {@link #toString()}.
+     *
+     * @param positions the comma separated positions of each shard
+     * @return the positions
+     * @throws IllegalArgumentException if a position is not a non-negative number
+     */
+    public static ShardPositions parse(final String positions) {
+        final String[] values = positions.split(SEPARATOR, -1);
+        final long[] parsed = new long[values.length];
+        for (int shard = 0; shard < values.length; shard++) {
+            try {
+                parsed[shard] = Long.parseLong(values[shard].trim());
+            } catch (final NumberFormatException e) {
+                throw new IllegalArgumentException(format("Invalid position of shard %d in '%s'.", shard, positions), e);
+            }
+            if (parsed[shard] < 0L) {
+                throw new IllegalArgumentException(format("Invalid position of shard %d in '%s'.", shard, positions));
+            }
+        }
+        return new ShardPositions(parsed);
+    }
+
+    public int shardCount() {
+        return positions.length;
+    }
+
+    /**
+     * @param shard the index of the shard
+     * @return the position to read the shard from (inclusive)
+     */
+    public long of(final int shard) {
+        return positions[shard];
+    }
+
+    /**
+     * The positions to resume from once the event at the given position of a shard has been read.
+     *
+     * @param shard    the index of the shard the event was read from
+     * @param position the position of the event in the shard
+     * @return the positions to resume from, leaving these positions unchanged
+     */
+    public ShardPositions after(final int shard, final long position) {
+        final long[] next = positions.clone();
+        next[shard] = position + 1;
+        return new ShardPositions(next);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return this == o || o instanceof ShardPositions && Arrays.equals(positions, ((ShardPositions) o).positions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(positions);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.stream(positions)
+                .mapToObj(Long::toString)
+                .collect(joining(SEPARATOR));
+    }
+}
@@ -0,0 +1,62 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards;
+
+import javax.enterprise.inject.Instance;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventRepositoryProducerTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private EventStoreShards eventStoreShards;
+
+    @Mock
+    private Instance<JdbcEventRepository> jdbcEventRepositoryInstance;
+
+    @Mock
+    private Instance<ShardedEventRepository> shardedEventRepositoryInstance;
+
+    @InjectMocks
+    private EventRepositoryProducer eventRepositoryProducer;
+
+    private final JdbcEventRepository jdbcEventRepository = new JdbcEventRepository();
+    private final ShardedEventRepository shardedEventRepository = mock(ShardedEventRepository.class);
+
+    @Before
+    public void setup() {
+        eventRepositoryProducer.jdbcEventRepository = jdbcEventRepositoryInstance;
+        eventRepositoryProducer.shardedEventRepository = shardedEventRepositoryInstance;
+        when(jdbcEventRepositoryInstance.get()).thenReturn(jdbcEventRepository);
+        when(shardedEventRepositoryInstance.get()).thenReturn(shardedEventRepository);
+    }
+
+    @Test
+    public void shouldProduceJdbcEventRepositoryForSingleShard() {
+        when(eventStoreShards.count()).thenReturn(1);
+
+        assertThat(eventRepositoryProducer.eventRepository(), sameInstance(jdbcEventRepository));
+    }
+
+    @Test
+    public void shouldProduceShardedEventRepositoryForMoreThanOneShard() {
+        when(eventStoreShards.count()).thenReturn(2);
+
+        assertThat(eventRepositoryProducer.eventRepository(), sameInstance(shardedEventRepository));
+    }
+}
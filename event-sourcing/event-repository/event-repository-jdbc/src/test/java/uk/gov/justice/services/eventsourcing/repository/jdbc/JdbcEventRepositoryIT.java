@@ -0,0 +1,63 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc;
+
+import static org.mockito.Mockito.mock;
+import static uk.gov.justice.services.test.utils.common.reflection.ReflectionUtils.setField;
+
+import uk.gov.justice.services.common.converter.StringToJsonObjectConverter;
+import uk.gov.justice.services.common.util.UtcClock;
+import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+import uk.gov.justice.services.messaging.JsonObjectEnvelopeConverter;
+import uk.gov.justice.services.test.utils.eventstore.AbstractEventRepositoryContractTest;
+
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.slf4j.Logger;
+
+/**
+ * Runs the {@link EventRepository} contract tests against the {@link JdbcEventRepository} on an
+ * in memory H2 event store.
+ */
+public class JdbcEventRepositoryIT extends AbstractEventRepositoryContractTest {
+
+    private static final String LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML = "liquibase/event-store-db-changelog.xml";
+
+    private JdbcEventRepository jdbcEventRepository;
+
+    @Before
+    public void initializeDependencies() throws Exception {
+        final JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:test;MV_STORE=FALSE;MVCC=FALSE");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+
+        final Liquibase liquibase = new Liquibase(LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection()));
+        liquibase.dropAll();
+        liquibase.update("");
+
+        final EventLogJdbcRepository eventLogJdbcRepository = new EventLogJdbcRepository();
+        setField(eventLogJdbcRepository, "datasource", dataSource);
+
+        final EventLogConverter eventLogConverter = new EventLogConverter();
+        setField(eventLogConverter, "jsonObjectEnvelopeConverter", new JsonObjectEnvelopeConverter());
+        setField(eventLogConverter, "stringToJsonObjectConverter", new StringToJsonObjectConverter());
+        setField(eventLogConverter, "clock", new UtcClock());
+
+        jdbcEventRepository = new JdbcEventRepository();
+        jdbcEventRepository.logger = mock(Logger.class);
+        jdbcEventRepository.eventLogJdbcRepository = eventLogJdbcRepository;
+        jdbcEventRepository.eventLogConverter = eventLogConverter;
+        jdbcEventRepository.clock = new UtcClock();
+        jdbcEventRepository.positionGapTimeoutMillis = "300000";
+    }
+
+    @Override
+    protected EventRepository eventRepository() {
+        return jdbcEventRepository;
+    }
+}
@@ -1,17 +1,32 @@
 package uk.gov.justice.services.eventsourcing.repository.jdbc;
 
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
 
+import uk.gov.justice.services.common.util.Clock;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEnvelope;
 import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
@@ -24,11 +39,16 @@ import uk.gov.justice.services.messaging.JsonEnvelope;
 import uk.gov.justice.services.messaging.Metadata;
 import uk.gov.justice.services.test.utils.common.stream.StreamCloseSpy;
 
+import java.time.ZonedDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
@@ -63,9 +83,17 @@ public class JdbcEventRepositoryTest {
     @Mock
     private EventLog eventLog;
 
+    @Mock
+    private Clock clock;
+
     @InjectMocks
     private JdbcEventRepository jdbcEventRepository;
 
+    @Before
+    public void setup() {
+        jdbcEventRepository.positionGapTimeoutMillis = "1000";
+    }
+
     @Test
     public void shouldGetByStreamId() throws Exception {
         when(eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(STREAM_ID)).thenReturn(Stream.of(eventLog));
@@ -102,6 +130,199 @@ public class JdbcEventRepositoryTest {
         verify(logger).trace("Retrieving all events");
     }
 
+    @Test
+    public void shouldGetCurrentSequenceIdsForStreams() throws Exception {
+        final List<UUID> streamIds = singletonList(STREAM_ID);
+        final Map<UUID, Long> sequenceIds = singletonMap(STREAM_ID, VERSION_1);
+        when(eventLogJdbcRepository.getLatestSequenceIdsForStreams(streamIds)).thenReturn(sequenceIds);
+
+        assertThat(jdbcEventRepository.getCurrentSequenceIdsForStreams(streamIds), equalTo(sequenceIds));
+    }
+
+    @Test
+    public void shouldGetByStreamIdAndNames() throws Exception {
+        final Set<String> names = singleton("test.event");
+        when(eventLogJdbcRepository.findByStreamIdAndNamesOrderBySequenceIdAsc(STREAM_ID, names)).thenReturn(Stream.of(eventLog));
+        when(eventLogConverter.createEnvelope(eventLog)).thenReturn(envelope);
+
+        final Stream<JsonEnvelope> streamOfEnvelopes = jdbcEventRepository.getByStreamIdAndNames(STREAM_ID, names);
+
+        assertThat(streamOfEnvelopes.findFirst().get(), equalTo(envelope));
+    }
+
+    @Test
+    public void shouldGetByStreamIdAndSequenceIdAndNames() throws Exception {
+        final Set<String> names = singleton("test.event");
+        when(eventLogJdbcRepository.findByStreamIdFromSequenceIdAndNamesOrderBySequenceIdAsc(STREAM_ID, VERSION_1, names)).thenReturn(Stream.of(eventLog));
+        when(eventLogConverter.createEnvelope(eventLog)).thenReturn(envelope);
+
+        final Stream<JsonEnvelope> streamOfEnvelopes = jdbcEventRepository.getByStreamIdAndSequenceIdAndNames(STREAM_ID, VERSION_1, names);
+
+        assertThat(streamOfEnvelopes.findFirst().get(), equalTo(envelope));
+    }
+
+    @Test(expected = InvalidStreamIdException.class)
+    public void shouldThrowExceptionOnNullStreamIdWhenGettingByNames() throws Exception {
+        jdbcEventRepository.getByStreamIdAndNames(null, singleton("test.event"));
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowExceptionOnNullNames() throws Exception {
+        jdbcEventRepository.getByStreamIdAndNames(STREAM_ID, null);
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowExceptionOnNullSequenceIdWhenGettingByNames() throws Exception {
+        jdbcEventRepository.getByStreamIdAndSequenceIdAndNames(STREAM_ID, null, singleton("test.event"));
+    }
+
+    @Test
+    public void shouldReadAllFromPositionInPages() throws Exception {
+        final EventLog event1 = eventLogAt(5L);
+        final EventLog event2 = eventLogAt(6L);
+        final EventLog event3 = eventLogAt(9L);
+        final JsonEnvelope envelope1 = envelope().build();
+        final JsonEnvelope envelope2 = envelope().build();
+        final JsonEnvelope envelope3 = envelope().build();
+
+        when(eventLogJdbcRepository.findFromPositionOrderByPositionAsc(5L, 2)).thenReturn(asList(event1, event2));
+        when(eventLogJdbcRepository.findFromPositionOrderByPositionAsc(7L, 2)).thenReturn(singletonList(event3));
+        when(eventLogConverter.createEnvelope(event1)).thenReturn(envelope1);
+        when(eventLogConverter.createEnvelope(event2)).thenReturn(envelope2);
+        when(eventLogConverter.createEnvelope(event3)).thenReturn(envelope3);
+
+        final List<PositionedEnvelope> envelopes = jdbcEventRepository.readAllFrom(5L, 2).collect(toList());
+
+        assertThat(envelopes, hasSize(3));
+        assertThat(envelopes.get(0).getPosition(), is(5L));
+        assertThat(envelopes.get(0).getEnvelope(), is(envelope1));
+        assertThat(envelopes.get(1).getPosition(), is(6L));
+        assertThat(envelopes.get(1).getEnvelope(), is(envelope2));
+        assertThat(envelopes.get(2).getPosition(), is(9L));
+        assertThat(envelopes.get(2).getEnvelope(), is(envelope3));
+        verify(eventLogJdbcRepository, times(2)).findFromPositionOrderByPositionAsc(anyLong(), anyInt());
+    }
+
+    @Test
+    public void shouldNotReadNextPageUntilCurrentPageConsumed() throws Exception {
+        final EventLog event1 = eventLogAt(1L);
+        when(eventLogJdbcRepository.findFromPositionOrderByPositionAsc(1L, 1)).thenReturn(singletonList(event1));
+        when(eventLogConverter.createEnvelope(event1)).thenReturn(envelope);
+
+        final Optional<PositionedEnvelope> first = jdbcEventRepository.readAllFrom(1L, 1).findFirst();
+
+        assertThat(first.get().getEnvelope(), is(envelope));
+        verify(eventLogJdbcRepository, never()).findFromPositionOrderByPositionAsc(2L, 1);
+    }
+
+    @Test
+    public void shouldStopBeforeMissingPositionWhileEventAfterItIsWithinGapTimeout() throws Exception {
+        final ZonedDateTime now = ZonedDateTime.now(UTC);
+        final EventLog event1 = eventLogAt(5L, now.minusSeconds(10));
+        final EventLog event2 = eventLogAt(7L, now.minusNanos(100_000_000L));
+        when(clock.now()).thenReturn(now);
+        when(eventLogJdbcRepository.findFromPositionOrderByPositionAsc(5L, 10)).thenReturn(asList(event1, event2));
+        when(eventLogConverter.createEnvelope(event1)).thenReturn(envelope);
+
+        final List<PositionedEnvelope> envelopes = jdbcEventRepository.readAllFrom(5L, 10).collect(toList());
+
+        assertThat(envelopes, hasSize(1));
+        assertThat(envelopes.get(0).getPosition(), is(5L));
+        verify(eventLogJdbcRepository, times(1)).findFromPositionOrderByPositionAsc(anyLong(), anyInt());
+    }
+
+    @Test
+    public void shouldStopBeforeMissingStartPositionWhileEventAfterItIsWithinGapTimeout() throws Exception {
+        final ZonedDateTime now = ZonedDateTime.now(UTC);
+        when(clock.now()).thenReturn(now);
+        when(eventLogJdbcRepository.findFromPositionOrderByPositionAsc(5L, 10)).thenReturn(singletonList(eventLogAt(6L, now)));
+
+        assertThat(jdbcEventRepository.readAllFrom(5L, 10).count(), is(0L));
+    }
+
+    @Test
+    public void shouldReadPastMissingPositionOnceEventAfterItIsOlderThanGapTimeout() throws Exception {
+        final ZonedDateTime now = ZonedDateTime.now(UTC);
+        final EventLog event1 = eventLogAt(5L, now.minusSeconds(10));
+        final EventLog event2 = eventLogAt(7L, now.minusSeconds(2));
+        final JsonEnvelope envelope2 = envelope().build();
+        when(clock.now()).thenReturn(now);
+        when(eventLogJdbcRepository.findFromPositionOrderByPositionAsc(5L, 10)).thenReturn(asList(event1, event2));
+        when(eventLogConverter.createEnvelope(event1)).thenReturn(envelope);
+        when(eventLogConverter.createEnvelope(event2)).thenReturn(envelope2);
+
+        final List<PositionedEnvelope> envelopes = jdbcEventRepository.readAllFrom(5L, 10).collect(toList());
+
+        assertThat(envelopes.stream().map(PositionedEnvelope::getPosition).collect(toList()), contains(5L, 7L));
+    }
+
+    @Test
+    public void shouldExpectFirstEventAtFirstPositionWhenReadingFromStart() throws Exception {
+        final ZonedDateTime now = ZonedDateTime.now(UTC);
+        final EventLog event1 = eventLogAt(1L, now);
+        when(eventLogJdbcRepository.findFromPositionOrderByPositionAsc(1L, 10)).thenReturn(singletonList(event1));
+        when(eventLogConverter.createEnvelope(event1)).thenReturn(envelope);
+
+        assertThat(jdbcEventRepository.readAllFrom(0L, 10).count(), is(1L));
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowExceptionOnInvalidPageSize() throws Exception {
+        jdbcEventRepository.readAllFrom(1L, 0);
+    }
+
+    @Test
+    public void shouldGetStreamInReverseInPages() throws Exception {
+        final EventLog event3 = eventLogWithSequenceId(3L);
+        final EventLog event2 = eventLogWithSequenceId(2L);
+        final EventLog event1 = eventLogWithSequenceId(1L);
+        final JsonEnvelope envelope3 = envelope().build();
+        final JsonEnvelope envelope2 = envelope().build();
+        final JsonEnvelope envelope1 = envelope().build();
+
+        when(eventLogJdbcRepository.findByStreamIdBeforeSequenceIdOrderBySequenceIdDesc(STREAM_ID, Long.MAX_VALUE, 2)).thenReturn(asList(event3, event2));
+        when(eventLogJdbcRepository.findByStreamIdBeforeSequenceIdOrderBySequenceIdDesc(STREAM_ID, 2L, 2)).thenReturn(singletonList(event1));
+        when(eventLogConverter.createEnvelope(event3)).thenReturn(envelope3);
+        when(eventLogConverter.createEnvelope(event2)).thenReturn(envelope2);
+        when(eventLogConverter.createEnvelope(event1)).thenReturn(envelope1);
+
+        assertThat(jdbcEventRepository.getByStreamIdInReverse(STREAM_ID, 2).collect(toList()), contains(envelope3, envelope2, envelope1));
+    }
+
+    @Test
+    public void shouldNotReadNextPageInReverseUntilCurrentPageConsumed() throws Exception {
+        final EventLog event3 = eventLogWithSequenceId(3L);
+        when(eventLogJdbcRepository.findByStreamIdBeforeSequenceIdOrderBySequenceIdDesc(STREAM_ID, Long.MAX_VALUE, 1)).thenReturn(singletonList(event3));
+        when(eventLogConverter.createEnvelope(event3)).thenReturn(envelope);
+
+        assertThat(jdbcEventRepository.getByStreamIdInReverse(STREAM_ID, 1).findFirst().get(), is(envelope));
+        verify(eventLogJdbcRepository, times(1)).findByStreamIdBeforeSequenceIdOrderBySequenceIdDesc(any(UUID.class), anyLong(), anyInt());
+    }
+
+    @Test
+    public void shouldGetEventsInTimeRange() throws Exception {
+        final ZonedDateTime from = ZonedDateTime.of(2017, 3, 1, 10, 0, 0, 0, UTC);
+        final ZonedDateTime to = from.plusHours(1);
+        final EventLog event1 = eventLogAt(5L);
+        final EventLog event2 = eventLogAt(9L);
+        final JsonEnvelope envelope1 = envelope().build();
+        final JsonEnvelope envelope2 = envelope().build();
+
+        when(eventLogJdbcRepository.findInTimeRangeOrderByDateCreatedAsc(eq(from), eq(to), isNull(EventLog.class), anyInt())).thenReturn(asList(event1, event2));
+        when(eventLogConverter.createEnvelope(event1)).thenReturn(envelope1);
+        when(eventLogConverter.createEnvelope(event2)).thenReturn(envelope2);
+
+        final List<JsonEnvelope> envelopes = jdbcEventRepository.getByTimeRange(from, to).collect(toList());
+
+        assertThat(envelopes, contains(envelope1, envelope2));
+        verify(eventLogJdbcRepository, times(1)).findInTimeRangeOrderByDateCreatedAsc(any(ZonedDateTime.class), any(ZonedDateTime.class), any(EventLog.class), anyInt());
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldThrowExceptionOnNullTimeRange() throws Exception {
+        jdbcEventRepository.getByTimeRange(null, ZonedDateTime.now(UTC));
+    }
+
     @Test
     public void shouldGetStreamOfStreams() throws Exception {
         final UUID streamId1 = UUID.fromString("4b4e80a0-76f7-476c-b75b-527e38fb251e");
@@ -135,6 +356,70 @@ public class JdbcEventRepositoryTest {
         assertThat(listOfStreams.get(2).findFirst().get(), is(envelope3));
     }
 
+    @Test
+    public void shouldGetStreamOfStreamsOneAtATime() throws Exception {
+        final UUID streamId1 = UUID.fromString("4b4e80a0-76f7-476c-b75b-527e38fb251e");
+        final UUID streamId2 = UUID.fromString("4b4e80a0-76f7-476c-b75b-527e38fb252e");
+
+        final EventLog event1 = eventLogOf(streamId1);
+        final EventLog event2 = eventLogOf(streamId2);
+        final JsonEnvelope envelope1 = envelope().build();
+        final JsonEnvelope envelope2 = envelope().build();
+
+        when(eventLogJdbcRepository.getStreamIds()).thenReturn(Stream.of(streamId1, streamId2));
+        when(eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(streamId1)).thenReturn(Stream.of(event1));
+        when(eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(streamId2)).thenReturn(Stream.of(event2));
+
+        when(eventLogConverter.createEnvelope(event1)).thenReturn(envelope1);
+        when(eventLogConverter.createEnvelope(event2)).thenReturn(envelope2);
+
+        final List<JsonEnvelope> firstEnvelopes = jdbcEventRepository.getStreamOfAllEventStreamsOneAtATime()
+                .map(eventStream -> eventStream.findFirst().get())
+                .collect(toList());
+
+        assertThat(firstEnvelopes, contains(envelope1, envelope2));
+    }
+
+    @Test
+    public void shouldKeepEachStreamOpenWhenNextStreamIsPulled() throws Exception {
+        final UUID streamId1 = UUID.fromString("4b4e80a0-76f7-476c-b75b-527e38fb251e");
+        final UUID streamId2 = UUID.fromString("4b4e80a0-76f7-476c-b75b-527e38fb252e");
+
+        final StreamCloseSpy streamCloseSpy1 = new StreamCloseSpy();
+
+        when(eventLogJdbcRepository.getStreamIds()).thenReturn(Stream.of(streamId1, streamId2));
+        when(eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(streamId1)).thenReturn(Stream.of(eventLogOf(streamId1)).onClose(streamCloseSpy1));
+        when(eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(streamId2)).thenReturn(Stream.of(eventLogOf(streamId2)));
+
+        final Iterator<Stream<JsonEnvelope>> eventStreams = jdbcEventRepository.getStreamOfAllEventStreams().iterator();
+
+        eventStreams.next();
+        eventStreams.next();
+        assertThat(streamCloseSpy1.streamClosed(), is(false));
+    }
+
+    @Test
+    public void shouldCloseEachStreamWhenNextStreamIsPulledOneAtATime() throws Exception {
+        final UUID streamId1 = UUID.fromString("4b4e80a0-76f7-476c-b75b-527e38fb251e");
+        final UUID streamId2 = UUID.fromString("4b4e80a0-76f7-476c-b75b-527e38fb252e");
+
+        final StreamCloseSpy streamCloseSpy1 = new StreamCloseSpy();
+        final StreamCloseSpy streamCloseSpy2 = new StreamCloseSpy();
+
+        when(eventLogJdbcRepository.getStreamIds()).thenReturn(Stream.of(streamId1, streamId2));
+        when(eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(streamId1)).thenReturn(Stream.of(eventLogOf(streamId1)).onClose(streamCloseSpy1));
+        when(eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(streamId2)).thenReturn(Stream.of(eventLogOf(streamId2)).onClose(streamCloseSpy2));
+
+        final Iterator<Stream<JsonEnvelope>> eventStreams = jdbcEventRepository.getStreamOfAllEventStreamsOneAtATime().iterator();
+
+        eventStreams.next();
+        assertThat(streamCloseSpy1.streamClosed(), is(false));
+
+        eventStreams.next();
+        assertThat(streamCloseSpy1.streamClosed(), is(true));
+        assertThat(streamCloseSpy2.streamClosed(), is(false));
+    }
+
     @Test
     public void shouldCloseAllStreamsOnCloseOfStreamOfStreams() throws Exception {
         final UUID streamId1 = UUID.fromString("4b4e80a0-76f7-476c-b75b-527e38fb251e");
@@ -212,6 +497,33 @@ public class JdbcEventRepositoryTest {
         jdbcEventRepository.store(envelope, STREAM_ID, VERSION_1);
     }
 
+    @Test
+    public void shouldStoreAllEnvelopesAsBatchAtConsecutiveVersions() throws Exception {
+        final JsonEnvelope envelope2 = envelope().build();
+        final EventLog eventLog2 = eventLogOf(STREAM_ID);
+        when(eventLogConverter.createEventLog(envelope, STREAM_ID, VERSION_1)).thenReturn(eventLog);
+        when(eventLogConverter.createEventLog(envelope2, STREAM_ID, VERSION_1 + 1)).thenReturn(eventLog2);
+
+        jdbcEventRepository.storeAll(asList(envelope, envelope2), STREAM_ID, VERSION_1);
+
+        verify(eventLogJdbcRepository).insertBatch(asList(eventLog, eventLog2));
+        verify(logger).trace("Storing {} events into stream {} from version {}", 2, STREAM_ID, VERSION_1);
+    }
+
+    @Test(expected = StoreEventRequestFailedException.class)
+    public void shouldThrowExceptionOnDuplicateVersionWhenStoringAll() throws Exception {
+        when(eventLogConverter.createEventLog(envelope, STREAM_ID, VERSION_1)).thenReturn(eventLog);
+
+        doThrow(InvalidSequenceIdException.class).when(eventLogJdbcRepository).insertBatch(singletonList(eventLog));
+
+        jdbcEventRepository.storeAll(singletonList(envelope), STREAM_ID, VERSION_1);
+    }
+
+    @Test(expected = StoreEventRequestFailedException.class)
+    public void shouldThrowExceptionOnNullVersionWhenStoringAll() throws Exception {
+        jdbcEventRepository.storeAll(singletonList(envelope), STREAM_ID, null);
+    }
+
     @Test
     public void shouldReturnTestSequenceId() {
         when(eventLogJdbcRepository.getLatestSequenceIdForStream(STREAM_ID)).thenReturn(VERSION_1);
@@ -223,4 +535,16 @@ public class JdbcEventRepositoryTest {
         return new EventLog(null, streamId, null, null, null, null, null);
     }
 
+    private EventLog eventLogWithSequenceId(final long sequenceId) {
+        return new EventLog(null, STREAM_ID, sequenceId, null, null, null, null);
+    }
+
+    private EventLog eventLogAt(final long position) {
+        return new EventLog(null, STREAM_ID, null, null, null, null, null, position);
+    }
+
+    private EventLog eventLogAt(final long position, final ZonedDateTime dateCreated) {
+        return new EventLog(null, STREAM_ID, null, null, null, null, dateCreated, position);
+    }
+
 }
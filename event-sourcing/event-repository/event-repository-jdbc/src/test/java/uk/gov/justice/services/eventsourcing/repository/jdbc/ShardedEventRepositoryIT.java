@@ -0,0 +1,285 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.test.utils.common.reflection.ReflectionUtils.setField;
+
+import uk.gov.justice.services.common.converter.StringToJsonObjectConverter;
+import uk.gov.justice.services.common.util.Clock;
+import uk.gov.justice.services.common.util.UtcClock;
+import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.ShardPositionedEnvelope;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.ShardPositions;
+import uk.gov.justice.services.jdbc.persistence.JdbcRepositoryException;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+import uk.gov.justice.services.messaging.JsonObjectEnvelopeConverter;
+import uk.gov.justice.services.test.utils.eventstore.AbstractEventRepositoryContractTest;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+/**
+ * Runs the {@link EventRepository} contract tests against the {@link ShardedEventRepository} on
+ * two in memory H2 event store shards.
+ */
+public class ShardedEventRepositoryIT extends AbstractEventRepositoryContractTest {
+
+    private static final String LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML = "liquibase/event-store-db-changelog.xml";
+    private static final int SHARDS = 2;
+
+    private final List<EventLogJdbcRepository> shards = new ArrayList<>();
+
+    private EventStoreShards eventStoreShards;
+    private ShardedEventRepository shardedEventRepository;
+
+    @Before
+    public void initializeDependencies() throws Exception {
+        final EventLogJdbcRepository eventLogJdbcRepository = mock(EventLogJdbcRepository.class);
+        for (int shard = 0; shard < SHARDS; shard++) {
+            shards.add(eventLogJdbcRepositoryOf(shard));
+            when(eventLogJdbcRepository.forShard(shard)).thenReturn(shards.get(shard));
+        }
+
+        eventStoreShards = new EventStoreShards();
+        setField(eventStoreShards, "shards", String.valueOf(SHARDS));
+        setField(eventStoreShards, "eventLogJdbcRepository", eventLogJdbcRepository);
+        eventStoreShards.initialise();
+
+        final EventLogConverter eventLogConverter = new EventLogConverter();
+        setField(eventLogConverter, "jsonObjectEnvelopeConverter", new JsonObjectEnvelopeConverter());
+        setField(eventLogConverter, "stringToJsonObjectConverter", new StringToJsonObjectConverter());
+        setField(eventLogConverter, "clock", new StrictlyIncreasingClock());
+
+        shardedEventRepository = new ShardedEventRepository();
+        shardedEventRepository.logger = mock(Logger.class);
+        shardedEventRepository.eventLogConverter = eventLogConverter;
+        shardedEventRepository.eventStoreShards = eventStoreShards;
+        shardedEventRepository.clock = new UtcClock();
+        shardedEventRepository.positionGapTimeoutMillis = "300000";
+        shardedEventRepository.initialise();
+    }
+
+    @Override
+    protected EventRepository eventRepository() {
+        return shardedEventRepository;
+    }
+
+    @Test
+    public void shouldStoreEachStreamOnlyInItsShard() throws Exception {
+        final List<UUID> streamIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            final UUID streamId = randomUUID();
+            shardedEventRepository.store(eventOf(streamId, 1L), streamId, 1L);
+            streamIds.add(streamId);
+        }
+
+        for (final UUID streamId : streamIds) {
+            final int shard = eventStoreShards.shardOf(streamId);
+            assertThat(shards.get(shard).getLatestSequenceIdForStream(streamId), is(1L));
+            assertThat(shards.get(1 - shard).getLatestSequenceIdForStream(streamId), is(0L));
+        }
+        assertThat(shardedEventRepository.getCurrentSequenceIdsForStreams(streamIds).values().stream().distinct().collect(toList()), contains(1L));
+    }
+
+    @Test
+    public void shouldReadAllEventsOfEveryShardFromPositions() throws Exception {
+        final UUID streamId1 = streamIdInShard(0);
+        final UUID streamId2 = streamIdInShard(1);
+        final JsonEnvelope event1 = eventOf(streamId1, 1L);
+        final JsonEnvelope event2 = eventOf(streamId2, 1L);
+        final JsonEnvelope event3 = eventOf(streamId1, 2L);
+        shardedEventRepository.store(event1, streamId1, 1L);
+        shardedEventRepository.store(event2, streamId2, 1L);
+        shardedEventRepository.store(event3, streamId1, 2L);
+
+        final List<ShardPositionedEnvelope> all = shardedEventRepository.readAllFrom(ShardPositions.start(SHARDS), 1).collect(toList());
+
+        assertThat(idsOfPositioned(all), containsInAnyOrder(idOf(event1), idOf(event2), idOf(event3)));
+        assertThat(idsOfPositioned(shardedEventRepository.readAllFrom(all.get(0).getResumePositions(), 1).collect(toList())),
+                contains(idOf(all.get(1).getEnvelope()), idOf(all.get(2).getEnvelope())));
+        assertThat(idsOfPositioned(shardedEventRepository.readAllFrom(all.get(2).getResumePositions(), 1).collect(toList())), is(empty()));
+    }
+
+    @Test
+    public void shouldReadEventAppendedToSlowerShardAfterCheckpointWasTaken() throws Exception {
+        final UUID slowStreamId = streamIdInShard(0);
+        final UUID fastStreamId = streamIdInShard(1);
+        shardedEventRepository.store(eventOf(slowStreamId, 1L), slowStreamId, 1L);
+        for (long version = 1L; version <= 5L; version++) {
+            shardedEventRepository.store(eventOf(fastStreamId, version), fastStreamId, version);
+        }
+
+        final List<ShardPositionedEnvelope> read = shardedEventRepository.readAllFrom(ShardPositions.start(SHARDS), 2).collect(toList());
+        final ShardPositions checkpoint = ShardPositions.parse(read.get(read.size() - 1).getResumePositions().toString());
+
+        final JsonEnvelope appended = eventOf(slowStreamId, 2L);
+        shardedEventRepository.store(appended, slowStreamId, 2L);
+
+        final List<ShardPositionedEnvelope> resumed = shardedEventRepository.readAllFrom(checkpoint, 2).collect(toList());
+        assertThat(idsOfPositioned(resumed), contains(idOf(appended)));
+        assertThat(resumed.get(0).getShard(), is(0));
+    }
+
+    @Test(expected = JdbcRepositoryException.class)
+    public void shouldRejectPositionsOfOtherNumberOfShards() {
+        shardedEventRepository.readAllFrom(ShardPositions.start(SHARDS + 1), 10);
+    }
+
+    @Test
+    public void shouldReturnStreamsOfEveryShardInShardOrder() throws Exception {
+        final UUID streamId1 = streamIdInShard(0);
+        final UUID streamId2 = streamIdInShard(1);
+        shardedEventRepository.store(eventOf(streamId1, 1L), streamId1, 1L);
+        shardedEventRepository.store(eventOf(streamId2, 1L), streamId2, 1L);
+
+        final List<UUID> streamIds = new ArrayList<>();
+        try (final Stream<Stream<JsonEnvelope>> allStreams = shardedEventRepository.getStreamOfAllEventStreams()) {
+            allStreams.forEach(stream -> stream.forEach(event -> streamIds.add(event.metadata().streamId().get())));
+        }
+
+        assertThat(streamIds, contains(streamId1, streamId2));
+    }
+
+    @Test
+    public void shouldKeepStreamsOfEveryShardReadableUntilClosed() throws Exception {
+        final UUID streamId1 = streamIdInShard(0);
+        final UUID streamId2 = streamIdInShard(1);
+        shardedEventRepository.store(eventOf(streamId1, 1L), streamId1, 1L);
+        shardedEventRepository.store(eventOf(streamId2, 1L), streamId2, 1L);
+
+        final List<UUID> streamIds = new ArrayList<>();
+        try (final Stream<Stream<JsonEnvelope>> allStreams = shardedEventRepository.getStreamOfAllEventStreams()) {
+            allStreams.collect(toList())
+                    .forEach(stream -> stream.forEach(event -> streamIds.add(event.metadata().streamId().get())));
+        }
+
+        assertThat(streamIds, contains(streamId1, streamId2));
+    }
+
+    @Test
+    public void shouldReturnStreamsOfEveryShardOneAtATimeInShardOrder() throws Exception {
+        final UUID streamId1 = streamIdInShard(0);
+        final UUID streamId2 = streamIdInShard(1);
+        shardedEventRepository.store(eventOf(streamId1, 1L), streamId1, 1L);
+        shardedEventRepository.store(eventOf(streamId2, 1L), streamId2, 1L);
+
+        final List<UUID> streamIds = new ArrayList<>();
+        try (final Stream<Stream<JsonEnvelope>> allStreams = shardedEventRepository.getStreamOfAllEventStreamsOneAtATime()) {
+            allStreams.forEach(stream -> stream.forEach(event -> streamIds.add(event.metadata().streamId().get())));
+        }
+
+        assertThat(streamIds, contains(streamId1, streamId2));
+    }
+
+    /**
+     * The shards have no global position, so the contract is checked against the positions of
+     * every shard.
+     */
+    @Override
+    @Test
+    public void shouldReadAllEventsFromPositionInPages() throws Exception {
+        final UUID streamId = randomUUID();
+        final List<JsonEnvelope> events = new ArrayList<>();
+        for (long version = 1L; version <= 5L; version++) {
+            events.add(eventOf(streamId, version));
+        }
+        shardedEventRepository.storeAll(events, streamId, 1L);
+
+        final List<ShardPositionedEnvelope> all = shardedEventRepository.readAllFrom(ShardPositions.start(SHARDS), 2).collect(toList());
+
+        assertThat(idsOfPositioned(all), is(events.stream().map(ShardedEventRepositoryIT::idOf).collect(toList())));
+        assertThat(idsOfPositioned(shardedEventRepository.readAllFrom(all.get(1).getResumePositions(), 2).collect(toList())),
+                is(idsOfPositioned(all.subList(2, 5))));
+    }
+
+    @Override
+    @Test
+    public void shouldRejectInvalidPageSize() {
+        try {
+            shardedEventRepository.readAllFrom(ShardPositions.start(SHARDS), 0).count();
+            fail("Expected page size of 0 to be rejected");
+        } catch (final JdbcRepositoryException expected) {
+            // expected
+        }
+    }
+
+    @Override
+    @Test
+    public void shouldReturnNoEventsWhenEmpty() {
+        assertThat(shardedEventRepository.getAll().collect(toList()), is(empty()));
+        assertThat(shardedEventRepository.readAllFrom(ShardPositions.start(SHARDS), 10).collect(toList()), is(empty()));
+        assertThat(shardedEventRepository.getByTimeRange(ZonedDateTime.now(UTC).minusDays(1), ZonedDateTime.now(UTC)).collect(toList()), is(empty()));
+    }
+
+    private List<UUID> idsOfPositioned(final List<ShardPositionedEnvelope> envelopes) {
+        return envelopes.stream().map(ShardPositionedEnvelope::getEnvelope).map(ShardedEventRepositoryIT::idOf).collect(toList());
+    }
+
+    private static UUID idOf(final JsonEnvelope envelope) {
+        return envelope.metadata().id();
+    }
+
+    private UUID streamIdInShard(final int shard) {
+        UUID streamId = randomUUID();
+        while (eventStoreShards.shardOf(streamId) != shard) {
+            streamId = randomUUID();
+        }
+        return streamId;
+    }
+
+    private EventLogJdbcRepository eventLogJdbcRepositoryOf(final int shard) throws Exception {
+        final JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:shard" + shard + ";DB_CLOSE_DELAY=-1;MV_STORE=FALSE;MVCC=FALSE");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+
+        final Liquibase liquibase = new Liquibase(LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection()));
+        liquibase.dropAll();
+        liquibase.update("");
+
+        final EventLogJdbcRepository eventLogJdbcRepository = new EventLogJdbcRepository();
+        setField(eventLogJdbcRepository, "datasource", dataSource);
+        return eventLogJdbcRepository;
+    }
+
+    /**
+     * Clock that never returns the same time twice, so events stored one after the other in
+     * different shards are merged back in the order they were stored.
+     */
+    private static class StrictlyIncreasingClock implements Clock {
+
+        private final Clock clock = new UtcClock();
+        private ZonedDateTime last;
+
+        @Override
+        public synchronized ZonedDateTime now() {
+            final ZonedDateTime now = clock.now();
+            last = last == null || now.isAfter(last) ? now : last.plusNanos(1000);
+            return last;
+        }
+    }
+}
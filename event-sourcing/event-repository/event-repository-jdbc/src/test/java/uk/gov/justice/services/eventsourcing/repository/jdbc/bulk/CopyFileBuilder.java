@@ -0,0 +1,79 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.bulk;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Builds event log rows in the PostgreSQL binary COPY format, with the columns exported by
+ * {@link EventLogBulkJdbcRepository}.
+ */
+class CopyFileBuilder {
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+
+    private CopyFileBuilder(final int headerExtensionLength) throws IOException {
+        out.write(ValidatingCopyInputStream.SIGNATURE);
+        out.writeInt(0);
+        out.writeInt(headerExtensionLength);
+        out.write(new byte[headerExtensionLength]);
+    }
+
+    static CopyFileBuilder copyFile() throws IOException {
+        return new CopyFileBuilder(0);
+    }
+
+    static CopyFileBuilder copyFileWithHeaderExtension(final int length) throws IOException {
+        return new CopyFileBuilder(length);
+    }
+
+    CopyFileBuilder withEvent(final UUID streamId, final long sequenceId) throws IOException {
+        out.writeShort(EventLogBulkJdbcRepository.COLUMN_COUNT);
+        uuid(UUID.randomUUID());
+        uuid(streamId);
+        out.writeInt(Long.BYTES);
+        out.writeLong(sequenceId);
+        text("test.event.something-happened");
+        text("{\"id\":\"" + UUID.randomUUID() + "\"}");
+        text("{\"field\":\"value-" + sequenceId + "\"}");
+        out.writeInt(Long.BYTES);
+        out.writeLong(0L);
+        out.writeInt(Long.BYTES);
+        out.writeLong(sequenceId);
+        text("json");
+        for (int i = 0; i < 4; i++) {
+            out.writeInt(-1);
+        }
+        return this;
+    }
+
+    CopyFileBuilder withFieldCount(final int fieldCount) throws IOException {
+        out.writeShort(fieldCount);
+        return this;
+    }
+
+    byte[] build() throws IOException {
+        out.writeShort(-1);
+        return bytes.toByteArray();
+    }
+
+    byte[] buildWithoutTrailer() {
+        return bytes.toByteArray();
+    }
+
+    private void uuid(final UUID uuid) throws IOException {
+        out.writeInt(16);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private void text(final String value) throws IOException {
+        final byte[] utf8 = value.getBytes(UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+}
@@ -0,0 +1,169 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.bulk;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.CopyFileBuilder.copyFile;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.EventLogBulkJdbcRepository.SQL_COPY_IN;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.EventLogBulkJdbcRepository.SQL_COPY_OUT;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.EventLogBulkJdbcRepository.SQL_DELETE_STREAMS;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.EventLogBulkJdbcRepository.SQL_REBUILD_STREAMS;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.EventLogBulkJdbcRepository.SQL_RESET_POSITION_SEQUENCE;
+import static uk.gov.justice.services.test.utils.common.reflection.ReflectionUtils.setField;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.EventLogBulkTransferException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.sql.DataSource;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventLogBulkJdbcRepositoryTest {
+
+    private static final UUID STREAM_ID = randomUUID();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
+    @Mock
+    private ResultSet resultSet;
+
+    @Mock
+    private CopyClient copyClient;
+
+    @Mock
+    private Logger logger;
+
+    private EventLogBulkJdbcRepository eventLogBulkJdbcRepository;
+
+    @Before
+    public void setup() throws Exception {
+        eventLogBulkJdbcRepository = new EventLogBulkJdbcRepository();
+        eventLogBulkJdbcRepository.logger = logger;
+        eventLogBulkJdbcRepository.copyClient = copyClient;
+        setField(eventLogBulkJdbcRepository, "datasource", dataSource);
+
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+    }
+
+    @Test
+    public void shouldExportEventLogToCompressedFile() throws Exception {
+        final byte[] copy = copyFile().withEvent(STREAM_ID, 1L).build();
+        final Path file = temporaryFolder.getRoot().toPath().resolve("event-log.pgcopy.gz");
+        when(copyClient.copyOut(eq(connection), eq(SQL_COPY_OUT), any(OutputStream.class))).thenAnswer(invocation -> {
+            ((OutputStream) invocation.getArguments()[2]).write(copy);
+            return 1L;
+        });
+
+        final long exported = eventLogBulkJdbcRepository.exportTo(file);
+
+        assertThat(exported, is(1L));
+        assertThat(uncompressed(file), is(copy));
+        verify(connection).close();
+    }
+
+    @Test
+    public void shouldImportEventLogFromCompressedFileAndRebuildDerivedTables() throws Exception {
+        final byte[] copy = copyFile().withEvent(STREAM_ID, 1L).withEvent(STREAM_ID, 2L).build();
+        final Path file = compressed(copy);
+        final ByteArrayOutputStream copiedIn = new ByteArrayOutputStream();
+        when(copyClient.copyIn(eq(connection), eq(SQL_COPY_IN), any(InputStream.class))).thenAnswer(invocation -> {
+            copyAll((InputStream) invocation.getArguments()[2], copiedIn);
+            return 2L;
+        });
+
+        final long imported = eventLogBulkJdbcRepository.importFrom(file);
+
+        assertThat(imported, is(2L));
+        assertThat(copiedIn.toByteArray(), is(copy));
+
+        final InOrder inOrder = inOrder(copyClient, connection);
+        inOrder.verify(copyClient).copyIn(eq(connection), eq(SQL_COPY_IN), any(InputStream.class));
+        inOrder.verify(connection).prepareStatement(SQL_DELETE_STREAMS);
+        inOrder.verify(connection).prepareStatement(SQL_REBUILD_STREAMS);
+        inOrder.verify(connection).prepareStatement(SQL_RESET_POSITION_SEQUENCE);
+    }
+
+    @Test
+    public void shouldFailImportAndNotRebuildDerivedTablesIfStreamIsNotContiguous() throws Exception {
+        final Path file = compressed(copyFile().withEvent(STREAM_ID, 1L).withEvent(STREAM_ID, 3L).build());
+        when(copyClient.copyIn(eq(connection), eq(SQL_COPY_IN), any(InputStream.class))).thenAnswer(invocation -> {
+            copyAll((InputStream) invocation.getArguments()[2], new ByteArrayOutputStream());
+            return 2L;
+        });
+
+        try {
+            eventLogBulkJdbcRepository.importFrom(file);
+            fail("Expected import to fail");
+        } catch (final EventLogBulkTransferException expected) {
+            assertThat(expected.getCause(), instanceOf(IOException.class));
+        }
+
+        verify(connection, never()).prepareStatement(anyString());
+    }
+
+    private Path compressed(final byte[] bytes) throws IOException {
+        final Path file = temporaryFolder.newFile().toPath();
+        try (final OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            out.write(bytes);
+        }
+        return file;
+    }
+
+    private byte[] uncompressed(final Path file) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (final InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            copyAll(in, out);
+        }
+        return out.toByteArray();
+    }
+
+    private void copyAll(final InputStream in, final OutputStream out) throws IOException {
+        final byte[] buffer = new byte[1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.bulk;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.CopyFileBuilder.copyFile;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.CopyFileBuilder.copyFileWithHeaderExtension;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.EventLogBulkJdbcRepository.COLUMN_COUNT;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.EventLogBulkJdbcRepository.SEQUENCE_ID_COLUMN;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.bulk.EventLogBulkJdbcRepository.STREAM_ID_COLUMN;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class ValidatingCopyInputStreamTest {
+
+    private static final UUID STREAM_ID = randomUUID();
+    private static final UUID OTHER_STREAM_ID = randomUUID();
+
+    @Test
+    public void shouldPassValidRowsThroughUnchanged() throws Exception {
+        final byte[] copy = copyFile()
+                .withEvent(STREAM_ID, 1L)
+                .withEvent(STREAM_ID, 2L)
+                .withEvent(OTHER_STREAM_ID, 1L)
+                .build();
+
+        final ValidatingCopyInputStream in = validating(copy);
+
+        assertThat(readAll(in, 7), is(copy));
+        assertThat(in.getRows(), is(3L));
+        assertThat(in.getStreams(), is(2L));
+    }
+
+    @Test
+    public void shouldValidateWhenReadOneByteAtATime() throws Exception {
+        final byte[] copy = copyFileWithHeaderExtension(5)
+                .withEvent(STREAM_ID, 1L)
+                .withEvent(STREAM_ID, 2L)
+                .build();
+
+        final ValidatingCopyInputStream in = validating(copy);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            out.write(b);
+        }
+
+        assertThat(out.toByteArray(), is(copy));
+        assertThat(in.getRows(), is(2L));
+    }
+
+    @Test
+    public void shouldAcceptEmptyFile() throws Exception {
+        final ValidatingCopyInputStream in = validating(copyFile().build());
+
+        readAll(in, 1024);
+
+        assertThat(in.getRows(), is(0L));
+    }
+
+    @Test
+    public void shouldRejectGapInStream() throws Exception {
+        assertRejected(copyFile()
+                .withEvent(STREAM_ID, 1L)
+                .withEvent(STREAM_ID, 3L)
+                .build(), "does not follow version 1");
+    }
+
+    @Test
+    public void shouldRejectStreamNotStartingAtFirstVersion() throws Exception {
+        assertRejected(copyFile()
+                .withEvent(STREAM_ID, 2L)
+                .build(), "starts at version 2");
+    }
+
+    @Test
+    public void shouldRejectStreamSplitAcrossFile() throws Exception {
+        assertRejected(copyFile()
+                .withEvent(STREAM_ID, 1L)
+                .withEvent(OTHER_STREAM_ID, 1L)
+                .withEvent(STREAM_ID, 2L)
+                .build(), "starts at version 2");
+    }
+
+    @Test
+    public void shouldRejectFileNotInBinaryCopyFormat() throws Exception {
+        assertRejected("id,stream_id,sequence_id\n1,2,3\n4,5,6\n".getBytes(), "not in PostgreSQL binary COPY format");
+    }
+
+    @Test
+    public void shouldRejectRowWithWrongNumberOfFields() throws Exception {
+        assertRejected(copyFile()
+                .withFieldCount(COLUMN_COUNT - 1)
+                .build(), "expected " + COLUMN_COUNT);
+    }
+
+    @Test
+    public void shouldRejectTruncatedFile() throws Exception {
+        assertRejected(copyFile()
+                .withEvent(STREAM_ID, 1L)
+                .buildWithoutTrailer(), "ends part way through");
+    }
+
+    @Test
+    public void shouldRejectDataAfterTrailer() throws Exception {
+        final byte[] copy = copyFile().build();
+        final byte[] withExtraData = new byte[copy.length + 1];
+        System.arraycopy(copy, 0, withExtraData, 0, copy.length);
+
+        assertRejected(withExtraData, "after the end of the rows");
+    }
+
+    private void assertRejected(final byte[] copy, final String message) {
+        try {
+            readAll(validating(copy), 64);
+            fail("Expected import to be rejected");
+        } catch (final IOException expected) {
+            assertThat(expected.getMessage(), containsString(message));
+        }
+    }
+
+    private ValidatingCopyInputStream validating(final byte[] copy) {
+        return new ValidatingCopyInputStream(new ByteArrayInputStream(copy), COLUMN_COUNT, STREAM_ID_COLUMN, SEQUENCE_ID_COLUMN);
+    }
+
+    private byte[] readAll(final ValidatingCopyInputStream in, final int bufferSize) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[bufferSize];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,74 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class DeflateEventCodecTest {
+
+    private static final String JSON = "{\"field\":\"value\",\"list\":[\"value\",\"value\",\"value\",\"value\",\"value\",\"value\"]}";
+
+    @Mock
+    private PreparedStatementWrapper ps;
+
+    @Mock
+    private ResultSet resultSet;
+
+    private final DeflateEventCodec codec = new DeflateEventCodec();
+
+    @Test
+    public void shouldEncodeCompressedJsonAndDecodeItAgain() throws SQLException {
+        final ArgumentCaptor<byte[]> encoded = ArgumentCaptor.forClass(byte[].class);
+
+        codec.encode(ps, 6, JSON);
+
+        verify(ps).setBytes(eq(6), encoded.capture());
+        assertThat(encoded.getValue().length, lessThan(JSON.getBytes(UTF_8).length));
+
+        when(resultSet.getBytes("payload_bytes")).thenReturn(encoded.getValue());
+
+        assertThat(codec.decode(resultSet, "payload_bytes"), is(JSON));
+    }
+
+    @Test
+    public void shouldRoundTripLargeJson() throws SQLException {
+        final char[] chars = new char[100_000];
+        Arrays.fill(chars, 'x');
+        final String json = "{\"field\":\"" + new String(chars) + "\"}";
+
+        assertThat(new String(codec.decompress(codec.compress(json.getBytes(UTF_8))), UTF_8), is(json));
+    }
+
+    @Test(expected = SQLException.class)
+    public void shouldThrowExceptionIfDataIsCorrupt() throws SQLException {
+        when(resultSet.getBytes(any(String.class))).thenReturn(new byte[]{1, 2, 3, 4});
+
+        codec.decode(resultSet, "payload_bytes");
+    }
+
+    @Test(expected = SQLException.class)
+    public void shouldThrowExceptionIfDataIsTruncated() throws SQLException {
+        final byte[] compressed = codec.compress(JSON.getBytes(UTF_8));
+        when(resultSet.getBytes(any(String.class))).thenReturn(Arrays.copyOf(compressed, compressed.length / 2));
+
+        codec.decode(resultSet, "payload_bytes");
+    }
+}
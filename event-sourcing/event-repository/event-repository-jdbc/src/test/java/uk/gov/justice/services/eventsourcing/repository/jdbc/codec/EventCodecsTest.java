@@ -0,0 +1,36 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertThat;
+
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+public class EventCodecsTest {
+
+    @Test
+    public void shouldProvideBuiltInCodecsByName() {
+        assertThat(EventCodecs.codecNamed("json"), is(instanceOf(JsonEventCodec.class)));
+        assertThat(EventCodecs.codecNamed("jsonb"), is(instanceOf(JsonbEventCodec.class)));
+        assertThat(EventCodecs.codecNamed("deflate"), is(instanceOf(DeflateEventCodec.class)));
+    }
+
+    @Test
+    public void shouldProvideJsonCodecForEventsWithoutCodec() {
+        assertThat(EventCodecs.codecNamed(null), is(instanceOf(JsonEventCodec.class)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionForUnknownCodec() {
+        EventCodecs.codecNamed("unknown");
+    }
+
+    @Test
+    public void shouldListAllCodecs() {
+        assertThat(EventCodecs.all().stream().map(EventCodec::getName).collect(Collectors.toList()),
+                containsInAnyOrder("json", "jsonb", "deflate"));
+    }
+}
@@ -0,0 +1,72 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.codec;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.codec.EventLogReEncoder.PAGE_SIZE;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventLogReEncoderTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private EventLogJdbcRepository eventLogJdbcRepository;
+
+    @Mock
+    private ExecutorService executorService;
+
+    @InjectMocks
+    private EventLogReEncoder eventLogReEncoder;
+
+    @Test
+    public void shouldReEncodePagesUntilLastPage() {
+        when(eventLogJdbcRepository.reEncodePage("deflate", 0L, PAGE_SIZE)).thenReturn(new ReEncodedPage(PAGE_SIZE, 10, 501L));
+        when(eventLogJdbcRepository.reEncodePage("deflate", 501L, PAGE_SIZE)).thenReturn(new ReEncodedPage(PAGE_SIZE, PAGE_SIZE, 1001L));
+        when(eventLogJdbcRepository.reEncodePage("deflate", 1001L, PAGE_SIZE)).thenReturn(new ReEncodedPage(3, 2, 1004L));
+
+        final long reEncoded = eventLogReEncoder.reEncode("deflate");
+
+        assertThat(reEncoded, is(PAGE_SIZE + 12L));
+    }
+
+    @Test
+    public void shouldStopIfEventLogIsEmpty() {
+        when(eventLogJdbcRepository.reEncodePage("deflate", 0L, PAGE_SIZE)).thenReturn(new ReEncodedPage(0, 0, 0L));
+
+        assertThat(eventLogReEncoder.reEncode("deflate"), is(0L));
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void shouldReEncodeInBackground() {
+        eventLogReEncoder.reEncodeInBackground("deflate");
+
+        verify(executorService).submit(any(Callable.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownCodecBeforeStarting() {
+        try {
+            eventLogReEncoder.reEncodeInBackground("unknown");
+        } finally {
+            verifyZeroInteractions(executorService);
+        }
+    }
+}
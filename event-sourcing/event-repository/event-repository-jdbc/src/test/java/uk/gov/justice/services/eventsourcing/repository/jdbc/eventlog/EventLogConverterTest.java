@@ -82,6 +82,16 @@ public class EventLogConverterTest {
         JSONAssert.assertEquals(PAYLOAD_JSON, actualPayload, false);
     }
 
+    @Test
+    public void shouldCreateEnvelopeWithoutParsingMetadataOrPayloadForIdAndName() throws Exception {
+        final EventLog eventLog = new EventLog(ID, STREAM_ID, SEQUENCE_ID, NAME, "{invalid", "{invalid", new UtcClock().now());
+
+        final JsonEnvelope actualEnvelope = eventLogConverter.createEnvelope(eventLog);
+
+        assertThat(actualEnvelope.metadata().id(), equalTo(ID));
+        assertThat(actualEnvelope.metadata().name(), equalTo(NAME));
+    }
+
     private EventLog createEventLog() {
         return new EventLog(ID, STREAM_ID, SEQUENCE_ID, NAME, METADATA_JSON, PAYLOAD_JSON, new UtcClock().now());
     }
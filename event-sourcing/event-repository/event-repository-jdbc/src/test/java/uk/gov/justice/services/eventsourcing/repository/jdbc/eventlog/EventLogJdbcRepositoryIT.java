@@ -1,6 +1,11 @@
 package uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog;
 
+import static java.time.ZoneOffset.UTC;
 import static java.time.ZonedDateTime.now;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
 import static java.util.UUID.randomUUID;
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -8,13 +13,18 @@ import static org.hamcrest.CoreMatchers.hasItem;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.junit.Assert.assertThat;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository.STREAM_ID_CHUNK_SIZE;
 
+import uk.gov.justice.services.eventsourcing.repository.jdbc.codec.ReEncodedPage;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.ConcurrentStreamUpdateException;
 import uk.gov.justice.services.eventsourcing.repository.jdbc.exception.InvalidSequenceIdException;
 import uk.gov.justice.services.jdbc.persistence.JdbcRepositoryException;
 import uk.gov.justice.services.test.utils.persistence.AbstractJdbcRepositoryIT;
 
 import java.time.ZonedDateTime;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -24,7 +34,7 @@ import org.junit.Test;
 public class EventLogJdbcRepositoryIT extends AbstractJdbcRepositoryIT<EventLogJdbcRepository> {
 
     private static final UUID STREAM_ID = randomUUID();
-    private static final Long SEQUENCE_ID = 5L;
+    private static final Long SEQUENCE_ID = 1L;
     private static final String NAME = "Test Name";
     private static final String PAYLOAD_JSON = "{\"field\": \"Value\"}";
     private static final String METADATA_JSON = "{\"field\": \"Value\"}";
@@ -54,54 +64,134 @@ public class EventLogJdbcRepositoryIT extends AbstractJdbcRepositoryIT<EventLogJ
 
         assertThat(eventLogs.count(), equalTo(3L));
         assertThat(eventLogs2.count(), equalTo(2L));
-        assertThat(latestSequenceId, equalTo(7L));
+        assertThat(latestSequenceId, equalTo(3L));
+    }
+
+    @Test
+    public void shouldDeleteStreamAndItsEvents() throws InvalidSequenceIdException {
+        final UUID otherStreamId = randomUUID();
+        jdbcRepository.insertBatch(asList(eventLogOf(SEQUENCE_ID, STREAM_ID), eventLogOf(SEQUENCE_ID + 1, STREAM_ID)));
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID, otherStreamId));
+
+        jdbcRepository.deleteStream(STREAM_ID);
+
+        assertThat(jdbcRepository.findByStreamIdOrderBySequenceIdAsc(STREAM_ID).count(), equalTo(0L));
+        assertThat(jdbcRepository.getLatestSequenceIdForStream(STREAM_ID), equalTo(0L));
+        assertThat(jdbcRepository.getStreamIds().collect(toList()), is(singletonList(otherStreamId)));
+        assertThat(jdbcRepository.findByStreamIdOrderBySequenceIdAsc(otherStreamId).count(), equalTo(1L));
+    }
+
+    @Test
+    public void shouldReturnInitialVersionForUnknownStream() {
+        assertThat(jdbcRepository.getLatestSequenceIdForStream(randomUUID()), equalTo(0L));
+    }
+
+    @Test
+    public void shouldStoreEventLogsInBatch() throws InvalidSequenceIdException {
+        jdbcRepository.insertBatch(asList(
+                eventLogOf(SEQUENCE_ID, STREAM_ID),
+                eventLogOf(SEQUENCE_ID + 1, STREAM_ID),
+                eventLogOf(SEQUENCE_ID + 2, STREAM_ID)));
+
+        final List<EventLog> eventLogs = jdbcRepository.findByStreamIdOrderBySequenceIdAsc(STREAM_ID).collect(toList());
+
+        assertThat(eventLogs, hasSize(3));
+        assertThat(eventLogs.get(0).getSequenceId(), is(SEQUENCE_ID));
+        assertThat(eventLogs.get(2).getSequenceId(), is(SEQUENCE_ID + 2));
+        assertThat(jdbcRepository.getLatestSequenceIdForStream(STREAM_ID), equalTo(SEQUENCE_ID + 2));
+    }
+
+    @Test(expected = InvalidSequenceIdException.class)
+    public void shouldThrowExceptionOnDuplicateSequenceIdInBatch() throws InvalidSequenceIdException {
+        jdbcRepository.insertBatch(asList(eventLogOf(SEQUENCE_ID, STREAM_ID), eventLogOf(SEQUENCE_ID, STREAM_ID)));
+    }
+
+    @Test(expected = InvalidSequenceIdException.class)
+    public void shouldThrowExceptionOnNullSequenceIdInBatch() throws InvalidSequenceIdException {
+        jdbcRepository.insertBatch(asList(
+                eventLogOf(SEQUENCE_ID, STREAM_ID),
+                new EventLog(randomUUID(), STREAM_ID, null, NAME, METADATA_JSON, PAYLOAD_JSON, TIMESTAMP)));
     }
 
     @Test
     public void shouldReturnEventsByStreamIdOrderedBySequenceId() throws InvalidSequenceIdException {
-        jdbcRepository.insert(eventLogOf(1, randomUUID()));
-        jdbcRepository.insert(eventLogOf(7, STREAM_ID));
-        jdbcRepository.insert(eventLogOf(4, STREAM_ID));
+        final UUID otherStreamId = randomUUID();
+        jdbcRepository.insert(eventLogOf(1, otherStreamId));
+        jdbcRepository.insert(eventLogOf(1, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(2, otherStreamId));
         jdbcRepository.insert(eventLogOf(2, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(3, STREAM_ID));
 
         Stream<EventLog> eventLogs = jdbcRepository.findByStreamIdOrderBySequenceIdAsc(STREAM_ID);
 
         final List<EventLog> eventLogList = eventLogs.collect(toList());
         assertThat(eventLogList, hasSize(3));
-        assertThat(eventLogList.get(0).getSequenceId(), is(2l));
-        assertThat(eventLogList.get(1).getSequenceId(), is(4l));
-        assertThat(eventLogList.get(2).getSequenceId(), is(7l));
+        assertThat(eventLogList.get(0).getSequenceId(), is(1l));
+        assertThat(eventLogList.get(1).getSequenceId(), is(2l));
+        assertThat(eventLogList.get(2).getSequenceId(), is(3l));
 
     }
 
     @Test
     public void shouldReturnEventsByStreamIdFromSequenceIdOrderBySequenceId() throws InvalidSequenceIdException {
-        jdbcRepository.insert(eventLogOf(5, randomUUID()));
-        jdbcRepository.insert(eventLogOf(7, STREAM_ID));
-        jdbcRepository.insert(eventLogOf(4, STREAM_ID));
+        final UUID otherStreamId = randomUUID();
+        jdbcRepository.insert(eventLogOf(1, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(1, otherStreamId));
+        jdbcRepository.insert(eventLogOf(2, STREAM_ID));
         jdbcRepository.insert(eventLogOf(3, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(2, otherStreamId));
 
-        Stream<EventLog> eventLogs = jdbcRepository.findByStreamIdFromSequenceIdOrderBySequenceIdAsc(STREAM_ID, 4l);
+        Stream<EventLog> eventLogs = jdbcRepository.findByStreamIdFromSequenceIdOrderBySequenceIdAsc(STREAM_ID, 2l);
         final List<EventLog> eventLogList = eventLogs.collect(toList());
         assertThat(eventLogList, hasSize(2));
-        assertThat(eventLogList.get(0).getSequenceId(), is(4l));
-        assertThat(eventLogList.get(1).getSequenceId(), is(7l));
+        assertThat(eventLogList.get(0).getSequenceId(), is(2l));
+        assertThat(eventLogList.get(1).getSequenceId(), is(3l));
     }
 
     @Test
-    public void shouldReturnAllEventsOrderedBySequenceId() throws InvalidSequenceIdException {
-        jdbcRepository.insert(eventLogOf(1, randomUUID()));
-        jdbcRepository.insert(eventLogOf(4, STREAM_ID));
+    public void shouldReturnAllEventsOrderedByPosition() throws InvalidSequenceIdException {
+        final UUID otherStreamId = randomUUID();
+        jdbcRepository.insert(eventLogOf(1, STREAM_ID));
         jdbcRepository.insert(eventLogOf(2, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(1, otherStreamId));
 
         Stream<EventLog> eventLogs = jdbcRepository.findAll();
 
         final List<EventLog> eventLogList = eventLogs.collect(toList());
         assertThat(eventLogList, hasSize(3));
+        assertThat(eventLogList.get(0).getStreamId(), is(STREAM_ID));
         assertThat(eventLogList.get(0).getSequenceId(), is(1l));
+        assertThat(eventLogList.get(1).getStreamId(), is(STREAM_ID));
         assertThat(eventLogList.get(1).getSequenceId(), is(2l));
-        assertThat(eventLogList.get(2).getSequenceId(), is(4l));
+        assertThat(eventLogList.get(2).getStreamId(), is(otherStreamId));
+        assertThat(eventLogList.get(2).getSequenceId(), is(1l));
+        assertThat(eventLogList.get(0).getPosition() < eventLogList.get(1).getPosition(), is(true));
+        assertThat(eventLogList.get(1).getPosition() < eventLogList.get(2).getPosition(), is(true));
+    }
+
+    @Test
+    public void shouldReturnPageOfEventsFromPosition() throws InvalidSequenceIdException {
+        final UUID otherStreamId = randomUUID();
+        jdbcRepository.insert(eventLogOf(1, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(1, otherStreamId));
+        jdbcRepository.insert(eventLogOf(2, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(2, otherStreamId));
+
+        final List<EventLog> allEventLogs = jdbcRepository.findAll().collect(toList());
+        final long secondPosition = allEventLogs.get(1).getPosition();
+
+        final List<EventLog> page = jdbcRepository.findFromPositionOrderByPositionAsc(secondPosition, 2);
+
+        assertThat(page, hasSize(2));
+        assertThat(page.get(0).getPosition(), is(secondPosition));
+        assertThat(page.get(0).getStreamId(), is(otherStreamId));
+        assertThat(page.get(1).getPosition(), is(allEventLogs.get(2).getPosition()));
+        assertThat(page.get(1).getStreamId(), is(STREAM_ID));
+
+        final List<EventLog> lastPage = jdbcRepository.findFromPositionOrderByPositionAsc(page.get(1).getPosition() + 1, 2);
 
+        assertThat(lastPage, hasSize(1));
+        assertThat(lastPage.get(0).getPosition(), is(allEventLogs.get(3).getPosition()));
     }
 
     @Test
@@ -126,6 +216,96 @@ public class EventLogJdbcRepositoryIT extends AbstractJdbcRepositoryIT<EventLogJ
 
     }
 
+    @Test
+    public void shouldReturnEventsByStreamIdAndNamesOrderBySequenceId() throws InvalidSequenceIdException {
+        jdbcRepository.insert(eventLogOf(1, STREAM_ID, "test.event.a"));
+        jdbcRepository.insert(eventLogOf(2, STREAM_ID, "test.event.b"));
+        jdbcRepository.insert(eventLogOf(3, STREAM_ID, "test.event.c"));
+        jdbcRepository.insert(eventLogOf(4, STREAM_ID, "test.event.a"));
+        jdbcRepository.insert(eventLogOf(1, randomUUID(), "test.event.a"));
+
+        final List<EventLog> eventLogs = jdbcRepository.findByStreamIdAndNamesOrderBySequenceIdAsc(STREAM_ID,
+                new HashSet<>(asList("test.event.a", "test.event.c"))).collect(toList());
+
+        assertThat(eventLogs, hasSize(3));
+        assertThat(eventLogs.get(0).getSequenceId(), is(1L));
+        assertThat(eventLogs.get(1).getSequenceId(), is(3L));
+        assertThat(eventLogs.get(2).getSequenceId(), is(4L));
+    }
+
+    @Test
+    public void shouldReturnEventsByStreamIdAndNamesFromSequenceIdOrderBySequenceId() throws InvalidSequenceIdException {
+        jdbcRepository.insert(eventLogOf(1, STREAM_ID, "test.event.a"));
+        jdbcRepository.insert(eventLogOf(2, STREAM_ID, "test.event.b"));
+        jdbcRepository.insert(eventLogOf(3, STREAM_ID, "test.event.a"));
+        jdbcRepository.insert(eventLogOf(4, STREAM_ID, "test.event.a"));
+
+        final List<EventLog> eventLogs = jdbcRepository.findByStreamIdFromSequenceIdAndNamesOrderBySequenceIdAsc(STREAM_ID, 2L,
+                singleton("test.event.a")).collect(toList());
+
+        assertThat(eventLogs, hasSize(2));
+        assertThat(eventLogs.get(0).getSequenceId(), is(3L));
+        assertThat(eventLogs.get(1).getSequenceId(), is(4L));
+    }
+
+    @Test
+    public void shouldReturnNoEventsForNoNames() throws InvalidSequenceIdException {
+        jdbcRepository.insert(eventLogOf(1, STREAM_ID, "test.event.a"));
+
+        assertThat(jdbcRepository.findByStreamIdAndNamesOrderBySequenceIdAsc(STREAM_ID, emptySet()).count(), is(0L));
+        assertThat(jdbcRepository.findByStreamIdFromSequenceIdAndNamesOrderBySequenceIdAsc(STREAM_ID, 1L, emptySet()).count(), is(0L));
+    }
+
+    @Test
+    public void shouldReturnLatestSequenceIdsForStreams() throws InvalidSequenceIdException {
+        final UUID streamId1 = randomUUID();
+        final UUID streamId2 = randomUUID();
+        final UUID unknownStreamId = randomUUID();
+        jdbcRepository.insert(eventLogOf(1, streamId1));
+        jdbcRepository.insert(eventLogOf(2, streamId1));
+        jdbcRepository.insert(eventLogOf(1, streamId2));
+
+        final Map<UUID, Long> sequenceIds = jdbcRepository.getLatestSequenceIdsForStreams(asList(streamId1, streamId2, unknownStreamId, streamId1));
+
+        assertThat(sequenceIds.size(), is(3));
+        assertThat(sequenceIds.get(streamId1), is(2L));
+        assertThat(sequenceIds.get(streamId2), is(1L));
+        assertThat(sequenceIds.get(unknownStreamId), is(0L));
+    }
+
+    @Test
+    public void shouldReturnLatestSequenceIdsForMoreStreamsThanChunkSize() throws InvalidSequenceIdException {
+        final UUID streamId = randomUUID();
+        jdbcRepository.insert(eventLogOf(1, streamId));
+        final List<UUID> streamIds = Stream.generate(UUID::randomUUID).limit(STREAM_ID_CHUNK_SIZE + 5).collect(toList());
+        streamIds.add(streamId);
+
+        final Map<UUID, Long> sequenceIds = jdbcRepository.getLatestSequenceIdsForStreams(streamIds);
+
+        assertThat(sequenceIds.size(), is(STREAM_ID_CHUNK_SIZE + 6));
+        assertThat(sequenceIds.get(streamId), is(1L));
+    }
+
+    @Test
+    public void shouldReturnNoSequenceIdsForNoStreams() {
+        assertThat(jdbcRepository.getLatestSequenceIdsForStreams(emptySet()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldReturnPagesOfStreamIdsInStreamIdOrder() throws InvalidSequenceIdException {
+        final UUID streamId1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+        final UUID streamId2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+        final UUID streamId3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+        jdbcRepository.insert(eventLogOf(1, streamId3));
+        jdbcRepository.insert(eventLogOf(1, streamId1));
+        jdbcRepository.insert(eventLogOf(1, streamId2));
+        jdbcRepository.insert(eventLogOf(2, streamId1));
+
+        assertThat(jdbcRepository.findStreamIdsAfter(null, 2), is(asList(streamId1, streamId2)));
+        assertThat(jdbcRepository.findStreamIdsAfter(streamId2, 2), is(singletonList(streamId3)));
+        assertThat(jdbcRepository.findStreamIdsAfter(streamId3, 2), hasSize(0));
+    }
+
     @Test(expected = JdbcRepositoryException.class)
     public void shouldThrowExceptionOnDuplicateId() throws InvalidSequenceIdException {
         UUID id = randomUUID();
@@ -133,12 +313,97 @@ public class EventLogJdbcRepositoryIT extends AbstractJdbcRepositoryIT<EventLogJ
         jdbcRepository.insert(eventLogOf(id, SEQUENCE_ID + 1));
     }
 
-    @Test(expected = JdbcRepositoryException.class)
+    @Test(expected = InvalidSequenceIdException.class)
     public void shouldThrowExceptionOnDuplicateSequenceId() throws InvalidSequenceIdException {
         jdbcRepository.insert(eventLogOf(SEQUENCE_ID, STREAM_ID));
         jdbcRepository.insert(eventLogOf(SEQUENCE_ID, STREAM_ID));
     }
 
+    @Test(expected = ConcurrentStreamUpdateException.class)
+    public void shouldReportFirstSequenceIdOfExistingStreamAsConcurrentUpdate() throws InvalidSequenceIdException {
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID, STREAM_ID));
+    }
+
+    @Test(expected = InvalidSequenceIdException.class)
+    public void shouldThrowExceptionOnSequenceIdNotFollowingStreamVersion() throws InvalidSequenceIdException {
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID + 2, STREAM_ID));
+    }
+
+    @Test(expected = InvalidSequenceIdException.class)
+    public void shouldThrowExceptionOnFirstSequenceIdOfNewStreamNotBeingInitial() throws InvalidSequenceIdException {
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID + 1, STREAM_ID));
+    }
+
+    @Test
+    public void shouldNotMoveStreamVersionOnConflictingBatch() throws InvalidSequenceIdException {
+        jdbcRepository.insertBatch(asList(eventLogOf(1, STREAM_ID), eventLogOf(2, STREAM_ID)));
+
+        try {
+            jdbcRepository.insertBatch(asList(eventLogOf(2, STREAM_ID), eventLogOf(3, STREAM_ID)));
+        } catch (InvalidSequenceIdException e) {
+            // expected
+        }
+
+        assertThat(jdbcRepository.getLatestSequenceIdForStream(STREAM_ID), equalTo(2L));
+        assertThat(jdbcRepository.findByStreamIdOrderBySequenceIdAsc(STREAM_ID).count(), equalTo(2L));
+    }
+
+    @Test
+    public void shouldReturnPageOfEventsOfStreamBeforeSequenceIdNewestFirst() throws InvalidSequenceIdException {
+        final UUID otherStreamId = randomUUID();
+        jdbcRepository.insert(eventLogOf(1, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(2, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(1, otherStreamId));
+        jdbcRepository.insert(eventLogOf(3, STREAM_ID));
+
+        final List<EventLog> firstPage = jdbcRepository.findByStreamIdBeforeSequenceIdOrderBySequenceIdDesc(STREAM_ID, Long.MAX_VALUE, 2);
+        final List<EventLog> secondPage = jdbcRepository.findByStreamIdBeforeSequenceIdOrderBySequenceIdDesc(STREAM_ID, 2L, 2);
+
+        assertThat(firstPage, hasSize(2));
+        assertThat(firstPage.get(0).getSequenceId(), is(3L));
+        assertThat(firstPage.get(1).getSequenceId(), is(2L));
+        assertThat(secondPage, hasSize(1));
+        assertThat(secondPage.get(0).getSequenceId(), is(1L));
+        assertThat(secondPage.get(0).getStreamId(), is(STREAM_ID));
+    }
+
+    @Test
+    public void shouldStoreAndReadDateCreated() throws InvalidSequenceIdException {
+        final ZonedDateTime dateCreated = ZonedDateTime.of(2017, 3, 1, 10, 15, 30, 123000000, UTC);
+        jdbcRepository.insert(eventLogOf(randomUUID(), NAME, STREAM_ID, 1L, PAYLOAD_JSON, METADATA_JSON, dateCreated));
+
+        final List<EventLog> eventLogs = jdbcRepository.findByStreamIdOrderBySequenceIdAsc(STREAM_ID).collect(toList());
+
+        assertThat(eventLogs, hasSize(1));
+        assertThat(eventLogs.get(0).getDateCreated().toInstant(), is(dateCreated.toInstant()));
+    }
+
+    @Test
+    public void shouldReturnPagesOfEventsInTimeRangeOrderedByDateCreated() throws InvalidSequenceIdException {
+        final ZonedDateTime start = ZonedDateTime.of(2017, 3, 1, 10, 0, 0, 0, UTC);
+        final UUID otherStreamId = randomUUID();
+        jdbcRepository.insert(eventLogOf(randomUUID(), NAME, STREAM_ID, 1L, PAYLOAD_JSON, METADATA_JSON, start.minusSeconds(1)));
+        jdbcRepository.insert(eventLogOf(randomUUID(), NAME, STREAM_ID, 2L, PAYLOAD_JSON, METADATA_JSON, start.plusSeconds(2)));
+        jdbcRepository.insert(eventLogOf(randomUUID(), NAME, otherStreamId, 1L, PAYLOAD_JSON, METADATA_JSON, start));
+        jdbcRepository.insert(eventLogOf(randomUUID(), NAME, otherStreamId, 2L, PAYLOAD_JSON, METADATA_JSON, start));
+        jdbcRepository.insert(eventLogOf(randomUUID(), NAME, STREAM_ID, 3L, PAYLOAD_JSON, METADATA_JSON, start.plusSeconds(3)));
+
+        final ZonedDateTime end = start.plusSeconds(3);
+        final List<EventLog> firstPage = jdbcRepository.findInTimeRangeOrderByDateCreatedAsc(start, end, null, 2);
+        final List<EventLog> secondPage = jdbcRepository.findInTimeRangeOrderByDateCreatedAsc(start, end, firstPage.get(1), 2);
+
+        assertThat(firstPage, hasSize(2));
+        assertThat(firstPage.get(0).getStreamId(), is(otherStreamId));
+        assertThat(firstPage.get(0).getSequenceId(), is(1L));
+        assertThat(firstPage.get(1).getStreamId(), is(otherStreamId));
+        assertThat(firstPage.get(1).getSequenceId(), is(2L));
+        assertThat(secondPage, hasSize(1));
+        assertThat(secondPage.get(0).getStreamId(), is(STREAM_ID));
+        assertThat(secondPage.get(0).getSequenceId(), is(2L));
+    }
+
     private EventLog eventLogOf(final UUID id, final String name, final UUID streamId, final long sequenceId, final String payloadJSON, final String metadataJSON, final ZonedDateTime timestamp) {
         return new EventLog(id, streamId, sequenceId, name, metadataJSON, payloadJSON, timestamp);
     }
@@ -147,6 +412,44 @@ public class EventLogJdbcRepositoryIT extends AbstractJdbcRepositoryIT<EventLogJ
         return eventLogOf(randomUUID(), NAME, streamId, sequenceId, PAYLOAD_JSON, METADATA_JSON, TIMESTAMP);
     }
 
+    @Test
+    public void shouldReadEventsWrittenWithDifferentCodecs() throws InvalidSequenceIdException {
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID, STREAM_ID));
+        jdbcRepository.codecName = "deflate";
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID + 1, STREAM_ID));
+
+        final List<EventLog> eventLogs = jdbcRepository.findByStreamIdOrderBySequenceIdAsc(STREAM_ID).collect(toList());
+
+        assertThat(eventLogs, hasSize(2));
+        assertThat(eventLogs.get(0).getPayload(), is(PAYLOAD_JSON));
+        assertThat(eventLogs.get(1).getPayload(), is(PAYLOAD_JSON));
+        assertThat(eventLogs.get(1).getMetadata(), is(METADATA_JSON));
+    }
+
+    @Test
+    public void shouldReEncodeEventsWrittenWithOtherCodecs() throws InvalidSequenceIdException {
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID, STREAM_ID));
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID + 1, STREAM_ID));
+        jdbcRepository.codecName = "deflate";
+        jdbcRepository.insert(eventLogOf(SEQUENCE_ID + 2, STREAM_ID));
+
+        final ReEncodedPage firstPage = jdbcRepository.reEncodePage("deflate", 0L, 2);
+        final ReEncodedPage lastPage = jdbcRepository.reEncodePage("deflate", firstPage.getNextPosition(), 2);
+
+        assertThat(firstPage.getScanned(), is(2));
+        assertThat(firstPage.getReEncoded(), is(2));
+        assertThat(lastPage.getScanned(), is(1));
+        assertThat(lastPage.getReEncoded(), is(0));
+
+        final List<EventLog> eventLogs = jdbcRepository.findByStreamIdOrderBySequenceIdAsc(STREAM_ID).collect(toList());
+        assertThat(eventLogs.stream().map(EventLog::getPayload).collect(toList()), is(asList(PAYLOAD_JSON, PAYLOAD_JSON, PAYLOAD_JSON)));
+        assertThat(jdbcRepository.reEncodePage("json", 0L, 10).getReEncoded(), is(3));
+    }
+
+    private EventLog eventLogOf(final long sequenceId, final UUID streamId, final String name) {
+        return eventLogOf(randomUUID(), name, streamId, sequenceId, PAYLOAD_JSON, METADATA_JSON, TIMESTAMP);
+    }
+
     private EventLog eventLogOf(UUID id, long sequenceId) {
         return eventLogOf(id, NAME, STREAM_ID, sequenceId, PAYLOAD_JSON, METADATA_JSON, TIMESTAMP);
     }
@@ -0,0 +1,9 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog;
+
+public class EventLogOpenEjbAwareJdbcRepository extends EventLogJdbcRepository {
+
+    @Override
+    protected String jndiName() {
+        return "java:openejb/Resource/eventStore";
+    }
+}
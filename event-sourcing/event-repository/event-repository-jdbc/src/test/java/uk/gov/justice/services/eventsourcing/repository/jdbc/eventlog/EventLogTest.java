@@ -31,6 +31,7 @@ public class EventLogTest {
         EventLog item7 = createEventLog(ID, NAME, STREAM_ID, SEQUENCE_ID, "", METADATA_JSON, TIMESTAMP);
         EventLog item8 = createEventLog(ID, NAME, STREAM_ID, SEQUENCE_ID, PAYLOAD_JSON, "", TIMESTAMP);
         EventLog item9 = createEventLog(ID, NAME, STREAM_ID, SEQUENCE_ID, PAYLOAD_JSON, METADATA_JSON, now().minusDays(1));
+        EventLog item10 = new EventLog(ID, STREAM_ID, SEQUENCE_ID, NAME, METADATA_JSON, PAYLOAD_JSON, TIMESTAMP, 10L);
 
         new EqualsTester()
                 .addEqualityGroup(item1, item2)
@@ -41,6 +42,7 @@ public class EventLogTest {
                 .addEqualityGroup(item7)
                 .addEqualityGroup(item8)
                 .addEqualityGroup(item9)
+                .addEqualityGroup(item10)
                 .testEquals();
     }
 
@@ -0,0 +1,98 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.outbox;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static org.junit.Assert.assertThat;
+import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithRandomUUID;
+
+import uk.gov.justice.services.eventsourcing.publisher.core.outbox.OutboxEvent;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+import uk.gov.justice.services.test.utils.persistence.AbstractJdbcRepositoryIT;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventOutboxJdbcRepositoryIT extends AbstractJdbcRepositoryIT<EventOutboxJdbcRepository> {
+
+    private static final String LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML = "liquibase/event-store-db-changelog.xml";
+
+    public EventOutboxJdbcRepositoryIT() {
+        super(LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML);
+    }
+
+    @Before
+    public void initializeDependencies() throws Exception {
+        jdbcRepository = new EventOutboxJdbcRepository();
+        registerDataSource();
+    }
+
+    @Test
+    public void shouldReturnEventsInTheOrderTheyWereAdded() {
+        final JsonEnvelope envelope1 = envelopeOf("test.event.1");
+        final JsonEnvelope envelope2 = envelopeOf("test.event.2");
+        final JsonEnvelope envelope3 = envelopeOf("test.event.3");
+
+        jdbcRepository.add(envelope1);
+        jdbcRepository.add(envelope2);
+        jdbcRepository.add(envelope3);
+
+        final List<OutboxEvent> batch = jdbcRepository.nextBatch(10);
+
+        assertThat(batch, hasSize(3));
+        assertThat(batch.stream().map(event -> event.getEnvelope().metadata().id()).collect(toList()),
+                is(asList(envelope1.metadata().id(), envelope2.metadata().id(), envelope3.metadata().id())));
+        assertThat(batch.get(1).getEnvelope().metadata().name(), is("test.event.2"));
+        assertThat(batch.get(1).getEnvelope().payloadAsJsonObject().getString("field"), is("value"));
+    }
+
+    @Test
+    public void shouldLimitBatchToBatchSize() {
+        jdbcRepository.add(envelopeOf("test.event.1"));
+        jdbcRepository.add(envelopeOf("test.event.2"));
+        jdbcRepository.add(envelopeOf("test.event.3"));
+
+        assertThat(jdbcRepository.nextBatch(2), hasSize(2));
+    }
+
+    @Test
+    public void shouldRemovePublishedEvents() {
+        final JsonEnvelope envelope3 = envelopeOf("test.event.3");
+        jdbcRepository.add(envelopeOf("test.event.1"));
+        jdbcRepository.add(envelopeOf("test.event.2"));
+        jdbcRepository.add(envelope3);
+
+        jdbcRepository.remove(jdbcRepository.nextBatch(2));
+
+        final List<OutboxEvent> remaining = jdbcRepository.nextBatch(10);
+        assertThat(remaining, hasSize(1));
+        assertThat(remaining.get(0).getEnvelope().metadata().id(), is(envelope3.metadata().id()));
+    }
+
+    @Test
+    public void shouldIgnoreRemovalOfEmptyBatch() {
+        jdbcRepository.add(envelopeOf("test.event.1"));
+
+        jdbcRepository.remove(emptyList());
+
+        assertThat(jdbcRepository.nextBatch(10), hasSize(1));
+    }
+
+    @Test
+    public void shouldReturnEmptyBatchIfOutboxIsEmpty() {
+        assertThat(jdbcRepository.nextBatch(10), is(empty()));
+    }
+
+    private JsonEnvelope envelopeOf(final String name) {
+        return envelope()
+                .with(metadataWithRandomUUID(name))
+                .withPayloadOf("value", "field")
+                .build();
+    }
+}
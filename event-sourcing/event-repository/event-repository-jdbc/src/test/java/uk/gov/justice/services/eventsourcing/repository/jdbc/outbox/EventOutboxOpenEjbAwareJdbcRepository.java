@@ -0,0 +1,32 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.outbox;
+
+import uk.gov.justice.services.jdbc.persistence.JdbcRepositoryException;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+public class EventOutboxOpenEjbAwareJdbcRepository extends EventOutboxJdbcRepository {
+
+    private static final String SQL_EVENT_OUTBOX_COUNT = "SELECT count(*) FROM event_outbox";
+
+    public int eventOutboxCount() {
+
+        try (final Connection connection = getDataSource().getConnection();
+             final PreparedStatement preparedStatement = connection.prepareStatement(SQL_EVENT_OUTBOX_COUNT);
+             final ResultSet resultSet = preparedStatement.executeQuery()) {
+            if (resultSet.next()) {
+                return resultSet.getInt(1);
+            }
+            return 0;
+        } catch (SQLException e) {
+            throw new JdbcRepositoryException("Exception getting count of event outbox entries", e);
+        }
+    }
+
+    @Override
+    protected String jndiName() {
+        return "java:openejb/Resource/eventStore";
+    }
+}
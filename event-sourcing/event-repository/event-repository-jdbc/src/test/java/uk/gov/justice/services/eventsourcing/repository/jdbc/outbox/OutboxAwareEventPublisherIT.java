@@ -0,0 +1,209 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.outbox;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.collection.IsEmptyCollection.empty;
+import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithRandomUUID;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.common.converter.JsonObjectToObjectConverter;
+import uk.gov.justice.services.common.converter.StringToJsonObjectConverter;
+import uk.gov.justice.services.common.converter.jackson.ObjectMapperProducer;
+import uk.gov.justice.services.common.util.UtcClock;
+import uk.gov.justice.services.core.cdi.LoggerProducer;
+import uk.gov.justice.services.core.metrics.MetricRegistryProducer;
+import uk.gov.justice.services.eventsourcing.publisher.core.Direct;
+import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
+import uk.gov.justice.services.eventsourcing.publisher.core.outbox.OutboxAwareEventPublisher;
+import uk.gov.justice.services.eventsourcing.publisher.core.outbox.OutboxEventPublisher;
+import uk.gov.justice.services.eventsourcing.publisher.core.outbox.OutboxPublisher;
+import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.EventRepositoryProducer;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.JdbcEventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.ShardedEventRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogOpenEjbAwareJdbcRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards;
+import uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy;
+import uk.gov.justice.services.eventsourcing.source.core.DefaultEventSource;
+import uk.gov.justice.services.eventsourcing.source.core.EnvelopeEventStream;
+import uk.gov.justice.services.eventsourcing.source.core.EventSource;
+import uk.gov.justice.services.eventsourcing.source.core.EventStream;
+import uk.gov.justice.services.eventsourcing.source.core.EventStreamCache;
+import uk.gov.justice.services.eventsourcing.source.core.EventStreamManager;
+import uk.gov.justice.services.eventsourcing.source.core.EventStreamPrefetcher;
+import uk.gov.justice.services.jdbc.persistence.AbstractJdbcRepository;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+import uk.gov.justice.services.messaging.JsonObjectEnvelopeConverter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import javax.enterprise.inject.spi.InjectionPoint;
+import javax.inject.Inject;
+import javax.sql.DataSource;
+
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.apache.openejb.jee.EjbJar;
+import org.apache.openejb.junit.ApplicationComposer;
+import org.apache.openejb.testing.Classes;
+import org.apache.openejb.testing.Module;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Deploys the EventStreamManager and the outbox publishers in separate archives, as they are
+ * deployed in an application, to check that enabling the outbox replaces the direct publisher
+ * used by the EventStreamManager.
+ */
+@RunWith(ApplicationComposer.class)
+public class OutboxAwareEventPublisherIT {
+
+    private static final UUID STREAM_ID = randomUUID();
+
+    private static final String LIQUIBASE_EVENT_STORE_CHANGELOG_XML = "liquibase/event-store-db-changelog.xml";
+
+    private static final String EVENT_NAME = "context.eventA";
+
+    @Resource(name = "openejb/Resource/eventStore")
+    private DataSource dataSource;
+
+    @Inject
+    private EventSource eventSource;
+
+    @Inject
+    private OutboxPublisher outboxPublisher;
+
+    @Inject
+    private EventOutboxOpenEjbAwareJdbcRepository eventOutboxRepository;
+
+    @Inject
+    @Direct
+    private RecordingEventPublisher directEventPublisher;
+
+    @Module
+    @Classes(cdi = true, value = {
+            LoggerProducer.class,
+            MetricRegistryProducer.class,
+            OutboxEnabledValueProducer.class,
+
+            AbstractJdbcRepository.class,
+            JdbcEventRepository.class,
+            ShardedEventRepository.class,
+            EventRepositoryProducer.class,
+            EventStoreShards.class,
+            EventRepository.class,
+            EventLogOpenEjbAwareJdbcRepository.class,
+
+            EventSource.class,
+            DefaultEventSource.class,
+            EnvelopeEventStream.class,
+            EventStreamManager.class,
+            EventStreamCache.class,
+            EventStreamPrefetcher.class,
+            ConflictRetryPolicy.class,
+
+            EventLogConverter.class,
+            StringToJsonObjectConverter.class,
+            JsonObjectEnvelopeConverter.class,
+            JsonObjectToObjectConverter.class,
+            ObjectMapperProducer.class,
+            UtcClock.class
+    })
+    public EjbJar eventSourceArchive() {
+        return new EjbJar("event-source");
+    }
+
+    @Module
+    @Classes(cdi = true, value = {
+            OutboxAwareEventPublisher.class,
+            OutboxEventPublisher.class,
+            OutboxPublisher.class,
+            EventOutboxOpenEjbAwareJdbcRepository.class,
+            RecordingEventPublisher.class
+    })
+    public EjbJar eventPublisherArchive() {
+        return new EjbJar("event-publisher");
+    }
+
+    @Before
+    public void init() throws Exception {
+        final Liquibase eventStoreLiquibase = new Liquibase(LIQUIBASE_EVENT_STORE_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection()));
+        eventStoreLiquibase.dropAll();
+        eventStoreLiquibase.update("");
+    }
+
+    @Test
+    public void shouldAddAppendedEventsToOutboxInsteadOfPublishingThem() throws Exception {
+        final EventStream eventStream = eventSource.getStreamById(STREAM_ID);
+
+        eventStream.append(Stream.of(event()));
+
+        assertThat(eventOutboxRepository.eventOutboxCount(), is(1));
+        assertThat(directEventPublisher.published(), empty());
+    }
+
+    @Test
+    public void shouldPublishEventsFromOutboxThroughDirectPublisher() throws Exception {
+        final EventStream eventStream = eventSource.getStreamById(STREAM_ID);
+        final JsonEnvelope event = event();
+        eventStream.append(Stream.of(event));
+
+        outboxPublisher.publishNextBatch(10);
+
+        assertThat(eventOutboxRepository.eventOutboxCount(), is(0));
+        assertThat(directEventPublisher.publishedIds(), contains(event.metadata().id()));
+    }
+
+    private JsonEnvelope event() {
+        return envelope()
+                .with(metadataWithRandomUUID(EVENT_NAME).withStreamId(STREAM_ID))
+                .withPayloadOf("value", "name")
+                .build();
+    }
+
+    @ApplicationScoped
+    public static class OutboxEnabledValueProducer {
+
+        @Value
+        @Produces
+        public String produceValue(final InjectionPoint injectionPoint) {
+            final Value value = injectionPoint.getAnnotated().getAnnotation(Value.class);
+            return "outbox.enabled".equals(value.key()) ? "true" : value.defaultValue();
+        }
+    }
+
+    @ApplicationScoped
+    @Direct
+    public static class RecordingEventPublisher implements EventPublisher {
+
+        private final List<JsonEnvelope> published = new ArrayList<>();
+
+        @Override
+        public void publish(final JsonEnvelope envelope) {
+            published.add(envelope);
+        }
+
+        public List<JsonEnvelope> published() {
+            return published;
+        }
+
+        public List<UUID> publishedIds() {
+            final List<UUID> ids = new ArrayList<>();
+            published.forEach(envelope -> ids.add(envelope.metadata().id()));
+            return ids;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.replay;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.replay.EventStreamReplayer.STREAM_ID_PAGE_SIZE;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogConverter;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+import uk.gov.justice.services.test.utils.common.stream.StreamCloseSpy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventStreamReplayerTest {
+
+    @Mock
+    private Logger logger;
+
+    @Mock
+    private EventLogJdbcRepository eventLogJdbcRepository;
+
+    @Mock
+    private EventLogConverter eventLogConverter;
+
+    @Mock
+    private EventStoreShards eventStoreShards;
+
+    @InjectMocks
+    private EventStreamReplayer eventStreamReplayer;
+
+    private ExecutorService executorService;
+
+    @Before
+    public void setup() {
+        executorService = Executors.newFixedThreadPool(8);
+        eventStreamReplayer.executorService = executorService;
+        when(eventStoreShards.repositories()).thenReturn(singletonList(eventLogJdbcRepository));
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldReplayEachStreamInOrderToConsumer() throws Exception {
+        final UUID streamId1 = UUID.randomUUID();
+        final UUID streamId2 = UUID.randomUUID();
+        final List<JsonEnvelope> stream1Envelopes = givenStream(streamId1, 3);
+        final List<JsonEnvelope> stream2Envelopes = givenStream(streamId2, 2);
+        when(eventLogJdbcRepository.findStreamIdsAfter(null, STREAM_ID_PAGE_SIZE)).thenReturn(asList(streamId1, streamId2));
+
+        final Map<UUID, List<JsonEnvelope>> replayed = new ConcurrentHashMap<>();
+        final ReplayProgress progress = eventStreamReplayer.replay(2, (streamId, events) -> replayed.put(streamId, events.collect(toList())));
+
+        assertThat(replayed.get(streamId1), is(stream1Envelopes));
+        assertThat(replayed.get(streamId2), is(stream2Envelopes));
+        assertThat(progress.getStreams(), is(2L));
+        assertThat(progress.getEvents(), is(5L));
+        assertThat(progress.getFailedStreams(), is(0L));
+    }
+
+    @Test
+    public void shouldReadStreamIdsInPages() throws Exception {
+        final List<UUID> firstPage = new ArrayList<>();
+        IntStream.range(0, STREAM_ID_PAGE_SIZE).forEach(i -> {
+            final UUID streamId = UUID.randomUUID();
+            givenStream(streamId, 1);
+            firstPage.add(streamId);
+        });
+        final UUID lastStreamId = UUID.randomUUID();
+        givenStream(lastStreamId, 1);
+
+        when(eventLogJdbcRepository.findStreamIdsAfter(null, STREAM_ID_PAGE_SIZE)).thenReturn(firstPage);
+        when(eventLogJdbcRepository.findStreamIdsAfter(firstPage.get(STREAM_ID_PAGE_SIZE - 1), STREAM_ID_PAGE_SIZE)).thenReturn(singletonList(lastStreamId));
+
+        final ReplayProgress progress = eventStreamReplayer.replay(4, (streamId, events) -> events.forEach(e -> {
+        }));
+
+        assertThat(progress.getStreams(), is(STREAM_ID_PAGE_SIZE + 1L));
+        assertThat(progress.getEvents(), is(STREAM_ID_PAGE_SIZE + 1L));
+    }
+
+    @Test
+    public void shouldReplayStreamsOfEveryShardFromTheirShard() throws Exception {
+        final EventLogJdbcRepository otherShard = mock(EventLogJdbcRepository.class);
+        final UUID streamId1 = UUID.randomUUID();
+        final UUID streamId2 = UUID.randomUUID();
+        final List<JsonEnvelope> stream1Envelopes = givenStream(streamId1, 2);
+        final EventLog eventLog = new EventLog(UUID.randomUUID(), streamId2, 1L, null, null, null, null);
+        final JsonEnvelope envelope = mock(JsonEnvelope.class);
+        when(eventLogConverter.createEnvelope(eq(eventLog))).thenReturn(envelope);
+        when(otherShard.findByStreamIdOrderBySequenceIdAsc(streamId2)).thenReturn(Stream.of(eventLog));
+        when(eventStoreShards.repositories()).thenReturn(asList(eventLogJdbcRepository, otherShard));
+        when(eventLogJdbcRepository.findStreamIdsAfter(null, STREAM_ID_PAGE_SIZE)).thenReturn(singletonList(streamId1));
+        when(otherShard.findStreamIdsAfter(null, STREAM_ID_PAGE_SIZE)).thenReturn(singletonList(streamId2));
+
+        final Map<UUID, List<JsonEnvelope>> replayed = new ConcurrentHashMap<>();
+        final ReplayProgress progress = eventStreamReplayer.replay(2, (streamId, events) -> replayed.put(streamId, events.collect(toList())));
+
+        assertThat(replayed.get(streamId1), is(stream1Envelopes));
+        assertThat(replayed.get(streamId2), is(singletonList(envelope)));
+        assertThat(progress.getStreams(), is(2L));
+        assertThat(progress.getEvents(), is(3L));
+    }
+
+    @Test
+    public void shouldNotReplayMoreStreamsConcurrentlyThanWorkers() throws Exception {
+        final List<UUID> streamIds = new ArrayList<>();
+        IntStream.range(0, 50).forEach(i -> {
+            final UUID streamId = UUID.randomUUID();
+            givenStream(streamId, 1);
+            streamIds.add(streamId);
+        });
+        when(eventLogJdbcRepository.findStreamIdsAfter(null, STREAM_ID_PAGE_SIZE)).thenReturn(streamIds);
+
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final ReplayProgress progress = eventStreamReplayer.replay(3, (streamId, events) -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            active.decrementAndGet();
+        });
+
+        assertThat(progress.getStreams(), is(50L));
+        assertThat(maxActive.get(), lessThanOrEqualTo(3));
+    }
+
+    @Test
+    public void shouldCountFailedStreamAndContinueReplay() throws Exception {
+        final UUID failingStreamId = UUID.randomUUID();
+        final UUID streamId = UUID.randomUUID();
+        givenStream(failingStreamId, 1);
+        givenStream(streamId, 1);
+        when(eventLogJdbcRepository.findStreamIdsAfter(null, STREAM_ID_PAGE_SIZE)).thenReturn(asList(failingStreamId, streamId));
+
+        final List<UUID> replayed = new ArrayList<>();
+        final ReplayProgress progress = eventStreamReplayer.replay(1, (id, events) -> {
+            if (id.equals(failingStreamId)) {
+                throw new IllegalStateException();
+            }
+            replayed.add(id);
+        });
+
+        assertThat(replayed, is(singletonList(streamId)));
+        assertThat(progress.getStreams(), is(2L));
+        assertThat(progress.getFailedStreams(), is(1L));
+    }
+
+    @Test
+    public void shouldCloseEachStreamAfterReplay() throws Exception {
+        final UUID streamId = UUID.randomUUID();
+        final StreamCloseSpy streamCloseSpy = new StreamCloseSpy();
+        when(eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(streamId)).thenReturn(Stream.<EventLog>empty().onClose(streamCloseSpy));
+        when(eventLogJdbcRepository.findStreamIdsAfter(null, STREAM_ID_PAGE_SIZE)).thenReturn(singletonList(streamId));
+
+        eventStreamReplayer.replay(1, (id, events) -> events.count());
+
+        assertThat(streamCloseSpy.streamClosed(), is(true));
+    }
+
+    @Test
+    public void shouldReturnEmptyProgressIfNoStreams() throws Exception {
+        when(eventLogJdbcRepository.findStreamIdsAfter(any(UUID.class), anyInt())).thenReturn(emptyList());
+
+        final ReplayProgress progress = eventStreamReplayer.replay(1, (id, events) -> events.count());
+
+        assertThat(progress.getStreams(), is(0L));
+        assertThat(progress.getEvents(), is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionIfNoWorkers() throws Exception {
+        eventStreamReplayer.replay(0, (id, events) -> events.count());
+    }
+
+    private List<JsonEnvelope> givenStream(final UUID streamId, final int size) {
+        final List<EventLog> eventLogs = new ArrayList<>();
+        final List<JsonEnvelope> envelopes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            final EventLog eventLog = new EventLog(UUID.randomUUID(), streamId, i + 1L, null, null, null, null);
+            final JsonEnvelope envelope = mock(JsonEnvelope.class);
+            when(eventLogConverter.createEnvelope(eq(eventLog))).thenReturn(envelope);
+            eventLogs.add(eventLog);
+            envelopes.add(envelope);
+        }
+        when(eventLogJdbcRepository.findByStreamIdOrderBySequenceIdAsc(streamId)).thenReturn(eventLogs.stream());
+        return envelopes;
+    }
+}
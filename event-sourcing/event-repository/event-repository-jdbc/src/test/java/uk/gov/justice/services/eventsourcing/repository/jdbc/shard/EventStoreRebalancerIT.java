@@ -0,0 +1,141 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.time.ZonedDateTime.now;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.test.utils.common.reflection.ReflectionUtils.setField;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLog;
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import liquibase.Liquibase;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.ClassLoaderResourceAccessor;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+public class EventStoreRebalancerIT {
+
+    private static final String LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML = "liquibase/event-store-db-changelog.xml";
+    private static final int STREAMS = 30;
+    private static final long EVENTS_PER_STREAM = 3L;
+
+    private final List<EventLogJdbcRepository> shards = new ArrayList<>();
+
+    private EventStoreRebalancer eventStoreRebalancer;
+
+    @Before
+    public void initializeDependencies() throws Exception {
+        final EventLogJdbcRepository eventLogJdbcRepository = mock(EventLogJdbcRepository.class);
+        for (int shard = 0; shard < 2; shard++) {
+            shards.add(eventLogJdbcRepositoryOf(shard));
+            when(eventLogJdbcRepository.forShard(shard)).thenReturn(shards.get(shard));
+        }
+
+        eventStoreRebalancer = new EventStoreRebalancer();
+        eventStoreRebalancer.logger = mock(Logger.class);
+        eventStoreRebalancer.eventLogJdbcRepository = eventLogJdbcRepository;
+    }
+
+    @Test
+    public void shouldMoveStreamsToTheirNewShard() throws Exception {
+        final List<UUID> streamIds = storeStreamsInFirstShard();
+        final List<UUID> eventIds = eventIdsOf(streamIds);
+
+        final RebalanceProgress progress = eventStoreRebalancer.rebalance(1, 2);
+
+        final long moved = streamIds.stream().filter(streamId -> EventStoreShards.shardOf(streamId, 2) == 1).count();
+        assertThat(progress.getStreams(), is((long) STREAMS));
+        assertThat(progress.getMovedStreams(), is(moved));
+        assertThat(progress.getMovedEvents(), is(moved * EVENTS_PER_STREAM));
+        assertThat(progress.getFailedStreams(), is(0L));
+        assertStreamsInTheirShard(streamIds, eventIds);
+    }
+
+    @Test
+    public void shouldMoveNothingWhenRunAgain() throws Exception {
+        storeStreamsInFirstShard();
+        eventStoreRebalancer.rebalance(1, 2);
+
+        final RebalanceProgress progress = eventStoreRebalancer.rebalance(2, 2);
+
+        assertThat(progress.getStreams(), is((long) STREAMS));
+        assertThat(progress.getMovedStreams(), is(0L));
+        assertThat(progress.getMovedEvents(), is(0L));
+    }
+
+    @Test
+    public void shouldCompleteStreamPartlyCopiedByAnInterruptedRebalancing() throws Exception {
+        final List<UUID> streamIds = storeStreamsInFirstShard();
+        final List<UUID> eventIds = eventIdsOf(streamIds);
+        final UUID streamId = streamIds.stream().filter(id -> EventStoreShards.shardOf(id, 2) == 1).findFirst().get();
+        try (final Stream<EventLog> eventLogs = shards.get(0).findByStreamIdOrderBySequenceIdAsc(streamId)) {
+            shards.get(1).insert(eventLogs.findFirst().get());
+        }
+
+        final RebalanceProgress progress = eventStoreRebalancer.rebalance(1, 2);
+
+        assertThat(progress.getFailedStreams(), is(0L));
+        assertThat(progress.getMovedEvents(), is(progress.getMovedStreams() * EVENTS_PER_STREAM - 1));
+        assertStreamsInTheirShard(streamIds, eventIds);
+    }
+
+    private void assertStreamsInTheirShard(final List<UUID> streamIds, final List<UUID> eventIds) {
+        for (final UUID streamId : streamIds) {
+            final int shard = EventStoreShards.shardOf(streamId, 2);
+            assertThat(shards.get(shard).getLatestSequenceIdForStream(streamId), is(EVENTS_PER_STREAM));
+            assertThat(shards.get(1 - shard).getLatestSequenceIdForStream(streamId), is(0L));
+        }
+        assertThat(eventIdsOf(streamIds), is(eventIds));
+    }
+
+    private List<UUID> storeStreamsInFirstShard() throws Exception {
+        final List<UUID> streamIds = new ArrayList<>();
+        for (int i = 0; i < STREAMS; i++) {
+            final UUID streamId = randomUUID();
+            for (long version = 1L; version <= EVENTS_PER_STREAM; version++) {
+                shards.get(0).insert(new EventLog(randomUUID(), streamId, version, "Test Name", "{}", "{}", now()));
+            }
+            streamIds.add(streamId);
+        }
+        return streamIds;
+    }
+
+    private List<UUID> eventIdsOf(final List<UUID> streamIds) {
+        final List<UUID> eventIds = new ArrayList<>();
+        for (final UUID streamId : streamIds) {
+            final EventLogJdbcRepository shard = shards.get(0).getLatestSequenceIdForStream(streamId) > 0 ? shards.get(0) : shards.get(1);
+            try (final Stream<EventLog> eventLogs = shard.findByStreamIdOrderBySequenceIdAsc(streamId)) {
+                eventIds.addAll(eventLogs.map(EventLog::getId).collect(toList()));
+            }
+        }
+        return eventIds;
+    }
+
+    private EventLogJdbcRepository eventLogJdbcRepositoryOf(final int shard) throws Exception {
+        final JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:rebalance" + shard + ";DB_CLOSE_DELAY=-1;MV_STORE=FALSE;MVCC=FALSE");
+        dataSource.setUser("sa");
+        dataSource.setPassword("sa");
+
+        final Liquibase liquibase = new Liquibase(LIQUIBASE_EVENT_STORE_DB_CHANGELOG_XML,
+                new ClassLoaderResourceAccessor(), new JdbcConnection(dataSource.getConnection()));
+        liquibase.dropAll();
+        liquibase.update("");
+
+        final EventLogJdbcRepository eventLogJdbcRepository = new EventLogJdbcRepository();
+        setField(eventLogJdbcRepository, "datasource", dataSource);
+        return eventLogJdbcRepository;
+    }
+}
@@ -0,0 +1,105 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.allOf;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.shard.EventStoreShards.shardOf;
+
+import uk.gov.justice.services.eventsourcing.repository.jdbc.eventlog.EventLogJdbcRepository;
+
+import java.util.UUID;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventStoreShardsTest {
+
+    private static final int STREAMS = 10000;
+
+    @Mock
+    private EventLogJdbcRepository eventLogJdbcRepository;
+
+    @Test
+    public void shouldHoldEveryStreamInFirstShardIfNotSharded() {
+        final EventStoreShards eventStoreShards = eventStoreShardsOf("1");
+
+        assertThat(eventStoreShards.count(), is(1));
+        assertThat(eventStoreShards.shardOf(randomUUID()), is(0));
+        assertThat(eventStoreShards.repositoryFor(randomUUID()), sameInstance(eventLogJdbcRepository));
+    }
+
+    @Test
+    public void shouldRouteStreamToRepositoryOfItsShard() {
+        final EventLogJdbcRepository shard1 = mock(EventLogJdbcRepository.class);
+        final EventLogJdbcRepository shard2 = mock(EventLogJdbcRepository.class);
+        when(eventLogJdbcRepository.forShard(0)).thenReturn(eventLogJdbcRepository);
+        when(eventLogJdbcRepository.forShard(1)).thenReturn(shard1);
+        when(eventLogJdbcRepository.forShard(2)).thenReturn(shard2);
+
+        final EventStoreShards eventStoreShards = eventStoreShardsOf("3");
+        final UUID streamId = randomUUID();
+
+        assertThat(eventStoreShards.repositories(), contains(eventLogJdbcRepository, shard1, shard2));
+        assertThat(eventStoreShards.repositoryFor(streamId), sameInstance(eventStoreShards.repositories().get(shardOf(streamId, 3))));
+    }
+
+    @Test
+    public void shouldAlwaysRouteStreamToSameShard() {
+        final UUID streamId = UUID.fromString("0f4c3cbd-2a1e-4c1b-9a5e-6a5b1b8f2d17");
+
+        assertThat(shardOf(streamId, 8), is(shardOf(UUID.fromString(streamId.toString()), 8)));
+        assertThat(shardOf(streamId, 1), is(0));
+    }
+
+    @Test
+    public void shouldSpreadStreamsEvenlyOverShards() {
+        final int[] streamsPerShard = new int[4];
+        for (int i = 0; i < STREAMS; i++) {
+            streamsPerShard[shardOf(randomUUID(), 4)]++;
+        }
+
+        for (final int streams : streamsPerShard) {
+            assertThat(streams, allOf(greaterThan(STREAMS / 4 * 9 / 10), lessThan(STREAMS / 4 * 11 / 10)));
+        }
+    }
+
+    @Test
+    public void shouldOnlyMoveStreamsToNewShardWhenAddingShard() {
+        int moved = 0;
+        for (int i = 0; i < STREAMS; i++) {
+            final UUID streamId = randomUUID();
+            final int before = shardOf(streamId, 4);
+            final int after = shardOf(streamId, 5);
+            if (before != after) {
+                assertThat(after, is(4));
+                moved++;
+            }
+        }
+
+        assertThat(moved, allOf(greaterThan(STREAMS / 5 * 9 / 10), lessThan(STREAMS / 5 * 11 / 10)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNoShards() {
+        eventStoreShardsOf("0");
+    }
+
+    private EventStoreShards eventStoreShardsOf(final String shards) {
+        when(eventLogJdbcRepository.forShard(0)).thenReturn(eventLogJdbcRepository);
+        final EventStoreShards eventStoreShards = new EventStoreShards();
+        eventStoreShards.shards = shards;
+        eventStoreShards.eventLogJdbcRepository = eventLogJdbcRepository;
+        eventStoreShards.initialise();
+        return eventStoreShards;
+    }
+}
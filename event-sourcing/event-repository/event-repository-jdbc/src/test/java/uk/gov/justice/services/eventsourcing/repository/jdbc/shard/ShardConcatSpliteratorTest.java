@@ -0,0 +1,83 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.shard.ShardConcatSpliterator.concat;
+
+import uk.gov.justice.services.test.utils.common.stream.StreamCloseSpy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class ShardConcatSpliteratorTest {
+
+    @Test
+    public void shouldConcatenateStreamsOfShardsInShardOrder() {
+        final Stream<Integer> concatenated = concat(asList(() -> Stream.of(3, 1), Stream::<Integer>empty, () -> Stream.of(2)));
+
+        assertThat(concatenated.collect(toList()), contains(3, 1, 2));
+    }
+
+    @Test
+    public void shouldReturnEmptyStreamIfNoShards() {
+        assertThat(concat(Collections.<Supplier<Stream<Integer>>>emptyList()).collect(toList()), is(empty()));
+    }
+
+    @Test
+    public void shouldOpenStreamOfShardOnlyOnceShardsBeforeItHaveBeenReadAndCloseItWhenRead() {
+        final List<String> opened = new ArrayList<>();
+        final StreamCloseSpy shard1 = new StreamCloseSpy();
+        final StreamCloseSpy shard2 = new StreamCloseSpy();
+
+        final Iterator<Integer> concatenated = concat(Arrays.<Supplier<Stream<Integer>>>asList(
+                () -> {
+                    opened.add("shard1");
+                    return Stream.of(1).onClose(shard1);
+                },
+                () -> {
+                    opened.add("shard2");
+                    return Stream.of(2).onClose(shard2);
+                })).iterator();
+
+        assertThat(concatenated.next(), is(1));
+        assertThat(opened, contains("shard1"));
+        assertThat(shard1.streamClosed(), is(false));
+
+        assertThat(concatenated.next(), is(2));
+        assertThat(opened, contains("shard1", "shard2"));
+        assertThat(shard1.streamClosed(), is(true));
+        assertThat(shard2.streamClosed(), is(false));
+
+        assertThat(concatenated.hasNext(), is(false));
+        assertThat(shard2.streamClosed(), is(true));
+    }
+
+    @Test
+    public void shouldCloseStreamOfShardBeingReadWhenClosed() {
+        final StreamCloseSpy shard1 = new StreamCloseSpy();
+        final List<String> opened = new ArrayList<>();
+
+        final Stream<Integer> concatenated = concat(Arrays.<Supplier<Stream<Integer>>>asList(
+                () -> Stream.of(1, 2).onClose(shard1),
+                () -> {
+                    opened.add("shard2");
+                    return Stream.of(3);
+                }));
+        concatenated.iterator().next();
+        concatenated.close();
+
+        assertThat(shard1.streamClosed(), is(true));
+        assertThat(opened, is(empty()));
+    }
+}
@@ -0,0 +1,53 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static java.util.Arrays.asList;
+import static java.util.Comparator.naturalOrder;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static uk.gov.justice.services.eventsourcing.repository.jdbc.shard.ShardMergeSpliterator.merge;
+
+import uk.gov.justice.services.test.utils.common.stream.StreamCloseSpy;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+public class ShardMergeSpliteratorTest {
+
+    @Test
+    public void shouldMergeOrderedStreamsOfShardsInOrder() {
+        final Stream<Integer> merged = merge(asList(Stream.of(1, 4, 7), Stream.of(2, 3, 9), Stream.<Integer>empty(), Stream.of(5)), naturalOrder());
+
+        assertThat(merged.collect(toList()), contains(1, 2, 3, 4, 5, 7, 9));
+    }
+
+    @Test
+    public void shouldTakeEqualElementsFromLowestShardFirst() {
+        final Comparator<String> byLength = Comparator.comparingInt(String::length);
+
+        final Stream<String> merged = merge(asList(Stream.of("a", "ccc"), Stream.of("b", "dd")), byLength);
+
+        assertThat(merged.collect(toList()), contains("a", "b", "dd", "ccc"));
+    }
+
+    @Test
+    public void shouldReturnEmptyStreamIfNoShards() {
+        assertThat(merge(Collections.<Stream<Integer>>emptyList(), naturalOrder()).collect(toList()), is(empty()));
+    }
+
+    @Test
+    public void shouldCloseStreamOfEveryShard() {
+        final StreamCloseSpy shard1 = new StreamCloseSpy();
+        final StreamCloseSpy shard2 = new StreamCloseSpy();
+
+        merge(asList(Stream.of(1).onClose(shard1), Stream.of(2).onClose(shard2)), naturalOrder()).close();
+
+        assertThat(shard1.streamClosed(), is(true));
+        assertThat(shard2.streamClosed(), is(true));
+    }
+}
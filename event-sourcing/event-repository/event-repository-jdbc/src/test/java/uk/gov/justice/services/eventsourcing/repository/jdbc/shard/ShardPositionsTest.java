@@ -0,0 +1,51 @@
+package uk.gov.justice.services.eventsourcing.repository.jdbc.shard;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import org.junit.Test;
+
+public class ShardPositionsTest {
+
+    @Test
+    public void shouldStartEveryShardAtItsFirstPosition() {
+        final ShardPositions positions = ShardPositions.start(3);
+
+        assertThat(positions.shardCount(), is(3));
+        assertThat(positions.toString(), is("0,0,0"));
+    }
+
+    @Test
+    public void shouldResumeOnlyTheShardReadAfterThePositionRead() {
+        final ShardPositions positions = ShardPositions.start(2);
+
+        final ShardPositions after = positions.after(1, 41L);
+
+        assertThat(after.of(0), is(0L));
+        assertThat(after.of(1), is(42L));
+        assertThat(positions.of(1), is(0L));
+    }
+
+    @Test
+    public void shouldParsePositionsWrittenAsString() {
+        final ShardPositions positions = ShardPositions.start(3).after(0, 7L).after(2, 99L);
+
+        assertThat(ShardPositions.parse(positions.toString()), is(positions));
+        assertThat(ShardPositions.parse(" 8, 0 ,100").of(2), is(100L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectMalformedPositions() {
+        ShardPositions.parse("1,x");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativePositions() {
+        ShardPositions.parse("1,-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNoShards() {
+        ShardPositions.start(0);
+    }
+}
@@ -0,0 +1,115 @@
+package uk.gov.justice.services.eventsourcing.source.core;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+import static java.lang.Math.min;
+
+import uk.gov.justice.services.common.configuration.Value;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Decides whether a command whose append lost a race with another append to the same stream is
+ * run again, and how long to wait before running it. Used by the aggregate service to re-run a
+ * command against the new head of the stream, so that a conflict does not fail the whole command.
+ * The {@link EventStreamManager} only records conflicts, as events decided without a version are
+ * never appended again.
+ *
+ * Each retry waits for a random time of up to <code>appendConflict.initialBackoffMillis</code>,
+ * doubling with every retry up to <code>appendConflict.maxBackoffMillis</code>, so that racing
+ * appends do not retry in lock step. The wait holds the caller's transaction and connection open,
+ * so the backoff is capped at {@value #BACKOFF_CAP_MILLIS} milliseconds, well below any
+ * transaction timeout, however large the configured maximum.
+ *
+ * Retrying is disabled unless <code>appendConflict.maxRetries</code> is set above zero. Conflicts,
+ * retries and conflicts still failing after the last retry are counted in the
+ * <code>MetricRegistry</code>.
+ */
+@ApplicationScoped
+public class ConflictRetryPolicy {
+
+    static final String CONFLICTS = "append-conflict.conflicts";
+    static final String RETRIES = "append-conflict.retries";
+    static final String EXHAUSTED = "append-conflict.exhausted";
+    static final long BACKOFF_CAP_MILLIS = 1000L;
+
+    @Inject
+    @Value(key = "appendConflict.maxRetries", defaultValue = "0")
+    String maxRetries;
+
+    @Inject
+    @Value(key = "appendConflict.initialBackoffMillis", defaultValue = "10")
+    String initialBackoffMillis;
+
+    @Inject
+    @Value(key = "appendConflict.maxBackoffMillis", defaultValue = "500")
+    String maxBackoffMillis;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    private int retryLimit;
+    private long initialBackoff;
+    private long maxBackoff;
+
+    private Counter conflicts;
+    private Counter retries;
+    private Counter exhausted;
+
+    @PostConstruct
+    void initialise() {
+        retryLimit = parseInt(maxRetries);
+        initialBackoff = parseLong(initialBackoffMillis);
+        maxBackoff = min(parseLong(maxBackoffMillis), BACKOFF_CAP_MILLIS);
+        conflicts = metricRegistry.counter(CONFLICTS);
+        retries = metricRegistry.counter(RETRIES);
+        exhausted = metricRegistry.counter(EXHAUSTED);
+    }
+
+    public boolean isEnabled() {
+        return retryLimit > 0;
+    }
+
+    /**
+     * Record that an append was rejected because the stream had moved on.
+     */
+    public void recordConflict() {
+        conflicts.inc();
+    }
+
+    /**
+     * Wait before retrying a conflicting append, if it may be retried. The calling thread sleeps
+     * inside its transaction, keeping its connection and any locks it holds until it wakes.
+     *
+     * @param attempt the number of times the append has already been retried
+     * @return true if the append should be retried, false if it has been retried too many times
+     * or the thread was interrupted while waiting
+     */
+    public boolean retry(final int attempt) {
+        if (attempt >= retryLimit) {
+            exhausted.inc();
+            return false;
+        }
+
+        retries.inc();
+        try {
+            Thread.sleep(backoffMillis(attempt));
+            return true;
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    long backoffMillis(final int attempt) {
+        final long bound = min(maxBackoff, initialBackoff << min(attempt, 30));
+        return bound > 0 ? ThreadLocalRandom.current().nextLong(bound + 1) : 0L;
+    }
+}
@@ -3,6 +3,7 @@ package uk.gov.justice.services.eventsourcing.source.core;
 import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamException;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -30,6 +31,36 @@ public class EnvelopeEventStream implements EventStream {
         return eventStreamManager.readFrom(id, version);
     }
 
+    @Override
+    public Stream<JsonEnvelope> readAhead() {
+        return eventStreamManager.readAhead(id);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> readAheadFrom(final Long version) {
+        return eventStreamManager.readAheadFrom(id, version);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> read(final Set<String> names) {
+        return eventStreamManager.read(id, names);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> readFrom(final Long version, final Set<String> names) {
+        return eventStreamManager.readFrom(id, version, names);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> readLast(final int count) {
+        return eventStreamManager.readLast(id, count);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> readInReverse() {
+        return eventStreamManager.readInReverse(id);
+    }
+
     @Override
     public void append(final Stream<JsonEnvelope> events) throws EventStreamException {
         eventStreamManager.append(id, events);
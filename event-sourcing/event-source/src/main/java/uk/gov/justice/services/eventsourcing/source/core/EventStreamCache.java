@@ -0,0 +1,329 @@
+package uk.gov.justice.services.eventsourcing.source.core;
+
+import static java.lang.Long.parseLong;
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static javax.transaction.Status.STATUS_COMMITTED;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+import uk.gov.justice.services.messaging.LazyJsonEnvelope;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+/**
+ * Bounded cache of the most recent events of each stream, used by the {@link EventStreamManager}
+ * to serve repeated reads of the tail of a stream without going to the event store.
+ *
+ * Each stream is cached as a contiguous run of events ending at the latest version the cache has
+ * seen. The cache is bounded by the total weight of the events it holds, the weight of an event
+ * being the length of its payload json. Events read from the event store are weighed by the length
+ * of the stored json, so they are not parsed to be cached. When full, whole streams are evicted in
+ * least recently used order. A single stream heavier than the bound keeps only its most recent
+ * events.
+ *
+ * The cache is disabled unless <code>eventStreamCache.maxWeight</code> is set above zero.
+ */
+@ApplicationScoped
+public class EventStreamCache {
+
+    static final String HITS = "event-stream-cache.hits";
+    static final String MISSES = "event-stream-cache.misses";
+    static final String EVICTIONS = "event-stream-cache.evictions";
+
+    @Inject
+    @Value(key = "eventStreamCache.maxWeight", defaultValue = "0")
+    String maxWeight;
+
+    @Inject
+    MetricRegistry metricRegistry;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final Map<UUID, CachedStream> streams = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long maxTotalWeight;
+    private long totalWeight;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    @PostConstruct
+    void initialise() {
+        maxTotalWeight = parseLong(maxWeight);
+        hits = metricRegistry.counter(HITS);
+        misses = metricRegistry.counter(MISSES);
+        evictions = metricRegistry.counter(EVICTIONS);
+    }
+
+    public boolean isEnabled() {
+        return maxTotalWeight > 0;
+    }
+
+    /**
+     * Get the cached events of a stream from the given version.
+     *
+     * Entries that are ahead of the current version of the stream, for example after a rolled
+     * back append, are discarded.
+     *
+     * @param id             the id of the stream
+     * @param version        the version to read from
+     * @param currentVersion the current version of the stream in the event store
+     * @return the cached events from the given version, in order, up to the latest version cached.
+     * Empty if the cache does not hold the given version.
+     */
+    public synchronized List<JsonEnvelope> getFrom(final UUID id, final long version, final long currentVersion) {
+        final CachedStream stream = streams.get(id);
+
+        if (stream == null) {
+            return emptyList();
+        }
+
+        if (stream.lastVersion() > currentVersion) {
+            remove(id);
+            return emptyList();
+        }
+
+        if (version < stream.firstVersion || version > stream.lastVersion()) {
+            return emptyList();
+        }
+
+        return stream.eventsFrom(version);
+    }
+
+    /**
+     * Add events read from the event store to the cache.
+     *
+     * If the events directly follow the cached events of the stream they are added to its tail,
+     * otherwise they replace them.
+     *
+     * @param id           the id of the stream
+     * @param firstVersion the version of the first event
+     * @param events       the events, in order
+     */
+    public void put(final UUID id, final long firstVersion, final List<JsonEnvelope> events) {
+        putWeighed(id, firstVersion, events.stream().map(this::weighed).collect(toList()));
+    }
+
+    /**
+     * Add events read from the event store to the cache as the returned stream is consumed,
+     * without collecting them first. While reading, only the most recent events up to the maximum
+     * weight of the cache are kept, and they are added to the cache once the event at
+     * <code>lastVersion</code> has been read. A stream that is not read to the end is not cached.
+     *
+     * @param id           the id of the stream
+     * @param firstVersion the version of the first event
+     * @param lastVersion  the version of the last event
+     * @param events       the events, in order
+     * @return the events, adding them to the cache as they are consumed
+     */
+    public Stream<JsonEnvelope> putAsRead(final UUID id, final long firstVersion, final long lastVersion, final Stream<JsonEnvelope> events) {
+        final ReadTail readTail = new ReadTail(id, firstVersion, lastVersion);
+        return events.peek(readTail::add);
+    }
+
+    /**
+     * Add appended events to the cache once the current transaction commits, or immediately if
+     * there is no transaction.
+     *
+     * @param id           the id of the stream
+     * @param firstVersion the version of the first appended event
+     * @param events       the appended events, in order
+     */
+    public void putAppended(final UUID id, final long firstVersion, final List<JsonEnvelope> events) {
+        if (transactionSynchronizationRegistry == null || transactionSynchronizationRegistry.getTransactionKey() == null) {
+            put(id, firstVersion, events);
+            return;
+        }
+
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(final int status) {
+                if (status == STATUS_COMMITTED) {
+                    put(id, firstVersion, events);
+                } else {
+                    invalidate(id);
+                }
+            }
+        });
+    }
+
+    public synchronized void invalidate(final UUID id) {
+        remove(id);
+    }
+
+    public void recordHit() {
+        hits.inc();
+    }
+
+    public void recordMiss() {
+        misses.inc();
+    }
+
+    synchronized long totalWeight() {
+        return totalWeight;
+    }
+
+    private synchronized void putWeighed(final UUID id, final long firstVersion, final Collection<CachedEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        final CachedStream stream = streams.get(id);
+
+        if (stream != null && stream.lastVersion() + 1 == firstVersion) {
+            events.forEach(event -> add(stream, event));
+        } else {
+            remove(id);
+            final CachedStream newStream = new CachedStream(firstVersion);
+            streams.put(id, newStream);
+            events.forEach(event -> add(newStream, event));
+        }
+
+        evictToMaxWeight(id);
+    }
+
+    private void add(final CachedStream stream, final CachedEvent event) {
+        stream.events.addLast(event);
+        stream.weight += event.weight;
+        totalWeight += event.weight;
+    }
+
+    private void remove(final UUID id) {
+        final CachedStream stream = streams.remove(id);
+        if (stream != null) {
+            totalWeight -= stream.weight;
+        }
+    }
+
+    private void evictToMaxWeight(final UUID current) {
+        final Iterator<Map.Entry<UUID, CachedStream>> leastRecentlyUsed = streams.entrySet().iterator();
+        while (totalWeight > maxTotalWeight && leastRecentlyUsed.hasNext()) {
+            final Map.Entry<UUID, CachedStream> entry = leastRecentlyUsed.next();
+            if (!entry.getKey().equals(current)) {
+                totalWeight -= entry.getValue().weight;
+                evictions.inc(entry.getValue().events.size());
+                leastRecentlyUsed.remove();
+            }
+        }
+
+        final CachedStream stream = streams.get(current);
+        while (totalWeight > maxTotalWeight && stream != null && !stream.events.isEmpty()) {
+            final CachedEvent oldest = stream.events.removeFirst();
+            stream.firstVersion++;
+            stream.weight -= oldest.weight;
+            totalWeight -= oldest.weight;
+            evictions.inc();
+        }
+
+        if (stream != null && stream.events.isEmpty()) {
+            streams.remove(current);
+        }
+    }
+
+    private CachedEvent weighed(final JsonEnvelope event) {
+        if (event instanceof LazyJsonEnvelope) {
+            return new CachedEvent(event, ((LazyJsonEnvelope) event).payloadJsonLength());
+        }
+        return new CachedEvent(event, event.payload().toString().length());
+    }
+
+    /**
+     * Most recent events of a stream being read from the event store, up to the maximum weight of
+     * the cache, added to the cache once the last event has been read.
+     */
+    private class ReadTail {
+
+        private final UUID id;
+        private final long lastVersion;
+        private final Deque<CachedEvent> events = new ArrayDeque<>();
+
+        private long firstVersion;
+        private long nextVersion;
+        private long weight;
+
+        ReadTail(final UUID id, final long firstVersion, final long lastVersion) {
+            this.id = id;
+            this.firstVersion = firstVersion;
+            this.nextVersion = firstVersion;
+            this.lastVersion = lastVersion;
+        }
+
+        void add(final JsonEnvelope envelope) {
+            final CachedEvent event = weighed(envelope);
+            events.addLast(event);
+            weight += event.weight;
+
+            while (weight > maxTotalWeight && !events.isEmpty()) {
+                weight -= events.removeFirst().weight;
+                firstVersion++;
+            }
+
+            if (nextVersion++ == lastVersion) {
+                putWeighed(id, firstVersion, events);
+            }
+        }
+    }
+
+    private static class CachedStream {
+
+        private final Deque<CachedEvent> events = new ArrayDeque<>();
+        private long firstVersion;
+        private long weight;
+
+        CachedStream(final long firstVersion) {
+            this.firstVersion = firstVersion;
+        }
+
+        long lastVersion() {
+            return firstVersion + events.size() - 1;
+        }
+
+        List<JsonEnvelope> eventsFrom(final long version) {
+            final List<JsonEnvelope> result = new ArrayList<>((int) (lastVersion() - version + 1));
+            long eventVersion = firstVersion;
+            for (final CachedEvent event : events) {
+                if (eventVersion++ >= version) {
+                    result.add(event.envelope);
+                }
+            }
+            return result;
+        }
+    }
+
+    private static class CachedEvent {
+
+        private final JsonEnvelope envelope;
+        private final long weight;
+
+        CachedEvent(final JsonEnvelope envelope, final long weight) {
+            this.envelope = envelope;
+            this.weight = weight;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package uk.gov.justice.services.eventsourcing.source.core;
 
 
+import static java.lang.Math.min;
 import static uk.gov.justice.services.messaging.JsonObjectMetadata.STREAM;
 import static uk.gov.justice.services.messaging.JsonObjectMetadata.STREAM_ID;
 import static uk.gov.justice.services.messaging.JsonObjectMetadata.VERSION;
@@ -8,6 +9,7 @@ import static uk.gov.justice.services.messaging.JsonObjectMetadata.VERSION;
 import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
 import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
 import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StreamVersionConflictException;
 import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamException;
 import uk.gov.justice.services.eventsourcing.source.core.exception.InvalidStreamVersionRuntimeException;
 import uk.gov.justice.services.eventsourcing.source.core.exception.VersionMismatchException;
@@ -16,8 +18,13 @@ import uk.gov.justice.services.messaging.JsonEnvelope;
 import uk.gov.justice.services.messaging.JsonObjectMetadata;
 import uk.gov.justice.services.messaging.JsonObjects;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -34,6 +41,9 @@ import org.slf4j.Logger;
  */
 public class EventStreamManager {
 
+    private static final long FIRST_VERSION = 1L;
+    private static final int REVERSE_PAGE_SIZE = 100;
+
     @Inject
     Logger logger;
 
@@ -43,12 +53,24 @@ public class EventStreamManager {
     @Inject
     EventPublisher eventPublisher;
 
+    @Inject
+    EventStreamCache eventStreamCache;
+
+    @Inject
+    EventStreamPrefetcher eventStreamPrefetcher;
+
+    @Inject
+    ConflictRetryPolicy conflictRetryPolicy;
+
     /**
      * Get the stream of events.
      *
      * @return the stream of events
      */
     public Stream<JsonEnvelope> read(final UUID id) {
+        if (eventStreamCache.isEnabled()) {
+            return readThroughCache(id, FIRST_VERSION, eventRepository.getCurrentSequenceIdForStream(id));
+        }
         return eventRepository.getByStreamId(id);
     }
 
@@ -58,21 +80,132 @@ public class EventStreamManager {
      * @return the stream of events
      */
     public Stream<JsonEnvelope> readFrom(final UUID id, final Long version) {
-        if (version > eventRepository.getCurrentSequenceIdForStream(id)) {
+        final Long currentVersion = eventRepository.getCurrentSequenceIdForStream(id);
+        if (version > currentVersion) {
             throw new InvalidStreamVersionRuntimeException(String.format("Failed to read from stream %s. Version %d does not exist.", id, version));
         }
+        if (eventStreamCache.isEnabled()) {
+            return readThroughCache(id, version, currentVersion);
+        }
         return eventRepository.getByStreamIdAndSequenceId(id, version);
     }
 
     /**
-     * Store a stream of events.
+     * Get the stream of events, read ahead in the background if enabled in the
+     * {@link EventStreamPrefetcher} and the stream is long enough. The returned stream must be
+     * consumed and closed by the caller.
+     *
+     * @param id the id of the stream
+     * @return the stream of events
+     */
+    public Stream<JsonEnvelope> readAhead(final UUID id) {
+        if (eventStreamCache.isEnabled() || !eventStreamPrefetcher.isEnabled()) {
+            return read(id);
+        }
+        if (eventStreamPrefetcher.shouldPrefetch(eventRepository.getCurrentSequenceIdForStream(id))) {
+            return eventStreamPrefetcher.prefetch(eventRepository.getByStreamId(id));
+        }
+        return eventRepository.getByStreamId(id);
+    }
+
+    /**
+     * Get the stream of events from the given version, read ahead in the background if enabled in
+     * the {@link EventStreamPrefetcher} and the rest of the stream is long enough. The returned
+     * stream must be consumed and closed by the caller.
+     *
+     * @param id      the id of the stream
+     * @param version the version to read from
+     * @return the stream of events
+     */
+    public Stream<JsonEnvelope> readAheadFrom(final UUID id, final Long version) {
+        if (eventStreamCache.isEnabled() || !eventStreamPrefetcher.isEnabled()) {
+            return readFrom(id, version);
+        }
+        final Long currentVersion = eventRepository.getCurrentSequenceIdForStream(id);
+        if (version > currentVersion) {
+            throw new InvalidStreamVersionRuntimeException(String.format("Failed to read from stream %s. Version %d does not exist.", id, version));
+        }
+        if (eventStreamPrefetcher.shouldPrefetch(currentVersion - version + 1)) {
+            return eventStreamPrefetcher.prefetch(eventRepository.getByStreamIdAndSequenceId(id, version));
+        }
+        return eventRepository.getByStreamIdAndSequenceId(id, version);
+    }
+
+    /**
+     * Get the stream of events with the given names.
+     *
+     * @param id    the id of the stream
+     * @param names the names of the events to read
+     * @return the stream of events
+     */
+    public Stream<JsonEnvelope> read(final UUID id, final Set<String> names) {
+        return eventRepository.getByStreamIdAndNames(id, names);
+    }
+
+    /**
+     * Get the stream of events with the given names from the given version.
+     *
+     * @param id      the id of the stream
+     * @param version the version to read from
+     * @param names   the names of the events to read
+     * @return the stream of events
+     */
+    public Stream<JsonEnvelope> readFrom(final UUID id, final Long version, final Set<String> names) {
+        if (version > eventRepository.getCurrentSequenceIdForStream(id)) {
+            throw new InvalidStreamVersionRuntimeException(String.format("Failed to read from stream %s. Version %d does not exist.", id, version));
+        }
+        return eventRepository.getByStreamIdAndSequenceIdAndNames(id, version, names);
+    }
+
+    /**
+     * Get the latest events of the stream, in version order. The events are read newest first
+     * in pages of at most {@value #REVERSE_PAGE_SIZE} events until count events have been read,
+     * so the cost grows with count rather than with the length of the stream.
+     *
+     * @param id    the id of the stream
+     * @param count the maximum number of events to read
+     * @return the stream of at most count events
+     */
+    public Stream<JsonEnvelope> readLast(final UUID id, final int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException(String.format("Failed to read from stream %s. Count %d must not be negative.", id, count));
+        }
+        if (count == 0) {
+            return Stream.empty();
+        }
+
+        final List<JsonEnvelope> latest;
+        try (final Stream<JsonEnvelope> events = eventRepository.getByStreamIdInReverse(id, min(count, REVERSE_PAGE_SIZE))) {
+            latest = events.limit(count).collect(Collectors.toList());
+        }
+        Collections.reverse(latest);
+        return latest.stream();
+    }
+
+    /**
+     * Get the stream of events newest first. The events are read from the event store in pages as
+     * the stream is consumed.
+     *
+     * @param id the id of the stream
+     * @return the stream of events, in descending version order
+     */
+    public Stream<JsonEnvelope> readInReverse(final UUID id) {
+        return eventRepository.getByStreamIdInReverse(id, REVERSE_PAGE_SIZE);
+    }
+
+    /**
+     * Store a stream of events. The events are never retried after another append to the stream
+     * is stored first, as they were decided from the state of the stream before that append. Use
+     * <code>AggregateService.getAndAppend</code> to run a command
+     * again after a conflict.
      *
      * @param events the stream of events to store
-     * @throws EventStreamException if an event could not be appended
+     * @throws VersionMismatchException if another append to the stream is stored first
+     * @throws EventStreamException     if an event could not be appended
      */
     @Transactional
     public void append(final UUID id, final Stream<JsonEnvelope> events) throws EventStreamException {
-        append(id, events, Optional.empty());
+        append(id, events.collect(Collectors.toList()), Optional.empty());
     }
 
     /**
@@ -80,14 +213,16 @@ public class EventStreamManager {
      *
      * @param events  the stream of events to store
      * @param version the version to append from
-     * @throws EventStreamException if an event could not be appended
+     * @throws VersionMismatchException if the stream is not at the given version, or another
+     *                                  append to the stream is stored first
+     * @throws EventStreamException     if an event could not be appended
      */
     @Transactional
     public void appendAfter(final UUID id, final Stream<JsonEnvelope> events, final Long version) throws EventStreamException {
         if (version == null) {
             throw new EventStreamException(String.format("Failed to append to stream %s. Version must not be null.", id));
         }
-        append(id, events, Optional.of(version));
+        append(id, events.collect(Collectors.toList()), Optional.of(version));
     }
 
     /**
@@ -99,24 +234,63 @@ public class EventStreamManager {
         return eventRepository.getCurrentSequenceIdForStream(id);
     }
 
-    private void append(final UUID id, final Stream<JsonEnvelope> events, final Optional<Long> versionFrom) throws EventStreamException {
-        final List<JsonEnvelope> envelopeList = events.collect(Collectors.toList());
+    /**
+     * Get the current (current maximum) sequence ids (version numbers) for many streams at once
+     *
+     * @param ids the ids of the streams
+     * @return map of stream id to latest sequence id. 0 for streams that are empty.
+     */
+    public Map<UUID, Long> getCurrentSequenceIdsForStreams(final Collection<UUID> ids) {
+        return eventRepository.getCurrentSequenceIdsForStreams(ids);
+    }
 
+    private void append(final UUID id, final List<JsonEnvelope> envelopeList, final Optional<Long> versionFrom) throws EventStreamException {
         Long currentVersion = eventRepository.getCurrentSequenceIdForStream(id);
 
         validateEvents(id, envelopeList, versionFrom, currentVersion);
 
+        final Long firstVersion = currentVersion + 1;
+        final List<JsonEnvelope> eventsWithVersion = new ArrayList<>(envelopeList.size());
         for (final JsonEnvelope event : envelopeList) {
-            try {
-                final JsonEnvelope eventWithVersion = eventWithVersion(event, id, ++currentVersion);
-                eventRepository.store(eventWithVersion, id, currentVersion);
-                eventPublisher.publish(eventWithVersion);
-            } catch (StoreEventRequestFailedException e) {
-                throw new EventStreamException(String.format("Failed to append event to Event Store %s", event.metadata().id()), e);
+            eventsWithVersion.add(eventWithVersion(event, id, ++currentVersion));
+        }
+
+        try {
+            eventRepository.storeAll(eventsWithVersion, id, firstVersion);
+            eventsWithVersion.forEach(eventPublisher::publish);
+            if (eventStreamCache.isEnabled()) {
+                eventStreamCache.putAppended(id, firstVersion, eventsWithVersion);
             }
+        } catch (StreamVersionConflictException e) {
+            conflictRetryPolicy.recordConflict();
+            throw new VersionMismatchException(String.format("Failed to append to stream %s. Version mismatch. Expected %d, another append was stored first",
+                    id, firstVersion - 1), e);
+        } catch (StoreEventRequestFailedException e) {
+            throw new EventStreamException(String.format("Failed to append events to Event Store for stream %s", id), e);
         }
     }
 
+    private Stream<JsonEnvelope> readThroughCache(final UUID id, final long version, final long currentVersion) {
+        if (version > currentVersion) {
+            return Stream.empty();
+        }
+
+        final List<JsonEnvelope> cached = eventStreamCache.getFrom(id, version, currentVersion);
+        final long lastCachedVersion = version + cached.size() - 1;
+
+        if (!cached.isEmpty() && lastCachedVersion == currentVersion) {
+            eventStreamCache.recordHit();
+            return cached.stream();
+        }
+
+        eventStreamCache.recordMiss();
+
+        final long fetchFrom = cached.isEmpty() ? version : lastCachedVersion + 1;
+        final Stream<JsonEnvelope> fetched = eventStreamCache.putAsRead(id, fetchFrom, currentVersion, eventRepository.getByStreamIdAndSequenceId(id, fetchFrom));
+
+        return Stream.concat(cached.stream(), fetched);
+    }
+
     private JsonEnvelope eventWithVersion(final JsonEnvelope event, final UUID streamId, final Long version) {
         final JsonObjectBuilder stream = Json.createObjectBuilder()
                 .add(STREAM_ID, streamId.toString())
@@ -130,6 +304,7 @@ public class EventStreamManager {
 
     private void validateEvents(final UUID id, final List<JsonEnvelope> envelopeList, final Optional<Long> versionFrom, final Long currentVersion) throws EventStreamException {
         if (versionFrom.isPresent() && !versionFrom.get().equals(currentVersion)) {
+            conflictRetryPolicy.recordConflict();
             throw new VersionMismatchException(String.format("Failed to append to stream %s. Version mismatch. Expected %d, Found %d",
                     id, versionFrom.get(), currentVersion));
         }
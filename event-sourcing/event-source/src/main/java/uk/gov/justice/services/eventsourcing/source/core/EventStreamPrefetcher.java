@@ -0,0 +1,96 @@
+package uk.gov.justice.services.eventsourcing.source.core;
+
+import static java.lang.Integer.parseInt;
+import static java.lang.Long.parseLong;
+
+import uk.gov.justice.services.common.configuration.Value;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+/**
+ * Reads long event streams ahead of their consumer, used by the {@link EventStreamManager} for
+ * {@link EventStream#readAhead()} so that fetching and parsing the next events of a stream
+ * overlaps with applying them to an aggregate being rehydrated.
+ *
+ * The source stream is opened on the connection of the caller but consumed on a thread of the
+ * managed executor, so it is only used by readers that apply the whole stream and close it without
+ * using the connection in between, and never for the general reads of an event stream. The source
+ * stream is closed before the consumer is handed the end of the events, and closing the returned
+ * stream waits for the background read to close it, so the connection is never used by both
+ * threads once the consumer is done with the stream.
+ *
+ * The source stream is consumed on the managed executor in pages of
+ * <code>eventStreamPrefetch.pageSize</code> events, the payload of each event being parsed before
+ * it is handed over. At most <code>eventStreamPrefetch.maxPages</code> pages are held ahead of the
+ * consumer; the background read waits for the consumer when they are full, and gives up, closing
+ * the source stream, if the consumer takes nothing for
+ * <code>eventStreamPrefetch.giveUpTimeoutMillis</code>.
+ *
+ * Prefetching is disabled unless <code>eventStreamPrefetch.minStreamLength</code> is set above
+ * zero, and is then only used for reads of at least that many events.
+ */
+@ApplicationScoped
+public class EventStreamPrefetcher {
+
+    @Inject
+    @Value(key = "eventStreamPrefetch.minStreamLength", defaultValue = "0")
+    String minStreamLength;
+
+    @Inject
+    @Value(key = "eventStreamPrefetch.pageSize", defaultValue = "100")
+    String pageSize;
+
+    @Inject
+    @Value(key = "eventStreamPrefetch.maxPages", defaultValue = "4")
+    String maxPages;
+
+    @Inject
+    @Value(key = "eventStreamPrefetch.giveUpTimeoutMillis", defaultValue = "30000")
+    String giveUpTimeoutMillis;
+
+    @Resource(lookup = "java:comp/DefaultManagedExecutorService")
+    ExecutorService executorService;
+
+    private long minLength;
+
+    @PostConstruct
+    void initialise() {
+        minLength = parseLong(minStreamLength);
+    }
+
+    public boolean isEnabled() {
+        return minLength > 0;
+    }
+
+    /**
+     * @param length the number of events to be read
+     * @return true if a read of the given number of events should be prefetched
+     */
+    public boolean shouldPrefetch(final long length) {
+        return isEnabled() && length >= minLength;
+    }
+
+    /**
+     * Start reading the given stream in the background.
+     *
+     * The returned stream must be closed, which stops the background read and waits for the source
+     * stream to be closed. The source stream is consumed and closed on a thread of the managed
+     * executor, unless the returned stream is closed before the background read has started.
+     *
+     * @param source the stream of events to read ahead
+     * @return the stream of events read ahead from the source
+     */
+    public Stream<JsonEnvelope> prefetch(final Stream<JsonEnvelope> source) {
+        final PrefetchingSpliterator spliterator = new PrefetchingSpliterator(source, parseInt(pageSize), parseInt(maxPages), parseLong(giveUpTimeoutMillis));
+        spliterator.start(executorService);
+        return StreamSupport.stream(spliterator, false).onClose(spliterator::cancel);
+    }
+}
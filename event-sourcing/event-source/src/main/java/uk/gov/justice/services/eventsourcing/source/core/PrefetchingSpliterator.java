@@ -0,0 +1,196 @@
+package uk.gov.justice.services.eventsourcing.source.core;
+
+import static java.lang.String.format;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Spliterator over a stream of events that is read in pages on a background thread, with a
+ * bounded queue of pages between the background read and the consumer.
+ *
+ * If the consumer takes no page for the give-up timeout while the queue is full, the background
+ * read assumes the consumer has gone without closing the stream. It stops, closes the source
+ * stream and then leaves a failure for the consumer in place of the pages it dropped.
+ *
+ * The source stream is always closed before the end of the events or a failure is handed to the
+ * consumer, and {@link #cancel()} waits for the background read to close it, so the connection the
+ * source was opened on is never used by the background thread once the consumer has finished
+ * with the stream.
+ */
+class PrefetchingSpliterator extends Spliterators.AbstractSpliterator<JsonEnvelope> {
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100L;
+
+    private final Stream<JsonEnvelope> source;
+    private final int pageSize;
+    private final long giveUpTimeoutMillis;
+    private final BlockingQueue<Page> pages;
+
+    private final AtomicBoolean claimed = new AtomicBoolean();
+    private final CountDownLatch sourceClosed = new CountDownLatch(1);
+
+    private volatile boolean cancelled;
+    private volatile boolean abandoned;
+
+    private Iterator<JsonEnvelope> currentPage;
+    private boolean finished;
+
+    PrefetchingSpliterator(final Stream<JsonEnvelope> source, final int pageSize, final int maxPages, final long giveUpTimeoutMillis) {
+        super(Long.MAX_VALUE, ORDERED | NONNULL);
+        this.source = source;
+        this.pageSize = pageSize;
+        this.giveUpTimeoutMillis = giveUpTimeoutMillis;
+        this.pages = new ArrayBlockingQueue<>(maxPages);
+    }
+
+    void start(final Executor executor) {
+        executor.execute(this::readAhead);
+    }
+
+    /**
+     * Stop the background read and wait for the source stream to be closed. The source stream is
+     * closed by the background thread, or by the calling thread if the background read has not
+     * started yet.
+     */
+    void cancel() {
+        cancelled = true;
+        pages.clear();
+
+        if (claimed.compareAndSet(false, true)) {
+            source.close();
+            return;
+        }
+
+        try {
+            sourceClosed.await();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super JsonEnvelope> action) {
+        while (!finished && (currentPage == null || !currentPage.hasNext())) {
+            nextPage();
+        }
+
+        if (finished) {
+            return false;
+        }
+
+        action.accept(currentPage.next());
+        return true;
+    }
+
+    private void nextPage() {
+        final Page page;
+        try {
+            page = pages.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new IllegalStateException("Interrupted while waiting for prefetched events", e);
+        }
+
+        if (page.failure != null) {
+            finished = true;
+            if (page.failure instanceof RuntimeException) {
+                throw (RuntimeException) page.failure;
+            }
+            if (page.failure instanceof Error) {
+                throw (Error) page.failure;
+            }
+            throw new IllegalStateException("Failed to prefetch events", page.failure);
+        }
+
+        if (page.events.isEmpty()) {
+            finished = true;
+        } else {
+            currentPage = page.events.iterator();
+        }
+    }
+
+    private void readAhead() {
+        if (!claimed.compareAndSet(false, true)) {
+            return;
+        }
+
+        Throwable failure = null;
+        try (final Stream<JsonEnvelope> events = source) {
+            final Iterator<JsonEnvelope> iterator = events.iterator();
+            List<JsonEnvelope> page = new ArrayList<>(pageSize);
+
+            while (!cancelled && iterator.hasNext()) {
+                final JsonEnvelope event = iterator.next();
+                event.payload();
+                page.add(event);
+
+                if (page.size() == pageSize) {
+                    hand(new Page(page, null));
+                    page = new ArrayList<>(pageSize);
+                }
+            }
+
+            if (!page.isEmpty()) {
+                hand(new Page(page, null));
+            }
+        } catch (final Throwable e) {
+            failure = e;
+        } finally {
+            sourceClosed.countDown();
+        }
+
+        if (abandoned) {
+            pages.clear();
+            pages.offer(new Page(null, new IllegalStateException(
+                    format("Prefetched events were not consumed within %d ms, the stream was abandoned", giveUpTimeoutMillis))));
+        } else {
+            hand(failure == null ? new Page(new ArrayList<>(0), null) : new Page(null, failure));
+        }
+    }
+
+    private void hand(final Page page) {
+        final long giveUpAt = System.currentTimeMillis() + giveUpTimeoutMillis;
+        try {
+            while (!cancelled && !pages.offer(page, OFFER_TIMEOUT_MILLIS, MILLISECONDS)) {
+                if (System.currentTimeMillis() >= giveUpAt) {
+                    giveUp();
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
+        }
+    }
+
+    private void giveUp() {
+        abandoned = true;
+        cancelled = true;
+        pages.clear();
+    }
+
+    private static class Page {
+
+        private final List<JsonEnvelope> events;
+        private final Throwable failure;
+
+        Page(final List<JsonEnvelope> events, final Throwable failure) {
+            this.events = events;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package uk.gov.justice.services.eventsourcing.source.core;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy.BACKOFF_CAP_MILLIS;
+import static uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy.CONFLICTS;
+import static uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy.EXHAUSTED;
+import static uk.gov.justice.services.eventsourcing.source.core.ConflictRetryPolicy.RETRIES;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ConflictRetryPolicyTest {
+
+    private MetricRegistry metricRegistry;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertThat(policyWith("0", "10", "500").isEnabled(), is(false));
+        assertThat(policyWith("2", "10", "500").isEnabled(), is(true));
+    }
+
+    @Test
+    public void shouldRetryUpToMaxRetries() {
+        final ConflictRetryPolicy policy = policyWith("2", "0", "0");
+
+        assertThat(policy.retry(0), is(true));
+        assertThat(policy.retry(1), is(true));
+        assertThat(policy.retry(2), is(false));
+
+        assertThat(metricRegistry.counter(RETRIES).getCount(), is(2L));
+        assertThat(metricRegistry.counter(EXHAUSTED).getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldRecordConflicts() {
+        final ConflictRetryPolicy policy = policyWith("0", "10", "500");
+
+        policy.recordConflict();
+        policy.recordConflict();
+
+        assertThat(metricRegistry.counter(CONFLICTS).getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldDoubleBackoffWithEveryRetryUpToMaximum() {
+        final ConflictRetryPolicy policy = policyWith("10", "10", "100");
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.backoffMillis(0), lessThanOrEqualTo(10L));
+            assertThat(policy.backoffMillis(2), lessThanOrEqualTo(40L));
+            assertThat(policy.backoffMillis(40), lessThanOrEqualTo(100L));
+            assertThat(policy.backoffMillis(40), greaterThanOrEqualTo(0L));
+        }
+    }
+
+    @Test
+    public void shouldCapBackoffWhateverTheConfiguredMaximum() {
+        final ConflictRetryPolicy policy = policyWith("10", "10", "600000");
+
+        for (int i = 0; i < 100; i++) {
+            assertThat(policy.backoffMillis(30), lessThanOrEqualTo(BACKOFF_CAP_MILLIS));
+        }
+    }
+
+    private ConflictRetryPolicy policyWith(final String maxRetries, final String initialBackoffMillis, final String maxBackoffMillis) {
+        final ConflictRetryPolicy policy = new ConflictRetryPolicy();
+        policy.maxRetries = maxRetries;
+        policy.initialBackoffMillis = initialBackoffMillis;
+        policy.maxBackoffMillis = maxBackoffMillis;
+        policy.metricRegistry = metricRegistry;
+        policy.initialise();
+        return policy;
+    }
+}
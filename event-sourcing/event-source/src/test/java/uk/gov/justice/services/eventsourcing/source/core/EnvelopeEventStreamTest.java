@@ -1,11 +1,13 @@
 package uk.gov.justice.services.eventsourcing.source.core;
 
+import static java.util.Collections.singleton;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.mockito.Mockito.verify;
 
 import uk.gov.justice.services.messaging.JsonEnvelope;
 
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -20,6 +22,7 @@ public class EnvelopeEventStreamTest {
 
     public static final Long VERSION = 5L;
     private static final UUID STREAM_ID = UUID.randomUUID();
+    private static final Set<String> NAMES = singleton("test.event");
     @Mock
     EventStreamManager eventStreamManager;
 
@@ -47,6 +50,48 @@ public class EnvelopeEventStreamTest {
         verify(eventStreamManager).readFrom(STREAM_ID, VERSION);
     }
 
+    @Test
+    public void shouldReturnStreamOfEnvelopesWithNames() throws Exception {
+        envelopeEventStream.read(NAMES);
+
+        verify(eventStreamManager).read(STREAM_ID, NAMES);
+    }
+
+    @Test
+    public void shouldReturnStreamOfEnvelopesWithNamesFromVersion() throws Exception {
+        envelopeEventStream.readFrom(VERSION, NAMES);
+
+        verify(eventStreamManager).readFrom(STREAM_ID, VERSION, NAMES);
+    }
+
+    @Test
+    public void shouldReturnLastEnvelopes() throws Exception {
+        envelopeEventStream.readLast(3);
+
+        verify(eventStreamManager).readLast(STREAM_ID, 3);
+    }
+
+    @Test
+    public void shouldReturnStreamOfEnvelopesReadAhead() throws Exception {
+        envelopeEventStream.readAhead();
+
+        verify(eventStreamManager).readAhead(STREAM_ID);
+    }
+
+    @Test
+    public void shouldReturnStreamOfEnvelopesReadAheadFromVersion() throws Exception {
+        envelopeEventStream.readAheadFrom(2L);
+
+        verify(eventStreamManager).readAheadFrom(STREAM_ID, 2L);
+    }
+
+    @Test
+    public void shouldReturnStreamOfEnvelopesInReverse() throws Exception {
+        envelopeEventStream.readInReverse();
+
+        verify(eventStreamManager).readInReverse(STREAM_ID);
+    }
+
     @Test
     public void shouldAppendStream() throws Exception {
         envelopeEventStream.append(stream);
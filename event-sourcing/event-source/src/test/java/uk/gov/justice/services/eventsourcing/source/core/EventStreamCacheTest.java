@@ -0,0 +1,250 @@
+package uk.gov.justice.services.eventsourcing.source.core;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static javax.transaction.Status.STATUS_COMMITTED;
+import static javax.transaction.Status.STATUS_ROLLEDBACK;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.justice.services.eventsourcing.source.core.EventStreamCache.EVICTIONS;
+import static uk.gov.justice.services.eventsourcing.source.core.EventStreamCache.HITS;
+import static uk.gov.justice.services.eventsourcing.source.core.EventStreamCache.MISSES;
+import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithRandomUUID;
+
+import uk.gov.justice.services.messaging.JsonEnvelope;
+import uk.gov.justice.services.messaging.LazyJsonEnvelope;
+
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EventStreamCacheTest {
+
+    private static final UUID STREAM_ID = randomUUID();
+    private static final UUID OTHER_STREAM_ID = randomUUID();
+
+    @Mock
+    private TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private MetricRegistry metricRegistry;
+
+    private EventStreamCache eventStreamCache;
+
+    @Before
+    public void setup() {
+        metricRegistry = new MetricRegistry();
+        eventStreamCache = cacheWithMaxWeight("1000");
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertThat(cacheWithMaxWeight("0").isEnabled(), is(false));
+        assertThat(eventStreamCache.isEnabled(), is(true));
+    }
+
+    @Test
+    public void shouldReturnCachedEventsFromVersion() {
+        final JsonEnvelope event3 = eventOfWeight(10);
+        final JsonEnvelope event4 = eventOfWeight(10);
+        final JsonEnvelope event5 = eventOfWeight(10);
+        eventStreamCache.put(STREAM_ID, 3L, asList(event3, event4, event5));
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 4L, 5L), contains(event4, event5));
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 3L, 7L), contains(event3, event4, event5));
+    }
+
+    @Test
+    public void shouldReturnNothingForVersionsNotCached() {
+        eventStreamCache.put(STREAM_ID, 3L, asList(eventOfWeight(10), eventOfWeight(10)));
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 2L, 4L), is(empty()));
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 5L, 5L), is(empty()));
+        assertThat(eventStreamCache.getFrom(OTHER_STREAM_ID, 1L, 4L), is(empty()));
+    }
+
+    @Test
+    public void shouldAddEventsFollowingCachedEventsToTail() {
+        final JsonEnvelope event1 = eventOfWeight(10);
+        final JsonEnvelope event2 = eventOfWeight(10);
+        eventStreamCache.put(STREAM_ID, 1L, singletonList(event1));
+        eventStreamCache.put(STREAM_ID, 2L, singletonList(event2));
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 2L), contains(event1, event2));
+    }
+
+    @Test
+    public void shouldReplaceCachedEventsWithEventsNotFollowingThem() {
+        final JsonEnvelope event5 = eventOfWeight(10);
+        eventStreamCache.put(STREAM_ID, 1L, singletonList(eventOfWeight(10)));
+        eventStreamCache.put(STREAM_ID, 5L, singletonList(event5));
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 5L), is(empty()));
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 5L, 5L), contains(event5));
+        assertThat(eventStreamCache.totalWeight(), is(10L));
+    }
+
+    @Test
+    public void shouldDiscardEventsAheadOfCurrentVersion() {
+        eventStreamCache.put(STREAM_ID, 1L, asList(eventOfWeight(10), eventOfWeight(10)));
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 1L), is(empty()));
+        assertThat(eventStreamCache.totalWeight(), is(0L));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedStreamsWhenFull() {
+        final UUID thirdStreamId = randomUUID();
+        eventStreamCache.put(STREAM_ID, 1L, singletonList(eventOfWeight(400)));
+        eventStreamCache.put(OTHER_STREAM_ID, 1L, asList(eventOfWeight(200), eventOfWeight(200)));
+        eventStreamCache.getFrom(STREAM_ID, 1L, 1L);
+
+        eventStreamCache.put(thirdStreamId, 1L, singletonList(eventOfWeight(400)));
+
+        assertThat(eventStreamCache.getFrom(OTHER_STREAM_ID, 1L, 2L), is(empty()));
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 1L).size(), is(1));
+        assertThat(eventStreamCache.getFrom(thirdStreamId, 1L, 1L).size(), is(1));
+        assertThat(metricRegistry.counter(EVICTIONS).getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldKeepOnlyMostRecentEventsOfStreamHeavierThanCache() {
+        final JsonEnvelope event3 = eventOfWeight(400);
+        final JsonEnvelope event4 = eventOfWeight(400);
+        eventStreamCache.put(STREAM_ID, 1L, asList(eventOfWeight(400), eventOfWeight(400), event3, event4));
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 4L), is(empty()));
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 3L, 4L), contains(event3, event4));
+        assertThat(eventStreamCache.totalWeight(), is(800L));
+        assertThat(metricRegistry.counter(EVICTIONS).getCount(), is(2L));
+    }
+
+    @Test
+    public void shouldCacheAppendedEventsImmediatelyIfNoTransaction() {
+        final JsonEnvelope event = eventOfWeight(10);
+
+        eventStreamCache.putAppended(STREAM_ID, 1L, singletonList(event));
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 1L), contains(event));
+    }
+
+    @Test
+    public void shouldCacheAppendedEventsWhenTransactionCommits() {
+        final JsonEnvelope event = eventOfWeight(10);
+        when(transactionSynchronizationRegistry.getTransactionKey()).thenReturn(new Object());
+
+        eventStreamCache.putAppended(STREAM_ID, 1L, singletonList(event));
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 1L), is(empty()));
+
+        registeredSynchronization().afterCompletion(STATUS_COMMITTED);
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 1L), contains(event));
+    }
+
+    @Test
+    public void shouldInvalidateStreamWhenTransactionRollsBack() {
+        eventStreamCache.put(STREAM_ID, 1L, singletonList(eventOfWeight(10)));
+        when(transactionSynchronizationRegistry.getTransactionKey()).thenReturn(new Object());
+
+        eventStreamCache.putAppended(STREAM_ID, 2L, singletonList(eventOfWeight(10)));
+        registeredSynchronization().afterCompletion(STATUS_ROLLEDBACK);
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 1L), is(empty()));
+        assertThat(eventStreamCache.totalWeight(), is(0L));
+    }
+
+    @Test
+    public void shouldRecordHitsAndMisses() {
+        eventStreamCache.recordHit();
+        eventStreamCache.recordHit();
+        eventStreamCache.recordMiss();
+
+        assertThat(metricRegistry.counter(HITS).getCount(), is(2L));
+        assertThat(metricRegistry.counter(MISSES).getCount(), is(1L));
+    }
+
+    @Test
+    public void shouldCacheEventsReadFromEventStoreOnceLastEventIsRead() {
+        final JsonEnvelope event2 = eventOfWeight(10);
+        final JsonEnvelope event3 = eventOfWeight(10);
+
+        final Stream<JsonEnvelope> events = eventStreamCache.putAsRead(STREAM_ID, 2L, 3L, Stream.of(event2, event3));
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 2L, 3L), is(empty()));
+        assertThat(events.collect(toList()), contains(event2, event3));
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 2L, 3L), contains(event2, event3));
+    }
+
+    @Test
+    public void shouldNotCacheEventsOfStreamNotReadToTheEnd() {
+        eventStreamCache.putAsRead(STREAM_ID, 1L, 2L, Stream.of(eventOfWeight(10), eventOfWeight(10))).findFirst();
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 1L, 2L), is(empty()));
+        assertThat(eventStreamCache.totalWeight(), is(0L));
+    }
+
+    @Test
+    public void shouldKeepOnlyMostRecentEventsWhileReadingStreamHeavierThanCache() {
+        final JsonEnvelope event3 = eventOfWeight(400);
+        final JsonEnvelope event4 = eventOfWeight(400);
+
+        eventStreamCache.putAsRead(STREAM_ID, 1L, 4L, Stream.of(eventOfWeight(400), eventOfWeight(400), event3, event4)).forEach(event -> {});
+
+        assertThat(eventStreamCache.getFrom(STREAM_ID, 3L, 4L), contains(event3, event4));
+        assertThat(eventStreamCache.totalWeight(), is(800L));
+    }
+
+    @Test
+    public void shouldWeighEventsReadFromEventStoreByPayloadJsonLength() {
+        final String payloadJson = "{\"field\":\"value\"}";
+        final JsonEnvelope event = LazyJsonEnvelope.envelopeFrom(randomUUID(), "test.event", "not parsed", payloadJson);
+
+        eventStreamCache.put(STREAM_ID, 1L, singletonList(event));
+
+        assertThat(eventStreamCache.totalWeight(), is((long) payloadJson.length()));
+    }
+
+    private Synchronization registeredSynchronization() {
+        final ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+        verify(transactionSynchronizationRegistry).registerInterposedSynchronization(synchronization.capture());
+        return synchronization.getValue();
+    }
+
+    private EventStreamCache cacheWithMaxWeight(final String maxWeight) {
+        final EventStreamCache cache = new EventStreamCache();
+        cache.maxWeight = maxWeight;
+        cache.metricRegistry = metricRegistry;
+        cache.transactionSynchronizationRegistry = transactionSynchronizationRegistry;
+        cache.initialise();
+        return cache;
+    }
+
+    /**
+     * Creates an event whose serialized payload has the given length.
+     */
+    private JsonEnvelope eventOfWeight(final int weight) {
+        final String padding = new String(new char[weight - "{\"f\":\"\"}".length()]).replace('\0', 'x');
+        return envelope()
+                .with(metadataWithRandomUUID("test.event"))
+                .withPayloadOf(padding, "f")
+                .build();
+    }
+}
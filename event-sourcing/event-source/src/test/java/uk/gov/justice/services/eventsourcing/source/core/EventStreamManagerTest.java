@@ -2,10 +2,24 @@ package uk.gov.justice.services.eventsourcing.source.core;
 
 import static com.jayway.jsonpath.matchers.JsonPathMatchers.withJsonPath;
 import static java.lang.String.format;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
@@ -18,11 +32,17 @@ import static uk.gov.justice.services.test.utils.core.matchers.JsonEnvelopePaylo
 import uk.gov.justice.services.eventsourcing.publisher.core.EventPublisher;
 import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
 import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StreamVersionConflictException;
 import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamException;
 import uk.gov.justice.services.eventsourcing.source.core.exception.InvalidStreamVersionRuntimeException;
 import uk.gov.justice.services.eventsourcing.source.core.exception.VersionMismatchException;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -30,9 +50,11 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.slf4j.Logger;
 
 @RunWith(MockitoJUnitRunner.class)
 public class EventStreamManagerTest {
@@ -55,6 +77,21 @@ public class EventStreamManagerTest {
     @Mock
     private Stream<JsonEnvelope> eventStream;
 
+    @Mock
+    private EventStreamCache eventStreamCache;
+
+    @Mock
+    private EventStreamPrefetcher eventStreamPrefetcher;
+
+    @Mock
+    private Stream<JsonEnvelope> prefetchedEventStream;
+
+    @Mock
+    private ConflictRetryPolicy conflictRetryPolicy;
+
+    @Mock
+    private Logger logger;
+
     private EventStreamManager eventStreamManager;
 
     @Before
@@ -62,6 +99,10 @@ public class EventStreamManagerTest {
         eventStreamManager = new EventStreamManager();
         eventStreamManager.eventPublisher = eventPublisher;
         eventStreamManager.eventRepository = eventRepository;
+        eventStreamManager.eventStreamCache = eventStreamCache;
+        eventStreamManager.eventStreamPrefetcher = eventStreamPrefetcher;
+        eventStreamManager.conflictRetryPolicy = conflictRetryPolicy;
+        eventStreamManager.logger = logger;
     }
 
     @Test
@@ -78,12 +119,15 @@ public class EventStreamManagerTest {
 
         long expectedVersion = INITIAL_VERSION + 1;
         ArgumentCaptor<JsonEnvelope> envelopeArgumentCaptor = ArgumentCaptor.forClass(JsonEnvelope.class);
+        ArgumentCaptor<List> envelopeListCaptor = ArgumentCaptor.forClass(List.class);
         ArgumentCaptor<UUID> streamIdCaptor = ArgumentCaptor.forClass(UUID.class);
         ArgumentCaptor<Long> versionCaptor = ArgumentCaptor.forClass(Long.class);
 
-        verify(eventRepository).store(envelopeArgumentCaptor.capture(), streamIdCaptor.capture(), versionCaptor.capture());
+        verify(eventRepository).storeAll(envelopeListCaptor.capture(), streamIdCaptor.capture(), versionCaptor.capture());
         verify(eventPublisher).publish(envelopeArgumentCaptor.capture());
 
+        assertThat(envelopeListCaptor.getValue(), equalTo(singletonList(envelopeArgumentCaptor.getValue())));
+
         assertThat(streamIdCaptor.getValue(), equalTo(STREAM_ID));
         assertThat(versionCaptor.getValue(), equalTo(expectedVersion));
 
@@ -98,6 +142,30 @@ public class EventStreamManagerTest {
                 )));
     }
 
+    @Test
+    public void shouldStoreAllEventsInASingleBatchBeforePublishing() throws Exception {
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+
+        eventStreamManager.append(STREAM_ID, Stream.of(
+                envelope().with(metadataOf(UUID.randomUUID(), NAME_VALUE)).build(),
+                envelope().with(metadataOf(UUID.randomUUID(), NAME_VALUE)).build(),
+                envelope().with(metadataOf(UUID.randomUUID(), NAME_VALUE)).build()));
+
+        final ArgumentCaptor<List> envelopeListCaptor = ArgumentCaptor.forClass(List.class);
+        final ArgumentCaptor<JsonEnvelope> envelopeArgumentCaptor = ArgumentCaptor.forClass(JsonEnvelope.class);
+
+        final InOrder inOrder = inOrder(eventRepository, eventPublisher);
+        inOrder.verify(eventRepository).storeAll(envelopeListCaptor.capture(), eq(STREAM_ID), eq(CURRENT_VERSION + 1));
+        inOrder.verify(eventPublisher, times(3)).publish(envelopeArgumentCaptor.capture());
+        verify(eventRepository, never()).store(any(JsonEnvelope.class), any(UUID.class), anyLong());
+
+        final List<JsonEnvelope> storedEnvelopes = envelopeListCaptor.getValue();
+        assertThat(storedEnvelopes, equalTo(envelopeArgumentCaptor.getAllValues()));
+        assertThat(storedEnvelopes.get(0).metadata().version(), equalTo(Optional.of(CURRENT_VERSION + 1)));
+        assertThat(storedEnvelopes.get(1).metadata().version(), equalTo(Optional.of(CURRENT_VERSION + 2)));
+        assertThat(storedEnvelopes.get(2).metadata().version(), equalTo(Optional.of(CURRENT_VERSION + 3)));
+    }
+
     @Test(expected = EventStreamException.class)
     public void shouldThrowExceptionWhenEnvelopeContainsVersion() throws Exception {
         eventStreamManager.append(STREAM_ID, singletonList(envelope().with(metadataWithDefaults().withVersion(INITIAL_VERSION + 1)).build()).stream());
@@ -117,12 +185,15 @@ public class EventStreamManagerTest {
 
         final long expectedVersion = CURRENT_VERSION + 1;
         final ArgumentCaptor<JsonEnvelope> envelopeArgumentCaptor = ArgumentCaptor.forClass(JsonEnvelope.class);
+        final ArgumentCaptor<List> envelopeListCaptor = ArgumentCaptor.forClass(List.class);
         final ArgumentCaptor<UUID> streamIdCaptor = ArgumentCaptor.forClass(UUID.class);
         final ArgumentCaptor<Long> versionCaptor = ArgumentCaptor.forClass(Long.class);
 
-        verify(eventRepository).store(envelopeArgumentCaptor.capture(), streamIdCaptor.capture(), versionCaptor.capture());
+        verify(eventRepository).storeAll(envelopeListCaptor.capture(), streamIdCaptor.capture(), versionCaptor.capture());
         verify(eventPublisher).publish(envelopeArgumentCaptor.capture());
 
+        assertThat(envelopeListCaptor.getValue(), equalTo(singletonList(envelopeArgumentCaptor.getValue())));
+
         assertThat(streamIdCaptor.getValue(), equalTo(STREAM_ID));
         assertThat(versionCaptor.getValue(), equalTo(expectedVersion));
 
@@ -157,6 +228,39 @@ public class EventStreamManagerTest {
         eventStreamManager.appendAfter(STREAM_ID, singletonList(envelope().with(metadataWithDefaults()).build()).stream(), INVALID_VERSION);
     }
 
+    @Test
+    public void shouldThrowVersionMismatchWhenAnotherAppendIsStoredFirst() throws Exception {
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+        doThrow(new StreamVersionConflictException("conflict", null)).when(eventRepository).storeAll(any(), eq(STREAM_ID), eq(CURRENT_VERSION + 1));
+
+        try {
+            eventStreamManager.appendAfter(STREAM_ID, singletonList(envelope().with(metadataWithDefaults()).build()).stream(), CURRENT_VERSION);
+            fail("Expected VersionMismatchException");
+        } catch (final VersionMismatchException e) {
+            verify(conflictRetryPolicy).recordConflict();
+            verify(conflictRetryPolicy, never()).retry(anyInt());
+            verify(eventPublisher, never()).publish(any());
+        }
+    }
+
+    @Test
+    public void shouldNotRetryAppendWithoutVersionWhenAnotherAppendIsStoredFirst() throws Exception {
+        when(conflictRetryPolicy.isEnabled()).thenReturn(true);
+        when(conflictRetryPolicy.retry(anyInt())).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION, CURRENT_VERSION + 1);
+        doThrow(new StreamVersionConflictException("conflict", null)).when(eventRepository).storeAll(any(), eq(STREAM_ID), eq(CURRENT_VERSION + 1));
+
+        try {
+            eventStreamManager.append(STREAM_ID, singletonList(envelope().with(metadataWithDefaults()).build()).stream());
+            fail("Expected VersionMismatchException");
+        } catch (final VersionMismatchException e) {
+            verify(eventRepository).storeAll(any(), eq(STREAM_ID), eq(CURRENT_VERSION + 1));
+            verify(eventRepository, never()).storeAll(any(), eq(STREAM_ID), eq(CURRENT_VERSION + 2));
+            verify(conflictRetryPolicy, never()).retry(anyInt());
+            verify(eventPublisher, never()).publish(any());
+        }
+    }
+
     @Test
     public void shouldReadStream() {
         when(eventRepository.getByStreamId(STREAM_ID)).thenReturn(eventStream);
@@ -185,6 +289,231 @@ public class EventStreamManagerTest {
         verify(eventRepository).getByStreamIdAndSequenceId(STREAM_ID, CURRENT_VERSION);
     }
 
+    @Test
+    public void shouldReadStreamOfEventsWithNames() {
+        final Set<String> names = singleton(NAME_VALUE);
+        when(eventRepository.getByStreamIdAndNames(STREAM_ID, names)).thenReturn(eventStream);
+
+        final Stream<JsonEnvelope> actualEnvelopeEventStream = eventStreamManager.read(STREAM_ID, names);
+
+        assertThat(actualEnvelopeEventStream, equalTo(eventStream));
+    }
+
+    @Test
+    public void shouldReadStreamOfEventsWithNamesFromVersion() {
+        final Set<String> names = singleton(NAME_VALUE);
+        when(eventRepository.getByStreamIdAndSequenceIdAndNames(STREAM_ID, CURRENT_VERSION, names)).thenReturn(eventStream);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+
+        final Stream<JsonEnvelope> actualEnvelopeEventStream = eventStreamManager.readFrom(STREAM_ID, CURRENT_VERSION, names);
+
+        assertThat(actualEnvelopeEventStream, equalTo(eventStream));
+    }
+
+    @Test(expected = InvalidStreamVersionRuntimeException.class)
+    public void shouldThrowExceptionWhenReadingEventsWithNamesFromInvalidVersion() {
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+
+        eventStreamManager.readFrom(STREAM_ID, INVALID_VERSION, singleton(NAME_VALUE));
+    }
+
+    @Test
+    public void shouldReadLastEventsInVersionOrderWithASinglePage() {
+        final JsonEnvelope event4 = mock(JsonEnvelope.class);
+        final JsonEnvelope event5 = mock(JsonEnvelope.class);
+        when(eventRepository.getByStreamIdInReverse(STREAM_ID, 2)).thenReturn(Stream.of(event5, event4, mock(JsonEnvelope.class)));
+
+        assertThat(eventStreamManager.readLast(STREAM_ID, 2).collect(toList()), contains(event4, event5));
+        verify(eventRepository, never()).getCurrentSequenceIdForStream(STREAM_ID);
+    }
+
+    @Test
+    public void shouldReadLastEventsOfLargeCountInPagesOfBoundedSize() {
+        final JsonEnvelope event4 = mock(JsonEnvelope.class);
+        final JsonEnvelope event5 = mock(JsonEnvelope.class);
+        when(eventRepository.getByStreamIdInReverse(STREAM_ID, 100)).thenReturn(Stream.of(event5, event4));
+
+        assertThat(eventStreamManager.readLast(STREAM_ID, Integer.MAX_VALUE).collect(toList()), contains(event4, event5));
+    }
+
+    @Test
+    public void shouldReadNoEventsForCountOfZero() {
+        assertThat(eventStreamManager.readLast(STREAM_ID, 0).count(), equalTo(0L));
+        verify(eventRepository, never()).getByStreamIdInReverse(any(UUID.class), anyInt());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldThrowExceptionWhenReadingNegativeCountOfLastEvents() {
+        eventStreamManager.readLast(STREAM_ID, -1);
+    }
+
+    @Test
+    public void shouldReadStreamInReverse() {
+        when(eventRepository.getByStreamIdInReverse(eq(STREAM_ID), anyInt())).thenReturn(eventStream);
+
+        assertThat(eventStreamManager.readInReverse(STREAM_ID), equalTo(eventStream));
+    }
+
+    @Test
+    public void shouldGetCurrentSequenceIdsForStreams() {
+        final UUID otherStreamId = UUID.randomUUID();
+        final List<UUID> streamIds = asList(STREAM_ID, otherStreamId);
+        final Map<UUID, Long> sequenceIds = new HashMap<>();
+        sequenceIds.put(STREAM_ID, CURRENT_VERSION);
+        sequenceIds.put(otherStreamId, INITIAL_VERSION);
+        when(eventRepository.getCurrentSequenceIdsForStreams(streamIds)).thenReturn(sequenceIds);
+
+        assertThat(eventStreamManager.getCurrentSequenceIdsForStreams(streamIds), equalTo(sequenceIds));
+    }
+
+    @Test
+    public void shouldServeReadFromVersionFromCacheIfItHoldsTheTailOfTheStream() {
+        final JsonEnvelope event4 = mock(JsonEnvelope.class);
+        final JsonEnvelope event5 = mock(JsonEnvelope.class);
+        when(eventStreamCache.isEnabled()).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+        when(eventStreamCache.getFrom(STREAM_ID, 4L, CURRENT_VERSION)).thenReturn(asList(event4, event5));
+
+        final List<JsonEnvelope> events = eventStreamManager.readFrom(STREAM_ID, 4L).collect(toList());
+
+        assertThat(events, contains(event4, event5));
+        verify(eventStreamCache).recordHit();
+        verify(eventRepository, never()).getByStreamIdAndSequenceId(any(UUID.class), anyLong());
+    }
+
+    @Test
+    public void shouldReadEventsNotHeldByCacheFromRepositoryAndCacheThem() {
+        final JsonEnvelope event4 = mock(JsonEnvelope.class);
+        final JsonEnvelope event5 = mock(JsonEnvelope.class);
+        when(eventStreamCache.isEnabled()).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+        when(eventStreamCache.getFrom(STREAM_ID, 4L, CURRENT_VERSION)).thenReturn(singletonList(event4));
+        final Stream<JsonEnvelope> fetched = Stream.of(event5);
+        when(eventRepository.getByStreamIdAndSequenceId(STREAM_ID, CURRENT_VERSION)).thenReturn(fetched);
+        when(eventStreamCache.putAsRead(STREAM_ID, CURRENT_VERSION, CURRENT_VERSION, fetched)).thenReturn(fetched);
+
+        final List<JsonEnvelope> events = eventStreamManager.readFrom(STREAM_ID, 4L).collect(toList());
+
+        assertThat(events, contains(event4, event5));
+        verify(eventStreamCache).recordMiss();
+        verify(eventStreamCache).putAsRead(STREAM_ID, CURRENT_VERSION, CURRENT_VERSION, fetched);
+    }
+
+    @Test
+    public void shouldReadWholeStreamFromRepositoryIfNotCached() {
+        final JsonEnvelope event1 = mock(JsonEnvelope.class);
+        final JsonEnvelope event2 = mock(JsonEnvelope.class);
+        when(eventStreamCache.isEnabled()).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(2L);
+        when(eventStreamCache.getFrom(STREAM_ID, 1L, 2L)).thenReturn(emptyList());
+        final Stream<JsonEnvelope> fetched = Stream.of(event1, event2);
+        when(eventRepository.getByStreamIdAndSequenceId(STREAM_ID, 1L)).thenReturn(fetched);
+        when(eventStreamCache.putAsRead(STREAM_ID, 1L, 2L, fetched)).thenReturn(fetched);
+
+        final List<JsonEnvelope> events = eventStreamManager.read(STREAM_ID).collect(toList());
+
+        assertThat(events, contains(event1, event2));
+        verify(eventStreamCache).recordMiss();
+        verify(eventStreamCache).putAsRead(STREAM_ID, 1L, 2L, fetched);
+    }
+
+    @Test
+    public void shouldAddAppendedEventsToCache() throws Exception {
+        when(eventStreamCache.isEnabled()).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+
+        eventStreamManager.append(STREAM_ID, Stream.of(envelope().with(metadataOf(ID_VALUE, NAME_VALUE)).build()));
+
+        final ArgumentCaptor<List> appended = ArgumentCaptor.forClass(List.class);
+        verify(eventStreamCache).putAppended(eq(STREAM_ID), eq(CURRENT_VERSION + 1), appended.capture());
+        assertThat(((JsonEnvelope) appended.getValue().get(0)).metadata().version(), equalTo(Optional.of(CURRENT_VERSION + 1)));
+    }
+
+    @Test
+    public void shouldNotUseCacheIfDisabled() throws Exception {
+        when(eventRepository.getByStreamId(STREAM_ID)).thenReturn(eventStream);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+
+        eventStreamManager.read(STREAM_ID);
+        eventStreamManager.append(STREAM_ID, Stream.of(envelope().with(metadataOf(ID_VALUE, NAME_VALUE)).build()));
+
+        verify(eventStreamCache, never()).getFrom(any(UUID.class), anyLong(), anyLong());
+        verify(eventStreamCache, never()).putAppended(any(UUID.class), anyLong(), any());
+    }
+
+    @Test
+    public void shouldPrefetchLongStreamReadAhead() {
+        when(eventStreamPrefetcher.isEnabled()).thenReturn(true);
+        when(eventStreamPrefetcher.shouldPrefetch(CURRENT_VERSION)).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+        when(eventRepository.getByStreamId(STREAM_ID)).thenReturn(eventStream);
+        when(eventStreamPrefetcher.prefetch(eventStream)).thenReturn(prefetchedEventStream);
+
+        assertThat(eventStreamManager.readAhead(STREAM_ID), equalTo(prefetchedEventStream));
+    }
+
+    @Test
+    public void shouldPrefetchLongStreamReadAheadFromVersion() {
+        when(eventStreamPrefetcher.isEnabled()).thenReturn(true);
+        when(eventStreamPrefetcher.shouldPrefetch(4L)).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+        when(eventRepository.getByStreamIdAndSequenceId(STREAM_ID, 2L)).thenReturn(eventStream);
+        when(eventStreamPrefetcher.prefetch(eventStream)).thenReturn(prefetchedEventStream);
+
+        assertThat(eventStreamManager.readAheadFrom(STREAM_ID, 2L), equalTo(prefetchedEventStream));
+    }
+
+    @Test
+    public void shouldNotPrefetchShortStreamReadAhead() {
+        when(eventStreamPrefetcher.isEnabled()).thenReturn(true);
+        when(eventStreamPrefetcher.shouldPrefetch(CURRENT_VERSION)).thenReturn(false);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+        when(eventRepository.getByStreamId(STREAM_ID)).thenReturn(eventStream);
+
+        assertThat(eventStreamManager.readAhead(STREAM_ID), equalTo(eventStream));
+        verify(eventStreamPrefetcher, never()).prefetch(any());
+    }
+
+    @Test
+    public void shouldNotLookUpVersionToReadAheadIfPrefetchDisabled() {
+        when(eventRepository.getByStreamId(STREAM_ID)).thenReturn(eventStream);
+
+        assertThat(eventStreamManager.readAhead(STREAM_ID), equalTo(eventStream));
+        verify(eventRepository, never()).getCurrentSequenceIdForStream(STREAM_ID);
+        verify(eventStreamPrefetcher, never()).prefetch(any());
+    }
+
+    @Test
+    public void shouldNotPrefetchReadAheadFromVersionIfPrefetchDisabled() {
+        when(eventStreamPrefetcher.shouldPrefetch(4L)).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+        when(eventRepository.getByStreamIdAndSequenceId(STREAM_ID, 2L)).thenReturn(eventStream);
+
+        assertThat(eventStreamManager.readAheadFrom(STREAM_ID, 2L), equalTo(eventStream));
+        verify(eventStreamPrefetcher, never()).prefetch(any());
+    }
+
+    @Test(expected = InvalidStreamVersionRuntimeException.class)
+    public void shouldThrowExceptionReadingAheadFromNonExistentVersion() {
+        when(eventStreamPrefetcher.isEnabled()).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+
+        eventStreamManager.readAheadFrom(STREAM_ID, CURRENT_VERSION + 1);
+    }
+
+    @Test
+    public void shouldNeverPrefetchGeneralReads() {
+        when(eventStreamPrefetcher.isEnabled()).thenReturn(true);
+        when(eventStreamPrefetcher.shouldPrefetch(anyLong())).thenReturn(true);
+        when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
+        when(eventRepository.getByStreamId(STREAM_ID)).thenReturn(eventStream);
+        when(eventRepository.getByStreamIdAndSequenceId(STREAM_ID, 2L)).thenReturn(eventStream);
+
+        assertThat(eventStreamManager.read(STREAM_ID), equalTo(eventStream));
+        assertThat(eventStreamManager.readFrom(STREAM_ID, 2L), equalTo(eventStream));
+        verify(eventStreamPrefetcher, never()).prefetch(any());
+    }
+
     @Test
     public void shouldGetCurrentVersion() {
         when(eventRepository.getCurrentSequenceIdForStream(STREAM_ID)).thenReturn(CURRENT_VERSION);
@@ -0,0 +1,211 @@
+package uk.gov.justice.services.eventsourcing.source.core;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataWithRandomUUID;
+
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EventStreamPrefetcherTest {
+
+    private ExecutorService executorService;
+
+    private EventStreamPrefetcher eventStreamPrefetcher;
+
+    @Before
+    public void setup() {
+        executorService = Executors.newSingleThreadExecutor();
+        eventStreamPrefetcher = prefetcher("10", "3", "2");
+    }
+
+    @After
+    public void shutdown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void shouldBeDisabledByDefault() {
+        assertThat(prefetcher("0", "100", "4").isEnabled(), is(false));
+        assertThat(prefetcher("0", "100", "4").shouldPrefetch(1000L), is(false));
+    }
+
+    @Test
+    public void shouldOnlyPrefetchStreamsOfMinimumLength() {
+        assertThat(eventStreamPrefetcher.shouldPrefetch(9L), is(false));
+        assertThat(eventStreamPrefetcher.shouldPrefetch(10L), is(true));
+    }
+
+    @Test
+    public void shouldReturnAllEventsInOrderAcrossPages() {
+        final List<JsonEnvelope> events = IntStream.range(0, 11).mapToObj(this::event).collect(toList());
+
+        try (final Stream<JsonEnvelope> prefetched = eventStreamPrefetcher.prefetch(events.stream())) {
+            assertThat(prefetched.collect(toList()), is(events));
+        }
+    }
+
+    @Test
+    public void shouldReturnEmptyStream() {
+        try (final Stream<JsonEnvelope> prefetched = eventStreamPrefetcher.prefetch(Stream.empty())) {
+            assertThat(prefetched.count(), is(0L));
+        }
+    }
+
+    @Test
+    public void shouldReadNoMoreThanBoundedNumberOfPagesAhead() throws Exception {
+        final AtomicInteger read = new AtomicInteger();
+        final Stream<JsonEnvelope> source = IntStream.range(0, 1000).mapToObj(i -> {
+            read.incrementAndGet();
+            return event(i);
+        });
+
+        try (final Stream<JsonEnvelope> prefetched = eventStreamPrefetcher.prefetch(source)) {
+            Thread.sleep(200L);
+
+            assertThat(read.get(), lessThanOrEqualTo(3 * 3));
+            assertThat(prefetched.limit(20).count(), is(20L));
+        }
+    }
+
+    @Test
+    public void shouldCloseSourceWhenClosedBeforeEnd() throws Exception {
+        final CountDownLatch sourceClosed = new CountDownLatch(1);
+        final Stream<JsonEnvelope> source = IntStream.range(0, 1000).mapToObj(this::event).onClose(sourceClosed::countDown);
+
+        try (final Stream<JsonEnvelope> prefetched = eventStreamPrefetcher.prefetch(source)) {
+            assertThat(prefetched.findFirst().isPresent(), is(true));
+        }
+
+        assertThat(sourceClosed.await(5, SECONDS), is(true));
+    }
+
+    @Test
+    public void shouldCloseSourceBeforeHandingOverEndOfEvents() {
+        final AtomicBoolean sourceClosed = new AtomicBoolean();
+        final Stream<JsonEnvelope> source = IntStream.range(0, 5).mapToObj(this::event).onClose(() -> sourceClosed.set(true));
+
+        final Iterator<JsonEnvelope> prefetched = eventStreamPrefetcher.prefetch(source).iterator();
+        while (prefetched.hasNext()) {
+            prefetched.next();
+        }
+
+        assertThat(sourceClosed.get(), is(true));
+    }
+
+    @Test
+    public void shouldWaitForBackgroundReadToCloseSourceWhenClosed() {
+        final AtomicBoolean sourceClosed = new AtomicBoolean();
+        final Stream<JsonEnvelope> source = IntStream.range(0, 1000).mapToObj(this::event).onClose(() -> {
+            pause(200L);
+            sourceClosed.set(true);
+        });
+
+        try (final Stream<JsonEnvelope> prefetched = eventStreamPrefetcher.prefetch(source)) {
+            assertThat(prefetched.findFirst().isPresent(), is(true));
+        }
+
+        assertThat(sourceClosed.get(), is(true));
+    }
+
+    @Test
+    public void shouldCloseSourceOnCallingThreadIfBackgroundReadHasNotStarted() {
+        final AtomicReference<Thread> closedBy = new AtomicReference<>();
+        final Stream<JsonEnvelope> source = IntStream.range(0, 5).mapToObj(this::event).onClose(() -> closedBy.set(Thread.currentThread()));
+        final List<Runnable> notStarted = new ArrayList<>();
+        final EventStreamPrefetcher prefetcher = prefetcher("10", "3", "2");
+        prefetcher.executorService = new ThreadPoolExecutor(1, 1, 0L, SECONDS, new LinkedBlockingQueue<>()) {
+            @Override
+            public void execute(final Runnable command) {
+                notStarted.add(command);
+            }
+        };
+
+        prefetcher.prefetch(source).close();
+        notStarted.forEach(Runnable::run);
+
+        assertThat(closedBy.get(), is(Thread.currentThread()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRethrowFailureReadingSource() {
+        final Stream<JsonEnvelope> source = IntStream.range(0, 5).mapToObj(i -> {
+            if (i == 4) {
+                throw new IllegalArgumentException("Failed to read event");
+            }
+            return event(i);
+        });
+
+        try (final Stream<JsonEnvelope> prefetched = eventStreamPrefetcher.prefetch(source)) {
+            prefetched.count();
+        }
+    }
+
+    @Test
+    public void shouldGiveUpAndCloseSourceIfConsumerStopsWithoutClosing() throws Exception {
+        final CountDownLatch sourceClosed = new CountDownLatch(1);
+        final Stream<JsonEnvelope> source = IntStream.range(0, 1000).mapToObj(this::event).onClose(sourceClosed::countDown);
+        eventStreamPrefetcher.giveUpTimeoutMillis = "200";
+
+        final Iterator<JsonEnvelope> prefetched = eventStreamPrefetcher.prefetch(source).iterator();
+        assertThat(prefetched.hasNext(), is(true));
+
+        assertThat(sourceClosed.await(5, SECONDS), is(true));
+        try {
+            while (prefetched.hasNext()) {
+                prefetched.next();
+            }
+            throw new AssertionError("Expected IllegalStateException");
+        } catch (final IllegalStateException expected) {
+            assertThat(expected.getMessage(), containsString("200 ms"));
+        }
+    }
+
+    private EventStreamPrefetcher prefetcher(final String minStreamLength, final String pageSize, final String maxPages) {
+        final EventStreamPrefetcher prefetcher = new EventStreamPrefetcher();
+        prefetcher.minStreamLength = minStreamLength;
+        prefetcher.pageSize = pageSize;
+        prefetcher.maxPages = maxPages;
+        prefetcher.giveUpTimeoutMillis = "30000";
+        prefetcher.executorService = executorService;
+        prefetcher.initialise();
+        return prefetcher;
+    }
+
+    private void pause(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private JsonEnvelope event(final int index) {
+        return envelope()
+                .with(metadataWithRandomUUID("test.event"))
+                .withPayloadOf(index, "index")
+                .build();
+    }
+}
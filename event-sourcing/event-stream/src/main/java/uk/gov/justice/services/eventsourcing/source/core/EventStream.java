@@ -4,6 +4,7 @@ package uk.gov.justice.services.eventsourcing.source.core;
 import uk.gov.justice.services.eventsourcing.source.core.exception.EventStreamException;
 import uk.gov.justice.services.messaging.JsonEnvelope;
 
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -26,6 +27,60 @@ public interface EventStream {
      */
     Stream<JsonEnvelope> readFrom(final Long version);
 
+    /**
+     * Get the stream of events for a reader that applies all of them and then closes the stream,
+     * such as the rehydration of an aggregate. Long streams may be read ahead of the reader in the
+     * background, so the returned stream must be closed.
+     *
+     * @return the stream of events
+     */
+    Stream<JsonEnvelope> readAhead();
+
+    /**
+     * Get the stream of events from the given version for a reader that applies all of them and
+     * then closes the stream. Long streams may be read ahead of the reader in the background, so
+     * the returned stream must be closed.
+     *
+     * @param version the version to read from
+     * @return the stream of events
+     */
+    Stream<JsonEnvelope> readAheadFrom(final Long version);
+
+    /**
+     * Get the stream of events with the given names. Events with other names are filtered out by
+     * the event store rather than being read.
+     *
+     * @param names the names of the events to read
+     * @return the stream of events
+     */
+    Stream<JsonEnvelope> read(final Set<String> names);
+
+    /**
+     * Get the stream of events with the given names from the given version.
+     *
+     * @param version the version to read from
+     * @param names   the names of the events to read
+     * @return the stream of events
+     */
+    Stream<JsonEnvelope> readFrom(final Long version, final Set<String> names);
+
+    /**
+     * Get the latest events of the stream, in version order. Only the latest events are read from
+     * the event store, however long the stream is.
+     *
+     * @param count the maximum number of events to read
+     * @return the stream of at most count events
+     */
+    Stream<JsonEnvelope> readLast(final int count);
+
+    /**
+     * Get the stream of events newest first, read from the event store in pages as the stream is
+     * consumed.
+     *
+     * @return the stream of events, in descending version order
+     */
+    Stream<JsonEnvelope> readInReverse();
+
     /**
      * Store a stream of events.
      *
@@ -9,4 +9,8 @@ public class VersionMismatchException extends EventStreamException {
         super(message);
     }
 
+    public VersionMismatchException(final String message, final Throwable cause) {
+        super(message, cause);
+    }
+
 }
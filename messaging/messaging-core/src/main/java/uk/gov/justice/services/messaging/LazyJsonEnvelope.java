@@ -0,0 +1,204 @@
+package uk.gov.justice.services.messaging;
+
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataFrom;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * Implementation of an envelope that holds its metadata and payload as raw json strings, parsing
+ * each only when it is first accessed.
+ *
+ * The id and name of the envelope can be supplied up front, in which case they are returned from
+ * the metadata without parsing it. This allows consumers that only look at the name of a message,
+ * for example to skip messages they do not handle, to avoid parsing it at all.
+ */
+public class LazyJsonEnvelope implements JsonEnvelope {
+
+    private final LazyMetadata metadata;
+    private final String payloadJson;
+
+    private volatile JsonEnvelope envelope;
+
+    private LazyJsonEnvelope(final LazyMetadata metadata, final String payloadJson) {
+        this.metadata = metadata;
+        this.payloadJson = payloadJson;
+    }
+
+    /**
+     * Create an envelope from raw json strings.
+     *
+     * @param id           the id of the message, or null to read it from the metadata json
+     * @param name         the name of the message, or null to read it from the metadata json
+     * @param metadataJson the metadata as a json object string
+     * @param payloadJson  the payload as a json object string
+     * @return the envelope
+     */
+    public static JsonEnvelope envelopeFrom(final UUID id, final String name, final String metadataJson, final String payloadJson) {
+        return new LazyJsonEnvelope(new LazyMetadata(id, name, metadataJson), payloadJson);
+    }
+
+    @Override
+    public Metadata metadata() {
+        return metadata;
+    }
+
+    /**
+     * @return the length of the raw payload json, available without parsing the payload
+     */
+    public int payloadJsonLength() {
+        return payloadJson.length();
+    }
+
+    @Override
+    public JsonValue payload() {
+        return envelope().payload();
+    }
+
+    @Override
+    public JsonObject payloadAsJsonObject() {
+        return envelope().payloadAsJsonObject();
+    }
+
+    @Override
+    public JsonArray payloadAsJsonArray() {
+        return envelope().payloadAsJsonArray();
+    }
+
+    @Override
+    public JsonNumber payloadAsJsonNumber() {
+        return envelope().payloadAsJsonNumber();
+    }
+
+    @Override
+    public JsonString payloadAsJsonString() {
+        return envelope().payloadAsJsonString();
+    }
+
+    @Override
+    public JsonObject asJsonObject() {
+        return envelope().asJsonObject();
+    }
+
+    @Override
+    @Deprecated
+    public String toDebugStringPrettyPrint() {
+        return envelope().toDebugStringPrettyPrint();
+    }
+
+    /**
+     * Prints the json for logging purposes. Removes any potentially sensitive data.
+     *
+     * @return a json String of the envelope
+     */
+    @Override
+    public String toString() {
+        return envelope().toString();
+    }
+
+    private JsonEnvelope envelope() {
+        if (envelope == null) {
+            envelope = DefaultJsonEnvelope.envelopeFrom(metadata, parse(payloadJson));
+        }
+        return envelope;
+    }
+
+    private static JsonObject parse(final String json) {
+        try (final JsonReader reader = Json.createReader(new StringReader(json))) {
+            return reader.readObject();
+        }
+    }
+
+    /**
+     * Metadata that parses its json on first access to anything other than a known id or name.
+     * Like {@link JsonObjectMetadata}, it is only equal to metadata of its own class.
+     */
+    private static class LazyMetadata implements Metadata {
+
+        private final UUID id;
+        private final String name;
+        private final String metadataJson;
+
+        private volatile Metadata metadata;
+
+        LazyMetadata(final UUID id, final String name, final String metadataJson) {
+            this.id = id;
+            this.name = name;
+            this.metadataJson = metadataJson;
+        }
+
+        @Override
+        public UUID id() {
+            return id != null ? id : metadata().id();
+        }
+
+        @Override
+        public String name() {
+            return name != null ? name : metadata().name();
+        }
+
+        @Override
+        public Optional<String> clientCorrelationId() {
+            return metadata().clientCorrelationId();
+        }
+
+        @Override
+        public List<UUID> causation() {
+            return metadata().causation();
+        }
+
+        @Override
+        public Optional<String> userId() {
+            return metadata().userId();
+        }
+
+        @Override
+        public Optional<String> sessionId() {
+            return metadata().sessionId();
+        }
+
+        @Override
+        public Optional<UUID> streamId() {
+            return metadata().streamId();
+        }
+
+        @Override
+        public Optional<Long> version() {
+            return metadata().version();
+        }
+
+        @Override
+        public JsonObject asJsonObject() {
+            return metadata().asJsonObject();
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            return metadata().equals(((LazyMetadata) o).metadata());
+        }
+
+        @Override
+        public int hashCode() {
+            return metadata().hashCode();
+        }
+
+        private Metadata metadata() {
+            if (metadata == null) {
+                metadata = metadataFrom(parse(metadataJson));
+            }
+            return metadata;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gov.justice.services.messaging;
+
+import static java.util.UUID.randomUUID;
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataOf;
+
+import java.util.UUID;
+
+import javax.json.JsonException;
+import javax.json.JsonObject;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link LazyJsonEnvelope} class.
+ */
+public class LazyJsonEnvelopeTest {
+
+    private static final UUID ID = randomUUID();
+    private static final UUID STREAM_ID = randomUUID();
+    private static final String NAME = "test.event";
+    private static final String METADATA_JSON = "{\"id\":\"" + ID + "\",\"name\":\"" + NAME + "\",\"stream\":{\"id\":\"" + STREAM_ID + "\",\"version\":3}}";
+    private static final String PAYLOAD_JSON = "{\"field\":\"value\"}";
+    private static final String INVALID_JSON = "{not json";
+
+    @Test
+    public void shouldReturnIdAndNameWithoutParsingMetadata() {
+        final JsonEnvelope envelope = LazyJsonEnvelope.envelopeFrom(ID, NAME, INVALID_JSON, INVALID_JSON);
+
+        assertThat(envelope.metadata().id(), is(ID));
+        assertThat(envelope.metadata().name(), is(NAME));
+    }
+
+    @Test
+    public void shouldParseMetadataForOtherFields() {
+        final JsonEnvelope envelope = LazyJsonEnvelope.envelopeFrom(ID, NAME, METADATA_JSON, PAYLOAD_JSON);
+
+        assertThat(envelope.metadata().streamId().get(), is(STREAM_ID));
+        assertThat(envelope.metadata().version().get(), is(3L));
+        assertThat(envelope.metadata().asJsonObject().getString("name"), is(NAME));
+    }
+
+    @Test
+    public void shouldReadIdAndNameFromMetadataIfNotSupplied() {
+        final JsonEnvelope envelope = LazyJsonEnvelope.envelopeFrom(null, null, METADATA_JSON, PAYLOAD_JSON);
+
+        assertThat(envelope.metadata().id(), is(ID));
+        assertThat(envelope.metadata().name(), is(NAME));
+    }
+
+    @Test
+    public void shouldParsePayloadOnAccess() {
+        final JsonEnvelope envelope = LazyJsonEnvelope.envelopeFrom(ID, NAME, METADATA_JSON, PAYLOAD_JSON);
+
+        final JsonObject payload = envelope.payloadAsJsonObject();
+
+        assertThat(payload.getString("field"), is("value"));
+        assertThat(envelope.payload(), is(payload));
+    }
+
+    @Test
+    public void shouldReturnPayloadJsonLengthWithoutParsingPayload() {
+        final LazyJsonEnvelope envelope = (LazyJsonEnvelope) LazyJsonEnvelope.envelopeFrom(ID, NAME, METADATA_JSON, INVALID_JSON);
+
+        assertThat(envelope.payloadJsonLength(), is(INVALID_JSON.length()));
+    }
+
+    @Test(expected = JsonException.class)
+    public void shouldFailOnAccessToInvalidPayload() {
+        final JsonEnvelope envelope = LazyJsonEnvelope.envelopeFrom(ID, NAME, METADATA_JSON, INVALID_JSON);
+
+        envelope.payloadAsJsonObject();
+    }
+
+    @Test
+    public void shouldReturnEnvelopeAsJsonObject() {
+        final JsonObject jsonObject = LazyJsonEnvelope.envelopeFrom(ID, NAME, METADATA_JSON, PAYLOAD_JSON).asJsonObject();
+
+        assertThat(jsonObject.getString("field"), is("value"));
+        assertThat(jsonObject.getJsonObject(JsonEnvelope.METADATA).getString("id"), is(ID.toString()));
+    }
+
+    @Test
+    public void shouldHaveMetadataEqualToLazyMetadataOfSameJson() {
+        final String metadataJson = metadataOf(ID, NAME).build().asJsonObject().toString();
+
+        final Metadata lazyMetadata = LazyJsonEnvelope.envelopeFrom(ID, NAME, metadataJson, PAYLOAD_JSON).metadata();
+        final Metadata otherLazyMetadata = LazyJsonEnvelope.envelopeFrom(ID, NAME, metadataJson, PAYLOAD_JSON).metadata();
+
+        assertThat(lazyMetadata, equalTo(otherLazyMetadata));
+        assertThat(otherLazyMetadata, equalTo(lazyMetadata));
+        assertThat(lazyMetadata.hashCode(), is(otherLazyMetadata.hashCode()));
+    }
+
+    @Test
+    public void shouldNotHaveMetadataEqualToParsedMetadataEitherWay() {
+        final Metadata metadata = metadataOf(ID, NAME).build();
+
+        final Metadata lazyMetadata = LazyJsonEnvelope.envelopeFrom(ID, NAME, metadata.asJsonObject().toString(), PAYLOAD_JSON).metadata();
+
+        assertThat(lazyMetadata, not(equalTo(metadata)));
+        assertThat(metadata, not(equalTo(lazyMetadata)));
+    }
+
+    @Test
+    public void shouldPrintIdAndNameInToString() {
+        final String string = LazyJsonEnvelope.envelopeFrom(ID, NAME, METADATA_JSON, PAYLOAD_JSON).toString();
+
+        assertThat(string.contains(ID.toString()), is(true));
+        assertThat(string.contains(NAME), is(true));
+        assertThat(string.contains("value"), is(false));
+    }
+}
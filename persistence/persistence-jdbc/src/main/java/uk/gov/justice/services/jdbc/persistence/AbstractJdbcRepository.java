@@ -1,5 +1,6 @@
 package uk.gov.justice.services.jdbc.persistence;
 
+import static uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper.streamingValueOf;
 import static uk.gov.justice.services.jdbc.persistence.PreparedStatementWrapper.valueOf;
 
 import java.sql.ResultSet;
@@ -19,6 +20,8 @@ import javax.sql.DataSource;
 
 public abstract class AbstractJdbcRepository<T> {
 
+    protected static final int DEFAULT_FETCH_SIZE = 500;
+
     @Resource(lookup = "java:app/AppName")
     String warFileName;
 
@@ -47,6 +50,29 @@ public abstract class AbstractJdbcRepository<T> {
         return valueOf(getDataSource().getConnection(), query);
     }
 
+    /**
+     * Creates a prepared statement wrapper for queries whose results are to be streamed, fetching
+     * {@link #fetchSize()} rows from the database at a time through a forward only, read only
+     * cursor instead of loading the whole result set into memory.
+     *
+     * @param query the query
+     * @return prepared statement wrapper
+     * @throws SQLException if the statement cannot be created
+     */
+    protected PreparedStatementWrapper streamingPreparedStatementWrapperOf(final String query) throws SQLException {
+        return streamingValueOf(getDataSource().getConnection(), query, fetchSize());
+    }
+
+    /**
+     * Number of rows fetched from the database at a time by streaming queries. Override to tune
+     * for the size of the entities in the repository.
+     *
+     * @return fetch size
+     */
+    protected int fetchSize() {
+        return DEFAULT_FETCH_SIZE;
+    }
+
     protected Stream<T> streamOf(final PreparedStatementWrapper psWrapper) throws SQLException {
 
         final ResultSet resultSet = psWrapper.executeQuery();
@@ -1,9 +1,13 @@
 package uk.gov.justice.services.jdbc.persistence;
 
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
+
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 import java.util.Deque;
 import java.util.LinkedList;
 import java.util.List;
@@ -23,6 +27,42 @@ public class PreparedStatementWrapper implements AutoCloseable {
         return preparedStatementWrapper;
     }
 
+    /**
+     * Creates a wrapper around a forward only, read only statement whose results are fetched from
+     * the database in batches of the given size, rather than being loaded into memory in full when
+     * the query is executed.
+     *
+     * Drivers such as PostgreSQL only use a cursor when the connection is not in auto-commit mode.
+     * If the connection is in auto-commit mode a read only transaction is started on it, which is
+     * rolled back and the connection's original state restored when the wrapper is closed. If the
+     * connection is already taking part in a transaction the query is run within that transaction.
+     *
+     * @param connection    the connection to run the query on
+     * @param queryTemplate the query
+     * @param fetchSize     the number of rows to fetch from the database at a time
+     * @return the wrapper
+     * @throws SQLException if the statement cannot be created
+     */
+    public static PreparedStatementWrapper streamingValueOf(final Connection connection, final String queryTemplate, final int fetchSize) throws SQLException {
+        final AutoCloseable transaction = readOnlyTransactionOf(connection);
+        PreparedStatementWrapper preparedStatementWrapper = null;
+        try {
+            preparedStatementWrapper = new PreparedStatementWrapper(transaction, connection.prepareStatement(queryTemplate, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY));
+        } catch (SQLException sqlEx) {
+            handle(sqlEx, transaction);
+        }
+        preparedStatementWrapper.setFetchSize(fetchSize);
+        return preparedStatementWrapper;
+    }
+
+    public void setFetchSize(final int fetchSize) throws SQLException {
+        try {
+            this.preparedStatement.setFetchSize(fetchSize);
+        } catch (SQLException e) {
+            handle(e, this);
+        }
+    }
+
     public void setObject(final int parameterIndex, final Object obj) throws SQLException {
         try {
             this.preparedStatement.setObject(parameterIndex, obj);
@@ -47,6 +87,22 @@ public class PreparedStatementWrapper implements AutoCloseable {
         }
     }
 
+    public void setBytes(final int parameterIndex, final byte[] bytes) throws SQLException {
+        try {
+            this.preparedStatement.setBytes(parameterIndex, bytes);
+        } catch (SQLException e) {
+            handle(e, this);
+        }
+    }
+
+    public void setTimestamp(final int parameterIndex, final Timestamp timestamp) throws SQLException {
+        try {
+            this.preparedStatement.setTimestamp(parameterIndex, timestamp);
+        } catch (SQLException e) {
+            handle(e, this);
+        }
+    }
+
     public ResultSet executeQuery() throws SQLException {
         ResultSet resultSet = null;
         try {
@@ -68,12 +124,57 @@ public class PreparedStatementWrapper implements AutoCloseable {
         return result;
     }
 
-    private PreparedStatementWrapper(final Connection connection, final PreparedStatement preparedStatement) {
+    public void addBatch() throws SQLException {
+        try {
+            preparedStatement.addBatch();
+        } catch (SQLException e) {
+            handle(e, this);
+        }
+    }
+
+    public int[] executeBatch() throws SQLException {
+        int[] result = new int[0];
+        try {
+            result = preparedStatement.executeBatch();
+        } catch (SQLException e) {
+            handle(e, this);
+        }
+        return result;
+    }
+
+    private PreparedStatementWrapper(final AutoCloseable connection, final PreparedStatement preparedStatement) {
         this.closeables.add(preparedStatement);
         this.closeables.add(connection);
         this.preparedStatement = preparedStatement;
     }
 
+    private static AutoCloseable readOnlyTransactionOf(final Connection connection) throws SQLException {
+        try {
+            if (!connection.getAutoCommit()) {
+                return connection;
+            }
+        } catch (SQLException sqlEx) {
+            handle(sqlEx, connection);
+        }
+
+        final AutoCloseable transaction = () -> {
+            try (final Connection c = connection) {
+                if (!c.getAutoCommit()) {
+                    c.rollback();
+                    c.setAutoCommit(true);
+                }
+                c.setReadOnly(false);
+            }
+        };
+        try {
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+        } catch (SQLException sqlEx) {
+            handle(sqlEx, transaction);
+        }
+        return transaction;
+    }
+
     private static void handle(final SQLException sqlEx, final AutoCloseable closeable) throws SQLException {
         try {
             closeable.close();
@@ -1,6 +1,8 @@
 package uk.gov.justice.services.jdbc.persistence;
 
 import static java.util.stream.Collectors.toList;
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.never;
@@ -8,6 +10,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.List;
@@ -34,6 +38,15 @@ public class AbstractJdbcRepositoryTest {
     @Mock
     private ResultSet rs;
 
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private PreparedStatement preparedStatement;
+
 
     @InjectMocks
     private AbstractJdbcRepository<String> repository = new TestJdbcRepository();
@@ -56,6 +69,17 @@ public class AbstractJdbcRepositoryTest {
 
     }
 
+    @Test
+    public void shouldCreateStreamingStatementWithDefaultFetchSize() throws Exception {
+        final String query = "someQuery";
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(query, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).thenReturn(preparedStatement);
+
+        repository.streamingPreparedStatementWrapperOf(query);
+
+        verify(preparedStatement).setFetchSize(AbstractJdbcRepository.DEFAULT_FETCH_SIZE);
+    }
+
 
     private static class TestJdbcRepository extends AbstractJdbcRepository<String> {
 
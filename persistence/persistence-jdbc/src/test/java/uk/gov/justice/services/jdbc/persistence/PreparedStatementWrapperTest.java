@@ -1,9 +1,12 @@
 package uk.gov.justice.services.jdbc.persistence;
 
+import static java.sql.ResultSet.CONCUR_READ_ONLY;
+import static java.sql.ResultSet.TYPE_FORWARD_ONLY;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.*;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -11,6 +14,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -104,6 +108,30 @@ public class PreparedStatementWrapperTest {
         verify(preparedStatement).setString(parameterIndex, str);
     }
 
+    @Test
+    public void shouldDelegateSetBytesMethodCall() throws SQLException {
+        final String query = "dummy";
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+        final PreparedStatementWrapper ps = PreparedStatementWrapper.valueOf(connection, query);
+        final int parameterIndex = 2;
+        final byte[] bytes = {1, 2, 3};
+        ps.setBytes(parameterIndex, bytes);
+
+        verify(preparedStatement).setBytes(parameterIndex, bytes);
+    }
+
+    @Test
+    public void shouldDelegateSetTimestampMethodCall() throws SQLException {
+        final String query = "dummy";
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+        final PreparedStatementWrapper ps = PreparedStatementWrapper.valueOf(connection, query);
+        final int parameterIndex = 2;
+        final Timestamp timestamp = new Timestamp(1000L);
+        ps.setTimestamp(parameterIndex, timestamp);
+
+        verify(preparedStatement).setTimestamp(parameterIndex, timestamp);
+    }
+
     @Test
     public void shouldDelegateSetLongMethodCall() throws SQLException {
         final String query = "dummy";
@@ -127,6 +155,43 @@ public class PreparedStatementWrapperTest {
         assertThat(ps.executeUpdate(), is(4));
     }
 
+    @Test
+    public void shouldDelegateAddBatchMethodCall() throws SQLException {
+        final String query = "dummy";
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+        final PreparedStatementWrapper ps = PreparedStatementWrapper.valueOf(connection, query);
+        ps.addBatch();
+
+        verify(preparedStatement).addBatch();
+    }
+
+    @Test
+    public void shouldDelegateExecuteBatchMethodCall() throws SQLException {
+        final String query = "someQuery3";
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+        when(preparedStatement.executeBatch()).thenReturn(new int[]{1, 1});
+
+        final PreparedStatementWrapper ps = PreparedStatementWrapper.valueOf(connection, query);
+        assertThat(ps.executeBatch(), is(new int[]{1, 1}));
+    }
+
+    @Test
+    public void shouldCloseStatementAndConnectionOnExceptionOnExecuteBatch() throws SQLException {
+        final String query = "dummy";
+        when(connection.prepareStatement(query)).thenReturn(preparedStatement);
+        when(preparedStatement.executeBatch()).thenThrow(new SQLException());
+        final PreparedStatementWrapper ps = PreparedStatementWrapper.valueOf(connection, query);
+        try {
+            ps.executeBatch();
+        } catch (Exception e) {
+
+        }
+
+        final InOrder inOrder = inOrder(preparedStatement, connection);
+        inOrder.verify(preparedStatement).close();
+        inOrder.verify(connection).close();
+    }
+
     @Test
     public void shouldCloseStatementAndConnectionOnExceptionOnSetObject() throws SQLException {
         final String query = "dummy";
@@ -190,4 +255,85 @@ public class PreparedStatementWrapperTest {
     }
 
 
-}
\ No newline at end of file
+    @Test
+    public void shouldCreateForwardOnlyReadOnlyStatementWithFetchSizeForStreaming() throws SQLException {
+        final String query = "someStreamingQuery";
+        when(connection.prepareStatement(query, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).thenReturn(preparedStatement);
+
+        PreparedStatementWrapper.streamingValueOf(connection, query, 100);
+
+        verify(preparedStatement).setFetchSize(100);
+    }
+
+    @Test
+    public void shouldStreamInReadOnlyTransactionAndRestoreConnectionOnCloseIfInAutoCommitMode() throws SQLException {
+        final String query = "someStreamingQuery";
+        when(connection.getAutoCommit()).thenReturn(true).thenReturn(false);
+        when(connection.prepareStatement(query, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).thenReturn(preparedStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+
+        final PreparedStatementWrapper ps = PreparedStatementWrapper.streamingValueOf(connection, query, 100);
+        ps.executeQuery();
+        ps.close();
+
+        final InOrder inOrder = inOrder(connection, resultSet, preparedStatement);
+        inOrder.verify(connection).setReadOnly(true);
+        inOrder.verify(connection).setAutoCommit(false);
+        inOrder.verify(resultSet).close();
+        inOrder.verify(preparedStatement).close();
+        inOrder.verify(connection).rollback();
+        inOrder.verify(connection).setAutoCommit(true);
+        inOrder.verify(connection).setReadOnly(false);
+        inOrder.verify(connection).close();
+    }
+
+    @Test
+    public void shouldStreamWithinExistingTransaction() throws SQLException {
+        final String query = "someStreamingQuery";
+        when(connection.getAutoCommit()).thenReturn(false);
+        when(connection.prepareStatement(query, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).thenReturn(preparedStatement);
+
+        final PreparedStatementWrapper ps = PreparedStatementWrapper.streamingValueOf(connection, query, 100);
+        ps.close();
+
+        verify(connection, never()).setAutoCommit(Mockito.anyBoolean());
+        verify(connection, never()).setReadOnly(Mockito.anyBoolean());
+        verify(connection, never()).rollback();
+        verify(connection).close();
+    }
+
+    @Test
+    public void shouldRestoreAndCloseConnectionWhenStreamingStatementCreationCausesException() throws SQLException {
+        final String query = "someStreamingQuery";
+        when(connection.getAutoCommit()).thenReturn(true).thenReturn(false);
+        when(connection.prepareStatement(query, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).thenThrow(new SQLException());
+        try {
+            PreparedStatementWrapper.streamingValueOf(connection, query, 100);
+        } catch (Exception e) {
+
+        }
+
+        final InOrder inOrder = inOrder(connection);
+        inOrder.verify(connection).rollback();
+        inOrder.verify(connection).setAutoCommit(true);
+        inOrder.verify(connection).setReadOnly(false);
+        inOrder.verify(connection).close();
+    }
+
+    @Test
+    public void shouldCloseStatementAndConnectionOnExceptionOnSetFetchSize() throws SQLException {
+        final String query = "someStreamingQuery";
+        when(connection.prepareStatement(query, TYPE_FORWARD_ONLY, CONCUR_READ_ONLY)).thenReturn(preparedStatement);
+        doThrow(new SQLException()).when(preparedStatement).setFetchSize(100);
+        try {
+            PreparedStatementWrapper.streamingValueOf(connection, query, 100);
+        } catch (Exception e) {
+
+        }
+
+        final InOrder inOrder = inOrder(preparedStatement, connection);
+        inOrder.verify(preparedStatement).close();
+        inOrder.verify(connection).close();
+    }
+
+}
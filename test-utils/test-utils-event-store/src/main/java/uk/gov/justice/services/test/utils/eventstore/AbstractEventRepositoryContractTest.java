@@ -0,0 +1,392 @@
+package uk.gov.justice.services.test.utils.eventstore;
+
+import static java.time.ZoneOffset.UTC;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import static uk.gov.justice.services.messaging.DefaultJsonEnvelope.envelope;
+import static uk.gov.justice.services.messaging.JsonObjectMetadata.metadataOf;
+
+import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEnvelope;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEventRepository;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StreamVersionConflictException;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import org.junit.Test;
+
+/**
+ * Contract tests that every {@link EventRepository} implementation must pass. The tests of reads
+ * from a global position are skipped for repositories that are not a
+ * {@link PositionedEventRepository}.
+ *
+ * To use, extend this class and return a new, empty repository from {@link #eventRepository()}:
+ *
+ * <pre><blockquote>
+ *
+ *     public class MyEventRepositoryTest extends AbstractEventRepositoryContractTest {
+ *
+ *          private MyEventRepository eventRepository;
+ *
+ *          &#64;Before
+ *          public void createRepository() {
+ *              eventRepository = new MyEventRepository();
+ *          }
+ *
+ *          &#64;Override
+ *          protected EventRepository eventRepository() {
+ *              return eventRepository;
+ *          }
+ *     }
+ *
+ * </blockquote></pre>
+ */
+public abstract class AbstractEventRepositoryContractTest {
+
+    private static final String EVENT_NAME = "test.event.something-happened";
+    private static final String OTHER_EVENT_NAME = "test.event.something-else-happened";
+
+    /**
+     * @return the repository under test, which must be empty at the start of each test
+     */
+    protected abstract EventRepository eventRepository();
+
+    @Test
+    public void shouldStoreAndReadEventsOfStreamInVersionOrder() throws Exception {
+        final UUID streamId = randomUUID();
+        final JsonEnvelope event1 = eventOf(streamId, 1L);
+        final JsonEnvelope event2 = eventOf(streamId, 2L);
+        final JsonEnvelope event3 = eventOf(streamId, 3L);
+
+        eventRepository().store(event1, streamId, 1L);
+        eventRepository().store(event2, streamId, 2L);
+        eventRepository().store(event3, streamId, 3L);
+
+        assertThat(idsOf(eventRepository().getByStreamId(streamId)), contains(idOf(event1), idOf(event2), idOf(event3)));
+        assertThat(eventRepository().getCurrentSequenceIdForStream(streamId), is(3L));
+    }
+
+    @Test
+    public void shouldStoreBatchOfEventsAtConsecutiveVersions() throws Exception {
+        final UUID streamId = randomUUID();
+        final JsonEnvelope event1 = eventOf(streamId, 1L);
+        final JsonEnvelope event2 = eventOf(streamId, 2L);
+        final JsonEnvelope event3 = eventOf(streamId, 3L);
+
+        eventRepository().storeAll(asList(event1, event2), streamId, 1L);
+        eventRepository().storeAll(singletonList(event3), streamId, 3L);
+
+        assertThat(idsOf(eventRepository().getByStreamId(streamId)), contains(idOf(event1), idOf(event2), idOf(event3)));
+        assertThat(eventRepository().getCurrentSequenceIdForStream(streamId), is(3L));
+    }
+
+    @Test
+    public void shouldPreserveNameMetadataAndPayloadOfEvents() throws Exception {
+        final UUID streamId = randomUUID();
+        final JsonEnvelope event = eventOf(streamId, 1L);
+
+        eventRepository().store(event, streamId, 1L);
+
+        final JsonEnvelope readEvent = eventRepository().getByStreamId(streamId).findFirst().get();
+        assertThat(readEvent.metadata().name(), is(EVENT_NAME));
+        assertThat(readEvent.metadata().asJsonObject(), is(event.metadata().asJsonObject()));
+        assertThat(readEvent.payloadAsJsonObject(), is(event.payloadAsJsonObject()));
+    }
+
+    @Test
+    public void shouldReadStreamFromVersion() throws Exception {
+        final UUID streamId = randomUUID();
+        final JsonEnvelope event2 = eventOf(streamId, 2L);
+        final JsonEnvelope event3 = eventOf(streamId, 3L);
+
+        eventRepository().storeAll(asList(eventOf(streamId, 1L), event2, event3), streamId, 1L);
+
+        assertThat(idsOf(eventRepository().getByStreamIdAndSequenceId(streamId, 2L)), contains(idOf(event2), idOf(event3)));
+        assertThat(eventRepository().getByStreamIdAndSequenceId(streamId, 4L).count(), is(0L));
+    }
+
+    @Test
+    public void shouldReadOnlyEventsWithGivenNames() throws Exception {
+        final UUID streamId = randomUUID();
+        final JsonEnvelope event1 = eventOf(streamId, 1L);
+        final JsonEnvelope event2 = eventOf(streamId, 2L, OTHER_EVENT_NAME);
+        final JsonEnvelope event3 = eventOf(streamId, 3L);
+
+        eventRepository().storeAll(asList(event1, event2, event3), streamId, 1L);
+
+        assertThat(idsOf(eventRepository().getByStreamIdAndNames(streamId, new HashSet<>(singletonList(EVENT_NAME)))),
+                contains(idOf(event1), idOf(event3)));
+        assertThat(idsOf(eventRepository().getByStreamIdAndSequenceIdAndNames(streamId, 2L, new HashSet<>(singletonList(EVENT_NAME)))),
+                contains(idOf(event3)));
+        assertThat(eventRepository().getByStreamIdAndNames(streamId, new HashSet<>()).count(), is(0L));
+    }
+
+    @Test
+    public void shouldReturnEmptyStreamAndVersionZeroForUnknownStream() {
+        final UUID streamId = randomUUID();
+
+        assertThat(eventRepository().getByStreamId(streamId).count(), is(0L));
+        assertThat(eventRepository().getCurrentSequenceIdForStream(streamId), is(0L));
+    }
+
+    @Test
+    public void shouldRejectEventAtExistingVersion() throws Exception {
+        final UUID streamId = randomUUID();
+        eventRepository().store(eventOf(streamId, 1L), streamId, 1L);
+
+        assertStoreFails(() -> eventRepository().store(eventOf(streamId, 1L), streamId, 1L));
+        assertThat(eventRepository().getByStreamId(streamId).count(), is(1L));
+    }
+
+    @Test
+    public void shouldRejectEventNotDirectlyFollowingCurrentVersion() throws Exception {
+        final UUID streamId = randomUUID();
+        eventRepository().store(eventOf(streamId, 1L), streamId, 1L);
+
+        assertStoreFails(() -> eventRepository().store(eventOf(streamId, 3L), streamId, 3L));
+        assertThat(eventRepository().getCurrentSequenceIdForStream(streamId), is(1L));
+    }
+
+    @Test
+    public void shouldRejectWholeBatchNotDirectlyFollowingCurrentVersion() throws Exception {
+        final UUID streamId = randomUUID();
+        eventRepository().storeAll(asList(eventOf(streamId, 1L), eventOf(streamId, 2L)), streamId, 1L);
+
+        assertStoreFails(() -> eventRepository().storeAll(asList(eventOf(streamId, 2L), eventOf(streamId, 3L)), streamId, 2L));
+        assertThat(eventRepository().getCurrentSequenceIdForStream(streamId), is(2L));
+        assertThat(eventRepository().getByStreamId(streamId).count(), is(2L));
+    }
+
+    @Test
+    public void shouldReportVersionConflictWhenStreamHasMovedOn() throws Exception {
+        final UUID streamId = randomUUID();
+        eventRepository().storeAll(asList(eventOf(streamId, 1L), eventOf(streamId, 2L)), streamId, 1L);
+
+        try {
+            eventRepository().storeAll(singletonList(eventOf(streamId, 2L)), streamId, 2L);
+            fail("Expected version conflict");
+        } catch (final StreamVersionConflictException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldRejectEventWithoutVersion() {
+        final UUID streamId = randomUUID();
+
+        assertStoreFails(() -> eventRepository().store(eventOf(streamId, 1L), streamId, null));
+        assertStoreFails(() -> eventRepository().storeAll(singletonList(eventOf(streamId, 1L)), streamId, null));
+    }
+
+    @Test
+    public void shouldGetCurrentVersionsOfManyStreams() throws Exception {
+        final UUID streamId1 = randomUUID();
+        final UUID streamId2 = randomUUID();
+        final UUID unknownStreamId = randomUUID();
+        eventRepository().storeAll(asList(eventOf(streamId1, 1L), eventOf(streamId1, 2L)), streamId1, 1L);
+        eventRepository().store(eventOf(streamId2, 1L), streamId2, 1L);
+
+        final Map<UUID, Long> versions = eventRepository().getCurrentSequenceIdsForStreams(asList(streamId1, streamId2, unknownStreamId));
+
+        assertThat(versions.size(), is(3));
+        assertThat(versions.get(streamId1), is(2L));
+        assertThat(versions.get(streamId2), is(1L));
+        assertThat(versions.get(unknownStreamId), is(0L));
+    }
+
+    @Test
+    public void shouldReadAllEventsInTheOrderTheyWereStored() throws Exception {
+        final UUID streamId1 = randomUUID();
+        final UUID streamId2 = randomUUID();
+        final JsonEnvelope event1 = eventOf(streamId1, 1L);
+        final JsonEnvelope event2 = eventOf(streamId2, 1L);
+        final JsonEnvelope event3 = eventOf(streamId1, 2L);
+
+        eventRepository().store(event1, streamId1, 1L);
+        eventRepository().store(event2, streamId2, 1L);
+        eventRepository().store(event3, streamId1, 2L);
+
+        assertThat(idsOf(eventRepository().getAll()), contains(idOf(event1), idOf(event2), idOf(event3)));
+    }
+
+    @Test
+    public void shouldReadAllEventsFromPositionInPages() throws Exception {
+        final UUID streamId = randomUUID();
+        final List<JsonEnvelope> events = new ArrayList<>();
+        for (long version = 1L; version <= 5L; version++) {
+            events.add(eventOf(streamId, version));
+        }
+        eventRepository().storeAll(events, streamId, 1L);
+
+        final List<PositionedEnvelope> all = positionedEventRepository().readAllFrom(0L, 2).collect(toList());
+
+        assertThat(all, hasSize(5));
+        for (int i = 1; i < all.size(); i++) {
+            assertThat(all.get(i - 1).getPosition(), lessThan(all.get(i).getPosition()));
+        }
+        assertThat(all.stream().map(PositionedEnvelope::getEnvelope).map(this::idOf).collect(toList()), is(events.stream().map(this::idOf).collect(toList())));
+
+        final List<PositionedEnvelope> fromThird = positionedEventRepository().readAllFrom(all.get(2).getPosition(), 2).collect(toList());
+        assertThat(fromThird.stream().map(PositionedEnvelope::getPosition).collect(toList()),
+                contains(all.get(2).getPosition(), all.get(3).getPosition(), all.get(4).getPosition()));
+    }
+
+    @Test
+    public void shouldRejectInvalidPageSize() {
+        try {
+            positionedEventRepository().readAllFrom(0L, 0).count();
+            fail("Expected page size of 0 to be rejected");
+        } catch (final RuntimeException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void shouldReadEventsOfStreamNewestFirst() throws Exception {
+        final UUID streamId = randomUUID();
+        final UUID otherStreamId = randomUUID();
+        final List<JsonEnvelope> events = new ArrayList<>();
+        for (long version = 1L; version <= 5L; version++) {
+            events.add(eventOf(streamId, version));
+        }
+        eventRepository().storeAll(events, streamId, 1L);
+        eventRepository().store(eventOf(otherStreamId, 1L), otherStreamId, 1L);
+
+        assertThat(idsOf(eventRepository().getByStreamIdInReverse(streamId, 2)),
+                contains(idOf(events.get(4)), idOf(events.get(3)), idOf(events.get(2)), idOf(events.get(1)), idOf(events.get(0))));
+        assertThat(idsOf(eventRepository().getByStreamIdInReverse(streamId, 10).limit(2)),
+                contains(idOf(events.get(4)), idOf(events.get(3))));
+        assertThat(idsOf(eventRepository().getByStreamIdInReverse(randomUUID(), 2)), is(empty()));
+    }
+
+    @Test
+    public void shouldReturnEventsCreatedInTimeRangeInOrder() throws Exception {
+        final UUID streamId1 = randomUUID();
+        final UUID streamId2 = randomUUID();
+        final JsonEnvelope event1 = eventOf(streamId1, 1L);
+        final JsonEnvelope event2 = eventOf(streamId2, 1L);
+        final JsonEnvelope event3 = eventOf(streamId1, 2L);
+
+        final ZonedDateTime before = pauseAndGetTime();
+        eventRepository().store(event1, streamId1, 1L);
+        final ZonedDateTime middle = pauseAndGetTime();
+        eventRepository().store(event2, streamId2, 1L);
+        eventRepository().store(event3, streamId1, 2L);
+        final ZonedDateTime after = pauseAndGetTime();
+
+        assertThat(idsOf(eventRepository().getByTimeRange(before, after)), contains(idOf(event1), idOf(event2), idOf(event3)));
+        assertThat(idsOf(eventRepository().getByTimeRange(middle, after)), contains(idOf(event2), idOf(event3)));
+        assertThat(idsOf(eventRepository().getByTimeRange(before, middle)), contains(idOf(event1)));
+        assertThat(idsOf(eventRepository().getByTimeRange(before.minusDays(1), before)), is(empty()));
+    }
+
+    @Test
+    public void shouldReturnStreamOfEachEventStream() throws Exception {
+        final UUID streamId1 = randomUUID();
+        final UUID streamId2 = randomUUID();
+        eventRepository().storeAll(asList(eventOf(streamId1, 1L), eventOf(streamId1, 2L)), streamId1, 1L);
+        eventRepository().store(eventOf(streamId2, 1L), streamId2, 1L);
+
+        final List<List<UUID>> streams;
+        try (final Stream<Stream<JsonEnvelope>> allStreams = eventRepository().getStreamOfAllEventStreams()) {
+            streams = allStreams.map(this::idsOf).collect(toList());
+        }
+
+        assertThat(streams, hasSize(2));
+        assertThat(streams.stream().map(List::size).sorted().collect(toList()), contains(1, 2));
+    }
+
+    @Test
+    public void shouldReturnEachEventStreamOneAtATime() throws Exception {
+        final UUID streamId1 = randomUUID();
+        final UUID streamId2 = randomUUID();
+        eventRepository().storeAll(asList(eventOf(streamId1, 1L), eventOf(streamId1, 2L)), streamId1, 1L);
+        eventRepository().store(eventOf(streamId2, 1L), streamId2, 1L);
+
+        final List<List<UUID>> streams;
+        try (final Stream<Stream<JsonEnvelope>> allStreams = eventRepository().getStreamOfAllEventStreamsOneAtATime()) {
+            streams = allStreams.map(this::idsOf).collect(toList());
+        }
+
+        assertThat(streams, hasSize(2));
+        assertThat(streams.stream().map(List::size).sorted().collect(toList()), contains(1, 2));
+    }
+
+    @Test
+    public void shouldReturnNoEventsWhenEmpty() {
+        assertThat(eventRepository().getAll().collect(toList()), is(empty()));
+        if (eventRepository() instanceof PositionedEventRepository) {
+            assertThat(positionedEventRepository().readAllFrom(0L, 10).collect(toList()), is(empty()));
+        }
+        assertThat(eventRepository().getByTimeRange(ZonedDateTime.now(UTC).minusDays(1), ZonedDateTime.now(UTC)).collect(toList()), is(empty()));
+    }
+
+    /**
+     * @return the repository under test, skipping the calling test if the repository has no
+     * global position
+     */
+    protected PositionedEventRepository positionedEventRepository() {
+        assumeTrue(eventRepository() instanceof PositionedEventRepository);
+        return (PositionedEventRepository) eventRepository();
+    }
+
+    protected JsonEnvelope eventOf(final UUID streamId, final long version) {
+        return eventOf(streamId, version, EVENT_NAME);
+    }
+
+    protected JsonEnvelope eventOf(final UUID streamId, final long version, final String name) {
+        return envelope()
+                .with(metadataOf(randomUUID(), name).withStreamId(streamId).withVersion(version))
+                .withPayloadOf("value-" + version, "field")
+                .build();
+    }
+
+    private ZonedDateTime pauseAndGetTime() throws InterruptedException {
+        Thread.sleep(20L);
+        final ZonedDateTime time = ZonedDateTime.now(UTC);
+        Thread.sleep(20L);
+        return time;
+    }
+
+    private UUID idOf(final JsonEnvelope envelope) {
+        return envelope.metadata().id();
+    }
+
+    private List<UUID> idsOf(final Stream<JsonEnvelope> envelopes) {
+        try (final Stream<JsonEnvelope> stream = envelopes) {
+            return stream.map(this::idOf).collect(toList());
+        }
+    }
+
+    private void assertStoreFails(final Store store) {
+        try {
+            store.store();
+            fail("Expected store to fail");
+        } catch (final StoreEventRequestFailedException expected) {
+            // expected
+        }
+    }
+
+    @FunctionalInterface
+    private interface Store {
+        void store() throws StoreEventRequestFailedException;
+    }
+}
@@ -0,0 +1,299 @@
+package uk.gov.justice.services.test.utils.eventstore;
+
+import static java.lang.String.format;
+import static java.time.ZoneOffset.UTC;
+import static java.util.Collections.emptyIterator;
+import static java.util.Comparator.comparing;
+import static java.util.Spliterator.NONNULL;
+import static java.util.Spliterator.ORDERED;
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEnvelope;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEventRepository;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StreamVersionConflictException;
+import uk.gov.justice.services.messaging.JsonEnvelope;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Spliterators.AbstractSpliterator;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Alternative;
+
+/**
+ * Event repository that holds all events in memory, for tests and benchmarks of the layers above
+ * the event store. It is a CDI alternative without a priority, so it is only used by archives that
+ * enable it in their beans.xml, or by tests that create it directly. Having this module on the
+ * classpath never replaces the event repository of a deployment.
+ *
+ * The events of each stream are held in an append-only array. Appends to a stream are serialised
+ * by one of a fixed set of locks chosen by the stream id, so appends to different streams mostly
+ * run in parallel, and reads take no lock at all. Versions are checked as they are by the JDBC
+ * event repository: each append must start at the version directly following the current version
+ * of the stream.
+ *
+ * Every event is also given a global position, in the order events are appended, for
+ * {@link #getAll()} and {@link #readAllFrom(long, int)}, and the time it was appended, for
+ * {@link #getByTimeRange(ZonedDateTime, ZonedDateTime)}. Positions are taken and published under
+ * a single lock shared by all streams, so an event never becomes visible before one with a lower
+ * position and reads from a position never skip an event.
+ */
+@ApplicationScoped
+@Alternative
+public class InMemoryEventRepository implements PositionedEventRepository {
+
+    private static final int LOCK_STRIPES = 64;
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final Object positionLock = new Object();
+    private final Map<UUID, EventArray> streams = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, PositionedEnvelope> eventsByPosition = new ConcurrentSkipListMap<>();
+    private final Map<Long, ZonedDateTime> datesCreated = new ConcurrentHashMap<>();
+    private final AtomicLong lastPosition = new AtomicLong();
+
+    public InMemoryEventRepository() {
+        Arrays.setAll(locks, i -> new Object());
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getAll() {
+        return eventsByPosition.values().stream().map(PositionedEnvelope::getEnvelope);
+    }
+
+    @Override
+    public Stream<PositionedEnvelope> readAllFrom(final long position, final int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException(format("pageSize must be positive, was %d.", pageSize));
+        }
+        return StreamSupport.stream(new PositionPageSpliterator(position, pageSize), false);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByTimeRange(final ZonedDateTime from, final ZonedDateTime to) {
+        return eventsByPosition.values().stream()
+                .filter(event -> isInRange(datesCreated.get(event.getPosition()), from, to))
+                .sorted(comparing((PositionedEnvelope event) -> datesCreated.get(event.getPosition()))
+                        .thenComparing(PositionedEnvelope::getPosition))
+                .map(PositionedEnvelope::getEnvelope);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamId(final UUID streamId) {
+        return getByStreamIdAndSequenceId(streamId, 1L);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndSequenceId(final UUID streamId, final Long sequenceId) {
+        final EventArray stream = streams.get(streamId);
+        return stream == null ? Stream.empty() : stream.from(sequenceId);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdInReverse(final UUID streamId, final int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException(format("pageSize must be positive, was %d.", pageSize));
+        }
+        final EventArray stream = streams.get(streamId);
+        return stream == null ? Stream.empty() : stream.inReverse();
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndNames(final UUID streamId, final Set<String> names) {
+        return getByStreamIdAndSequenceIdAndNames(streamId, 1L, names);
+    }
+
+    @Override
+    public Stream<JsonEnvelope> getByStreamIdAndSequenceIdAndNames(final UUID streamId, final Long sequenceId, final Set<String> names) {
+        return getByStreamIdAndSequenceId(streamId, sequenceId)
+                .filter(envelope -> names.contains(envelope.metadata().name()));
+    }
+
+    @Override
+    public void store(final JsonEnvelope envelope, final UUID streamId, final Long version) throws StoreEventRequestFailedException {
+        final List<JsonEnvelope> envelopes = new ArrayList<>(1);
+        envelopes.add(envelope);
+        storeAll(envelopes, streamId, version);
+    }
+
+    @Override
+    public void storeAll(final List<JsonEnvelope> envelopes, final UUID streamId, final Long firstVersion) throws StoreEventRequestFailedException {
+        if (firstVersion == null) {
+            throw new StoreEventRequestFailedException(format("Could not store events for stream %s", streamId),
+                    new InvalidSequenceIdException(format("Version is null for stream %s", streamId)));
+        }
+
+        try {
+            append(envelopes, streamId, firstVersion);
+        } catch (InvalidSequenceIdException ex) {
+            throw new StreamVersionConflictException(format("Could not store events from version %d of stream %s",
+                    firstVersion, streamId), ex);
+        }
+    }
+
+    @Override
+    public Long getCurrentSequenceIdForStream(final UUID streamId) {
+        final EventArray stream = streams.get(streamId);
+        return stream == null ? 0L : stream.size();
+    }
+
+    @Override
+    public Map<UUID, Long> getCurrentSequenceIdsForStreams(final Collection<UUID> streamIds) {
+        return streamIds.stream()
+                .distinct()
+                .collect(toMap(identity(), this::getCurrentSequenceIdForStream));
+    }
+
+    @Override
+    public Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreams() {
+        return streams.values().stream().map(stream -> stream.from(1L));
+    }
+
+    /**
+     * Nested streams are read straight from memory, so this is
+     * {@link #getStreamOfAllEventStreams()}.
+     */
+    @Override
+    public Stream<Stream<JsonEnvelope>> getStreamOfAllEventStreamsOneAtATime() {
+        return getStreamOfAllEventStreams();
+    }
+
+    /**
+     * Remove all events, for example between tests sharing the repository. Must not be called
+     * while events are being appended.
+     */
+    public void clear() {
+        streams.clear();
+        eventsByPosition.clear();
+        datesCreated.clear();
+        lastPosition.set(0L);
+    }
+
+    private void append(final List<JsonEnvelope> envelopes, final UUID streamId, final long firstVersion) throws InvalidSequenceIdException {
+        if (envelopes.isEmpty()) {
+            return;
+        }
+
+        synchronized (lockFor(streamId)) {
+            final EventArray stream = streams.computeIfAbsent(streamId, id -> new EventArray());
+            if (firstVersion != stream.size() + 1) {
+                throw new InvalidSequenceIdException(format("Version %s of stream %s does not follow the current version %s of the stream",
+                        firstVersion, streamId, stream.size()));
+            }
+
+            synchronized (positionLock) {
+                final ZonedDateTime dateCreated = ZonedDateTime.now(UTC);
+                for (final JsonEnvelope envelope : envelopes) {
+                    final long position = lastPosition.incrementAndGet();
+                    datesCreated.put(position, dateCreated);
+                    eventsByPosition.put(position, new PositionedEnvelope(position, envelope));
+                    stream.add(envelope);
+                }
+            }
+        }
+    }
+
+    private boolean isInRange(final ZonedDateTime dateCreated, final ZonedDateTime from, final ZonedDateTime to) {
+        return dateCreated != null && !dateCreated.isBefore(from) && dateCreated.isBefore(to);
+    }
+
+    private Object lockFor(final UUID streamId) {
+        return locks[(streamId.hashCode() & Integer.MAX_VALUE) % LOCK_STRIPES];
+    }
+
+    /**
+     * Reads the events from a position in pages of at most <code>pageSize</code> events, the next
+     * page being taken once the current one has been consumed.
+     */
+    private class PositionPageSpliterator extends AbstractSpliterator<PositionedEnvelope> {
+
+        private final int pageSize;
+
+        private long nextPosition;
+        private Iterator<PositionedEnvelope> page = emptyIterator();
+        private boolean lastPage = false;
+
+        PositionPageSpliterator(final long position, final int pageSize) {
+            super(Long.MAX_VALUE, ORDERED | NONNULL);
+            this.nextPosition = position;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public boolean tryAdvance(final Consumer<? super PositionedEnvelope> consumer) {
+            if (!page.hasNext() && !readNextPage()) {
+                return false;
+            }
+
+            final PositionedEnvelope event = page.next();
+            nextPosition = event.getPosition() + 1;
+            consumer.accept(event);
+            return true;
+        }
+
+        private boolean readNextPage() {
+            if (lastPage) {
+                return false;
+            }
+
+            final List<PositionedEnvelope> events = eventsByPosition.tailMap(nextPosition).values().stream()
+                    .limit(pageSize)
+                    .collect(toList());
+            lastPage = events.size() < pageSize;
+            page = events.iterator();
+            return page.hasNext();
+        }
+    }
+
+    /**
+     * Append-only array of the events of a stream, written under the lock of the stream and read
+     * without locking. An event is always written before the size that makes it visible.
+     */
+    private static class EventArray {
+
+        private volatile JsonEnvelope[] events = new JsonEnvelope[8];
+        private volatile int size;
+
+        void add(final JsonEnvelope event) {
+            JsonEnvelope[] current = events;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+                events = current;
+            }
+            current[size] = event;
+            size = size + 1;
+        }
+
+        long size() {
+            return size;
+        }
+
+        Stream<JsonEnvelope> from(final long version) {
+            final int end = size;
+            final int start = (int) Math.min(Math.max(version, 1L) - 1, end);
+            return Arrays.stream(events, start, end);
+        }
+
+        Stream<JsonEnvelope> inReverse() {
+            final int last = size - 1;
+            final JsonEnvelope[] current = events;
+            return IntStream.rangeClosed(0, last).mapToObj(index -> current[last - index]);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package uk.gov.justice.services.test.utils.eventstore;
+
+/**
+ * Exception thrown when a request tries to append events to a stream at a version that does not
+ * directly follow the current version of the stream.
+ */
+public class InvalidSequenceIdException extends Exception {
+
+    private static final long serialVersionUID = -6307751283469126310L;
+
+    public InvalidSequenceIdException(final String message) {
+        super(message);
+    }
+}
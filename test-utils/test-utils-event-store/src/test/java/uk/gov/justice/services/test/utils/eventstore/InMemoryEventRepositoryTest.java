@@ -0,0 +1,145 @@
+package uk.gov.justice.services.test.utils.eventstore;
+
+import static java.util.Arrays.asList;
+import static java.util.UUID.randomUUID;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import uk.gov.justice.services.eventsourcing.repository.core.EventRepository;
+import uk.gov.justice.services.eventsourcing.repository.core.PositionedEnvelope;
+import uk.gov.justice.services.eventsourcing.repository.core.exception.StoreEventRequestFailedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InMemoryEventRepositoryTest extends AbstractEventRepositoryContractTest {
+
+    private static final int THREADS = 8;
+    private static final int APPENDS_PER_THREAD = 200;
+
+    private InMemoryEventRepository inMemoryEventRepository;
+
+    @Before
+    public void createRepository() {
+        inMemoryEventRepository = new InMemoryEventRepository();
+    }
+
+    @Override
+    protected EventRepository eventRepository() {
+        return inMemoryEventRepository;
+    }
+
+    @Test
+    public void shouldStoreEachVersionOnceWhenAppendingConcurrentlyToSameStream() throws Exception {
+        final UUID streamId = randomUUID();
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(appendAtCurrentVersion(streamId)));
+            }
+
+            int stored = 0;
+            for (final Future<Integer> result : results) {
+                stored += result.get();
+            }
+
+            assertThat(inMemoryEventRepository.getCurrentSequenceIdForStream(streamId), is((long) stored));
+            assertThat(inMemoryEventRepository.getByStreamId(streamId)
+                    .map(envelope -> envelope.metadata().version().get())
+                    .collect(toList()), is(versionsUpTo(stored)));
+            assertThat(inMemoryEventRepository.readAllFrom(1L, 100)
+                    .map(PositionedEnvelope::getPosition)
+                    .collect(toList()), is(versionsUpTo(stored)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldRemoveAllEventsWhenCleared() throws Exception {
+        final UUID streamId = randomUUID();
+        inMemoryEventRepository.store(eventOf(streamId, 1L), streamId, 1L);
+
+        inMemoryEventRepository.clear();
+
+        assertThat(inMemoryEventRepository.getCurrentSequenceIdForStream(streamId), is(0L));
+        assertThat(inMemoryEventRepository.getAll().count(), is(0L));
+        inMemoryEventRepository.store(eventOf(streamId, 1L), streamId, 1L);
+        assertThat(inMemoryEventRepository.readAllFrom(1L, 10).findFirst().get().getPosition(), is(1L));
+    }
+
+    @Test
+    public void shouldReadEveryPositionInOrderWhileAppendingConcurrentlyToManyStreams() throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+        try {
+            final List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(executor.submit(appendAtCurrentVersion(randomUUID())));
+            }
+
+            long nextPosition = 1L;
+            while (nextPosition <= THREADS * APPENDS_PER_THREAD) {
+                final List<Long> positions = inMemoryEventRepository.readAllFrom(nextPosition, 7)
+                        .map(PositionedEnvelope::getPosition)
+                        .collect(toList());
+                for (final Long position : positions) {
+                    assertThat(position, is(nextPosition++));
+                }
+            }
+
+            for (final Future<Integer> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldReadPastTheFirstPageFromAPosition() throws Exception {
+        final UUID streamId = randomUUID();
+        for (long version = 1L; version <= 10L; version++) {
+            inMemoryEventRepository.store(eventOf(streamId, version), streamId, version);
+        }
+
+        assertThat(inMemoryEventRepository.readAllFrom(4L, 3)
+                .map(PositionedEnvelope::getPosition)
+                .collect(toList()), is(asList(4L, 5L, 6L, 7L, 8L, 9L, 10L)));
+    }
+
+    private Callable<Integer> appendAtCurrentVersion(final UUID streamId) {
+        return () -> {
+            int stored = 0;
+            for (int i = 0; i < APPENDS_PER_THREAD; i++) {
+                final long version = inMemoryEventRepository.getCurrentSequenceIdForStream(streamId) + 1;
+                try {
+                    inMemoryEventRepository.store(eventOf(streamId, version), streamId, version);
+                    stored++;
+                } catch (final StoreEventRequestFailedException e) {
+                    // another thread stored this version first
+                }
+            }
+            return stored;
+        };
+    }
+
+    private List<Long> versionsUpTo(final int last) {
+        final List<Long> versions = new ArrayList<>(last);
+        for (long version = 1; version <= last; version++) {
+            versions.add(version);
+        }
+        return versions;
+    }
+}
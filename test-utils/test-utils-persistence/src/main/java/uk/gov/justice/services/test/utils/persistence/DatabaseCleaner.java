@@ -68,7 +68,7 @@ public class DatabaseCleaner {
     }
 
     /**
-     * Deletes all the data in the 'event_log' table
+     * Deletes all the data in the 'event_log' table and its 'stream' table
      *
      * @param contextName the name of the context who's tables you are cleaning
      */
@@ -77,6 +77,7 @@ public class DatabaseCleaner {
         try (final Connection connection = testJdbcConnectionProvider.getEventStoreConnection(contextName)) {
 
             cleanTable("event_log", connection);
+            cleanTable("stream", connection);
 
         } catch (SQLException e) {
             throw new DataAccessException("Failed to commit or close database connection", e);
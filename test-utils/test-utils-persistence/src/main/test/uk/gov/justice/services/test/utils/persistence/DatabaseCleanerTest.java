@@ -79,19 +79,24 @@ public class DatabaseCleanerTest {
     public void shouldCleanTheEventLogTable() throws Exception {
 
         final String tableName = "event_log";
+        final String streamTableName = "stream";
         final String contextName = "my-context";
 
         final Connection connection = mock(Connection.class);
         final PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        final PreparedStatement streamPreparedStatement = mock(PreparedStatement.class);
 
         when(testJdbcConnectionProvider.getEventStoreConnection(contextName)).thenReturn(connection);
         when(connection.prepareStatement("DELETE FROM " + tableName)).thenReturn(preparedStatement);
+        when(connection.prepareStatement("DELETE FROM " + streamTableName)).thenReturn(streamPreparedStatement);
 
         databaseCleaner.cleanEventLogTable(contextName);
 
         verify(preparedStatement).executeUpdate();
+        verify(streamPreparedStatement).executeUpdate();
         verify(connection).close();
         verify(preparedStatement).close();
+        verify(streamPreparedStatement).close();
     }
 
     @Test